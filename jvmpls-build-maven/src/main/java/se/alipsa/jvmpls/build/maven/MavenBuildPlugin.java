@@ -2,11 +2,14 @@ package se.alipsa.jvmpls.build.maven;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.Model;
@@ -47,6 +50,7 @@ public final class MavenBuildPlugin implements BuildToolPlugin {
     collectModuleModels(rootPom, maven, modelsByPom);
 
     Map<String, BuildModule> reactorModules = new LinkedHashMap<>();
+    Map<String, Model> reactorModels = new LinkedHashMap<>();
     LinkedHashSet<Path> sourceRoots = new LinkedHashSet<>();
     LinkedHashSet<Path> testSourceRoots = new LinkedHashSet<>();
     LinkedHashSet<Path> outputDirectories = new LinkedHashSet<>();
@@ -63,6 +67,7 @@ public final class MavenBuildPlugin implements BuildToolPlugin {
 
       BuildModule module = moduleFromModel(moduleRoot, model);
       reactorModules.put(reactorKey(model), module);
+      reactorModels.put(reactorKey(model), model);
 
       sourceRoots.addAll(module.sourceRoots());
       testSourceRoots.addAll(module.testSourceRoots());
@@ -71,42 +76,34 @@ public final class MavenBuildPlugin implements BuildToolPlugin {
       watchedFiles.addAll(module.buildFiles());
     }
 
-    for (Map.Entry<Path, Model> entry : modelsByPom.entrySet()) {
-      Model model = entry.getValue();
-      if (model == null) {
-        continue;
-      }
-      for (Dependency dependency : model.getDependencies()) {
+    // reactor key -> artifacts its own dependencies resolved to, and the reactor modules it uses
+    Map<String, List<String>> moduleArtifacts = new LinkedHashMap<>();
+    Map<String, List<String>> moduleDependencies = new LinkedHashMap<>();
+    for (Map.Entry<String, Model> entry : reactorModels.entrySet()) {
+      List<String> artifacts = new ArrayList<>();
+      List<String> dependsOn = new ArrayList<>();
+      for (Dependency dependency : entry.getValue().getDependencies()) {
         if (!isClasspathDependency(dependency)) {
           continue;
         }
         if (reactorModules.containsKey(reactorKey(dependency))) {
+          dependsOn.add(reactorKey(dependency));
           continue;
         }
-        try {
-          File artifact =
-              maven.resolveArtifact(
-                  dependency.getGroupId(),
-                  dependency.getArtifactId(),
-                  emptyToNull(dependency.getClassifier()),
-                  dependency.getType() == null || dependency.getType().isBlank()
-                      ? "jar"
-                      : dependency.getType(),
-                  dependency.getVersion());
-          if (artifact != null && artifact.exists()) {
-            classpathEntries.add(artifact.getAbsolutePath());
-          }
-        } catch (Exception e) {
-          throw new BuildResolutionException(
-              "Failed to resolve Maven dependency "
-                  + dependency.getGroupId()
-                  + ":"
-                  + dependency.getArtifactId()
-                  + ":"
-                  + dependency.getVersion(),
-              e);
+        File artifact = resolveArtifact(maven, dependency);
+        if (artifact != null && artifact.exists()) {
+          classpathEntries.add(artifact.getAbsolutePath());
+          artifacts.add(artifact.getAbsolutePath());
         }
       }
+      moduleArtifacts.put(entry.getKey(), artifacts);
+      moduleDependencies.put(entry.getKey(), dependsOn);
+    }
+
+    Map<String, LinkedHashSet<String>> moduleClasspaths = new LinkedHashMap<>();
+    for (String key : reactorModules.keySet()) {
+      moduleClasspaths.put(
+          key, moduleClasspath(key, reactorModules, moduleArtifacts, moduleDependencies));
     }
 
     watchedFiles.add(root.resolve(".mvn/maven.config"));
@@ -120,11 +117,80 @@ public final class MavenBuildPlugin implements BuildToolPlugin {
         List.copyOf(testSourceRoots),
         List.copyOf(classpathEntries),
         List.copyOf(outputDirectories),
-        new ArrayList<>(reactorModules.values()),
+        withModuleClasspaths(reactorModules, moduleClasspaths),
         currentJdkHome(),
         watchedFiles.stream().filter(java.nio.file.Files::exists).toList());
   }
 
+  /**
+   * Output directories and resolved artifacts of the module, followed by those of the reactor
+   * modules it depends on, transitively.
+   */
+  private static LinkedHashSet<String> moduleClasspath(
+      String key,
+      Map<String, BuildModule> reactorModules,
+      Map<String, List<String>> moduleArtifacts,
+      Map<String, List<String>> moduleDependencies) {
+    LinkedHashSet<String> classpath = new LinkedHashSet<>();
+    Set<String> visited = new HashSet<>();
+    ArrayDeque<String> pending = new ArrayDeque<>(List.of(key));
+    while (!pending.isEmpty()) {
+      String next = pending.removeFirst();
+      BuildModule module = reactorModules.get(next);
+      if (module == null || !visited.add(next)) {
+        continue;
+      }
+      module.outputDirectories().stream().map(Path::toString).forEach(classpath::add);
+      classpath.addAll(moduleArtifacts.getOrDefault(next, List.of()));
+      pending.addAll(moduleDependencies.getOrDefault(next, List.of()));
+    }
+    return classpath;
+  }
+
+  private static File resolveArtifact(MavenUtils maven, Dependency dependency)
+      throws BuildResolutionException {
+    try {
+      return maven.resolveArtifact(
+          dependency.getGroupId(),
+          dependency.getArtifactId(),
+          emptyToNull(dependency.getClassifier()),
+          dependency.getType() == null || dependency.getType().isBlank()
+              ? "jar"
+              : dependency.getType(),
+          dependency.getVersion());
+    } catch (Exception e) {
+      throw new BuildResolutionException(
+          "Failed to resolve Maven dependency "
+              + dependency.getGroupId()
+              + ":"
+              + dependency.getArtifactId()
+              + ":"
+              + dependency.getVersion(),
+          e);
+    }
+  }
+
+  private static List<BuildModule> withModuleClasspaths(
+      Map<String, BuildModule> reactorModules, Map<String, LinkedHashSet<String>> classpaths) {
+    List<BuildModule> modules = new ArrayList<>(reactorModules.size());
+    for (Map.Entry<String, BuildModule> entry : reactorModules.entrySet()) {
+      BuildModule module = entry.getValue();
+      LinkedHashSet<String> classpath = classpaths.get(entry.getKey());
+      modules.add(
+          classpath == null
+              ? module
+              : new BuildModule(
+                  module.name(),
+                  module.projectRoot(),
+                  module.sourceRoots(),
+                  module.testSourceRoots(),
+                  module.outputDirectories(),
+                  List.copyOf(classpath),
+                  module.buildFiles()));
+    }
+    return modules;
+  }
+
   private static void collectModuleModels(
       Path pomFile, MavenUtils maven, Map<Path, Model> modelsByPom)
       throws BuildResolutionException {
@@ -211,7 +277,12 @@ public final class MavenBuildPlugin implements BuildToolPlugin {
   }
 
   private static String reactorKey(Model model) {
-    return model.getGroupId() + ":" + model.getArtifactId();
+    // modules usually inherit the group id of their parent
+    String groupId =
+        model.getGroupId() == null && model.getParent() != null
+            ? model.getParent().getGroupId()
+            : model.getGroupId();
+    return groupId + ":" + model.getArtifactId();
   }
 
   private static String reactorKey(Dependency dependency) {
@@ -1,11 +1,13 @@
 package test.alipsa.jvmpls.build.maven;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
@@ -112,4 +114,100 @@ class MavenBuildPluginTest {
     assertTrue(model.classpathEntries().contains(moduleA.toString()));
     assertTrue(model.classpathEntries().contains(moduleB.toString()));
   }
+
+  @Test
+  void moduleClasspathsIncludeReactorDependenciesAndTheirArtifacts() throws Exception {
+    Path root = Files.createTempDirectory("jvmpls-maven-reactor");
+    Path moduleA = Files.createDirectories(root.resolve("module-a/target/classes"));
+    Path moduleB = Files.createDirectories(root.resolve("module-b/target/classes"));
+    Path moduleC = Files.createDirectories(root.resolve("module-c/target/classes"));
+    Files.writeString(
+        root.resolve("pom.xml"),
+        """
+        <project xmlns="http://maven.apache.org/POM/4.0.0">
+          <modelVersion>4.0.0</modelVersion>
+          <groupId>demo</groupId>
+          <artifactId>root</artifactId>
+          <version>1.0.0</version>
+          <packaging>pom</packaging>
+          <modules>
+            <module>module-a</module>
+            <module>module-b</module>
+            <module>module-c</module>
+          </modules>
+        </project>
+        """,
+        StandardCharsets.UTF_8);
+    writeModulePom(
+        root,
+        "module-a",
+        """
+        <dependency>
+          <groupId>io.github.classgraph</groupId>
+          <artifactId>classgraph</artifactId>
+          <version>4.8.184</version>
+        </dependency>
+        """);
+    writeModulePom(
+        root,
+        "module-b",
+        """
+        <dependency>
+          <groupId>demo</groupId>
+          <artifactId>module-a</artifactId>
+          <version>1.0.0</version>
+        </dependency>
+        """);
+    writeModulePom(
+        root,
+        "module-c",
+        """
+        <dependency>
+          <groupId>demo</groupId>
+          <artifactId>module-b</artifactId>
+          <version>1.0.0</version>
+        </dependency>
+        """);
+
+    BuildModel model = new MavenBuildPlugin().resolve(root);
+
+    List<String> classpathA = moduleClasspath(model, "module-a");
+    List<String> classpathC = moduleClasspath(model, "module-c");
+    assertTrue(classpathC.contains(moduleC.toString()));
+    assertTrue(classpathC.contains(moduleB.toString()));
+    assertTrue(classpathC.contains(moduleA.toString()));
+    assertTrue(classpathC.stream().anyMatch(entry -> entry.contains("classgraph-4.8.184.jar")));
+    assertTrue(classpathA.stream().anyMatch(entry -> entry.contains("classgraph-4.8.184.jar")));
+    assertFalse(classpathA.contains(moduleB.toString()));
+  }
+
+  private static void writeModulePom(Path root, String artifactId, String dependencies)
+      throws Exception {
+    Files.writeString(
+        root.resolve(artifactId).resolve("pom.xml"),
+        """
+        <project xmlns="http://maven.apache.org/POM/4.0.0">
+          <modelVersion>4.0.0</modelVersion>
+          <parent>
+            <groupId>demo</groupId>
+            <artifactId>root</artifactId>
+            <version>1.0.0</version>
+          </parent>
+          <artifactId>%s</artifactId>
+          <dependencies>
+        %s
+          </dependencies>
+        </project>
+        """
+            .formatted(artifactId, dependencies),
+        StandardCharsets.UTF_8);
+  }
+
+  private static List<String> moduleClasspath(BuildModel model, String name) {
+    return model.modules().stream()
+        .filter(module -> module.name().equals(name))
+        .findFirst()
+        .orElseThrow()
+        .classpathEntries();
+  }
 }
@@ -0,0 +1,80 @@
+package se.alipsa.jvmpls.classpath;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Inverted index from annotation type to the catalog types that carry it as a class-level
+ * annotation.
+ *
+ * <p>The index is filled one classpath root at a time by {@link ClassFileIndexer}, and queries
+ * answer from the roots indexed so far.
+ */
+final class AnnotationIndex {
+  private static final int[] NO_TYPES = new int[0];
+
+  // root id -> annotation FQN -> types of that root, in type id order; the last slot covers types
+  // outside any root
+  private final AtomicReferenceArray<Map<String, int[]>> roots;
+
+  AnnotationIndex(int rootCount) {
+    this.roots = new AtomicReferenceArray<>(rootCount + 1);
+  }
+
+  /** Catalog types that carry {@code annotationFqn} directly, without meta-annotations. */
+  int[] typesAnnotatedWith(String annotationFqn) {
+    int[] out = NO_TYPES;
+    int size = 0;
+    for (int root = 0; root < roots.length(); root++) {
+      Map<String, int[]> annotated = roots.get(root);
+      int[] types = annotated == null ? null : annotated.get(annotationFqn);
+      if (types == null) {
+        continue;
+      }
+      if (size + types.length > out.length) {
+        out = Arrays.copyOf(out, Math.max(out.length * 2, size + types.length));
+      }
+      System.arraycopy(types, 0, out, size, types.length);
+      size += types.length;
+    }
+    int[] types = Arrays.copyOf(out, size);
+    Arrays.sort(types);
+    return types;
+  }
+
+  boolean isUsed(String annotationFqn) {
+    for (int root = 0; root < roots.length(); root++) {
+      Map<String, int[]> annotated = roots.get(root);
+      if (annotated != null && annotated.containsKey(annotationFqn)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Makes the annotations collected by {@code builder} visible to queries. */
+  void set(int root, RootBuilder builder) {
+    Map<String, int[]> typesByAnnotation = new HashMap<>(builder.index.size() * 2);
+    builder.index.forEach(
+        (annotation, annotated) -> {
+          int[] sorted = annotated.toArray();
+          Arrays.sort(sorted);
+          typesByAnnotation.put(annotation, sorted);
+        });
+    roots.set(root, typesByAnnotation);
+  }
+
+  /** Collects the class-level annotations of the types of one root. */
+  static final class RootBuilder {
+    private final Map<String, IntList> index = new HashMap<>();
+
+    void record(int type, List<String> annotations) {
+      for (String annotation : annotations) {
+        index.computeIfAbsent(annotation, key -> new IntList()).add(type);
+      }
+    }
+  }
+}
@@ -3,20 +3,39 @@ package se.alipsa.jvmpls.classpath;
 import java.util.List;
 import java.util.Set;
 
+import se.alipsa.jvmpls.core.model.SymbolInfo;
+
 record BinaryTypeDetails(
     String signature,
     Set<String> modifiers,
     List<String> typeParameters,
+    String superclassFqName,
+    List<String> interfaceFqNames,
     List<BinaryMemberDetails> members) {
 
   static BinaryTypeDetails empty() {
-    return new BinaryTypeDetails("", Set.of(), List.of(), List.of());
+    return new BinaryTypeDetails("", Set.of(), List.of(), null, List.of(), List.of());
+  }
+
+  SymbolInfo.Kind kind() {
+    if (modifiers.contains("annotation")) {
+      return SymbolInfo.Kind.ANNOTATION;
+    }
+    if (modifiers.contains("interface")) {
+      return SymbolInfo.Kind.INTERFACE;
+    }
+    if (modifiers.contains("enum")) {
+      return SymbolInfo.Kind.ENUM;
+    }
+    return SymbolInfo.Kind.CLASS;
   }
 
   boolean isEmpty() {
     return signature.isBlank()
         && modifiers.isEmpty()
         && typeParameters.isEmpty()
+        && superclassFqName == null
+        && interfaceFqNames.isEmpty()
         && members.isEmpty();
   }
 }
@@ -12,11 +12,13 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
 
 import se.alipsa.jvmpls.core.model.SymbolInfo;
 
@@ -37,6 +39,112 @@ public final class BinaryTypeReader {
     return details;
   }
 
+  void evict(String resourceUri) {
+    cache.remove(resourceUri);
+  }
+
+  /**
+   * Fills in kind and supertypes of a header-only descriptor. Only the constant pool is parsed; a
+   * full {@link #read} result is reused when one is already cached.
+   */
+  ScannedTypeDescriptor readHeader(ScannedTypeDescriptor descriptor) {
+    BinaryTypeDetails cached = cache.get(descriptor.resourceUri());
+    if (cached != null) {
+      return descriptor.withHeader(
+          cached.kind(), cached.superclassFqName(), cached.interfaceFqNames());
+    }
+    try (InputStream inputStream = URI.create(descriptor.resourceUri()).toURL().openStream()) {
+      ClassReader reader = new ClassReader(inputStream);
+      return descriptor.withHeader(
+          kindOf(reader.getAccess()),
+          reader.getSuperName() == null ? null : reader.getSuperName().replace('/', '.'),
+          java.util.Arrays.stream(reader.getInterfaces())
+              .map(internalName -> internalName.replace('/', '.'))
+              .toList());
+    } catch (IOException | IllegalArgumentException e) {
+      LOG.log(Level.WARNING, "Failed to read class header from " + descriptor.resourceUri(), e);
+      return descriptor.withHeader(SymbolInfo.Kind.CLASS, null, List.of());
+    }
+  }
+
+  /** Class-level annotation types of the class file at {@code resourceUri}. */
+  List<String> readAnnotations(String resourceUri) {
+    ClassReader reader = readClass(resourceUri);
+    return reader == null ? List.of() : classAnnotations(reader);
+  }
+
+  /** Parses the class file at {@code resourceUri}, or returns null when it cannot be read. */
+  ClassReader readClass(String resourceUri) {
+    try (InputStream inputStream = URI.create(resourceUri).toURL().openStream()) {
+      return new ClassReader(inputStream);
+    } catch (IOException | IllegalArgumentException e) {
+      LOG.log(Level.WARNING, "Failed to read class file " + resourceUri, e);
+      return null;
+    }
+  }
+
+  /** Class-level annotation types of the class, both runtime-visible and class-retained. */
+  static List<String> classAnnotations(ClassReader reader) {
+    List<String> annotations = new ArrayList<>(2);
+    reader.accept(
+        new ClassVisitor(Opcodes.ASM9) {
+          @Override
+          public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            annotations.add(Type.getType(descriptor).getClassName());
+            return null;
+          }
+        },
+        ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    return List.copyOf(annotations);
+  }
+
+  /**
+   * Names of the methods and fields a class declares that callers can use: constructors, private
+   * and synthetic members are left out.
+   */
+  static List<String> memberNames(ClassReader reader) {
+    List<String> names = new ArrayList<>();
+    reader.accept(
+        new ClassVisitor(Opcodes.ASM9) {
+          @Override
+          public FieldVisitor visitField(
+              int access, String name, String descriptor, String signature, Object value) {
+            if (isUsable(access)) {
+              names.add(name);
+            }
+            return null;
+          }
+
+          @Override
+          public MethodVisitor visitMethod(
+              int access, String name, String descriptor, String signature, String[] exceptions) {
+            if (isUsable(access) && name.charAt(0) != '<') {
+              names.add(name);
+            }
+            return null;
+          }
+        },
+        ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    return names;
+  }
+
+  private static boolean isUsable(int access) {
+    return (access & (Opcodes.ACC_PRIVATE | Opcodes.ACC_SYNTHETIC)) == 0;
+  }
+
+  static SymbolInfo.Kind kindOf(int access) {
+    if ((access & Opcodes.ACC_ANNOTATION) != 0) {
+      return SymbolInfo.Kind.ANNOTATION;
+    }
+    if ((access & Opcodes.ACC_INTERFACE) != 0) {
+      return SymbolInfo.Kind.INTERFACE;
+    }
+    if ((access & Opcodes.ACC_ENUM) != 0) {
+      return SymbolInfo.Kind.ENUM;
+    }
+    return SymbolInfo.Kind.CLASS;
+  }
+
   private BinaryTypeDetails readUncached(String resourceUri) {
     try (InputStream inputStream = URI.create(resourceUri).toURL().openStream()) {
       ClassReader reader = new ClassReader(inputStream);
@@ -47,6 +155,8 @@ public final class BinaryTypeReader {
           visitor.signature == null ? "" : visitor.signature,
           visitor.modifiers,
           List.of(),
+          visitor.superclassFqName,
+          visitor.interfaceFqNames,
           List.copyOf(visitor.members));
     } catch (IOException | IllegalArgumentException e) {
       LOG.log(Level.WARNING, "Failed to read binary type metadata from " + resourceUri, e);
@@ -58,6 +168,8 @@ public final class BinaryTypeReader {
 
     private String signature;
     private Set<String> modifiers = Set.of();
+    private String superclassFqName;
+    private List<String> interfaceFqNames = List.of();
     private final List<BinaryMemberDetails> members = new ArrayList<>();
 
     private ReaderVisitor() {
@@ -74,6 +186,13 @@ public final class BinaryTypeReader {
         String[] interfaces) {
       this.signature = signature;
       this.modifiers = toModifiers(access);
+      this.superclassFqName = superName == null ? null : superName.replace('/', '.');
+      this.interfaceFqNames =
+          interfaces == null
+              ? List.of()
+              : java.util.Arrays.stream(interfaces)
+                  .map(internalName -> internalName.replace('/', '.'))
+                  .toList();
     }
 
     @Override
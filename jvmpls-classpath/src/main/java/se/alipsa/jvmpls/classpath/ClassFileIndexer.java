@@ -0,0 +1,155 @@
+package se.alipsa.jvmpls.classpath;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.objectweb.asm.ClassReader;
+
+/**
+ * Fills the {@link AnnotationIndex} and {@link MemberNameIndex} of a catalog on one background
+ * thread started with the provider, reading each class file once for both.
+ *
+ * <p>Roots are indexed one at a time, library archives first: the JDK has the most classes and is
+ * least often the answer. Annotations recorded while scanning are used as they are; the others
+ * are read from the class file along with its member names.
+ */
+final class ClassFileIndexer {
+  private static final Logger LOG = Logger.getLogger(ClassFileIndexer.class.getName());
+
+  private final ScannedTypeCatalog catalog;
+  private final BinaryTypeReader reader;
+  private final AnnotationIndex annotations;
+  private final MemberNameIndex memberNames;
+  private volatile Thread builder;
+  private volatile boolean complete;
+
+  private ClassFileIndexer(ScannedTypeCatalog catalog, BinaryTypeReader reader) {
+    this.catalog = catalog;
+    this.reader = reader;
+    this.annotations = new AnnotationIndex(catalog.rootCount());
+    this.memberNames = new MemberNameIndex(catalog.rootCount());
+  }
+
+  /** Starts indexing the roots of {@code catalog} in the background. */
+  static ClassFileIndexer start(ScannedTypeCatalog catalog, BinaryTypeReader reader) {
+    ClassFileIndexer indexer = new ClassFileIndexer(catalog, reader);
+    indexer.builder = Thread.ofVirtual().name("jvmpls-class-file-index").start(indexer::buildAll);
+    return indexer;
+  }
+
+  AnnotationIndex annotations() {
+    return annotations;
+  }
+
+  MemberNameIndex memberNames() {
+    return memberNames;
+  }
+
+  /** Whether every root has been indexed. */
+  boolean isComplete() {
+    return complete;
+  }
+
+  /** Stops a build that is still running. */
+  void close() {
+    Thread current = builder;
+    if (current != null) {
+      current.interrupt();
+    }
+  }
+
+  private void buildAll() {
+    int[][] typesByRoot = catalog.typesByRoot();
+    int none = typesByRoot.length - 1;
+    for (boolean jdk : new boolean[] {false, true}) {
+      for (int root = 0; root < typesByRoot.length; root++) {
+        if (Thread.currentThread().isInterrupted()) {
+          return;
+        }
+        if (isJdkRoot(root, none) == jdk) {
+          build(root, typesByRoot[root]);
+        }
+      }
+    }
+    complete = true;
+    builder = null;
+  }
+
+  private boolean isJdkRoot(int root, int none) {
+    String rootUri = root == none ? null : catalog.root(root);
+    return rootUri == null || rootUri.startsWith("jrt:") || rootUri.contains("/ct.sym!/");
+  }
+
+  private void build(int root, int[] types) {
+    AnnotationIndex.RootBuilder annotated = new AnnotationIndex.RootBuilder();
+    MemberNameIndex.RootBuilder members = new MemberNameIndex.RootBuilder();
+    String rootUri = root < catalog.rootCount() ? catalog.root(root) : null;
+    try {
+      if (rootUri != null && rootUri.startsWith("jar:") && rootUri.contains("!/")) {
+        readArchive(rootUri, types, annotated, members);
+      } else {
+        for (int i = 0; i < types.length && !Thread.currentThread().isInterrupted(); i++) {
+          String resourceUri = catalog.descriptor(types[i]).resourceUri();
+          ClassReader classReader = resourceUri == null ? null : reader.readClass(resourceUri);
+          record(types[i], classReader, annotated, members);
+        }
+      }
+    } catch (RuntimeException e) {
+      LOG.log(Level.WARNING, "Failed to index class files of " + rootUri, e);
+    }
+    annotations.set(root, annotated);
+    memberNames.set(root, members);
+  }
+
+  private void readArchive(
+      String rootUri,
+      int[] types,
+      AnnotationIndex.RootBuilder annotated,
+      MemberNameIndex.RootBuilder members) {
+    // Read the entries through one ZipFile instead of a jar: URL connection per class. A root can
+    // be a directory inside the archive, such as a ct.sym release directory.
+    int separator = rootUri.indexOf("!/");
+    Path archive = Path.of(URI.create(rootUri.substring("jar:".length(), separator)));
+    String directory = rootUri.substring(separator + 2);
+    try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+      for (int type : types) {
+        ZipEntry entry = zipFile.getEntry(directory + catalog.entryName(type));
+        ClassReader classReader = null;
+        if (entry != null) {
+          try (InputStream inputStream = zipFile.getInputStream(entry)) {
+            classReader = new ClassReader(inputStream);
+          } catch (IOException | IllegalArgumentException e) {
+            LOG.log(
+                Level.FINE, "Skipping unreadable class " + entry.getName() + " in " + rootUri, e);
+          }
+        }
+        record(type, classReader, annotated, members);
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      LOG.log(Level.WARNING, "Failed to read class files from " + archive, e);
+    }
+  }
+
+  private void record(
+      int type,
+      ClassReader classReader,
+      AnnotationIndex.RootBuilder annotated,
+      MemberNameIndex.RootBuilder members) {
+    List<String> recorded = catalog.annotationsOf(type);
+    if (recorded != null) {
+      annotated.record(type, recorded);
+    } else if (classReader != null) {
+      annotated.record(type, BinaryTypeReader.classAnnotations(classReader));
+    }
+    if (classReader != null) {
+      members.record(type, BinaryTypeReader.memberNames(classReader));
+    }
+  }
+}
@@ -1,17 +1,23 @@
 package se.alipsa.jvmpls.classpath;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
-import se.alipsa.jvmpls.core.model.SymbolInfo;
-
-import io.github.classgraph.ClassGraph;
-import io.github.classgraph.ClassInfo;
-import io.github.classgraph.ScanResult;
-
+/**
+ * Lists the types of a classpath from jar central directories and directory listings only. Kinds
+ * and supertypes are left unresolved and filled in from the class file the first time a type is
+ * used.
+ */
 public final class ClasspathScanner {
+  private static final Logger LOG = Logger.getLogger(ClasspathScanner.class.getName());
 
   public ScannedTypeCatalog scan(List<String> classpathEntries) {
     List<String> normalized =
@@ -25,46 +31,92 @@ public final class ClasspathScanner {
     if (normalized.isEmpty()) {
       return ScannedTypeCatalog.builder().build();
     }
+    return scanHeaders(normalized);
+  }
 
-    ClassGraph classGraph =
-        new ClassGraph().enableClassInfo().ignoreClassVisibility().overrideClasspath(normalized);
-
+  private ScannedTypeCatalog scanHeaders(List<String> normalized) {
     ScannedTypeCatalog.Builder builder = ScannedTypeCatalog.builder();
-    try (ScanResult scanResult = classGraph.scan()) {
-      for (ClassInfo classInfo : scanResult.getAllClasses()) {
-        if (classInfo.isAnonymousInnerClass()) {
-          continue;
-        }
-        String resourceUri =
-            classInfo.getResource() != null ? classInfo.getResource().getURI().toString() : null;
-        if (resourceUri == null) {
-          continue;
-        }
-        builder.add(
-            new ScannedTypeDescriptor(
-                classInfo.getName(),
-                classInfo.getPackageName(),
-                containerFqName(classInfo.getName()),
-                kindOf(classInfo),
-                resourceUri,
-                classInfo.getSuperclass() == null ? null : classInfo.getSuperclass().getName(),
-                classInfo.getInterfaces().getNames()));
+    for (String entry : normalized) {
+      Path path = Path.of(entry);
+      if (Files.isDirectory(path)) {
+        scanDirectoryHeaders(path, builder);
+      } else {
+        scanJarHeaders(path, builder);
       }
     }
     return builder.build();
   }
 
-  private static SymbolInfo.Kind kindOf(ClassInfo classInfo) {
-    if (classInfo.isAnnotation()) {
-      return SymbolInfo.Kind.ANNOTATION;
+  private static void scanDirectoryHeaders(Path root, ScannedTypeCatalog.Builder builder) {
+    try (Stream<Path> paths = Files.walk(root)) {
+      paths
+          .filter(path -> path.getFileName().toString().endsWith(".class"))
+          .forEach(
+              path -> {
+                String entryName = root.relativize(path).toString().replace('\\', '/');
+                addHeader(entryName, path.toUri().toString(), builder);
+              });
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Failed to list classpath directory " + root, e);
+    }
+  }
+
+  private static void scanJarHeaders(Path jar, ScannedTypeCatalog.Builder builder) {
+    // ZipFile only reads the central directory; entry contents are not touched here.
+    try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+      String jarUri = "jar:" + jar.toUri() + "!/";
+      var entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        if (!entry.isDirectory()) {
+          addHeader(entry.getName(), jarUri + entry.getName(), builder);
+        }
+      }
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Failed to read classpath archive " + jar, e);
+    }
+  }
+
+  private static void addHeader(
+      String entryName, String resourceUri, ScannedTypeCatalog.Builder builder) {
+    ScannedTypeDescriptor descriptor = headerDescriptor(entryName, resourceUri);
+    if (descriptor != null) {
+      builder.add(descriptor);
+    }
+  }
+
+  /**
+   * Builds a header-only descriptor from a class file entry name such as {@code a/b/C$D.class}, or
+   * returns {@code null} when the entry is not a named type.
+   */
+  static ScannedTypeDescriptor headerDescriptor(String entryName, String resourceUri) {
+    if (!entryName.endsWith(".class") || entryName.startsWith("META-INF/")) {
+      return null;
     }
-    if (classInfo.isInterface()) {
-      return SymbolInfo.Kind.INTERFACE;
+    String binaryName = entryName.substring(0, entryName.length() - ".class".length());
+    int lastSlash = binaryName.lastIndexOf('/');
+    String simpleBinaryName = binaryName.substring(lastSlash + 1);
+    if (simpleBinaryName.equals("module-info")
+        || simpleBinaryName.equals("package-info")
+        || isAnonymousOrLocal(simpleBinaryName)) {
+      return null;
     }
-    if (classInfo.isEnum()) {
-      return SymbolInfo.Kind.ENUM;
+    String fqName = binaryName.replace('/', '.');
+    String packageName = lastSlash < 0 ? "" : fqName.substring(0, lastSlash);
+    return new ScannedTypeDescriptor(
+        fqName, packageName, containerFqName(fqName), null, resourceUri, null, List.of(), null);
+  }
+
+  /** javac names anonymous and local classes {@code Outer$1} and {@code Outer$1Local}. */
+  private static boolean isAnonymousOrLocal(String simpleBinaryName) {
+    int dollar = simpleBinaryName.indexOf('$');
+    while (dollar >= 0 && dollar + 1 < simpleBinaryName.length()) {
+      if (Character.isDigit(simpleBinaryName.charAt(dollar + 1))) {
+        return true;
+      }
+      dollar = simpleBinaryName.indexOf('$', dollar + 1);
     }
-    return SymbolInfo.Kind.CLASS;
+    return false;
   }
 
   private static String containerFqName(String fqName) {
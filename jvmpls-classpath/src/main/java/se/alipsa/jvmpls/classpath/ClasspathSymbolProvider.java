@@ -1,13 +1,27 @@
 package se.alipsa.jvmpls.classpath;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
 
+import se.alipsa.jvmpls.core.ModuleScope;
 import se.alipsa.jvmpls.core.SymbolProvider;
 import se.alipsa.jvmpls.core.model.Location;
 import se.alipsa.jvmpls.core.model.Position;
@@ -19,33 +33,230 @@ import se.alipsa.jvmpls.core.types.JvmTypes;
 import se.alipsa.jvmpls.core.types.MethodSignature;
 
 public final class ClasspathSymbolProvider implements SymbolProvider {
-
+  private static final Logger LOG = Logger.getLogger(ClasspathSymbolProvider.class.getName());
   private static final Range ZERO_RANGE = new Range(new Position(0, 0), new Position(0, 1));
 
   private final ScannedTypeCatalog catalog;
+  private final OutputDirectoryCatalog outputs;
   private final BinaryTypeReader reader;
+  private final ClasspathVisibility visibility;
+  // null for the workspace-wide provider, the module's visible catalog roots for a module view
+  private final BitSet visibleRoots;
+  private final ConcurrentMap<ModuleScope, ClasspathSymbolProvider> moduleViews =
+      new ConcurrentHashMap<>();
+  private final List<Consumer<Set<String>>> changeListeners = new CopyOnWriteArrayList<>();
+  // resource URI -> descriptor with kind and supertypes read from the class file
+  private final ConcurrentMap<String, ScannedTypeDescriptor> resolvedHeaders;
+  // resource URI -> members the class file declares, shared by every type that inherits them
+  private final ConcurrentMap<String, DeclaredMembers> declaredMembers;
+  // builds the annotation and member name indexes in the background from construction, shared
+  // with module views
+  private final ClassFileIndexer classFileIndexer;
+  private final AnnotationIndex annotationIndex;
+  // member name -> declaring types
+  private final MemberNameIndex memberNameIndex;
+  // resource URI -> class-level annotations of an output directory class
+  private final ConcurrentMap<String, List<String>> outputAnnotations;
+  private final SourceAttachments sources;
   private final ConcurrentMap<String, SymbolInfo> materialized = new ConcurrentHashMap<>();
   private final ConcurrentMap<String, List<SymbolInfo>> materializedMembers =
       new ConcurrentHashMap<>();
+  // type FQN -> owners whose cached member lists were collected through that type
+  private final ConcurrentMap<String, Set<String>> memberDependents = new ConcurrentHashMap<>();
+  private volatile OutputDirectoryWatcher watcher;
 
   public ClasspathSymbolProvider(ScannedTypeCatalog catalog, BinaryTypeReader reader) {
+    this(catalog, new OutputDirectoryCatalog(List.of()), reader, null);
+  }
+
+  ClasspathSymbolProvider(
+      ScannedTypeCatalog catalog,
+      OutputDirectoryCatalog outputs,
+      BinaryTypeReader reader,
+      ClasspathVisibility visibility) {
     this.catalog = catalog;
+    this.outputs = outputs;
     this.reader = reader;
+    this.visibility = visibility;
+    this.visibleRoots = null;
+    this.resolvedHeaders = new ConcurrentHashMap<>();
+    this.declaredMembers = new ConcurrentHashMap<>();
+    this.classFileIndexer = ClassFileIndexer.start(catalog, reader);
+    this.annotationIndex = classFileIndexer.annotations();
+    this.memberNameIndex = classFileIndexer.memberNames();
+    this.outputAnnotations = new ConcurrentHashMap<>();
+    this.sources = SourceAttachments.shared();
+  }
+
+  /** Module view sharing the catalogs and binary caches of {@code parent}. */
+  private ClasspathSymbolProvider(ClasspathSymbolProvider parent, BitSet visibleRoots) {
+    this.catalog = parent.catalog;
+    this.outputs = parent.outputs;
+    this.reader = parent.reader;
+    this.visibility = null;
+    this.visibleRoots = visibleRoots;
+    this.resolvedHeaders = parent.resolvedHeaders;
+    this.declaredMembers = parent.declaredMembers;
+    this.classFileIndexer = parent.classFileIndexer;
+    this.annotationIndex = parent.annotationIndex;
+    this.memberNameIndex = parent.memberNameIndex;
+    this.outputAnnotations = parent.outputAnnotations;
+    this.sources = parent.sources;
+  }
+
+  /** Starts applying class file changes in the output directories as they happen. */
+  void watchOutputDirectories() {
+    if (!outputs.isEmpty() && watcher == null) {
+      watcher = OutputDirectoryWatcher.start(outputs, this::outputTypesChanged);
+    }
   }
 
   @Override
   public Optional<SymbolInfo> findByFqn(String fqn) {
-    return catalog.findByFqn(fqn).map(this::materialize);
+    return descriptor(fqn).map(this::materialize);
+  }
+
+  @Override
+  public boolean mightContain(String fqn) {
+    return catalog.mightContain(fqn) || outputs.contains(fqn);
   }
 
   @Override
   public List<SymbolInfo> findBySimpleName(String simpleName) {
-    return catalog.findBySimpleName(simpleName).stream().map(this::materialize).toList();
+    return merged(
+        outputs.findBySimpleName(simpleName), catalog.findBySimpleName(simpleName, visibleRoots));
   }
 
   @Override
   public List<SymbolInfo> allInPackage(String pkgFqn) {
-    return catalog.allInPackage(pkgFqn).stream().map(this::materialize).toList();
+    return merged(outputs.allInPackage(pkgFqn), catalog.allInPackage(pkgFqn, visibleRoots));
+  }
+
+  /**
+   * Types carrying {@code annotationFqn}, directly or through annotation types that are themselves
+   * (meta-)annotated with it. Output directory types shadow catalog types of the same name. Catalog
+   * types come from the annotation index, which misses the roots it has not indexed yet.
+   */
+  @Override
+  public List<SymbolInfo> annotatedWith(String annotationFqn) {
+    Map<String, List<ScannedTypeDescriptor>> outputsByAnnotation = new HashMap<>();
+    for (ScannedTypeDescriptor output : outputs.all()) {
+      for (String annotation : outputAnnotations(output)) {
+        outputsByAnnotation.computeIfAbsent(annotation, key -> new ArrayList<>()).add(output);
+      }
+    }
+    LinkedHashMap<String, ScannedTypeDescriptor> found = new LinkedHashMap<>();
+    ArrayDeque<String> pending = new ArrayDeque<>();
+    pending.add(annotationFqn);
+    while (!pending.isEmpty()) {
+      String annotation = pending.poll();
+      List<ScannedTypeDescriptor> direct =
+          new ArrayList<>(outputsByAnnotation.getOrDefault(annotation, List.of()));
+      for (int type : annotationIndex.typesAnnotatedWith(annotation)) {
+        if (catalog.isListed(type, visibleRoots) && !outputs.contains(catalog.fqName(type))) {
+          direct.add(catalog.descriptor(type));
+        }
+      }
+      for (ScannedTypeDescriptor hit : direct) {
+        String fqn = hit.fqName();
+        // only annotation types can pass an annotation on, and only those used somewhere matter
+        if (found.putIfAbsent(fqn, hit) == null
+            && (annotationIndex.isUsed(fqn) || outputsByAnnotation.containsKey(fqn))) {
+          pending.add(fqn);
+        }
+      }
+    }
+    return found.values().stream().map(this::materialize).toList();
+  }
+
+  @Override
+  public boolean isIndexComplete() {
+    return classFileIndexer.isComplete();
+  }
+
+  /**
+   * Output directory and visible classpath types declaring a non-private method or field named
+   * {@code memberName}. Classpath types are answered from the member name index without reading
+   * their class files again; it misses the roots it has not indexed yet.
+   */
+  @Override
+  public List<String> typesDeclaringMember(String memberName) {
+    LinkedHashSet<String> types = new LinkedHashSet<>();
+    for (ScannedTypeDescriptor output : outputs.all()) {
+      for (SymbolInfo member : declaredMembers(output).symbols()) {
+        if (memberName.equals(memberName(member)) && !member.getModifiers().contains("private")) {
+          types.add(output.fqName());
+          break;
+        }
+      }
+    }
+    for (int type : memberNameIndex.typesDeclaring(memberName, visibleRoots)) {
+      String fqn = catalog.fqName(type);
+      if (catalog.isListed(type, visibleRoots) && !outputs.contains(fqn)) {
+        types.add(fqn);
+      }
+    }
+    return List.copyOf(types);
+  }
+
+  @Override
+  public List<String> memberNamesStartingWith(String prefix, int limit) {
+    TreeSet<String> names = new TreeSet<>();
+    memberNameIndex.namesStartingWith(prefix, visibleRoots, limit, names);
+    for (ScannedTypeDescriptor output : outputs.all()) {
+      for (SymbolInfo member : declaredMembers(output).symbols()) {
+        String name = memberName(member);
+        if (name.startsWith(prefix) && !member.getModifiers().contains("private")) {
+          names.add(name);
+        }
+      }
+    }
+    return names.stream().limit(limit).toList();
+  }
+
+  /** Declaration in the dependency's attached sources, parsed on first use. */
+  @Override
+  public Optional<Location> sourceLocation(SymbolInfo symbol) {
+    return sources.location(symbol);
+  }
+
+  @Override
+  public Optional<String> documentation(SymbolInfo symbol) {
+    return sources.documentation(symbol);
+  }
+
+  /**
+   * Returns a view that hides the classpath archives {@code module} does not depend on. The view
+   * shares this provider's catalog and binary caches; only the visible-root bitset is per module.
+   * Output directories stay visible to all modules, like workspace sources.
+   */
+  @Override
+  public SymbolProvider forModule(ModuleScope module) {
+    if (visibility == null) {
+      return this;
+    }
+    BitSet roots = visibility.visibleRoots(module.classpathEntries());
+    if (roots == null) {
+      return this;
+    }
+    return moduleViews.computeIfAbsent(module, ignored -> new ClasspathSymbolProvider(this, roots));
+  }
+
+  @Override
+  public void addChangeListener(Consumer<Set<String>> listener) {
+    changeListeners.add(listener);
+  }
+
+  @Override
+  public void close() {
+    if (visibleRoots == null) {
+      classFileIndexer.close();
+    }
+    OutputDirectoryWatcher current = watcher;
+    watcher = null;
+    if (current != null) {
+      current.close();
+    }
   }
 
   @Override
@@ -55,8 +266,7 @@ public final class ClasspathSymbolProvider implements SymbolProvider {
 
   @Override
   public List<String> supertypesOf(String typeFqn) {
-    return catalog
-        .findByFqn(typeFqn)
+    return lookup(typeFqn)
         .map(
             descriptor -> {
               LinkedHashSet<String> supertypes = new LinkedHashSet<>();
@@ -70,86 +280,179 @@ public final class ClasspathSymbolProvider implements SymbolProvider {
         .orElseGet(List::of);
   }
 
+  private List<String> outputAnnotations(ScannedTypeDescriptor output) {
+    return outputAnnotations.computeIfAbsent(output.resourceUri(), reader::readAnnotations);
+  }
+
+  private Optional<ScannedTypeDescriptor> lookup(String fqn) {
+    return descriptor(fqn).map(this::resolveHeader);
+  }
+
+  // Output directories come first on the classpath, so their types shadow jar and JDK types.
+  private Optional<ScannedTypeDescriptor> descriptor(String fqn) {
+    Optional<ScannedTypeDescriptor> output = outputs.findByFqn(fqn);
+    return output.isPresent() ? output : catalog.findByFqn(fqn, visibleRoots);
+  }
+
+  private List<SymbolInfo> merged(
+      List<ScannedTypeDescriptor> outputHits, List<ScannedTypeDescriptor> catalogHits) {
+    if (outputHits.isEmpty()) {
+      return catalogHits.stream().map(this::materialize).toList();
+    }
+    return Stream.concat(
+            outputHits.stream(),
+            catalogHits.stream().filter(hit -> !outputs.contains(hit.fqName())))
+        .map(this::materialize)
+        .toList();
+  }
+
+  private void outputTypesChanged(Set<String> typeFqns) {
+    for (String fqn : typeFqns) {
+      for (String resourceUri : outputs.resourceUris(fqn)) {
+        resolvedHeaders.remove(resourceUri);
+        declaredMembers.remove(resourceUri);
+        outputAnnotations.remove(resourceUri);
+        reader.evict(resourceUri);
+      }
+    }
+    evict(typeFqns);
+    moduleViews.values().forEach(view -> view.evict(typeFqns));
+    for (Consumer<Set<String>> listener : changeListeners) {
+      try {
+        listener.accept(typeFqns);
+      } catch (RuntimeException e) {
+        LOG.log(Level.WARNING, "Classpath change listener failed", e);
+      }
+    }
+  }
+
+  /** Fills in kind and supertypes of a lazily scanned type from its class file header. */
+  private ScannedTypeDescriptor resolveHeader(ScannedTypeDescriptor descriptor) {
+    if (!descriptor.isHeaderOnly()) {
+      return descriptor;
+    }
+    return resolvedHeaders.computeIfAbsent(
+        descriptor.resourceUri(), ignored -> reader.readHeader(descriptor));
+  }
+
   private SymbolInfo materialize(ScannedTypeDescriptor descriptor) {
     return materialized.computeIfAbsent(
         descriptor.fqName(),
         ignored -> {
-          BinaryTypeDetails details = reader.read(descriptor.resourceUri());
-          return new SymbolInfo(
+          // Type symbols come straight from the catalog; the class file is only read once a
+          // consumer asks for the kind of a lazily scanned type, its generic signature or its
+          // modifiers.
+          String resourceUri = descriptor.resourceUri();
+          Location location = new Location(resourceUri, ZERO_RANGE);
+          ClassType type = new ClassType(descriptor.fqName(), List.of());
+          Supplier<SymbolInfo.Details> details =
+              () -> {
+                BinaryTypeDetails read = reader.read(resourceUri);
+                SymbolInfo.Kind kind = resolveHeader(descriptor).kind();
+                return new SymbolInfo.Details(
+                    read.signature(), read.modifiers(), read.typeParameters(), kind);
+              };
+          if (descriptor.isHeaderOnly()) {
+            return SymbolInfo.deferredType(
+                "binary",
+                descriptor.fqName(),
+                descriptor.containerFqName(),
+                location,
+                type,
+                details);
+          }
+          return SymbolInfo.deferred(
               "binary",
               descriptor.kind(),
               descriptor.fqName(),
               descriptor.containerFqName(),
-              new Location(descriptor.resourceUri(), ZERO_RANGE),
-              details.signature(),
-              details.modifiers(),
-              details.typeParameters(),
-              new ClassType(descriptor.fqName(), List.of()),
-              null);
+              location,
+              type,
+              details);
         });
   }
 
+  private void evict(Set<String> typeFqns) {
+    for (String fqn : typeFqns) {
+      materialized.remove(fqn);
+      materializedMembers.remove(fqn);
+      Set<String> dependents = memberDependents.remove(fqn);
+      if (dependents != null) {
+        dependents.forEach(materializedMembers::remove);
+      }
+    }
+  }
+
   private List<SymbolInfo> materializeMembers(String ownerFqn) {
-    Optional<ScannedTypeDescriptor> owner = catalog.findByFqn(ownerFqn);
+    Optional<ScannedTypeDescriptor> owner = lookup(ownerFqn);
     if (owner.isEmpty()) {
       return List.of();
     }
-    LinkedHashMap<String, SymbolInfo> results = new LinkedHashMap<>();
-    collectMembers(owner.get(), results, new LinkedHashSet<>());
-    return List.copyOf(results.values());
+    List<SymbolInfo> results = new ArrayList<>();
+    Set<String> memberKeys = new HashSet<>();
+    Set<String> hierarchy = new LinkedHashSet<>();
+    collectMembers(owner.get(), results, memberKeys, hierarchy);
+    for (String type : hierarchy) {
+      memberDependents.computeIfAbsent(type, key -> ConcurrentHashMap.newKeySet()).add(ownerFqn);
+    }
+    return List.copyOf(results);
   }
 
+  /**
+   * Composes the inherited member view from the declared-member tables of the hierarchy. Types are
+   * visited subtype first, so an override hides the supertype member with the same key.
+   */
   private void collectMembers(
-      ScannedTypeDescriptor owner, LinkedHashMap<String, SymbolInfo> results, Set<String> visited) {
+      ScannedTypeDescriptor owner,
+      List<SymbolInfo> results,
+      Set<String> memberKeys,
+      Set<String> visited) {
     if (!visited.add(owner.fqName())) {
       return;
     }
-    BinaryTypeDetails details = reader.read(owner.resourceUri());
-    for (BinaryMemberDetails member : details.members()) {
-      if ("<init>".equals(member.name())) {
-        continue;
+    DeclaredMembers declared = declaredMembers(owner);
+    for (int i = 0; i < declared.symbols().size(); i++) {
+      if (memberKeys.add(declared.keys().get(i))) {
+        results.add(declared.symbols().get(i));
       }
-      SymbolInfo symbol = materializeMember(owner, member);
-      results.putIfAbsent(memberIdentity(symbol), symbol);
     }
     if (owner.superclassFqName() != null && !owner.superclassFqName().isBlank()) {
-      catalog
-          .findByFqn(owner.superclassFqName())
-          .ifPresent(parent -> collectMembers(parent, results, visited));
+      lookup(owner.superclassFqName())
+          .ifPresent(parent -> collectMembers(parent, results, memberKeys, visited));
     }
     for (String interfaceFqName : owner.interfaceFqNames()) {
-      catalog
-          .findByFqn(interfaceFqName)
-          .ifPresent(parent -> collectMembers(parent, results, visited));
+      lookup(interfaceFqName)
+          .ifPresent(parent -> collectMembers(parent, results, memberKeys, visited));
     }
   }
 
-  private static String memberIdentity(SymbolInfo symbol) {
-    return switch (symbol.getKind()) {
-      case FIELD -> "FIELD:" + fieldName(symbol.getFqName());
-      case METHOD ->
-          "METHOD:"
-              + methodName(symbol.getFqName())
-              + ":"
-              + (symbol.getMethodSignature() == null
-                  ? symbol.getSignature()
-                  : JvmTypes.toLegacyMethodSignature(symbol.getMethodSignature()));
-      default -> symbol.getKind() + ":" + symbol.getFqName();
-    };
-  }
-
-  private static String fieldName(String fqn) {
-    int lastDot = fqn.lastIndexOf('.');
-    return lastDot < 0 ? fqn : fqn.substring(lastDot + 1);
+  private DeclaredMembers declaredMembers(ScannedTypeDescriptor type) {
+    if (type.resourceUri() == null) {
+      return DeclaredMembers.EMPTY;
+    }
+    return declaredMembers.computeIfAbsent(type.resourceUri(), ignored -> readDeclared(type));
   }
 
-  private static String methodName(String fqn) {
-    int hash = fqn.lastIndexOf('#');
-    if (hash < 0) {
-      return fqn;
+  private DeclaredMembers readDeclared(ScannedTypeDescriptor type) {
+    BinaryTypeDetails details = reader.read(type.resourceUri());
+    List<SymbolInfo> symbols = new ArrayList<>(details.members().size());
+    List<String> keys = new ArrayList<>(details.members().size());
+    Set<String> seen = new HashSet<>();
+    for (BinaryMemberDetails member : details.members()) {
+      if ("<init>".equals(member.name())) {
+        continue;
+      }
+      SymbolInfo symbol = materializeMember(type, member);
+      String key =
+          symbol.getKind() == SymbolInfo.Kind.FIELD
+              ? "FIELD:" + member.name()
+              : "METHOD:" + member.name() + ":" + symbol.getSignature();
+      if (seen.add(key)) {
+        symbols.add(symbol);
+        keys.add(key);
+      }
     }
-    int open = fqn.indexOf('(', hash + 1);
-    return open < 0 ? fqn.substring(hash + 1) : fqn.substring(hash + 1, open);
+    return new DeclaredMembers(List.copyOf(symbols), List.copyOf(keys));
   }
 
   private SymbolInfo materializeMember(ScannedTypeDescriptor owner, BinaryMemberDetails member) {
@@ -184,4 +487,19 @@ public final class ClasspathSymbolProvider implements SymbolProvider {
         null,
         methodSignature);
   }
+
+  /** Members declared by one class file, with their override keys (kind, name and signature). */
+  private record DeclaredMembers(List<SymbolInfo> symbols, List<String> keys) {
+    static final DeclaredMembers EMPTY = new DeclaredMembers(List.of(), List.of());
+  }
+
+  private static String memberName(SymbolInfo member) {
+    String fqn = member.getFqName();
+    int hash = fqn.indexOf('#');
+    if (hash >= 0) {
+      int open = fqn.indexOf('(', hash);
+      return fqn.substring(hash + 1, open < 0 ? fqn.length() : open);
+    }
+    return fqn.substring(fqn.lastIndexOf('.') + 1);
+  }
 }
@@ -1,7 +1,13 @@
 package se.alipsa.jvmpls.classpath;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 
+import se.alipsa.jvmpls.core.ModuleScope;
 import se.alipsa.jvmpls.core.SymbolProvider;
 import se.alipsa.jvmpls.core.SymbolProviderContext;
 import se.alipsa.jvmpls.core.SymbolProviderFactory;
@@ -19,15 +25,54 @@ public final class ClasspathSymbolProviderFactory implements SymbolProviderFacto
     JdkIndex jdkIndex = new JdkIndex();
     BinaryTypeReader reader = new BinaryTypeReader();
 
+    // Every archive is scanned once into a shared catalog, even when several modules use it.
+    LinkedHashSet<String> entries = new LinkedHashSet<>(context.classpathEntries());
+    for (ModuleScope module : context.modules()) {
+      entries.addAll(module.classpathEntries());
+    }
+
+    // Directories (build output) are tracked separately so they can be updated incrementally. One
+    // that does not exist yet, e.g. before the first compile, is watched until it appears.
+    List<Path> directories = new ArrayList<>();
+    List<String> archives = new ArrayList<>();
+    for (String entry : entries) {
+      if (entry == null || entry.isBlank()) {
+        continue;
+      }
+      Path path = Path.of(entry);
+      if (isDirectoryEntry(path)) {
+        if (!directories.contains(path)) {
+          directories.add(path);
+        }
+      } else {
+        archives.add(entry);
+      }
+    }
+
     ScannedTypeCatalog catalog =
         ScannedTypeCatalog.builder()
             .merge(jdkIndex.scan(context.targetJdkHome()))
-            .merge(scanner.scan(context.classpathEntries()))
+            .merge(scanner.scan(archives))
             .build();
+    OutputDirectoryCatalog outputs = new OutputDirectoryCatalog(directories);
 
-    if (catalog.isEmpty()) {
+    if (catalog.isEmpty() && outputs.isEmpty()) {
       return List.of();
     }
-    return List.of(new ClasspathSymbolProvider(catalog, reader));
+    ClasspathVisibility visibility =
+        context.modules().isEmpty() ? null : ClasspathVisibility.of(catalog, archives);
+    ClasspathSymbolProvider provider =
+        new ClasspathSymbolProvider(catalog, outputs, reader, visibility);
+    provider.watchOutputDirectories();
+    return List.of(provider);
+  }
+
+  private static boolean isDirectoryEntry(Path path) {
+    if (Files.exists(path)) {
+      return Files.isDirectory(path);
+    }
+    String name = path.getFileName() == null ? "" : path.getFileName().toString();
+    String lower = name.toLowerCase(Locale.ROOT);
+    return !lower.endsWith(".jar") && !lower.endsWith(".zip");
   }
 }
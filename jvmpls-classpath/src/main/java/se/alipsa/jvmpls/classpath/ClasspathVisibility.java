@@ -0,0 +1,64 @@
+package se.alipsa.jvmpls.classpath;
+
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps classpath archives to root ids of a shared {@link ScannedTypeCatalog} so a module's
+ * classpath can be expressed as a bitset of visible roots. Roots that are not workspace archives,
+ * such as JDK modules, are visible to every module.
+ */
+final class ClasspathVisibility {
+
+  private final int rootCount;
+  private final Map<Path, Integer> rootIdsByArchive;
+
+  private ClasspathVisibility(int rootCount, Map<Path, Integer> rootIdsByArchive) {
+    this.rootCount = rootCount;
+    this.rootIdsByArchive = Map.copyOf(rootIdsByArchive);
+  }
+
+  static ClasspathVisibility of(ScannedTypeCatalog catalog, List<String> archives) {
+    Map<String, Integer> rootIdsByPrefix = new HashMap<>();
+    for (int rootId = 0; rootId < catalog.rootCount(); rootId++) {
+      rootIdsByPrefix.put(catalog.root(rootId), rootId);
+    }
+    Map<Path, Integer> rootIdsByArchive = new HashMap<>();
+    for (String archive : archives) {
+      Path path = normalize(archive);
+      Integer rootId = rootIdsByPrefix.get("jar:" + path.toUri() + "!/");
+      if (rootId != null) {
+        rootIdsByArchive.put(path, rootId);
+      }
+    }
+    return new ClasspathVisibility(catalog.rootCount(), rootIdsByArchive);
+  }
+
+  /** Returns the visible roots for a module classpath, or {@code null} if every root is visible. */
+  BitSet visibleRoots(List<String> classpathEntries) {
+    Set<Path> entries = new HashSet<>();
+    for (String entry : classpathEntries) {
+      if (entry != null && !entry.isBlank()) {
+        entries.add(normalize(entry));
+      }
+    }
+    BitSet visible = new BitSet(rootCount);
+    visible.set(0, rootCount);
+    rootIdsByArchive.forEach(
+        (archive, rootId) -> {
+          if (!entries.contains(archive)) {
+            visible.clear(rootId);
+          }
+        });
+    return visible.cardinality() == rootCount ? null : visible;
+  }
+
+  private static Path normalize(String entry) {
+    return Path.of(entry).toAbsolutePath().normalize();
+  }
+}
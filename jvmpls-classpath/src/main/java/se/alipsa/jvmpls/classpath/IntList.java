@@ -0,0 +1,28 @@
+package se.alipsa.jvmpls.classpath;
+
+import java.util.Arrays;
+
+/** Growable list of type ids, used while a root is being indexed. */
+final class IntList {
+  private int[] values = new int[2];
+  private int size;
+
+  void add(int value) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, size * 2);
+    }
+    values[size++] = value;
+  }
+
+  int get(int index) {
+    return values[index];
+  }
+
+  int size() {
+    return size;
+  }
+
+  int[] toArray() {
+    return Arrays.copyOf(values, size);
+  }
+}
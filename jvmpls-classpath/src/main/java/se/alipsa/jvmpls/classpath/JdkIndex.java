@@ -2,35 +2,71 @@ package se.alipsa.jvmpls.classpath;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.Opcodes;
-
-import se.alipsa.jvmpls.core.model.SymbolInfo;
 
+/**
+ * Builds the catalog of JDK types. The running JDK is read from its runtime image. Another target
+ * JDK is indexed from the running JDK's {@code lib/ct.sym} when that records the target's release,
+ * otherwise from the target's {@code jmods}.
+ */
 public final class JdkIndex {
   private static final Logger LOG = Logger.getLogger(JdkIndex.class.getName());
+  private static final ConcurrentMap<Integer, ScannedTypeCatalog> RELEASE_CATALOGS =
+      new ConcurrentHashMap<>();
 
   public ScannedTypeCatalog scan(Path targetJdkHome) {
     Path current = currentJdkHome();
     if (targetJdkHome == null || (current != null && samePath(current, targetJdkHome))) {
       return scanCurrentRuntime();
     }
+    OptionalInt release = releaseOf(targetJdkHome);
+    if (release.isPresent()) {
+      Optional<ScannedTypeCatalog> catalog = releaseCatalog(release.getAsInt());
+      if (catalog.isPresent()) {
+        return catalog.get();
+      }
+    }
     Path jmodsDir = targetJdkHome.resolve("jmods");
     if (Files.isDirectory(jmodsDir)) {
       return scanJmods(jmodsDir);
     }
+    LOG.warning(
+        "Cannot index JDK at " + targetJdkHome + ", using the running JDK's symbols instead");
     return scanCurrentRuntime();
   }
 
+  /**
+   * Returns the public API of Java SE {@code release} as recorded in the running JDK's {@code
+   * ct.sym}, i.e. what {@code javac --release} compiles against. Catalogs are cached per release.
+   * Empty if the running JDK has no record of that release.
+   */
+  public Optional<ScannedTypeCatalog> releaseCatalog(int release) {
+    if (release == Runtime.version().feature()) {
+      return Optional.of(scanCurrentRuntime());
+    }
+    Path ctSym = ctSym();
+    if (ctSym == null || release < 7 || release > Runtime.version().feature()) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(
+        RELEASE_CATALOGS.computeIfAbsent(release, key -> scanCtSym(ctSym, key)));
+  }
+
   private ScannedTypeCatalog scanCurrentRuntime() {
     ScannedTypeCatalog.Builder builder = ScannedTypeCatalog.builder();
     try {
@@ -80,9 +116,86 @@ public final class JdkIndex {
     return builder.build();
   }
 
+  /**
+   * Reads the {@code .sig} files of {@code release} from ct.sym. Top-level directories are named by
+   * the releases they apply to, one character per release ({@code 8}, {@code 9}, {@code A} for 10,
+   * ...), so a release reads every directory whose name contains its character. Each module
+   * directory below them becomes a catalog root with {@code .sig} entries.
+   */
+  private static ScannedTypeCatalog scanCtSym(Path ctSym, int release) {
+    char releaseChar = Character.toUpperCase(Character.forDigit(release, Character.MAX_RADIX));
+    ScannedTypeCatalog.Builder builder = ScannedTypeCatalog.builder();
+    boolean found = false;
+    try (ZipFile zipFile = new ZipFile(ctSym.toFile())) {
+      var entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        String name = entry.getName();
+        int slash = name.indexOf('/');
+        if (slash < 0
+            || !name.endsWith(".sig")
+            || name.endsWith("module-info.sig")
+            || !isReleaseDirectory(name.substring(0, slash), releaseChar)) {
+          continue;
+        }
+        found = true;
+        String resourceUri = "jar:" + ctSym.toUri() + "!/" + name;
+        readClass(resourceUri, () -> zipFile.getInputStream(entry), builder);
+      }
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Failed to read " + ctSym, e);
+      return null;
+    }
+    return found ? builder.build() : null;
+  }
+
+  private static boolean isReleaseDirectory(String directory, char releaseChar) {
+    for (int i = 0; i < directory.length(); i++) {
+      if (Character.digit(directory.charAt(i), Character.MAX_RADIX) < 0) {
+        return false;
+      }
+    }
+    return directory.indexOf(releaseChar) >= 0;
+  }
+
+  /** Feature release of the JDK at {@code jdkHome}, from the JAVA_VERSION in its release file. */
+  static OptionalInt releaseOf(Path jdkHome) {
+    Path releaseFile = jdkHome.resolve("release");
+    if (!Files.isRegularFile(releaseFile)) {
+      return OptionalInt.empty();
+    }
+    try (Stream<String> lines = Files.lines(releaseFile)) {
+      return lines
+          .filter(line -> line.startsWith("JAVA_VERSION="))
+          .map(line -> line.substring("JAVA_VERSION=".length()).replace("\"", "").trim())
+          .mapToInt(JdkIndex::featureRelease)
+          .filter(release -> release > 0)
+          .findFirst();
+    } catch (IOException | UncheckedIOException e) {
+      LOG.log(Level.FINE, "Failed to read " + releaseFile, e);
+      return OptionalInt.empty();
+    }
+  }
+
+  private static int featureRelease(String version) {
+    String feature = version.startsWith("1.") ? version.substring(2) : version;
+    int end = 0;
+    while (end < feature.length() && Character.isDigit(feature.charAt(end))) {
+      end++;
+    }
+    return end == 0 ? -1 : Integer.parseInt(feature.substring(0, end));
+  }
+
+  private static Path ctSym() {
+    Path current = currentJdkHome();
+    Path ctSym = current == null ? null : current.resolve("lib").resolve("ct.sym");
+    return ctSym != null && Files.isRegularFile(ctSym) ? ctSym : null;
+  }
+
   private static void readClass(
       String resourceUri, InputStreamSupplier supplier, ScannedTypeCatalog.Builder builder) {
     try (InputStream inputStream = supplier.open()) {
+      // header only; class annotations are read by the annotation index in the background
       ClassReader reader = new ClassReader(inputStream);
       int access = reader.getAccess();
       String className = reader.getClassName().replace('/', '.');
@@ -91,30 +204,18 @@ public final class JdkIndex {
               className,
               packageName(className),
               containerFqName(className),
-              kindOf(access),
+              BinaryTypeReader.kindOf(access),
               resourceUri,
               reader.getSuperName() == null ? null : reader.getSuperName().replace('/', '.'),
               java.util.Arrays.stream(reader.getInterfaces())
                   .map(name -> name.replace('/', '.'))
-                  .toList()));
+                  .toList(),
+              null));
     } catch (IOException e) {
       LOG.log(Level.FINE, "Skipping unreadable JDK class " + resourceUri, e);
     }
   }
 
-  private static SymbolInfo.Kind kindOf(int access) {
-    if ((access & Opcodes.ACC_ANNOTATION) != 0) {
-      return SymbolInfo.Kind.ANNOTATION;
-    }
-    if ((access & Opcodes.ACC_INTERFACE) != 0) {
-      return SymbolInfo.Kind.INTERFACE;
-    }
-    if ((access & Opcodes.ACC_ENUM) != 0) {
-      return SymbolInfo.Kind.ENUM;
-    }
-    return SymbolInfo.Kind.CLASS;
-  }
-
   private static String packageName(String fqName) {
     int lastDot = fqName.lastIndexOf('.');
     return lastDot < 0 ? "" : fqName.substring(0, lastDot);
@@ -0,0 +1,121 @@
+package se.alipsa.jvmpls.classpath;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Inverted index from member name to the catalog types that declare a method or field of that
+ * name, for receivers whose type is unknown.
+ *
+ * <p>The index is filled one classpath root at a time by {@link ClassFileIndexer}, and queries
+ * answer from the roots indexed so far. A root keeps its distinct names in one sorted array, which
+ * also answers prefix queries, with the declaring types in a flat array indexed by name offsets.
+ */
+final class MemberNameIndex {
+  private static final int[] NO_TYPES = new int[0];
+
+  // root id -> its member table, null until built; the last slot covers types outside any root
+  private final AtomicReferenceArray<RootMembers> roots;
+  // one String instance per name across roots
+  private final ConcurrentMap<String, String> canonicalNames = new ConcurrentHashMap<>();
+
+  MemberNameIndex(int rootCount) {
+    this.roots = new AtomicReferenceArray<>(rootCount + 1);
+  }
+
+  /** Catalog types in {@code visibleRoots} declaring a member named {@code memberName}. */
+  int[] typesDeclaring(String memberName, BitSet visibleRoots) {
+    int[] out = NO_TYPES;
+    int size = 0;
+    for (int root = 0; root < roots.length(); root++) {
+      RootMembers members = roots.get(root);
+      if (members == null || !isVisible(root, visibleRoots)) {
+        continue;
+      }
+      int name = Arrays.binarySearch(members.names(), memberName);
+      if (name < 0) {
+        continue;
+      }
+      int start = members.offsets()[name];
+      int end = members.offsets()[name + 1];
+      if (size + end - start > out.length) {
+        out = Arrays.copyOf(out, Math.max(out.length * 2, size + end - start));
+      }
+      System.arraycopy(members.types(), start, out, size, end - start);
+      size += end - start;
+    }
+    int[] types = Arrays.copyOf(out, size);
+    Arrays.sort(types);
+    return types;
+  }
+
+  /** Adds the names in {@code visibleRoots} starting with {@code prefix}, keeping {@code limit}. */
+  void namesStartingWith(String prefix, BitSet visibleRoots, int limit, TreeSet<String> out) {
+    for (int root = 0; root < roots.length(); root++) {
+      RootMembers members = roots.get(root);
+      if (members == null || !isVisible(root, visibleRoots)) {
+        continue;
+      }
+      String[] names = members.names();
+      int index = Arrays.binarySearch(names, prefix);
+      for (int i = index < 0 ? -index - 1 : index; i < names.length; i++) {
+        if (!names[i].startsWith(prefix)) {
+          break;
+        }
+        out.add(names[i]);
+        if (out.size() > limit && out.pollLast().equals(names[i])) {
+          // the rest of this root sorts after a name that did not make the cut
+          break;
+        }
+      }
+    }
+  }
+
+  private boolean isVisible(int root, BitSet visibleRoots) {
+    return visibleRoots == null || root == roots.length() - 1 || visibleRoots.get(root);
+  }
+
+  /** Makes the names collected by {@code builder} visible to queries. */
+  void set(int root, RootBuilder builder) {
+    Map<String, IntList> typesByName = builder.typesByName;
+    String[] names = typesByName.keySet().toArray(String[]::new);
+    Arrays.sort(names);
+    int[] offsets = new int[names.length + 1];
+    for (int i = 0; i < names.length; i++) {
+      offsets[i + 1] = offsets[i] + typesByName.get(names[i]).size();
+    }
+    int[] declaringTypes = new int[offsets[names.length]];
+    for (int i = 0; i < names.length; i++) {
+      IntList declaring = typesByName.get(names[i]);
+      for (int j = 0; j < declaring.size(); j++) {
+        declaringTypes[offsets[i] + j] = declaring.get(j);
+      }
+      names[i] = canonicalNames.computeIfAbsent(names[i], name -> name);
+    }
+    roots.set(root, new RootMembers(names, offsets, declaringTypes));
+  }
+
+  /** Collects the member names of the types of one root. */
+  static final class RootBuilder {
+    private final Map<String, IntList> typesByName = new HashMap<>();
+
+    void record(int type, List<String> names) {
+      for (String name : names) {
+        IntList types = typesByName.computeIfAbsent(name, key -> new IntList());
+        // overloads name the same member several times
+        if (types.size() == 0 || types.get(types.size() - 1) != type) {
+          types.add(type);
+        }
+      }
+    }
+  }
+
+  private record RootMembers(String[] names, int[] offsets, int[] types) {}
+}
@@ -0,0 +1,189 @@
+package se.alipsa.jvmpls.classpath;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Mutable catalog of the types in classpath directories such as {@code target/classes}.
+ *
+ * <p>Unlike {@link ScannedTypeCatalog} it can be refreshed one class file at a time, so a compile
+ * only touches the entries it rewrote. Entries are header-only; when the same type exists in
+ * several roots the first root wins, as on a classpath.
+ */
+final class OutputDirectoryCatalog {
+  private static final Logger LOG = Logger.getLogger(OutputDirectoryCatalog.class.getName());
+
+  private final List<Path> roots;
+  private final ConcurrentMap<String, ScannedTypeDescriptor> byFqn = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Set<String>> bySimpleName = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Set<String>> byPackage = new ConcurrentHashMap<>();
+
+  OutputDirectoryCatalog(List<Path> roots) {
+    this.roots = List.copyOf(roots);
+    refreshAll();
+  }
+
+  List<Path> roots() {
+    return roots;
+  }
+
+  boolean isEmpty() {
+    return roots.isEmpty();
+  }
+
+  boolean contains(String fqn) {
+    return byFqn.containsKey(fqn);
+  }
+
+  Optional<ScannedTypeDescriptor> findByFqn(String fqn) {
+    return Optional.ofNullable(byFqn.get(fqn));
+  }
+
+  List<ScannedTypeDescriptor> all() {
+    return List.copyOf(byFqn.values());
+  }
+
+  List<ScannedTypeDescriptor> findBySimpleName(String simpleName) {
+    return descriptors(bySimpleName.get(simpleName));
+  }
+
+  List<ScannedTypeDescriptor> allInPackage(String pkg) {
+    return descriptors(byPackage.get(pkg));
+  }
+
+  /**
+   * Re-reads everything at or below {@code path}, which lies inside {@code root}. Works for a
+   * single class file as well as for a created or deleted package directory.
+   *
+   * @return the FQNs of the types that were added, replaced or removed
+   */
+  Set<String> refreshTree(Path root, Path path) {
+    return refresh(root.relativize(path).toString().replace('\\', '/'));
+  }
+
+  /** Re-reads every root, e.g. after the watcher lost events. */
+  Set<String> refreshAll() {
+    return refresh("");
+  }
+
+  private synchronized Set<String> refresh(String relative) {
+    Set<String> entries = new LinkedHashSet<>();
+    if (relative.endsWith(".class")) {
+      entries.add(relative);
+    } else {
+      String prefix = relative.isEmpty() ? "" : relative + "/";
+      for (String fqn : byFqn.keySet()) {
+        String entry = ScannedTypeCatalog.entryPath(fqn);
+        if (entry.startsWith(prefix)) {
+          entries.add(entry);
+        }
+      }
+      for (Path candidateRoot : roots) {
+        collectClassEntries(candidateRoot, candidateRoot.resolve(relative), entries);
+      }
+    }
+    Set<String> changed = new LinkedHashSet<>();
+    for (String entry : entries) {
+      String fqn = refreshEntry(entry);
+      if (fqn != null) {
+        changed.add(fqn);
+      }
+    }
+    return changed;
+  }
+
+  /** Resource URIs a class file entry may have had in any root, for cache eviction. */
+  List<String> resourceUris(String fqn) {
+    String entry = ScannedTypeCatalog.entryPath(fqn);
+    List<String> uris = new ArrayList<>(roots.size());
+    for (Path root : roots) {
+      uris.add(root.resolve(entry).toUri().toString());
+    }
+    return uris;
+  }
+
+  private String refreshEntry(String entry) {
+    ScannedTypeDescriptor current = null;
+    for (Path root : roots) {
+      Path classFile = root.resolve(entry);
+      if (Files.isRegularFile(classFile)) {
+        current = ClasspathScanner.headerDescriptor(entry, classFile.toUri().toString());
+        break;
+      }
+    }
+    if (current == null) {
+      String fqn = entry.substring(0, entry.length() - ".class".length()).replace('/', '.');
+      return remove(fqn) ? fqn : null;
+    }
+    put(current);
+    return current.fqName();
+  }
+
+  private void put(ScannedTypeDescriptor descriptor) {
+    byFqn.put(descriptor.fqName(), descriptor);
+    bySimpleName
+        .computeIfAbsent(descriptor.simpleName(), key -> ConcurrentHashMap.newKeySet())
+        .add(descriptor.fqName());
+    byPackage
+        .computeIfAbsent(descriptor.packageName(), key -> ConcurrentHashMap.newKeySet())
+        .add(descriptor.fqName());
+  }
+
+  private boolean remove(String fqn) {
+    ScannedTypeDescriptor removed = byFqn.remove(fqn);
+    if (removed == null) {
+      return false;
+    }
+    removeIndexed(bySimpleName, removed.simpleName(), fqn);
+    removeIndexed(byPackage, removed.packageName(), fqn);
+    return true;
+  }
+
+  private List<ScannedTypeDescriptor> descriptors(Set<String> fqns) {
+    if (fqns == null || fqns.isEmpty()) {
+      return List.of();
+    }
+    List<ScannedTypeDescriptor> out = new ArrayList<>(fqns.size());
+    for (String fqn : fqns) {
+      ScannedTypeDescriptor descriptor = byFqn.get(fqn);
+      if (descriptor != null) {
+        out.add(descriptor);
+      }
+    }
+    return List.copyOf(out);
+  }
+
+  private static void removeIndexed(
+      ConcurrentMap<String, Set<String>> index, String key, String fqn) {
+    index.computeIfPresent(
+        key,
+        (ignored, fqns) -> {
+          fqns.remove(fqn);
+          return fqns.isEmpty() ? null : fqns;
+        });
+  }
+
+  private static void collectClassEntries(Path root, Path start, Set<String> entries) {
+    if (!Files.exists(start)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(start)) {
+      paths
+          .filter(path -> path.getFileName().toString().endsWith(".class"))
+          .forEach(path -> entries.add(root.relativize(path).toString().replace('\\', '/')));
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Failed to list classpath directory " + start, e);
+    }
+  }
+}
@@ -0,0 +1,238 @@
+package se.alipsa.jvmpls.classpath;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Watches classpath directories and applies class file changes to an {@link
+ * OutputDirectoryCatalog}. Events are batched until the directory has been quiet for a short
+ * moment so a compile that rewrites many classes is reported as one change.
+ *
+ * <p>The nearest existing parent of each root is watched as well, so a root that is missing at
+ * startup, or deleted and recreated by a clean build, is picked up when it appears.
+ */
+final class OutputDirectoryWatcher implements AutoCloseable {
+  private static final Logger LOG = Logger.getLogger(OutputDirectoryWatcher.class.getName());
+  private static final long QUIET_PERIOD_MILLIS = 100;
+
+  private final OutputDirectoryCatalog catalog;
+  private final Consumer<Set<String>> onChange;
+  private final WatchService watchService;
+  private final Map<WatchKey, Path> rootsByKey = new HashMap<>();
+  private final Map<WatchKey, Set<Path>> rootsByParentKey = new HashMap<>();
+  private final Map<Path, WatchKey> parentKeysByRoot = new HashMap<>();
+  private final Thread thread;
+
+  private OutputDirectoryWatcher(
+      OutputDirectoryCatalog catalog, Consumer<Set<String>> onChange, WatchService watchService) {
+    this.catalog = catalog;
+    this.onChange = onChange;
+    this.watchService = watchService;
+    for (Path root : catalog.roots()) {
+      watchParent(root);
+      registerTree(root, root);
+    }
+    this.thread = Thread.ofVirtual().name("jvmpls-output-watcher").start(this::run);
+  }
+
+  /**
+   * Starts watching the roots of {@code catalog}. {@code onChange} receives the FQNs of changed
+   * types after the catalog has been updated. Returns {@code null} if no watch service is
+   * available.
+   */
+  static OutputDirectoryWatcher start(
+      OutputDirectoryCatalog catalog, Consumer<Set<String>> onChange) {
+    try {
+      return new OutputDirectoryWatcher(
+          catalog, onChange, catalog.roots().getFirst().getFileSystem().newWatchService());
+    } catch (IOException | UnsupportedOperationException e) {
+      LOG.log(Level.WARNING, "Classpath directories will not be watched for changes", e);
+      return null;
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      watchService.close();
+    } catch (IOException e) {
+      LOG.log(Level.FINE, "Failed to close classpath directory watch service", e);
+    }
+    thread.interrupt();
+  }
+
+  private void run() {
+    try {
+      while (true) {
+        Set<String> changed = new LinkedHashSet<>();
+        WatchKey key = watchService.take();
+        while (key != null) {
+          changed.addAll(process(key));
+          key = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        if (!changed.isEmpty()) {
+          notifyChanged(changed);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      // closed by close()
+    }
+  }
+
+  private Set<String> process(WatchKey key) {
+    Path root = rootsByKey.get(key);
+    Set<Path> waiting = Set.copyOf(rootsByParentKey.getOrDefault(key, Set.of()));
+    Path dir = (Path) key.watchable();
+    Set<String> changed = new LinkedHashSet<>();
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == OVERFLOW || (root == null && waiting.isEmpty())) {
+        changed.addAll(catalog.refreshAll());
+        continue;
+      }
+      Path path = dir.resolve((Path) event.context());
+      for (Path waitingRoot : waiting) {
+        Path absoluteRoot = waitingRoot.toAbsolutePath();
+        if (event.kind() == ENTRY_CREATE && absoluteRoot.startsWith(path)) {
+          // the root or one of its parents appeared
+          changed.addAll(rewatch(waitingRoot));
+        } else if (event.kind() == ENTRY_DELETE && absoluteRoot.equals(path)) {
+          changed.addAll(catalog.refreshTree(waitingRoot, waitingRoot));
+        }
+      }
+      if (root == null) {
+        continue;
+      }
+      if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+        registerTree(root, path);
+      }
+      changed.addAll(catalog.refreshTree(root, path));
+    }
+    if (!key.reset()) {
+      rootsByKey.remove(key);
+      Set<Path> orphaned = rootsByParentKey.remove(key);
+      if (orphaned != null) {
+        // a parent was deleted; fall back to the nearest parent that still exists
+        for (Path orphan : orphaned) {
+          parentKeysByRoot.remove(orphan);
+          changed.addAll(rewatch(orphan));
+        }
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Moves the parent watch of {@code root} to its nearest existing parent. If the root itself
+   * exists by then it is registered and re-read; returns the FQNs that changed.
+   */
+  private Set<String> rewatch(Path root) {
+    if (!watchParent(root) || !Files.isDirectory(root)) {
+      return Set.of();
+    }
+    registerTree(root, root);
+    return catalog.refreshTree(root, root);
+  }
+
+  /**
+   * Watches the nearest existing parent of {@code root} for the root to be created or deleted.
+   * Returns whether that is the root's own parent directory.
+   */
+  private boolean watchParent(Path root) {
+    Path watched = null;
+    // a directory created before its parent was watched sends no event, so look again
+    for (Path parent = nearestParent(root);
+        parent != null && !parent.equals(watched);
+        parent = nearestParent(root)) {
+      if (!watch(root, parent)) {
+        return false;
+      }
+      watched = parent;
+    }
+    return watched != null && watched.equals(root.toAbsolutePath().getParent());
+  }
+
+  private boolean watch(Path root, Path parent) {
+    WatchKey previous = parentKeysByRoot.get(root);
+    if (previous != null && previous.isValid() && parent.equals(previous.watchable())) {
+      return true;
+    }
+    parentKeysByRoot.remove(root);
+    if (previous != null) {
+      Set<Path> roots = rootsByParentKey.get(previous);
+      if (roots != null && roots.remove(root) && roots.isEmpty()) {
+        rootsByParentKey.remove(previous);
+        if (!rootsByKey.containsKey(previous)) {
+          previous.cancel();
+        }
+      }
+    }
+    try {
+      // same kinds as the trees, since a parent may itself lie inside another root
+      WatchKey key = parent.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+      rootsByParentKey.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(root);
+      parentKeysByRoot.put(root, key);
+      return true;
+    } catch (IOException e) {
+      LOG.log(Level.FINE, "Failed to watch classpath directory " + parent, e);
+      return false;
+    }
+  }
+
+  private static Path nearestParent(Path root) {
+    Path parent = root.toAbsolutePath().getParent();
+    while (parent != null && !Files.isDirectory(parent)) {
+      parent = parent.getParent();
+    }
+    return parent;
+  }
+
+  private void notifyChanged(Set<String> changed) {
+    try {
+      onChange.accept(Set.copyOf(changed));
+    } catch (RuntimeException e) {
+      LOG.log(Level.WARNING, "Failed to apply classpath directory changes", e);
+    }
+  }
+
+  private void registerTree(Path root, Path start) {
+    if (!Files.isDirectory(start)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(start)) {
+      paths
+          .filter(Files::isDirectory)
+          .forEach(
+              dir -> {
+                try {
+                  rootsByKey.put(
+                      dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), root);
+                } catch (IOException e) {
+                  LOG.log(Level.FINE, "Failed to watch classpath directory " + dir, e);
+                }
+              });
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Failed to watch classpath directory " + start, e);
+    }
+  }
+}
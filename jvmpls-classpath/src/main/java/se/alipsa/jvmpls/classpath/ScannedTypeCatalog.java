@@ -1,24 +1,94 @@
 package se.alipsa.jvmpls.classpath;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import se.alipsa.jvmpls.core.FqnBloomFilter;
+import se.alipsa.jvmpls.core.model.SymbolInfo;
+
+/**
+ * Immutable, column-oriented catalog of scanned binary types.
+ *
+ * <p>Every type gets a dense {@code int} id. Names (type FQNs, packages and simple names) live once
+ * in a shared {@link StringPool}; supertypes and interfaces are stored as name ids in packed
+ * arrays. Resource URIs are not stored per type: they are rebuilt from the id of the classpath root
+ * the type was found in plus the binary entry path, which is derivable from the type name and the
+ * entry suffix of the root ({@code .class}, or {@code .sig} for a ct.sym release directory). {@link
+ * ScannedTypeDescriptor} records are only created on lookup. Header-only entries from a lazy scan
+ * carry no kind and no supertypes.
+ *
+ * <p>A type found in several roots is kept once per root, chained in classpath order. Plain lookups
+ * see the first one; lookups with a {@link BitSet} of visible root ids (a module's classpath view)
+ * see the first one whose root is visible.
+ */
 final class ScannedTypeCatalog {
 
-  private final Map<String, ScannedTypeDescriptor> byFqn;
-  private final Map<String, List<ScannedTypeDescriptor>> bySimpleName;
-  private final Map<String, List<ScannedTypeDescriptor>> byPackage;
+  private static final int NONE = -1;
+  private static final SymbolInfo.Kind[] KINDS = SymbolInfo.Kind.values();
+  private static final List<String> ENTRY_SUFFIXES = List.of(".class", ".sig");
+
+  private final StringPool names;
+  private final String[] roots;
+  private final String[] rootSuffixes;
+  private final int size;
+  private final int[] typeNames;
+  private final int[] packages;
+  private final byte[] kinds;
+  private final int[] rootIds;
+  private final int[] superclasses;
+  private final int[] nextSameName;
+  private final int[] interfaceOffsets;
+  private final int[] interfaces;
+  // class-level annotations as name ids; types whose annotations were not read are in the bitset
+  private final int[] annotationOffsets;
+  private final int[] annotations;
+  private final BitSet annotationsUnread;
+  private final Map<Integer, String> explicitResourceUris;
+  // name id -> type id, and CSR tables (name id -> range of type ids) for the secondary lookups
+  private final int[] typeByName;
+  private final int[] simpleNameOffsets;
+  private final int[] typesBySimpleName;
+  private final int[] packageOffsets;
+  private final int[] typesByPackage;
+  private final FqnBloomFilter typeNameFilter;
+
+  private ScannedTypeCatalog(Builder builder) {
+    this.names = builder.names.compactCopy();
+    this.roots = builder.roots.toArray(String[]::new);
+    this.rootSuffixes = builder.rootSuffixes.toArray(String[]::new);
+    this.size = builder.size;
+    this.typeNames = Arrays.copyOf(builder.typeNames, size);
+    this.packages = Arrays.copyOf(builder.packages, size);
+    this.kinds = Arrays.copyOf(builder.kinds, size);
+    this.rootIds = Arrays.copyOf(builder.rootIds, size);
+    this.superclasses = Arrays.copyOf(builder.superclasses, size);
+    this.nextSameName = Arrays.copyOf(builder.nextSameName, size);
+    this.interfaceOffsets = Arrays.copyOf(builder.interfaceOffsets, size + 1);
+    this.interfaces = Arrays.copyOf(builder.interfaces, builder.interfaceCount);
+    this.annotationOffsets = Arrays.copyOf(builder.annotationOffsets, size + 1);
+    this.annotations = Arrays.copyOf(builder.annotations, builder.annotationCount);
+    this.annotationsUnread = (BitSet) builder.annotationsUnread.clone();
+    this.explicitResourceUris = Map.copyOf(builder.explicitResourceUris);
 
-  private ScannedTypeCatalog(
-      Map<String, ScannedTypeDescriptor> byFqn,
-      Map<String, List<ScannedTypeDescriptor>> bySimpleName,
-      Map<String, List<ScannedTypeDescriptor>> byPackage) {
-    this.byFqn = byFqn;
-    this.bySimpleName = bySimpleName;
-    this.byPackage = byPackage;
+    int nameCount = names.size();
+    this.typeByName = Arrays.copyOf(builder.typeByName, nameCount);
+    Arrays.fill(typeByName, Math.min(builder.typeByName.length, nameCount), nameCount, NONE);
+    this.simpleNameOffsets = new int[nameCount + 1];
+    this.typesBySimpleName = group(Arrays.copyOf(builder.simpleNames, size), simpleNameOffsets);
+    this.packageOffsets = new int[nameCount + 1];
+    this.typesByPackage = group(packages, packageOffsets);
+    this.typeNameFilter = new FqnBloomFilter(size);
+    for (int name = 0; name < nameCount; name++) {
+      if (typeByName[name] != NONE) {
+        typeNameFilter.add(names.get(name));
+      }
+    }
   }
 
   static Builder builder() {
@@ -26,38 +96,264 @@ final class ScannedTypeCatalog {
   }
 
   Optional<ScannedTypeDescriptor> findByFqn(String fqn) {
-    return Optional.ofNullable(byFqn.get(fqn));
+    return findByFqn(fqn, null);
   }
 
   List<ScannedTypeDescriptor> findBySimpleName(String simpleName) {
-    return bySimpleName.getOrDefault(simpleName, List.of());
+    return findBySimpleName(simpleName, null);
   }
 
   List<ScannedTypeDescriptor> allInPackage(String pkg) {
-    return byPackage.getOrDefault(pkg, List.of());
+    return allInPackage(pkg, null);
+  }
+
+  /** {@code false} if no root has a type named {@code fqn}; answered without a name lookup. */
+  boolean mightContain(String fqn) {
+    return typeNameFilter.mightContain(fqn);
+  }
+
+  /** Looks up {@code fqn} among the roots in {@code visibleRoots}; {@code null} means all roots. */
+  Optional<ScannedTypeDescriptor> findByFqn(String fqn, BitSet visibleRoots) {
+    int name = names.find(fqn);
+    int type = name == NONE ? NONE : firstVisible(typeByName[name], visibleRoots);
+    return type == NONE ? Optional.empty() : Optional.of(descriptor(type));
+  }
+
+  List<ScannedTypeDescriptor> findBySimpleName(String simpleName, BitSet visibleRoots) {
+    return descriptors(
+        names.find(simpleName), simpleNameOffsets, typesBySimpleName, visibleRoots);
+  }
+
+  List<ScannedTypeDescriptor> allInPackage(String pkg, BitSet visibleRoots) {
+    return descriptors(names.find(pkg), packageOffsets, typesByPackage, visibleRoots);
+  }
+
+  /**
+   * True if {@code type} is the one a lookup of its FQN returns among {@code visibleRoots}, i.e. it
+   * is not shadowed by a same-named type earlier on the classpath.
+   */
+  boolean isListed(int type, BitSet visibleRoots) {
+    return firstVisible(typeByName[typeNames[type]], visibleRoots) == type;
+  }
+
+  String fqName(int type) {
+    return names.get(typeNames[type]);
+  }
+
+  /** Class-level annotations of {@code type}; {@code null} if the scan did not read them. */
+  List<String> annotationsOf(int type) {
+    return annotationsUnread.get(type) ? null : nameList(annotationOffsets, annotations, type);
+  }
+
+  int rootId(int type) {
+    return rootIds[type];
+  }
+
+  int rootCount() {
+    return roots.length;
+  }
+
+  String root(int rootId) {
+    return roots[rootId];
+  }
+
+  /** Path of the class file of {@code type} below its root. */
+  String entryName(int type) {
+    return names.get(typeNames[type]).replace('.', '/') + rootSuffixes[rootIds[type]];
+  }
+
+  /**
+   * Type ids grouped by root id, in type id order. The extra last group holds the types outside any
+   * root.
+   */
+  int[][] typesByRoot() {
+    int none = roots.length;
+    int[] counts = new int[roots.length + 1];
+    for (int type = 0; type < size; type++) {
+      counts[rootIds[type] < 0 ? none : rootIds[type]]++;
+    }
+    int[][] grouped = new int[roots.length + 1][];
+    for (int root = 0; root < grouped.length; root++) {
+      grouped[root] = new int[counts[root]];
+      counts[root] = 0;
+    }
+    for (int type = 0; type < size; type++) {
+      int root = rootIds[type] < 0 ? none : rootIds[type];
+      grouped[root][counts[root]++] = type;
+    }
+    return grouped;
   }
 
   boolean isEmpty() {
-    return byFqn.isEmpty();
+    return size == 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private int firstVisible(int type, BitSet visibleRoots) {
+    while (type != NONE && !isVisible(type, visibleRoots)) {
+      type = nextSameName[type];
+    }
+    return type;
+  }
+
+  private boolean isVisible(int type, BitSet visibleRoots) {
+    return visibleRoots == null || rootIds[type] == NONE || visibleRoots.get(rootIds[type]);
+  }
+
+  private List<ScannedTypeDescriptor> descriptors(
+      int name, int[] offsets, int[] types, BitSet visibleRoots) {
+    if (name == NONE) {
+      return List.of();
+    }
+    int start = offsets[name];
+    int end = offsets[name + 1];
+    if (start == end) {
+      return List.of();
+    }
+    List<ScannedTypeDescriptor> out = new ArrayList<>(end - start);
+    for (int i = start; i < end; i++) {
+      int type = types[i];
+      // only the type that wins the FQN lookup is listed, so duplicates appear once
+      if (isListed(type, visibleRoots)) {
+        out.add(descriptor(type));
+      }
+    }
+    return List.copyOf(out);
+  }
+
+  ScannedTypeDescriptor descriptor(int type) {
+    String fqName = names.get(typeNames[type]);
+    return new ScannedTypeDescriptor(
+        fqName,
+        names.get(packages[type]),
+        containerFqName(fqName),
+        kinds[type] == NONE ? null : KINDS[kinds[type]],
+        resourceUri(type, fqName),
+        superclasses[type] == NONE ? null : names.get(superclasses[type]),
+        nameList(interfaceOffsets, interfaces, type),
+        annotationsOf(type));
+  }
+
+  private List<String> nameList(int[] offsets, int[] nameIds, int type) {
+    String[] out = new String[offsets[type + 1] - offsets[type]];
+    for (int i = 0; i < out.length; i++) {
+      out[i] = names.get(nameIds[offsets[type] + i]);
+    }
+    return List.of(out);
+  }
+
+  private String resourceUri(int type, String fqName) {
+    int root = rootIds[type];
+    return root == NONE
+        ? explicitResourceUris.get(type)
+        : roots[root] + fqName.replace('.', '/') + rootSuffixes[root];
+  }
+
+  /** Counting sort of type ids by key; keeps insertion order inside each group. */
+  private static int[] group(int[] keys, int[] offsets) {
+    for (int key : keys) {
+      if (key != NONE) {
+        offsets[key + 1]++;
+      }
+    }
+    for (int i = 1; i < offsets.length; i++) {
+      offsets[i] += offsets[i - 1];
+    }
+    int[] cursor = Arrays.copyOf(offsets, offsets.length - 1);
+    int[] grouped = new int[offsets[offsets.length - 1]];
+    for (int type = 0; type < keys.length; type++) {
+      if (keys[type] != NONE) {
+        grouped[cursor[keys[type]]++] = type;
+      }
+    }
+    return grouped;
+  }
+
+  static String entryPath(String fqName) {
+    return fqName.replace('.', '/') + ".class";
+  }
+
+  private static String containerFqName(String fqName) {
+    int lastDot = fqName.lastIndexOf('.');
+    return lastDot < 0 ? "" : fqName.substring(0, lastDot);
   }
 
   static final class Builder {
 
-    private final Map<String, ScannedTypeDescriptor> byFqn = new LinkedHashMap<>();
-    private final Map<String, List<ScannedTypeDescriptor>> bySimpleName = new LinkedHashMap<>();
-    private final Map<String, List<ScannedTypeDescriptor>> byPackage = new LinkedHashMap<>();
+    private final StringPool names = new StringPool();
+    private final List<String> roots = new ArrayList<>();
+    private final List<String> rootSuffixes = new ArrayList<>();
+    private final Map<String, Integer> rootIdsByPrefix = new HashMap<>();
+    private final Map<Integer, String> explicitResourceUris = new LinkedHashMap<>();
+    private int size;
+    private int[] typeNames = new int[64];
+    private int[] packages = new int[64];
+    private int[] simpleNames = new int[64];
+    private byte[] kinds = new byte[64];
+    private int[] rootIds = new int[64];
+    private int[] superclasses = new int[64];
+    private int[] nextSameName = new int[64];
+    private int[] interfaceOffsets = new int[65];
+    private int[] interfaces = new int[64];
+    private int interfaceCount;
+    private int[] annotationOffsets = new int[65];
+    private int[] annotations = new int[16];
+    private int annotationCount;
+    private final BitSet annotationsUnread = new BitSet();
+    private int[] typeByName = new int[0];
 
     Builder add(ScannedTypeDescriptor descriptor) {
       if (descriptor == null || descriptor.fqName() == null || descriptor.fqName().isBlank()) {
         return this;
       }
-      if (byFqn.putIfAbsent(descriptor.fqName(), descriptor) == null) {
-        bySimpleName
-            .computeIfAbsent(descriptor.simpleName(), key -> new ArrayList<>())
-            .add(descriptor);
-        byPackage
-            .computeIfAbsent(descriptor.packageName(), key -> new ArrayList<>())
-            .add(descriptor);
+      int name = names.intern(descriptor.fqName());
+      int root = rootId(descriptor);
+      int last = NONE;
+      for (int existing = typeOf(name); existing != NONE; existing = nextSameName[existing]) {
+        if (rootIds[existing] == root) {
+          return this;
+        }
+        last = existing;
+      }
+      ensureTypeCapacity();
+      int type = size++;
+      typeNames[type] = name;
+      nextSameName[type] = NONE;
+      String packageName = descriptor.packageName();
+      packages[type] = names.intern(packageName == null ? "" : packageName);
+      simpleNames[type] = names.intern(descriptor.simpleName());
+      kinds[type] = descriptor.kind() == null ? NONE : (byte) descriptor.kind().ordinal();
+      rootIds[type] = root;
+      if (root == NONE && descriptor.resourceUri() != null) {
+        explicitResourceUris.put(type, descriptor.resourceUri());
+      }
+      String superclass = descriptor.superclassFqName();
+      superclasses[type] =
+          superclass == null || superclass.isBlank() ? NONE : names.intern(superclass);
+      List<String> interfaceNames =
+          descriptor.interfaceFqNames() == null ? List.of() : descriptor.interfaceFqNames();
+      ensureInterfaceCapacity(interfaceNames.size());
+      for (String interfaceName : interfaceNames) {
+        interfaces[interfaceCount++] = names.intern(interfaceName);
+      }
+      interfaceOffsets[type + 1] = interfaceCount;
+      List<String> annotationNames = descriptor.annotationFqNames();
+      if (annotationNames == null) {
+        annotationsUnread.set(type);
+        annotationNames = List.of();
+      }
+      ensureAnnotationCapacity(annotationNames.size());
+      for (String annotationName : annotationNames) {
+        annotations[annotationCount++] = names.intern(annotationName);
+      }
+      annotationOffsets[type + 1] = annotationCount;
+      if (last == NONE) {
+        recordType(name, type);
+      } else {
+        nextSameName[last] = type;
       }
       return this;
     }
@@ -66,20 +362,82 @@ final class ScannedTypeCatalog {
       if (catalog == null) {
         return this;
       }
-      catalog.byFqn.values().forEach(this::add);
+      for (int type = 0; type < catalog.size; type++) {
+        add(catalog.descriptor(type));
+      }
       return this;
     }
 
     ScannedTypeCatalog build() {
-      return new ScannedTypeCatalog(
-          Map.copyOf(byFqn), copyListMap(bySimpleName), copyListMap(byPackage));
+      return new ScannedTypeCatalog(this);
+    }
+
+    private int rootId(ScannedTypeDescriptor descriptor) {
+      String resourceUri = descriptor.resourceUri();
+      if (resourceUri == null) {
+        return NONE;
+      }
+      String entry = descriptor.fqName().replace('.', '/');
+      for (String suffix : ENTRY_SUFFIXES) {
+        int start = resourceUri.length() - suffix.length() - entry.length();
+        if (!resourceUri.endsWith(suffix) || !resourceUri.startsWith(entry, start)) {
+          continue;
+        }
+        int root =
+            rootIdsByPrefix.computeIfAbsent(
+                resourceUri.substring(0, start),
+                key -> {
+                  roots.add(key);
+                  rootSuffixes.add(suffix);
+                  return roots.size() - 1;
+                });
+        // a root holds entries of one kind; others keep their own URI
+        return rootSuffixes.get(root).equals(suffix) ? root : NONE;
+      }
+      return NONE;
+    }
+
+    private int typeOf(int name) {
+      return name < typeByName.length ? typeByName[name] : NONE;
     }
 
-    private static Map<String, List<ScannedTypeDescriptor>> copyListMap(
-        Map<String, List<ScannedTypeDescriptor>> source) {
-      Map<String, List<ScannedTypeDescriptor>> copy = new LinkedHashMap<>();
-      source.forEach((key, value) -> copy.put(key, List.copyOf(value)));
-      return Map.copyOf(copy);
+    private void recordType(int name, int type) {
+      if (name >= typeByName.length) {
+        int previous = typeByName.length;
+        typeByName = Arrays.copyOf(typeByName, Math.max(names.size(), previous * 2));
+        Arrays.fill(typeByName, previous, typeByName.length, NONE);
+      }
+      typeByName[name] = type;
+    }
+
+    private void ensureTypeCapacity() {
+      if (size < typeNames.length) {
+        return;
+      }
+      int capacity = typeNames.length * 2;
+      typeNames = Arrays.copyOf(typeNames, capacity);
+      packages = Arrays.copyOf(packages, capacity);
+      simpleNames = Arrays.copyOf(simpleNames, capacity);
+      kinds = Arrays.copyOf(kinds, capacity);
+      rootIds = Arrays.copyOf(rootIds, capacity);
+      superclasses = Arrays.copyOf(superclasses, capacity);
+      nextSameName = Arrays.copyOf(nextSameName, capacity);
+      interfaceOffsets = Arrays.copyOf(interfaceOffsets, capacity + 1);
+      annotationOffsets = Arrays.copyOf(annotationOffsets, capacity + 1);
+    }
+
+    private void ensureAnnotationCapacity(int additional) {
+      if (annotationCount + additional > annotations.length) {
+        int capacity = Math.max(annotations.length * 2, annotationCount + additional);
+        annotations = Arrays.copyOf(annotations, capacity);
+      }
+    }
+
+    private void ensureInterfaceCapacity(int additional) {
+      if (interfaceCount + additional > interfaces.length) {
+        interfaces =
+            Arrays.copyOf(interfaces, Math.max(interfaces.length * 2, interfaceCount + additional));
+      }
     }
   }
 }
@@ -2,6 +2,11 @@ package se.alipsa.jvmpls.classpath;
 
 import se.alipsa.jvmpls.core.model.SymbolInfo;
 
+/**
+ * Catalog entry for one binary type. A {@code null} kind marks a header-only entry from a lazy scan
+ * whose kind and supertypes have not been read from the class file yet. {@code annotationFqNames}
+ * lists the class-level annotations, or is {@code null} when they have not been read.
+ */
 record ScannedTypeDescriptor(
     String fqName,
     String packageName,
@@ -9,7 +14,25 @@ record ScannedTypeDescriptor(
     SymbolInfo.Kind kind,
     String resourceUri,
     String superclassFqName,
-    java.util.List<String> interfaceFqNames) {
+    java.util.List<String> interfaceFqNames,
+    java.util.List<String> annotationFqNames) {
+
+  boolean isHeaderOnly() {
+    return kind == null;
+  }
+
+  ScannedTypeDescriptor withHeader(
+      SymbolInfo.Kind kind, String superclassFqName, java.util.List<String> interfaceFqNames) {
+    return new ScannedTypeDescriptor(
+        fqName,
+        packageName,
+        containerFqName,
+        kind,
+        resourceUri,
+        superclassFqName,
+        interfaceFqNames,
+        annotationFqNames);
+  }
 
   String simpleName() {
     int lastDot = fqName.lastIndexOf('.');
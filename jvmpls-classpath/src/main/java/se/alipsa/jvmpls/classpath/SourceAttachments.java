@@ -0,0 +1,361 @@
+package se.alipsa.jvmpls.classpath;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.LineMap;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.DocTrees;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreePath;
+
+import se.alipsa.jvmpls.core.model.Location;
+import se.alipsa.jvmpls.core.model.SymbolInfo;
+
+/**
+ * Finds the source of binary types on demand: the {@code -sources.jar} next to a dependency jar,
+ * or {@code lib/src.zip} of the running JDK for runtime types. Only the compilation unit of the
+ * requested type is read, and only parsed; its declarations are cached in a {@link SourceStore}.
+ *
+ * <p>Declarations are keyed like binary symbols: types by binary name, fields as {@code
+ * owner.name} and methods as {@code owner#name(SimpleParamTypes)}. Methods whose parameter types
+ * cannot be matched by simple name, such as generic ones, fall back to the overload with the same
+ * number of parameters.
+ */
+final class SourceAttachments {
+  private static final Logger LOG = Logger.getLogger(SourceAttachments.class.getName());
+  private static final int MEMORY_UNITS = 128;
+  private static final int DISK_UNITS = 4096;
+  private static volatile SourceAttachments shared;
+
+  private final SourceStore store;
+
+  SourceAttachments(SourceStore store) {
+    this.store = store;
+  }
+
+  /** Instance over the default cache directory, shared so one store guards its files. */
+  static SourceAttachments shared() {
+    SourceAttachments instance = shared;
+    if (instance == null) {
+      synchronized (SourceAttachments.class) {
+        instance = shared;
+        if (instance == null) {
+          instance =
+              new SourceAttachments(
+                  new SourceStore(SourceStore.defaultRoot(), MEMORY_UNITS, DISK_UNITS));
+          shared = instance;
+        }
+      }
+    }
+    return instance;
+  }
+
+  Optional<Location> location(SymbolInfo symbol) {
+    return find(symbol)
+        .map(found -> new Location(found.sourceUri(), found.declaration().range()));
+  }
+
+  Optional<String> documentation(SymbolInfo symbol) {
+    return find(symbol)
+        .map(found -> found.declaration().javadoc())
+        .filter(javadoc -> !javadoc.isBlank());
+  }
+
+  private Optional<Found> find(SymbolInfo symbol) {
+    if (symbol == null || symbol.getLocation() == null) {
+      return Optional.empty();
+    }
+    SourceUnit unit = sourceUnit(symbol.getLocation().getUri());
+    if (unit == null) {
+      return Optional.empty();
+    }
+    return store
+        .get(unit.archive(), unit.entry(), SourceAttachments::parse)
+        .flatMap(
+            stored ->
+                Optional.ofNullable(declaration(stored.declarations(), symbol))
+                    .map(declaration -> new Found(stored.sourceUri(), declaration)));
+  }
+
+  /** Source archive and entry holding the top-level type of a class resource, or null. */
+  static SourceUnit sourceUnit(String classUri) {
+    if (classUri == null || !classUri.endsWith(".class")) {
+      return null;
+    }
+    try {
+      if (classUri.startsWith("jar:")) {
+        int separator = classUri.indexOf("!/");
+        if (separator < 0) {
+          return null;
+        }
+        Path jar = Path.of(URI.create(classUri.substring("jar:".length(), separator)));
+        String name = jar.getFileName().toString();
+        if (!name.endsWith(".jar")) {
+          return null;
+        }
+        Path sources =
+            jar.resolveSibling(name.substring(0, name.length() - ".jar".length()) + "-sources.jar");
+        return new SourceUnit(sources, sourceEntry(classUri.substring(separator + 2)));
+      }
+      String javaHome = System.getProperty("java.home");
+      if (classUri.startsWith("jrt:/") && javaHome != null) {
+        // jrt:/<module>/<package path>/<Type>.class; src.zip is laid out the same way
+        Path srcZip = Path.of(javaHome, "lib", "src.zip");
+        return new SourceUnit(srcZip, sourceEntry(classUri.substring("jrt:/".length())));
+      }
+    } catch (IllegalArgumentException e) {
+      LOG.log(Level.FINE, "Cannot locate sources for " + classUri, e);
+    }
+    return null;
+  }
+
+  /** {@code a/b/C$D.class} to {@code a/b/C.java}. */
+  private static String sourceEntry(String classEntry) {
+    String path = classEntry.substring(0, classEntry.length() - ".class".length());
+    int dollar = path.indexOf('$', path.lastIndexOf('/') + 1);
+    return (dollar < 0 ? path : path.substring(0, dollar)) + ".java";
+  }
+
+  private static SourceStore.Declaration declaration(
+      Map<String, SourceStore.Declaration> declarations, SymbolInfo symbol) {
+    String fqn = symbol.getFqName();
+    SourceStore.Declaration exact = declarations.get(fqn);
+    if (exact != null) {
+      return exact;
+    }
+    int hash = fqn.indexOf('#');
+    if (hash > 0) {
+      String owner = fqn.substring(0, hash);
+      int open = fqn.indexOf('(', hash);
+      int close = fqn.indexOf(')', open);
+      if (open > 0 && close > open) {
+        List<String> parameters = parameterList(fqn.substring(open + 1, close));
+        String prefix = fqn.substring(0, open + 1);
+        SourceStore.Declaration method =
+            declarations.get(prefix + String.join(",", simpleNames(parameters)) + ")");
+        if (method == null) {
+          method = overload(declarations, prefix, parameters.size());
+        }
+        if (method != null) {
+          return method;
+        }
+      }
+      return declarations.get(owner);
+    }
+    if (symbol.getKind() == SymbolInfo.Kind.FIELD) {
+      int dot = fqn.lastIndexOf('.');
+      return dot < 0 ? null : declarations.get(fqn.substring(0, dot));
+    }
+    return null;
+  }
+
+  /** First overload with {@code arity} parameters, else the first one with the name. */
+  private static SourceStore.Declaration overload(
+      Map<String, SourceStore.Declaration> declarations, String prefix, int arity) {
+    SourceStore.Declaration sameName = null;
+    for (Map.Entry<String, SourceStore.Declaration> entry : declarations.entrySet()) {
+      String key = entry.getKey();
+      if (!key.startsWith(prefix)) {
+        continue;
+      }
+      if (parameterList(key.substring(prefix.length(), key.length() - 1)).size() == arity) {
+        return entry.getValue();
+      }
+      if (sameName == null) {
+        sameName = entry.getValue();
+      }
+    }
+    return sameName;
+  }
+
+  private static List<String> parameterList(String parameters) {
+    return parameters.isEmpty() ? List.of() : List.of(parameters.split(","));
+  }
+
+  private static List<String> simpleNames(List<String> typeNames) {
+    List<String> names = new ArrayList<>(typeNames.size());
+    for (String typeName : typeNames) {
+      names.add(simpleTypeName(typeName));
+    }
+    return names;
+  }
+
+  /** {@code java.util.Map$Entry<K, V>...} and {@code Map.Entry[]} both to {@code Entry[]}. */
+  static String simpleTypeName(String typeName) {
+    StringBuilder erased = new StringBuilder(typeName.length());
+    int depth = 0;
+    for (int i = 0; i < typeName.length(); i++) {
+      char c = typeName.charAt(i);
+      if (c == '<') {
+        depth++;
+      } else if (c == '>') {
+        depth--;
+      } else if (depth == 0 && !Character.isWhitespace(c)) {
+        erased.append(c);
+      }
+    }
+    String name = erased.toString().replace("...", "[]");
+    // drop type annotations such as @Nullable
+    while (name.startsWith("@")) {
+      int end = 1;
+      while (end < name.length()
+          && (Character.isJavaIdentifierPart(name.charAt(end)) || name.charAt(end) == '.')) {
+        end++;
+      }
+      name = name.substring(end);
+    }
+    int start = Math.max(name.lastIndexOf('.'), name.lastIndexOf('$')) + 1;
+    return name.substring(start);
+  }
+
+  /** Parses {@code source} without attribution and returns its declarations by key. */
+  static Map<String, SourceStore.Declaration> parse(String source) {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      LOG.fine("No system Java compiler, dependency sources cannot be parsed");
+      return Map.of();
+    }
+    Map<String, SourceStore.Declaration> declarations = new LinkedHashMap<>();
+    try {
+      JavacTask task =
+          (JavacTask)
+              compiler.getTask(
+                  null,
+                  null,
+                  diagnostic -> {},
+                  List.of("-proc:none"),
+                  null,
+                  List.of(new SourceFile(source)));
+      DocTrees trees = DocTrees.instance(task);
+      for (CompilationUnitTree unit : task.parse()) {
+        Parsed parsed = new Parsed(unit, trees, source);
+        String packageName = unit.getPackageName() == null ? "" : unit.getPackageName().toString();
+        TreePath unitPath = new TreePath(unit);
+        for (Tree typeDeclaration : unit.getTypeDecls()) {
+          if (typeDeclaration instanceof ClassTree classTree) {
+            String name = classTree.getSimpleName().toString();
+            parsed.collectType(
+                new TreePath(unitPath, classTree),
+                packageName.isEmpty() ? name : packageName + "." + name,
+                declarations);
+          }
+        }
+      }
+    } catch (Exception e) {
+      LOG.log(Level.FINE, "Failed to parse dependency source", e);
+    }
+    return declarations;
+  }
+
+  private record Parsed(CompilationUnitTree unit, DocTrees trees, String source) {
+    void collectType(TreePath path, String binaryName, Map<String, SourceStore.Declaration> out) {
+      ClassTree classTree = (ClassTree) path.getLeaf();
+      SourcePositions positions = trees.getSourcePositions();
+      long afterModifiers = positions.getEndPosition(unit, classTree.getModifiers());
+      out.put(binaryName, declaration(path, classTree.getSimpleName().toString(), afterModifiers));
+      for (Tree member : classTree.getMembers()) {
+        TreePath memberPath = new TreePath(path, member);
+        if (member instanceof ClassTree nested) {
+          collectType(memberPath, binaryName + "$" + nested.getSimpleName(), out);
+        } else if (member instanceof MethodTree method && method.getReturnType() != null) {
+          List<String> parameters = new ArrayList<>();
+          for (VariableTree parameter : method.getParameters()) {
+            parameters.add(simpleTypeName(parameter.getType().toString()));
+          }
+          String name = method.getName().toString();
+          long afterReturnType = positions.getEndPosition(unit, method.getReturnType());
+          out.putIfAbsent(
+              binaryName + "#" + name + "(" + String.join(",", parameters) + ")",
+              declaration(memberPath, name, afterReturnType));
+        } else if (member instanceof VariableTree field) {
+          String name = field.getName().toString();
+          long afterType =
+              field.getType() == null
+                  ? positions.getEndPosition(unit, field.getModifiers())
+                  : positions.getEndPosition(unit, field.getType());
+          out.putIfAbsent(binaryName + "." + name, declaration(memberPath, name, afterType));
+        }
+      }
+    }
+
+    /** Range of {@code name} at or after {@code from}, falling back to the tree's start. */
+    private SourceStore.Declaration declaration(TreePath path, String name, long from) {
+      long start = trees.getSourcePositions().getStartPosition(unit, path.getLeaf());
+      int nameStart = identifierAt(name, (int) Math.max(from, start));
+      long begin = nameStart < 0 ? start : nameStart;
+      long end = nameStart < 0 ? start : nameStart + name.length();
+      LineMap lines = unit.getLineMap();
+      String javadoc = trees.getDocComment(path);
+      return new SourceStore.Declaration(
+          line(lines, begin),
+          column(lines, begin),
+          line(lines, end),
+          column(lines, end),
+          javadoc == null ? "" : javadoc.strip());
+    }
+
+    private int identifierAt(String name, int from) {
+      if (from < 0 || name.isEmpty()) {
+        return -1;
+      }
+      int index = source.indexOf(name, from);
+      while (index >= 0) {
+        boolean startsWord =
+            index == 0 || !Character.isJavaIdentifierPart(source.charAt(index - 1));
+        int after = index + name.length();
+        boolean endsWord =
+            after == source.length() || !Character.isJavaIdentifierPart(source.charAt(after));
+        if (startsWord && endsWord) {
+          return index;
+        }
+        index = source.indexOf(name, index + 1);
+      }
+      return -1;
+    }
+
+    private static int line(LineMap lines, long position) {
+      return (int) lines.getLineNumber(position) - 1;
+    }
+
+    /** Zero-based character column; LineMap's own columns expand tabs. */
+    private static int column(LineMap lines, long position) {
+      return (int) (position - lines.getStartPosition(lines.getLineNumber(position)));
+    }
+  }
+
+  record SourceUnit(Path archive, String entry) {}
+
+  private record Found(String sourceUri, SourceStore.Declaration declaration) {}
+
+  private static final class SourceFile extends SimpleJavaFileObject {
+    private final String source;
+
+    SourceFile(String source) {
+      super(URI.create("string:///Source.java"), JavaFileObject.Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+  }
+}
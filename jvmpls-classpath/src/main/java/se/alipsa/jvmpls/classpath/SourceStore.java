@@ -0,0 +1,315 @@
+package se.alipsa.jvmpls.classpath;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import se.alipsa.jvmpls.core.model.Position;
+import se.alipsa.jvmpls.core.model.Range;
+
+/**
+ * Bounded cache of parsed source files from source archives. Recently used files are kept in
+ * memory; every parsed file is also written below a cache directory, together with its declaration
+ * ranges and Javadoc, so it is not parsed again after a restart. The extracted file doubles as the
+ * navigation target, which editors can open as a plain {@code file:} URI.
+ */
+final class SourceStore {
+  private static final Logger LOG = Logger.getLogger(SourceStore.class.getName());
+  private static final String DECLARATIONS_SUFFIX = ".decl";
+
+  /** Parsed source file: where it was extracted to and its declarations by key. */
+  record Unit(String sourceUri, Map<String, Declaration> declarations) {}
+
+  /** Range of a declaration's name and its Javadoc, empty if it has none. */
+  record Declaration(int startLine, int startColumn, int endLine, int endColumn, String javadoc) {
+    Range range() {
+      return new Range(new Position(startLine, startColumn), new Position(endLine, endColumn));
+    }
+  }
+
+  private final Path root;
+  private final int maxDiskUnits;
+  // archive path and entry -> unit, completed by the one caller that loads it
+  private final Map<String, CompletableFuture<Unit>> memory;
+  private int diskUnits = -1;
+
+  SourceStore(Path root, int maxMemoryUnits, int maxDiskUnits) {
+    this.root = root;
+    this.maxDiskUnits = maxDiskUnits;
+    this.memory =
+        Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(
+                  Map.Entry<String, CompletableFuture<Unit>> eldest) {
+                return size() > maxMemoryUnits;
+              }
+            });
+  }
+
+  /** Per user, so that no other account can plant or read cached units. */
+  static Path defaultRoot() {
+    return Path.of(System.getProperty("user.home"), ".cache", "jvmpls", "sources");
+  }
+
+  /**
+   * Returns the unit for {@code entry} in {@code archive}, parsing the source with {@code parser}
+   * only if neither the memory nor the disk cache has it. Empty if the archive or entry is missing.
+   * Concurrent calls for the same entry share one load; the archive is only looked at on a memory
+   * miss.
+   */
+  Optional<Unit> get(
+      Path archive, String entry, Function<String, Map<String, Declaration>> parser) {
+    String memoryKey = archive.toAbsolutePath().normalize() + "!/" + entry;
+    CompletableFuture<Unit> created = new CompletableFuture<>();
+    CompletableFuture<Unit> unit = memory.computeIfAbsent(memoryKey, key -> created);
+    if (unit == created) {
+      Unit loaded = null;
+      try {
+        loaded = load(archive, entry, parser);
+      } finally {
+        if (loaded == null) {
+          memory.remove(memoryKey, created);
+        }
+        created.complete(loaded);
+      }
+    }
+    return Optional.ofNullable(unit.join());
+  }
+
+  private Unit load(
+      Path archive, String entry, Function<String, Map<String, Declaration>> parser) {
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(archive, BasicFileAttributes.class);
+    } catch (IOException e) {
+      return null;
+    }
+    if (!attributes.isRegularFile()) {
+      return null;
+    }
+    Path directory = root.resolve(archiveKey(archive, attributes));
+    Unit unit = readCached(directory, entry);
+    return unit != null ? unit : extractAndParse(archive, directory, entry, parser);
+  }
+
+  private Unit readCached(Path directory, String entry) {
+    Path sourceFile = directory.resolve(entry);
+    Path declarationsFile = directory.resolve(entry + DECLARATIONS_SUFFIX);
+    if (!Files.isRegularFile(sourceFile) || !Files.isRegularFile(declarationsFile)) {
+      return null;
+    }
+    try {
+      Map<String, Declaration> declarations = new LinkedHashMap<>();
+      for (String line : Files.readAllLines(declarationsFile, StandardCharsets.UTF_8)) {
+        String[] fields = line.split("\t", 6);
+        if (fields.length == 6) {
+          declarations.put(
+              fields[0],
+              new Declaration(
+                  Integer.parseInt(fields[1]),
+                  Integer.parseInt(fields[2]),
+                  Integer.parseInt(fields[3]),
+                  Integer.parseInt(fields[4]),
+                  unescape(fields[5])));
+        }
+      }
+      // the modification time orders entries for pruning
+      Files.setLastModifiedTime(declarationsFile, FileTime.fromMillis(System.currentTimeMillis()));
+      return new Unit(sourceFile.toUri().toString(), Collections.unmodifiableMap(declarations));
+    } catch (IOException | RuntimeException e) {
+      LOG.log(Level.FINE, "Ignoring unreadable source cache entry " + declarationsFile, e);
+      return null;
+    }
+  }
+
+  private Unit extractAndParse(
+      Path archive,
+      Path directory,
+      String entry,
+      Function<String, Map<String, Declaration>> parser) {
+    String source;
+    try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+      ZipEntry zipEntry = zipFile.getEntry(entry);
+      if (zipEntry == null) {
+        return null;
+      }
+      try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+        source = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+      }
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Failed to read " + entry + " from " + archive, e);
+      return null;
+    }
+    Map<String, Declaration> declarations =
+        Collections.unmodifiableMap(new LinkedHashMap<>(parser.apply(source)));
+    Path sourceFile = directory.resolve(entry);
+    try {
+      write(sourceFile, directory, entry, source, declarations);
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Failed to cache sources of " + entry + " below " + root, e);
+      return null;
+    }
+    return new Unit(sourceFile.toUri().toString(), declarations);
+  }
+
+  private void write(
+      Path sourceFile,
+      Path directory,
+      String entry,
+      String source,
+      Map<String, Declaration> declarations)
+      throws IOException {
+    Files.createDirectories(sourceFile.getParent());
+    Files.writeString(sourceFile, source, StandardCharsets.UTF_8);
+    // The declarations file is moved into place last; its presence marks a complete entry.
+    Path declarationsFile = directory.resolve(entry + DECLARATIONS_SUFFIX);
+    Path temp = Files.createTempFile(sourceFile.getParent(), "decl", ".tmp");
+    try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      for (Map.Entry<String, Declaration> declaration : declarations.entrySet()) {
+        Declaration value = declaration.getValue();
+        writer.write(
+            String.join(
+                "\t",
+                declaration.getKey(),
+                Integer.toString(value.startLine()),
+                Integer.toString(value.startColumn()),
+                Integer.toString(value.endLine()),
+                Integer.toString(value.endColumn()),
+                escape(value.javadoc())));
+        writer.newLine();
+      }
+    }
+    try {
+      Files.move(
+          temp,
+          declarationsFile,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, declarationsFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+    countWrite();
+  }
+
+  private synchronized void countWrite() {
+    if (diskUnits < 0) {
+      diskUnits = declarationFiles().size();
+    } else {
+      diskUnits++;
+    }
+    if (diskUnits > maxDiskUnits) {
+      prune();
+    }
+  }
+
+  /** Drops the least recently used quarter of the disk cache. */
+  private void prune() {
+    List<Path> files = declarationFiles();
+    files.sort(Comparator.comparing(SourceStore::lastModified));
+    int remove = files.size() - maxDiskUnits * 3 / 4;
+    for (int i = 0; i < remove; i++) {
+      Path declarationsFile = files.get(i);
+      String name = declarationsFile.getFileName().toString();
+      Path sourceFile =
+          declarationsFile.resolveSibling(
+              name.substring(0, name.length() - DECLARATIONS_SUFFIX.length()));
+      try {
+        Files.deleteIfExists(declarationsFile);
+        Files.deleteIfExists(sourceFile);
+      } catch (IOException e) {
+        LOG.log(Level.FINE, "Failed to prune source cache entry " + sourceFile, e);
+      }
+    }
+    diskUnits = Math.max(0, files.size() - Math.max(remove, 0));
+    memory.clear();
+  }
+
+  private List<Path> declarationFiles() {
+    if (!Files.isDirectory(root)) {
+      return new ArrayList<>();
+    }
+    try (Stream<Path> paths = Files.walk(root)) {
+      return paths
+          .filter(path -> path.getFileName().toString().endsWith(DECLARATIONS_SUFFIX))
+          .collect(Collectors.toCollection(ArrayList::new));
+    } catch (IOException | UncheckedIOException e) {
+      LOG.log(Level.FINE, "Failed to list source cache " + root, e);
+      return new ArrayList<>();
+    }
+  }
+
+  private static FileTime lastModified(Path path) {
+    try {
+      return Files.getLastModifiedTime(path);
+    } catch (IOException e) {
+      return FileTime.fromMillis(0);
+    }
+  }
+
+  /** Directory name for an archive; changes when the archive is replaced. */
+  private static String archiveKey(Path archive, BasicFileAttributes attributes) {
+    long size = attributes.size();
+    long modified = attributes.lastModifiedTime().toMillis();
+    int hash = (archive.toAbsolutePath().normalize() + ":" + size + ":" + modified).hashCode();
+    return archive.getFileName() + "-" + Integer.toHexString(hash);
+  }
+
+  private static String escape(String value) {
+    StringBuilder out = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\' -> out.append("\\\\");
+        case '\n' -> out.append("\\n");
+        case '\r' -> out.append("\\r");
+        case '\t' -> out.append("\\t");
+        default -> out.append(c);
+      }
+    }
+    return out.toString();
+  }
+
+  private static String unescape(String value) {
+    StringBuilder out = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c != '\\' || i + 1 == value.length()) {
+        out.append(c);
+        continue;
+      }
+      char next = value.charAt(++i);
+      out.append(
+          switch (next) {
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 't' -> '\t';
+            default -> next;
+          });
+    }
+    return out.toString();
+  }
+}
@@ -0,0 +1,108 @@
+package se.alipsa.jvmpls.classpath;
+
+import java.util.Arrays;
+
+/**
+ * Append-only string interner that hands out dense {@code int} ids.
+ *
+ * <p>Lookups use an open-addressing table over the ids, so a pool of a few hundred thousand type
+ * names costs two arrays instead of a {@code HashMap} full of boxed entries.
+ */
+final class StringPool {
+
+  private static final int EMPTY = -1;
+
+  private String[] values;
+  private int[] slots;
+  private int size;
+
+  StringPool() {
+    this(64);
+  }
+
+  private StringPool(int expectedSize) {
+    values = new String[Math.max(expectedSize, 16)];
+    slots = newSlots(tableSizeFor(values.length));
+  }
+
+  int intern(String value) {
+    int slot = slotOf(value);
+    int existing = slots[slot];
+    if (existing != EMPTY) {
+      return existing;
+    }
+    if (size == values.length) {
+      values = Arrays.copyOf(values, size * 2);
+    }
+    int id = size++;
+    values[id] = value;
+    slots[slot] = id;
+    if (size * 2 > slots.length) {
+      rehash(slots.length * 2);
+    }
+    return id;
+  }
+
+  int find(String value) {
+    if (value == null) {
+      return EMPTY;
+    }
+    return slots[slotOf(value)];
+  }
+
+  String get(int id) {
+    return values[id];
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** Returns a trimmed copy that is safe to share after the owning builder moves on. */
+  StringPool compactCopy() {
+    StringPool copy = new StringPool(size);
+    copy.values = Arrays.copyOf(values, Math.max(size, 1));
+    copy.size = size;
+    copy.rehash(tableSizeFor(size));
+    return copy;
+  }
+
+  private int slotOf(String value) {
+    int mask = slots.length - 1;
+    int slot = spread(value.hashCode()) & mask;
+    while (true) {
+      int id = slots[slot];
+      if (id == EMPTY || values[id].equals(value)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private void rehash(int capacity) {
+    slots = newSlots(capacity);
+    int mask = capacity - 1;
+    for (int id = 0; id < size; id++) {
+      int slot = spread(values[id].hashCode()) & mask;
+      while (slots[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = id;
+    }
+  }
+
+  private static int[] newSlots(int capacity) {
+    int[] slots = new int[capacity];
+    Arrays.fill(slots, EMPTY);
+    return slots;
+  }
+
+  private static int tableSizeFor(int entries) {
+    int capacity = Integer.highestOneBit(Math.max(entries * 2, 16) - 1) << 1;
+    return Math.max(capacity, 16);
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
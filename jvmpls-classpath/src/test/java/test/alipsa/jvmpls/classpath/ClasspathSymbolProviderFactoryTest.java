@@ -2,12 +2,21 @@ package test.alipsa.jvmpls.classpath;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
 
 import javax.tools.JavaCompiler;
 import javax.tools.ToolProvider;
@@ -15,8 +24,11 @@ import javax.tools.ToolProvider;
 import org.junit.jupiter.api.Test;
 
 import se.alipsa.jvmpls.classpath.ClasspathSymbolProviderFactory;
+import se.alipsa.jvmpls.core.ModuleScope;
+import se.alipsa.jvmpls.core.SymbolIndex;
 import se.alipsa.jvmpls.core.SymbolProvider;
 import se.alipsa.jvmpls.core.SymbolProviderContext;
+import se.alipsa.jvmpls.core.model.Location;
 import se.alipsa.jvmpls.core.model.SymbolInfo;
 
 import io.github.classgraph.ClassGraph;
@@ -117,6 +129,99 @@ class ClasspathSymbolProviderFactoryTest {
         "binary provider should expose fields");
   }
 
+  @Test
+  void indexes_an_older_release_from_ct_sym_when_target_jdk_has_no_jmods() throws Exception {
+    Path jreHome = Files.createTempDirectory("jvmpls-jre-11");
+    Files.writeString(jreHome.resolve("release"), "JAVA_VERSION=\"11.0.2\"\n");
+
+    SymbolProvider provider =
+        new ClasspathSymbolProviderFactory()
+            .createProviders(new SymbolProviderContext(List.of(), jreHome))
+            .getFirst();
+
+    SymbolInfo string = provider.findByFqn("java.lang.String").orElseThrow();
+    assertTrue(string.getLocation().getUri().contains("ct.sym!/"));
+    assertTrue(string.getLocation().getUri().endsWith("/java/lang/String.sig"));
+    assertFalse(provider.findByFqn("java.lang.Record").isPresent());
+    List<SymbolInfo> members = provider.membersOf("java.lang.String");
+    assertTrue(members.stream().anyMatch(member -> "isBlank".equals(methodName(member))));
+    assertFalse(members.stream().anyMatch(member -> "indent".equals(methodName(member))));
+    // signatures are indexed like class files
+    assertTrue(
+        awaitTrue(
+            () ->
+                fqNames(provider.annotatedWith("java.lang.FunctionalInterface"))
+                    .contains("java.lang.Runnable")));
+  }
+
+  @Test
+  void shares_inherited_member_symbols_between_subtypes() {
+    SymbolProvider provider =
+        new ClasspathSymbolProviderFactory()
+            .createProviders(new SymbolProviderContext(List.of(), null))
+            .getFirst();
+
+    SymbolInfo fromArrayList = member(provider.membersOf("java.util.ArrayList"), "getClass");
+    SymbolInfo fromLinkedList = member(provider.membersOf("java.util.LinkedList"), "getClass");
+    assertSame(fromArrayList, fromLinkedList);
+    assertEquals("java.lang.Object", fromArrayList.getContainerFqName());
+    assertEquals(
+        "java.util.ArrayList",
+        member(provider.membersOf("java.util.ArrayList"), "size").getContainerFqName());
+    assertEquals(
+        "java.util.AbstractCollection",
+        member(provider.membersOf("java.util.AbstractList"), "size").getContainerFqName());
+  }
+
+  private static SymbolInfo member(List<SymbolInfo> members, String name) {
+    return members.stream()
+        .filter(member -> name.equals(methodName(member)))
+        .findFirst()
+        .orElseThrow();
+  }
+
+  @Test
+  void keeps_resource_locations_and_supertypes_for_nested_binary_types() throws Exception {
+    Path sourceDir = Files.createTempDirectory("jvmpls-classpath-src");
+    Path outputDir = Files.createTempDirectory("jvmpls-classpath-out");
+    compileSource(
+        sourceDir,
+        outputDir,
+        "Outer",
+        """
+        package demo;
+        public class Outer {
+          public static class Inner extends java.util.AbstractList<String>
+              implements java.io.Serializable, Comparable<Inner> {
+            public String get(int index) { return ""; }
+            public int size() { return 0; }
+            public int compareTo(Inner other) { return 0; }
+          }
+        }
+        """);
+    ClasspathSymbolProviderFactory factory = new ClasspathSymbolProviderFactory();
+
+    SymbolProvider provider =
+        factory
+            .createProviders(new SymbolProviderContext(List.of(outputDir.toString()), null))
+            .getFirst();
+
+    SymbolInfo inner = provider.findByFqn("demo.Outer$Inner").orElseThrow();
+    assertEquals("demo", inner.getContainerFqName());
+    assertEquals(
+        outputDir.resolve("demo/Outer$Inner.class").toUri().toString(),
+        inner.getLocation().getUri());
+    assertEquals(
+        List.of("java.util.AbstractList", "java.io.Serializable", "java.lang.Comparable"),
+        provider.supertypesOf("demo.Outer$Inner"));
+    assertTrue(
+        provider.findBySimpleName("Inner").stream()
+            .anyMatch(symbol -> "demo.Outer$Inner".equals(symbol.getFqName())));
+    assertEquals(
+        List.of("demo.Outer", "demo.Outer$Inner"),
+        provider.allInPackage("demo").stream().map(SymbolInfo::getFqName).sorted().toList());
+  }
+
   private static String methodName(SymbolInfo symbol) {
     String fqn = symbol.getFqName();
     int hash = fqn.lastIndexOf('#');
@@ -127,22 +232,429 @@ class ClasspathSymbolProviderFactoryTest {
     return open < 0 ? fqn.substring(hash + 1) : fqn.substring(hash + 1, open);
   }
 
+  @Test
+  void resolves_kinds_lazily_for_types_read_from_jar_central_directory() throws Exception {
+    Path sourceDir = Files.createTempDirectory("jvmpls-classpath-src");
+    Path outputDir = Files.createTempDirectory("jvmpls-classpath-out");
+    compileSource(
+        sourceDir,
+        outputDir,
+        "Shapes",
+        """
+        package demo;
+        public class Shapes {
+          public interface Shape { double area(); }
+          public @interface Marker {}
+          public enum Color { RED }
+          public Shape unit() {
+            return new Shape() { public double area() { return 1; } };
+          }
+        }
+        """);
+    Path jar = jarOf(outputDir);
+
+    SymbolProvider provider =
+        new ClasspathSymbolProviderFactory()
+            .createProviders(new SymbolProviderContext(List.of(jar.toString()), null))
+            .getFirst();
+
+    // listing leaves the kind to be read with the other details
+    SymbolInfo listed =
+        provider.allInPackage("demo").stream()
+            .filter(symbol -> symbol.getFqName().equals("demo.Shapes$Shape"))
+            .findFirst()
+            .orElseThrow();
+    assertTrue(listed.isType());
+    assertEquals(SymbolInfo.Kind.INTERFACE, listed.getKind());
+    assertEquals(
+        SymbolInfo.Kind.INTERFACE,
+        provider.findByFqn("demo.Shapes$Shape").orElseThrow().getKind());
+    assertEquals(
+        SymbolInfo.Kind.ANNOTATION,
+        provider.findByFqn("demo.Shapes$Marker").orElseThrow().getKind());
+    assertEquals(
+        SymbolInfo.Kind.ENUM, provider.findByFqn("demo.Shapes$Color").orElseThrow().getKind());
+    assertEquals(List.of("java.lang.Enum"), provider.supertypesOf("demo.Shapes$Color"));
+    assertEquals(
+        "jar:" + jar.toUri() + "!/demo/Shapes$Shape.class",
+        provider.findByFqn("demo.Shapes$Shape").orElseThrow().getLocation().getUri());
+    assertFalse(provider.findByFqn("demo.Shapes$1").isPresent());
+    assertTrue(
+        provider.membersOf("demo.Shapes$Color").stream()
+            .anyMatch(member -> member.getFqName().startsWith("java.lang.Enum#name(")));
+  }
+
+  @Test
+  void defers_reading_type_modifiers_until_they_are_requested() throws Exception {
+    Path sourceDir = Files.createTempDirectory("jvmpls-classpath-src");
+    Path outputDir = Files.createTempDirectory("jvmpls-classpath-out");
+    compileType(sourceDir, outputDir, "Deferred");
+    SymbolProvider provider =
+        new ClasspathSymbolProviderFactory()
+            .createProviders(new SymbolProviderContext(List.of(outputDir.toString()), null))
+            .getFirst();
+
+    SymbolInfo listed = provider.allInPackage("demo").getFirst();
+    compileSource(
+        sourceDir,
+        outputDir,
+        "Deferred",
+        """
+        package demo;
+        public final class Deferred {}
+        """);
+
+    assertEquals("demo.Deferred", listed.getFqName());
+    assertEquals(SymbolInfo.Kind.CLASS, listed.getKind());
+    assertTrue(listed.getModifiers().contains("final"));
+  }
+
+  @Test
+  void finds_types_by_annotation_including_meta_annotations() throws Exception {
+    Path sourceDir = Files.createTempDirectory("jvmpls-classpath-src");
+    Path outputDir = Files.createTempDirectory("jvmpls-classpath-out");
+    compileSource(
+        sourceDir,
+        outputDir,
+        "Tags",
+        """
+        package demo;
+        import java.lang.annotation.*;
+        public class Tags {
+          @Retention(RetentionPolicy.RUNTIME) public @interface Marker {}
+          @Marker @Retention(RetentionPolicy.CLASS) public @interface Stereotype {}
+          @Marker public static class Direct {}
+          @Stereotype public static class Meta {}
+          public static class Plain {}
+        }
+        """);
+    Path jar = jarOf(outputDir);
+
+    SymbolProvider provider =
+        new ClasspathSymbolProviderFactory()
+            .createProviders(new SymbolProviderContext(List.of(jar.toString()), null))
+            .getFirst();
+
+    SymbolIndex index = new SymbolIndex();
+    index.registerProvider(provider);
+
+    // the annotation index is built in the background; answers given meanwhile are not kept
+    index.annotatedWith("java.lang.FunctionalInterface");
+    assertTrue(
+        awaitTrue(
+            () ->
+                fqNames(index.annotatedWith("java.lang.FunctionalInterface"))
+                    .contains("java.lang.Runnable")));
+    assertEquals(
+        List.of("demo.Tags$Direct", "demo.Tags$Meta", "demo.Tags$Stereotype"),
+        fqNames(index.annotatedWith("demo.Tags$Marker")));
+    assertEquals(
+        List.of("demo.Tags$Meta"), fqNames(index.annotatedWith("demo.Tags$Stereotype")));
+  }
+
+  @Test
+  void resolves_declarations_and_javadoc_from_an_attached_sources_jar() throws Exception {
+    Path sourceDir = Files.createTempDirectory("jvmpls-classpath-src");
+    Path outputDir = Files.createTempDirectory("jvmpls-classpath-out");
+    String source =
+        """
+        package demo;
+
+        /** Greets people. */
+        public class Docs {
+          /** Default greeting. */
+          public static final String HELLO = "hello";
+
+          /** Says hello to {@code name}. */
+          public String greet(String name) {
+            return HELLO + name;
+          }
+
+          public String greet(java.util.List<String> names) {
+            return HELLO;
+          }
+
+          /** Holds a reply. */
+          public static class Reply {}
+        }
+        """;
+    compileSource(sourceDir, outputDir, "Docs", source);
+    Path jar = jarOf(outputDir);
+    String jarName = jar.getFileName().toString();
+    Path sourcesJar =
+        jar.resolveSibling(jarName.substring(0, jarName.length() - 4) + "-sources.jar");
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(sourcesJar))) {
+      out.putNextEntry(new JarEntry("demo/Docs.java"));
+      out.write(source.getBytes(StandardCharsets.UTF_8));
+      out.closeEntry();
+    }
+
+    SymbolProvider provider =
+        new ClasspathSymbolProviderFactory()
+            .createProviders(new SymbolProviderContext(List.of(jar.toString()), null))
+            .getFirst();
+
+    SymbolInfo docs = provider.findByFqn("demo.Docs").orElseThrow();
+    Location typeLocation = provider.sourceLocation(docs).orElseThrow();
+    assertTrue(typeLocation.getUri().startsWith("file:"));
+    assertTrue(typeLocation.getUri().endsWith("demo/Docs.java"));
+    assertEquals(3, typeLocation.getRange().start.line);
+    assertEquals(13, typeLocation.getRange().start.column);
+    assertEquals("Greets people.", provider.documentation(docs).orElseThrow());
+
+    List<SymbolInfo> members = provider.membersOf("demo.Docs");
+    SymbolInfo greet =
+        members.stream()
+            .filter(symbol -> symbol.getFqName().contains("#greet(java.lang.String)"))
+            .findFirst()
+            .orElseThrow();
+    assertEquals(8, provider.sourceLocation(greet).orElseThrow().getRange().start.line);
+    assertEquals("Says hello to {@code name}.", provider.documentation(greet).orElseThrow());
+    SymbolInfo greetAll =
+        members.stream()
+            .filter(symbol -> symbol.getFqName().contains("#greet(java.util.List)"))
+            .findFirst()
+            .orElseThrow();
+    assertEquals(12, provider.sourceLocation(greetAll).orElseThrow().getRange().start.line);
+    assertTrue(provider.documentation(greetAll).isEmpty());
+    SymbolInfo hello = member(members, "demo.Docs.HELLO");
+    assertEquals(5, provider.sourceLocation(hello).orElseThrow().getRange().start.line);
+    SymbolInfo reply = provider.findByFqn("demo.Docs$Reply").orElseThrow();
+    assertEquals(17, provider.sourceLocation(reply).orElseThrow().getRange().start.line);
+    assertEquals("Holds a reply.", provider.documentation(reply).orElseThrow());
+  }
+
+  @Test
+  void lists_types_declaring_a_member_name_per_visible_archive() throws Exception {
+    Path sourceDir = Files.createTempDirectory("jvmpls-classpath-src");
+    Path alphaOut = Files.createTempDirectory("jvmpls-classpath-out");
+    Path betaOut = Files.createTempDirectory("jvmpls-classpath-out");
+    compileSource(
+        sourceDir,
+        alphaOut,
+        "Session",
+        """
+        package demo;
+        public class Session {
+          public Object withTransaction(Runnable work) { return null; }
+          public Object withTransaction() { return null; }
+          private void withSecret() {}
+        }
+        """);
+    compileSource(
+        sourceDir,
+        betaOut,
+        "Pool",
+        """
+        package demo;
+        public class Pool {
+          public static int withTransactionCount;
+        }
+        """);
+    Path alphaJar = jarOf(alphaOut);
+    Path betaJar = jarOf(betaOut);
+    ModuleScope alpha =
+        new ModuleScope("alpha", List.of(sourceDir.resolve("alpha")), List.of(alphaJar.toString()));
+    ModuleScope beta =
+        new ModuleScope("beta", List.of(sourceDir.resolve("beta")), List.of(betaJar.toString()));
+
+    SymbolProvider provider =
+        new ClasspathSymbolProviderFactory()
+            .createProviders(new SymbolProviderContext(List.of(), null, List.of(alpha, beta)))
+            .getFirst();
+
+    // the member name index is built in the background, the JDK last
+    assertTrue(
+        awaitTrue(
+            () -> provider.typesDeclaringMember("ensureCapacity").contains("java.util.ArrayList")));
+    assertEquals(List.of("demo.Session"), provider.typesDeclaringMember("withTransaction"));
+    assertEquals(List.of(), provider.typesDeclaringMember("withSecret"));
+    assertEquals(
+        List.of("withTransaction", "withTransactionCount"),
+        provider.memberNamesStartingWith("withTransact", 10));
+    assertEquals(List.of("withTransaction"), provider.memberNamesStartingWith("withTransact", 1));
+    assertEquals(
+        List.of("withTransactionCount"),
+        provider.forModule(beta).memberNamesStartingWith("withTransact", 10));
+    assertEquals(List.of(), provider.forModule(beta).typesDeclaringMember("withTransaction"));
+  }
+
+  @Test
+  void module_views_only_see_their_own_dependency_archives() throws Exception {
+    Path sourceDir = Files.createTempDirectory("jvmpls-classpath-src");
+    Path alphaOut = Files.createTempDirectory("jvmpls-classpath-out");
+    Path betaOut = Files.createTempDirectory("jvmpls-classpath-out");
+    compileType(sourceDir, alphaOut, "Alpha");
+    compileType(sourceDir, alphaOut, "Common");
+    compileType(sourceDir, betaOut, "Beta");
+    compileSource(
+        sourceDir,
+        betaOut,
+        "Common",
+        """
+        package demo;
+        public final class Common {}
+        """);
+    Path alphaJar = jarOf(alphaOut);
+    Path betaJar = jarOf(betaOut);
+    ModuleScope alpha =
+        new ModuleScope("alpha", List.of(sourceDir.resolve("alpha")), List.of(alphaJar.toString()));
+    ModuleScope beta =
+        new ModuleScope("beta", List.of(sourceDir.resolve("beta")), List.of(betaJar.toString()));
+
+    SymbolProvider provider =
+        new ClasspathSymbolProviderFactory()
+            .createProviders(new SymbolProviderContext(List.of(), null, List.of(alpha, beta)))
+            .getFirst();
+
+    assertTrue(provider.findByFqn("demo.Alpha").isPresent());
+    assertTrue(provider.findByFqn("demo.Beta").isPresent());
+    SymbolProvider alphaView = provider.forModule(alpha);
+    SymbolProvider betaView = provider.forModule(beta);
+    assertTrue(alphaView.findByFqn("demo.Alpha").isPresent());
+    assertFalse(alphaView.findByFqn("demo.Beta").isPresent());
+    assertFalse(betaView.findByFqn("demo.Alpha").isPresent());
+    assertEquals(List.of("demo.Beta", "demo.Common"), fqNames(betaView.allInPackage("demo")));
+    assertFalse(alphaView.findByFqn("demo.Common").orElseThrow().getModifiers().contains("final"));
+    assertTrue(betaView.findByFqn("demo.Common").orElseThrow().getModifiers().contains("final"));
+    assertTrue(betaView.findByFqn("java.lang.String").isPresent());
+  }
+
+  private static List<String> fqNames(List<SymbolInfo> symbols) {
+    return symbols.stream().map(SymbolInfo::getFqName).sorted().toList();
+  }
+
+  @Test
+  void applies_output_directory_changes_without_rescanning() throws Exception {
+    Path sourceDir = Files.createTempDirectory("jvmpls-classpath-src");
+    Path outputDir = Files.createTempDirectory("jvmpls-classpath-out");
+    compileType(sourceDir, outputDir, "Existing");
+    SymbolProvider provider =
+        new ClasspathSymbolProviderFactory()
+            .createProviders(new SymbolProviderContext(List.of(outputDir.toString()), null))
+            .getFirst();
+    Set<String> reported = ConcurrentHashMap.newKeySet();
+    provider.addChangeListener(reported::addAll);
+    try {
+      assertTrue(provider.findByFqn("demo.Existing").isPresent());
+      assertTrue(
+          provider.membersOf("demo.Existing").stream()
+              .noneMatch(ClasspathSymbolProviderFactoryTest::isGreet));
+
+      compileType(sourceDir, outputDir, "Added");
+      compileSource(
+          sourceDir,
+          outputDir,
+          "Existing",
+          """
+          package demo;
+          public class Existing {
+            public String greet() { return "hi"; }
+          }
+          """);
+
+      assertTrue(awaitTrue(() -> reported.containsAll(Set.of("demo.Added", "demo.Existing"))));
+      assertTrue(provider.findByFqn("demo.Added").isPresent());
+      assertTrue(
+          provider.membersOf("demo.Existing").stream()
+              .anyMatch(ClasspathSymbolProviderFactoryTest::isGreet));
+
+      Files.delete(outputDir.resolve("demo/Added.class"));
+      assertTrue(awaitTrue(() -> provider.findByFqn("demo.Added").isEmpty()));
+      assertEquals(
+          List.of("demo.Existing"),
+          provider.allInPackage("demo").stream().map(SymbolInfo::getFqName).toList());
+    } finally {
+      provider.close();
+    }
+  }
+
+  @Test
+  void picks_up_an_output_directory_created_after_startup_and_after_a_clean() throws Exception {
+    Path sourceDir = Files.createTempDirectory("jvmpls-classpath-src");
+    Path target = Files.createTempDirectory("jvmpls-classpath-target").resolve("target");
+    Path outputDir = target.resolve("classes");
+    SymbolProvider provider =
+        new ClasspathSymbolProviderFactory()
+            .createProviders(new SymbolProviderContext(List.of(outputDir.toString()), null))
+            .getFirst();
+    try {
+      assertTrue(provider.findByFqn("demo.Built").isEmpty());
+
+      Files.createDirectories(outputDir);
+      compileType(sourceDir, outputDir, "Built");
+      assertTrue(awaitTrue(() -> provider.findByFqn("demo.Built").isPresent()));
+
+      deleteTree(target);
+      assertTrue(awaitTrue(() -> provider.findByFqn("demo.Built").isEmpty()));
+
+      Files.createDirectories(outputDir);
+      compileType(sourceDir, outputDir, "Rebuilt");
+      assertTrue(awaitTrue(() -> provider.findByFqn("demo.Rebuilt").isPresent()));
+    } finally {
+      provider.close();
+    }
+  }
+
+  private static void deleteTree(Path root) throws Exception {
+    try (Stream<Path> paths = Files.walk(root)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  private static boolean isGreet(SymbolInfo symbol) {
+    return symbol.getFqName().startsWith("demo.Existing#greet(");
+  }
+
+  private static boolean awaitTrue(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (System.nanoTime() < deadline) {
+      if (condition.getAsBoolean()) {
+        return true;
+      }
+      Thread.sleep(20);
+    }
+    return condition.getAsBoolean();
+  }
+
+  private static Path jarOf(Path outputDir) throws Exception {
+    Path jar = Files.createTempFile("jvmpls-classpath", ".jar");
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar));
+        Stream<Path> classFiles = Files.walk(outputDir)) {
+      for (Path classFile : classFiles.filter(Files::isRegularFile).toList()) {
+        String entryName = outputDir.relativize(classFile).toString().replace('\\', '/');
+        out.putNextEntry(new JarEntry(entryName));
+        out.write(Files.readAllBytes(classFile));
+        out.closeEntry();
+      }
+    }
+    return jar;
+  }
+
   private static void compileType(Path sourceDir, Path outputDir, String simpleName)
       throws Exception {
+    compileSource(
+        sourceDir,
+        outputDir,
+        simpleName,
+        """
+        package demo;
+        public class %s {}
+        """
+            .formatted(simpleName));
+  }
+
+  private static void compileSource(
+      Path sourceDir, Path outputDir, String simpleName, String source) throws Exception {
     JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
     if (compiler == null) {
       throw new IllegalStateException("system java compiler not available");
     }
 
     Path sourceFile = sourceDir.resolve(simpleName + ".java");
-    Files.writeString(
-        sourceFile,
-        """
-        package demo;
-        public class %s {}
-        """
-            .formatted(simpleName),
-        StandardCharsets.UTF_8);
+    Files.writeString(sourceFile, source, StandardCharsets.UTF_8);
 
     int result = compiler.run(null, null, null, "-d", outputDir.toString(), sourceFile.toString());
     assertEquals(0, result, "compilation should succeed");
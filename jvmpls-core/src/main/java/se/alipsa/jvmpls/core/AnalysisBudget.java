@@ -0,0 +1,23 @@
+package se.alipsa.jvmpls.core;
+
+/**
+ * Limits on the analysis of a single file. A file longer than {@code maxChars}, or whose index pass
+ * or semantic check runs longer than {@code maxMillis}, is analyzed in degraded mode: only its
+ * declarations are indexed, it gets no semantic diagnostics, and edits are indexed when the file is
+ * saved rather than on every change.
+ */
+public record AnalysisBudget(int maxChars, long maxMillis) {
+
+  /** Generous enough for hand-written sources; large generated files exceed it. */
+  public static final AnalysisBudget DEFAULT = new AnalysisBudget(1_000_000, 5_000);
+
+  public static final AnalysisBudget UNLIMITED =
+      new AnalysisBudget(Integer.MAX_VALUE, Long.MAX_VALUE);
+
+  public AnalysisBudget {
+    if (maxChars <= 0 || maxMillis <= 0) {
+      throw new IllegalArgumentException(
+          "Analysis budget must be positive: " + maxChars + " chars, " + maxMillis + " ms");
+    }
+  }
+}
@@ -1,8 +1,14 @@
 package se.alipsa.jvmpls.core;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -15,54 +21,196 @@ import se.alipsa.jvmpls.core.types.MethodSignature;
 /** Default implementation of CoreFacade. */
 public final class CoreEngine implements CoreFacade {
   private static final Logger LOG = Logger.getLogger(CoreEngine.class.getName());
+  // how long a file's text must stay unchanged before its semantic checks run
+  private static final long SEMANTIC_CHECK_DELAY_MILLIS = 300;
 
   private final PluginRegistry plugins;
   private final SymbolIndex index;
   private final DocumentStore docs;
   private final DependencyGraph graph;
   private final Executor executor;
+  // receives the diagnostics of changed files once their semantic checks ran; null to run them
+  // before changeFile returns
+  private final BiConsumer<String, List<Diagnostic>> settledDiagnostics;
+  private final AnalysisBudget budget;
 
   /** Track which plugin currently owns a given URI. */
   private final Map<String, JvmLangPlugin> pluginByUri = new ConcurrentHashMap<>();
+  // the latest index pass of each file; semantic checks of older passes are dropped
+  private final Map<String, Long> passByUri = new ConcurrentHashMap<>();
+  private final AtomicLong passes = new AtomicLong();
+  // diagnostics of the files analyzed in degraded mode, returned until they are indexed again
+  private final Map<String, List<Diagnostic>> degradedByUri = new ConcurrentHashMap<>();
+  // the last semantic diagnostics of each file, shown with changes until their check replaces them
+  private final Map<String, List<Diagnostic>> semanticByUri = new ConcurrentHashMap<>();
 
-  @edu.umd.cs.findbugs.annotations.SuppressFBWarnings("EI_EXPOSE_REP2")
   public CoreEngine(
       PluginRegistry plugins,
       SymbolIndex index,
       DocumentStore docs,
       DependencyGraph graph,
       Executor executor) {
+    this(plugins, index, docs, graph, executor, null);
+  }
+
+  public CoreEngine(
+      PluginRegistry plugins,
+      SymbolIndex index,
+      DocumentStore docs,
+      DependencyGraph graph,
+      Executor executor,
+      BiConsumer<String, List<Diagnostic>> settledDiagnostics) {
+    this(plugins, index, docs, graph, executor, settledDiagnostics, AnalysisBudget.DEFAULT);
+  }
+
+  /**
+   * An engine whose {@link #changeFile} returns once the declarations are indexed. The semantic
+   * checks of the file run when its text has not changed for a moment, and all its diagnostics are
+   * then passed to {@code settledDiagnostics}; until then, changes return the semantic diagnostics
+   * of the last check. Files beyond {@code budget} are analyzed in degraded mode.
+   */
+  @edu.umd.cs.findbugs.annotations.SuppressFBWarnings("EI_EXPOSE_REP2")
+  public CoreEngine(
+      PluginRegistry plugins,
+      SymbolIndex index,
+      DocumentStore docs,
+      DependencyGraph graph,
+      Executor executor,
+      BiConsumer<String, List<Diagnostic>> settledDiagnostics,
+      AnalysisBudget budget) {
     this.plugins = Objects.requireNonNull(plugins);
     this.index = Objects.requireNonNull(index);
     this.docs = Objects.requireNonNull(docs);
     this.graph = Objects.requireNonNull(graph);
     this.executor = Objects.requireNonNull(executor);
+    this.settledDiagnostics = settledDiagnostics;
+    this.budget = Objects.requireNonNull(budget);
   }
 
   @Override
   public List<Diagnostic> openFile(String uri, String text) {
     docs.put(uri, text);
-    return reindex(uri, text);
+    return withSemanticChecks(uri, reindex(uri, text));
+  }
+
+  @Override
+  public Map<String, List<Diagnostic>> openFiles(Map<String, String> textsByUri) {
+    Map<String, List<Diagnostic>> results = new LinkedHashMap<>();
+    Map<JvmLangPlugin, List<JvmLangPlugin.Source>> sourcesByPlugin = new LinkedHashMap<>();
+    textsByUri.forEach(
+        (uri, text) -> {
+          docs.put(uri, text);
+          if (text.length() > budget.maxChars()) {
+            results.put(uri, reindex(uri, text)); // too large to share a batch
+            return;
+          }
+          var pluginOpt = plugins.forFile(uri, () -> TokenUtil.preview(text));
+          if (pluginOpt.isEmpty()) {
+            results.put(uri, unclaimed(uri));
+            return;
+          }
+          results.put(uri, List.of()); // keeps the caller's order
+          pluginByUri.put(uri, pluginOpt.get());
+          sourcesByPlugin
+              .computeIfAbsent(pluginOpt.get(), plugin -> new ArrayList<>())
+              .add(new JvmLangPlugin.Source(uri, text));
+        });
+    sourcesByPlugin.forEach(
+        (plugin, sources) -> {
+          for (JvmLangPlugin.Source source : sources) {
+            startPass(source.uri());
+            degradedByUri.remove(source.uri());
+          }
+          // each file's clock starts when the plugin starts reporting its declarations
+          Map<String, PassClock> clocks = new ConcurrentHashMap<>();
+          try {
+            Map<String, List<Diagnostic>> diags =
+                plugin.indexAll(
+                    sources,
+                    uri ->
+                        wrapReporter(
+                            uri,
+                            plugin.id(),
+                            clocks.computeIfAbsent(uri, key -> new PassClock(budget.maxMillis()))));
+            for (JvmLangPlugin.Source source : sources) {
+              results.put(
+                  source.uri(),
+                  finishPass(
+                      source.uri(),
+                      source.content(),
+                      plugin,
+                      clocks.getOrDefault(source.uri(), PassClock.UNLIMITED),
+                      diags.getOrDefault(source.uri(), List.of())));
+            }
+          } catch (CancellationException e) {
+            // a file ran out of time and stopped the batch
+            for (JvmLangPlugin.Source source : sources) {
+              PassClock clock = clocks.get(source.uri());
+              results.put(
+                  source.uri(),
+                  clock != null && clock.stopped()
+                      ? indexDeclarations(source.uri(), source.content(), plugin, overBudget())
+                      : reindex(source.uri(), source.content()));
+            }
+          } catch (Exception e) {
+            LOG.log(
+                Level.WARNING,
+                "Batch indexing failed using " + plugin.id() + ", indexing files one by one",
+                e);
+            for (JvmLangPlugin.Source source : sources) {
+              results.put(source.uri(), reindex(source.uri(), source.content()));
+            }
+          }
+        });
+    // every file is indexed by now, so checks see the declarations of the whole batch
+    results.replaceAll(this::withSemanticChecks);
+    return results;
   }
 
   @Override
   public List<Diagnostic> changeFile(String uri, String text) {
     docs.put(uri, text);
-    return reindex(uri, text);
+    List<Diagnostic> degraded = degradedByUri.get(uri);
+    if (degraded != null) {
+      return degraded; // indexed again on save
+    }
+    List<Diagnostic> diags = reindex(uri, text);
+    if (settledDiagnostics == null) {
+      return withSemanticChecks(uri, diags);
+    }
+    long pass = passByUri.getOrDefault(uri, 0L);
+    CompletableFuture.delayedExecutor(SEMANTIC_CHECK_DELAY_MILLIS, TimeUnit.MILLISECONDS, executor)
+        .execute(() -> checkSettled(uri, pass, diags));
+    List<Diagnostic> semantic = semanticByUri.get(uri);
+    if (semantic == null || semantic.isEmpty() || degradedByUri.containsKey(uri)) {
+      return diags;
+    }
+    // keeps the semantic diagnostics from flickering while the text is being edited
+    List<Diagnostic> all = new ArrayList<>(diags);
+    all.addAll(semantic);
+    return all;
+  }
+
+  @Override
+  public Optional<List<Diagnostic>> saveFile(String uri) {
+    String text = docs.get(uri);
+    if (text == null || !degradedByUri.containsKey(uri)) {
+      return Optional.empty();
+    }
+    return Optional.of(withSemanticChecks(uri, reindex(uri, text)));
   }
 
   @Override
   public void closeFile(String uri) {
+    passByUri.remove(uri);
+    degradedByUri.remove(uri);
+    semanticByUri.remove(uri);
     docs.remove(uri);
     index.removeFile(uri);
     graph.removeFile(uri);
     var pl = pluginByUri.remove(uri);
     if (pl != null) {
-      try {
-        pl.forget(uri);
-      } catch (Exception e) {
-        LOG.log(Level.WARNING, "Failed to forget plugin state for " + uri, e);
-      }
+      forget(uri, pl);
     }
   }
 
@@ -70,7 +218,7 @@ public final class CoreEngine implements CoreFacade {
   public List<Diagnostic> analyze(String uri) {
     String text = docs.get(uri);
     if (text == null) return List.of();
-    return reindex(uri, text);
+    return withSemanticChecks(uri, reindex(uri, text));
   }
 
   @Override
@@ -78,7 +226,7 @@ public final class CoreEngine implements CoreFacade {
     var pl = pluginByUri.get(uri);
     if (pl == null) return List.of();
     try {
-      return pl.completions(uri, position, index);
+      return pl.completions(uri, position, index.queryFor(uri));
     } catch (Exception e) {
       LOG.log(Level.SEVERE, "Completion request failed for " + uri, e);
       return List.of();
@@ -95,8 +243,12 @@ public final class CoreEngine implements CoreFacade {
     String token = TokenUtil.tokenAt(text, offset);
 
     try {
-      SymbolInfo sym = pl.resolveSymbol(uri, token, position, index);
-      return sym == null ? Optional.empty() : Optional.ofNullable(sym.getLocation());
+      SymbolInfo sym = pl.resolveSymbol(uri, token, position, index.queryFor(uri));
+      if (sym == null) {
+        return Optional.empty();
+      }
+      // dependency symbols point at class files; prefer their attached sources
+      return index.sourceLocation(sym).or(() -> Optional.ofNullable(sym.getLocation()));
     } catch (Exception e) {
       LOG.log(Level.SEVERE, "Definition request failed for " + uri, e);
       return Optional.empty();
@@ -106,46 +258,225 @@ public final class CoreEngine implements CoreFacade {
   // --- internals --------------------------------------------------------------------------------
 
   private List<Diagnostic> reindex(String uri, String text) {
+    startPass(uri);
     var pluginOpt = plugins.forFile(uri, () -> TokenUtil.preview(text));
     if (pluginOpt.isEmpty()) {
-      // Clear any stale symbols for this file and report info diagnostic
-      index.removeFile(uri);
-      return List.of(
-          new Diagnostic(
-              new Range(new Position(0, 0), new Position(0, 1)),
-              "No plugin registered to handle " + uri,
-              Diagnostic.Severity.INFORMATION,
-              "core",
-              "no-plugin"));
+      degradedByUri.remove(uri);
+      return unclaimed(uri);
     }
 
     JvmLangPlugin plugin = pluginOpt.get();
     pluginByUri.put(uri, plugin);
+    if (text.length() > budget.maxChars()) {
+      return indexDeclarations(
+          uri,
+          text,
+          plugin,
+          "has " + text.length() + " characters, more than the " + budget.maxChars() + " allowed");
+    }
 
-    SymbolReporter reporter = wrapReporter(uri, plugin.id());
+    PassClock clock = new PassClock(budget.maxMillis());
     List<Diagnostic> diags;
     try {
-      diags = plugin.index(uri, text, reporter);
+      diags = plugin.index(uri, text, wrapReporter(uri, plugin.id(), clock));
+    } catch (CancellationException e) {
+      diags = List.of(); // replaced below
     } catch (Exception e) {
       LOG.log(Level.SEVERE, "Plugin indexing failed for " + uri + " using " + plugin.id(), e);
-      diags =
-          List.of(
-              new Diagnostic(
-                  new Range(new Position(0, 0), new Position(0, 1)),
-                  "Plugin error: " + e.getMessage(),
-                  Diagnostic.Severity.ERROR,
-                  plugin.id(),
-                  "plugin-exception"));
+      diags = List.of(pluginError(plugin, e));
+    }
+    return finishPass(uri, text, plugin, clock, diags);
+  }
+
+  private List<Diagnostic> finishPass(
+      String uri, String text, JvmLangPlugin plugin, PassClock clock, List<Diagnostic> diags) {
+    if (clock.stopped()) {
+      // symbols and plugin state of the stopped pass are partial
+      return indexDeclarations(uri, text, plugin, overBudget());
+    }
+    if (clock.expired()) {
+      return degraded(uri, diags, overBudget()); // complete, but too slow to repeat on every change
     }
+    degradedByUri.remove(uri);
+    return diags;
+  }
+
+  private String overBudget() {
+    return "took longer than the " + budget.maxMillis() + " ms allowed to analyze";
+  }
+
+  private List<Diagnostic> indexDeclarations(
+      String uri, String text, JvmLangPlugin plugin, String reason) {
+    index.removeFile(uri);
+    forget(uri, plugin);
+    List<Diagnostic> diags;
+    try {
+      diags = plugin.indexDeclarations(uri, text, wrapReporter(uri, plugin.id()));
+    } catch (Exception e) {
+      LOG.log(Level.SEVERE, "Declaration indexing failed for " + uri + " using " + plugin.id(), e);
+      diags = List.of(pluginError(plugin, e));
+    }
+    return degraded(uri, diags, reason);
+  }
+
+  private List<Diagnostic> degraded(String uri, List<Diagnostic> indexDiagnostics, String reason) {
+    LOG.info(() -> "Analyzing " + uri + " in degraded mode, it " + reason);
+    List<Diagnostic> all = new ArrayList<>(indexDiagnostics);
+    all.add(
+        new Diagnostic(
+            new Range(new Position(0, 0), new Position(0, 1)),
+            "Only declarations are analyzed in this file, and only when it is saved: it "
+                + reason
+                + ".",
+            Diagnostic.Severity.WARNING,
+            "core",
+            "degraded"));
+    List<Diagnostic> diags = List.copyOf(all);
+    degradedByUri.put(uri, diags);
+    semanticByUri.remove(uri);
     return diags;
   }
 
+  private Diagnostic pluginError(JvmLangPlugin plugin, Exception e) {
+    return new Diagnostic(
+        new Range(new Position(0, 0), new Position(0, 1)),
+        "Plugin error: " + e.getMessage(),
+        Diagnostic.Severity.ERROR,
+        plugin.id(),
+        "plugin-exception");
+  }
+
+  private static void forget(String uri, JvmLangPlugin plugin) {
+    try {
+      plugin.forget(uri);
+    } catch (Exception e) {
+      LOG.log(Level.WARNING, "Failed to forget plugin state for " + uri, e);
+    }
+  }
+
+  private void startPass(String uri) {
+    passByUri.put(uri, passes.incrementAndGet());
+  }
+
+  private List<Diagnostic> withSemanticChecks(String uri, List<Diagnostic> indexDiagnostics) {
+    return withSemanticChecks(uri, indexDiagnostics, () -> true);
+  }
+
+  /**
+   * Adds the semantic diagnostics of the file; the results are kept only while {@code current}
+   * holds, so a check overtaken by a newer pass neither degrades the file nor replaces its state.
+   */
+  private List<Diagnostic> withSemanticChecks(
+      String uri, List<Diagnostic> indexDiagnostics, BooleanSupplier current) {
+    JvmLangPlugin plugin = pluginByUri.get(uri);
+    if (plugin == null || degradedByUri.containsKey(uri)) {
+      return indexDiagnostics;
+    }
+    PassClock clock = new PassClock(budget.maxMillis());
+    List<Diagnostic> semantic;
+    try {
+      semantic = plugin.checkSemantics(uri, clock::check);
+    } catch (CancellationException e) {
+      return current.getAsBoolean()
+          ? degraded(uri, indexDiagnostics, overBudget())
+          : indexDiagnostics;
+    } catch (Exception e) {
+      LOG.log(Level.WARNING, "Semantic checks failed for " + uri + " using " + plugin.id(), e);
+      return indexDiagnostics;
+    }
+    if (!current.getAsBoolean()) {
+      return indexDiagnostics;
+    }
+    if (clock.expired()) {
+      // complete, but too slow to repeat on every change
+      List<Diagnostic> all = new ArrayList<>(indexDiagnostics);
+      all.addAll(semantic);
+      return degraded(uri, all, overBudget());
+    }
+    semanticByUri.put(uri, semantic);
+    if (semantic.isEmpty()) {
+      return indexDiagnostics;
+    }
+    List<Diagnostic> all = new ArrayList<>(indexDiagnostics);
+    all.addAll(semantic);
+    return all;
+  }
+
+  private void checkSettled(String uri, long pass, List<Diagnostic> indexDiagnostics) {
+    if (!Objects.equals(passByUri.get(uri), pass)) {
+      return; // changed again, a later check is scheduled
+    }
+    BooleanSupplier current = () -> Objects.equals(passByUri.get(uri), pass);
+    List<Diagnostic> all = withSemanticChecks(uri, indexDiagnostics, current);
+    // published outside the map, a client call must not block passes of other files
+    if (current.getAsBoolean()) {
+      settledDiagnostics.accept(uri, all);
+    }
+  }
+
+  private List<Diagnostic> unclaimed(String uri) {
+    // Clear any stale symbols for this file and report info diagnostic
+    index.removeFile(uri);
+    return List.of(
+        new Diagnostic(
+            new Range(new Position(0, 0), new Position(0, 1)),
+            "No plugin registered to handle " + uri,
+            Diagnostic.Severity.INFORMATION,
+            "core",
+            "no-plugin"));
+  }
+
+  /**
+   * The time an index pass or semantic check may take. Reporters check it at each symbol and
+   * checkpoint, and stop the pass once it has expired.
+   */
+  private static final class PassClock {
+    static final PassClock UNLIMITED = new PassClock(Long.MAX_VALUE);
+
+    private final long start = System.nanoTime();
+    private final long limitNanos;
+    private volatile boolean stopped;
+
+    PassClock(long limitMillis) {
+      this.limitNanos = TimeUnit.MILLISECONDS.toNanos(limitMillis);
+    }
+
+    boolean expired() {
+      return System.nanoTime() - start > limitNanos;
+    }
+
+    /** Whether the pass was stopped before it completed. */
+    boolean stopped() {
+      return stopped;
+    }
+
+    void check() {
+      if (stopped || expired()) {
+        stopped = true;
+        throw new CancellationException("Index pass ran out of time");
+      }
+    }
+  }
+
   private SymbolReporter wrapReporter(String uri, String pluginId) {
+    return wrapReporter(uri, pluginId, PassClock.UNLIMITED);
+  }
+
+  private SymbolReporter wrapReporter(String uri, String pluginId, PassClock clock) {
     return new SymbolReporter() {
+      private void put(SymbolInfo symbol) {
+        clock.check();
+        index.put(uri, symbol);
+      }
+
+      @Override
+      public void checkpoint() {
+        clock.check();
+      }
+
       @Override
       public void reportPackage(String pkgFqn, Location loc) {
-        index.put(
-            uri,
+        put(
             new SymbolInfo(
                 pluginId, SymbolInfo.Kind.PACKAGE, pkgFqn, "", loc, "", Set.of(), List.of()));
       }
@@ -180,8 +511,7 @@ public final class CoreEngine implements CoreFacade {
                     : isInterface ? SymbolInfo.Kind.INTERFACE : SymbolInfo.Kind.CLASS;
         String container =
             classFqn.contains(".") ? classFqn.substring(0, classFqn.lastIndexOf('.')) : "";
-        index.put(
-            uri,
+        put(
             new SymbolInfo(
                 pluginId,
                 kind,
@@ -213,8 +543,7 @@ public final class CoreEngine implements CoreFacade {
 
       @Override
       public void reportAnnotation(String annotationFqn, Location loc) {
-        index.put(
-            uri,
+        put(
             new SymbolInfo(
                 pluginId,
                 SymbolInfo.Kind.ANNOTATION,
@@ -254,8 +583,7 @@ public final class CoreEngine implements CoreFacade {
           InferenceConfidence confidence) {
         String legacySignature = JvmTypes.toLegacyMethodSignature(signature);
         String fqn = ownerClassFqn + "#" + methodName + legacySignature;
-        index.put(
-            uri,
+        put(
             new SymbolInfo(
                 pluginId,
                 SymbolInfo.Kind.METHOD,
@@ -293,8 +621,7 @@ public final class CoreEngine implements CoreFacade {
           InferenceConfidence confidence) {
         String legacySignature = JvmTypes.toLegacyMethodSignature(signature);
         String fqn = ownerClassFqn + "#<init>" + legacySignature;
-        index.put(
-            uri,
+        put(
             new SymbolInfo(
                 pluginId,
                 SymbolInfo.Kind.CONSTRUCTOR,
@@ -337,8 +664,7 @@ public final class CoreEngine implements CoreFacade {
           SyntheticOrigin origin,
           InferenceConfidence confidence) {
         String fqn = ownerClassFqn + "." + fieldName;
-        index.put(
-            uri,
+        put(
             new SymbolInfo(
                 pluginId,
                 SymbolInfo.Kind.FIELD,
@@ -1,6 +1,8 @@
 package se.alipsa.jvmpls.core;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import se.alipsa.jvmpls.core.model.*;
@@ -11,9 +13,30 @@ public interface CoreFacade {
   /** Open (or replace) a file’s content. Triggers (re)indexing. */
   List<Diagnostic> openFile(String uri, String text);
 
-  /** Update a file’s content. Triggers (re)indexing. */
+  /**
+   * Opens several files at once, letting plugins index them in batches. Returns diagnostics by
+   * URI, in the order of {@code textsByUri}.
+   */
+  default Map<String, List<Diagnostic>> openFiles(Map<String, String> textsByUri) {
+    Map<String, List<Diagnostic>> diagnostics = new LinkedHashMap<>();
+    textsByUri.forEach((uri, text) -> diagnostics.put(uri, openFile(uri, text)));
+    return diagnostics;
+  }
+
+  /**
+   * Update a file’s content. Triggers (re)indexing. Implementations may return before semantic
+   * checks have run and report their diagnostics once the text has settled.
+   */
   List<Diagnostic> changeFile(String uri, String text);
 
+  /**
+   * The saved content of a file is its current content. Files analyzed in degraded mode are indexed
+   * again on save; returns their diagnostics then, and empty when saving changed nothing.
+   */
+  default Optional<List<Diagnostic>> saveFile(String uri) {
+    return Optional.empty();
+  }
+
   /** Close a file and discard caches and diagnostics. */
   void closeFile(String uri);
 
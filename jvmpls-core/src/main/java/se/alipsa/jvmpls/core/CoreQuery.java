@@ -23,4 +23,45 @@ public interface CoreQuery {
   default List<String> supertypesOf(String typeFqn) {
     return List.of();
   }
+
+  /**
+   * A number that changes whenever the result of {@link #membersOf(String)} for {@code ownerFqn}
+   * may have changed, so that callers can cache what they derive from it. Read it before the
+   * members. Negative when this query does not track changes; callers must not cache then.
+   */
+  default long membersVersion(String ownerFqn) {
+    return -1;
+  }
+
+  /**
+   * A number that changes whenever symbols outside the workspace sources may have changed, such as
+   * classes recompiled into an output directory. Negative when this query does not track changes,
+   * or while its classpath indexes are still being built; callers must not cache then.
+   */
+  default long externalVersion() {
+    return -1;
+  }
+
+  /**
+   * Types annotated with {@code annotationFqn}, directly or through a meta-annotation, such as all
+   * types carrying {@code @groovy.transform.Immutable}. Only binary types are covered; source
+   * symbols do not record their annotations.
+   */
+  default List<SymbolInfo> annotatedWith(String annotationFqn) {
+    return List.of();
+  }
+
+  /**
+   * FQNs of the types that declare a method or field named {@code memberName} themselves. Lets
+   * callers guess the members of receivers whose type is unknown, such as Groovy {@code def}
+   * variables, without listing the members of every type.
+   */
+  default List<String> typesDeclaringMember(String memberName) {
+    return List.of();
+  }
+
+  /** Distinct member names starting with {@code prefix}, sorted, at most {@code limit}. */
+  default List<String> memberNamesStartingWith(String prefix, int limit) {
+    return List.of();
+  }
 }
@@ -0,0 +1,75 @@
+package se.alipsa.jvmpls.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over fully qualified names. {@link #mightContain(String)} never returns {@code
+ * false} for a name that was added, so a miss can be answered without a map or provider lookup.
+ *
+ * <p>Sized for about one percent false positives at the expected number of names. Names cannot be
+ * removed; callers rebuild the filter once {@link #isSaturated()} reports that it is overfull.
+ * Adding and querying are safe from several threads.
+ */
+public final class FqnBloomFilter {
+  private static final int BITS_PER_NAME = 10;
+  private static final int HASHES = 7;
+
+  private final AtomicLongArray words;
+  private final long bitCount;
+  private final int capacity;
+  private final AtomicInteger size = new AtomicInteger();
+
+  public FqnBloomFilter(int expectedNames) {
+    this.capacity = Math.max(expectedNames, 64);
+    long bits = (long) capacity * BITS_PER_NAME;
+    int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64);
+    this.words = new AtomicLongArray(wordCount);
+    this.bitCount = (long) wordCount * 64;
+  }
+
+  public void add(String fqn) {
+    long hash = mix(fqn.hashCode());
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    for (int i = 0; i < HASHES; i++) {
+      long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long current = words.get(word);
+      while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+        current = words.get(word);
+      }
+    }
+    size.incrementAndGet();
+  }
+
+  public boolean mightContain(String fqn) {
+    long hash = mix(fqn.hashCode());
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    for (int i = 0; i < HASHES; i++) {
+      long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+      if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** True once more names were added than the filter was sized for. */
+  public boolean isSaturated() {
+    return size.get() > capacity;
+  }
+
+  /** Spreads the string hash over 64 bits (the MurmurHash3 finalizer). */
+  private static long mix(int hashCode) {
+    long h = hashCode;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
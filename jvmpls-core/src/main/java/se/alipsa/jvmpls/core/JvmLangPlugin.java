@@ -1,13 +1,19 @@
 package se.alipsa.jvmpls.core;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import se.alipsa.jvmpls.core.model.*;
 
 public interface JvmLangPlugin {
 
+  /** A file to index together with others, see {@link #indexAll(List, Function)}. */
+  record Source(String uri, String content) {}
+
   /** Unique, stable identifier, e.g. "java", "groovy", "kotlin". */
   String id();
 
@@ -32,9 +38,59 @@ public interface JvmLangPlugin {
   /** Called once after registration; plugins can cache references to core services. */
   default void configure(PluginEnvironment env) {}
 
-  /** Parse/analyze and report declarations for indexing. Return diagnostics. */
+  /**
+   * Parse/analyze and report declarations for indexing. Return diagnostics. Runs on every change,
+   * so checks that are slow or need the declarations of other files belong in {@link
+   * #checkSemantics(String)}.
+   */
   List<Diagnostic> index(String fileUri, String content, SymbolReporter reporter);
 
+  /**
+   * Reports the declarations of a file without further analysis. Core calls this instead of {@link
+   * #index} for files beyond the {@link AnalysisBudget}, and {@link #checkSemantics(String)} is not
+   * called for them. The default is {@code index}, for plugins whose index only reports
+   * declarations.
+   */
+  default List<Diagnostic> indexDeclarations(
+      String fileUri, String content, SymbolReporter reporter) {
+    return index(fileUri, content, reporter);
+  }
+
+  /**
+   * Semantic diagnostics of the file as last indexed, such as references to unknown members. Core
+   * calls this after {@link #index} once the file's text has settled, and shows the result
+   * together with the diagnostics {@code index} returned. It may run while a later {@code index}
+   * of the same file is in progress; core drops results of text that has changed since.
+   */
+  default List<Diagnostic> checkSemantics(String fileUri) {
+    return List.of();
+  }
+
+  /**
+   * {@link #checkSemantics(String)} within the {@link AnalysisBudget}. Plugins call {@code
+   * checkpoint} between units of work, such as classes; it throws {@link
+   * java.util.concurrent.CancellationException} once the check has run out of time. The default
+   * checks without checkpoints.
+   */
+  default List<Diagnostic> checkSemantics(String fileUri, Runnable checkpoint) {
+    return checkSemantics(fileUri);
+  }
+
+  /**
+   * Indexes several files at once, reporting each file's declarations to the reporter {@code
+   * reporters} returns for its URI. Returns diagnostics by URI. Plugins whose front end can share
+   * work between files override this; the default indexes the files one by one.
+   */
+  default Map<String, List<Diagnostic>> indexAll(
+      List<Source> sources, Function<String, SymbolReporter> reporters) {
+    Map<String, List<Diagnostic>> diagnostics = new LinkedHashMap<>();
+    for (Source source : sources) {
+      diagnostics.put(
+          source.uri(), index(source.uri(), source.content(), reporters.apply(source.uri())));
+    }
+    return diagnostics;
+  }
+
   /** Attempt to resolve a symbol name in file context to a known symbol. */
   default SymbolInfo resolveSymbol(String fileUri, String symbolName, CoreQuery core) {
     return null;
@@ -0,0 +1,18 @@
+package se.alipsa.jvmpls.core;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A build module as seen by symbol lookup: files under {@code sourceRoots} resolve external symbols
+ * only against {@code classpathEntries}.
+ */
+public record ModuleScope(String name, List<Path> sourceRoots, List<String> classpathEntries) {
+
+  public ModuleScope {
+    name = Objects.requireNonNull(name, "name");
+    sourceRoots = sourceRoots == null ? List.of() : List.copyOf(sourceRoots);
+    classpathEntries = classpathEntries == null ? List.of() : List.copyOf(classpathEntries);
+  }
+}
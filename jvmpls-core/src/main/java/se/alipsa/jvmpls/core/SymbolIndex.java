@@ -1,38 +1,88 @@
 package se.alipsa.jvmpls.core;
 
+import java.net.URI;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import se.alipsa.jvmpls.core.model.Location;
 import se.alipsa.jvmpls.core.model.SymbolInfo;
 
 public final class SymbolIndex implements CoreQuery {
   private static final Logger LOG = Logger.getLogger(SymbolIndex.class.getName());
+  private static final int MIN_SOURCE_NAMES = 1024;
 
   private final Map<String, SymbolInfo> byFqn = new ConcurrentHashMap<>();
   private final Map<String, Set<String>> fileToDecls = new ConcurrentHashMap<>();
   private final List<SymbolProvider> providers = Collections.synchronizedList(new ArrayList<>());
-  private final Map<String, Optional<SymbolInfo>> providerByFqnCache = new ConcurrentHashMap<>();
-  private final Map<String, List<SymbolInfo>> providerBySimpleNameCache = new ConcurrentHashMap<>();
-  private final Map<String, List<SymbolInfo>> providerByPackageCache = new ConcurrentHashMap<>();
-  private final Map<String, List<SymbolInfo>> providerByOwnerCache = new ConcurrentHashMap<>();
-  private final Map<String, List<String>> providerByTypeHierarchyCache = new ConcurrentHashMap<>();
+  private final ExternalLookup external = new ExternalLookup(providers);
+  private volatile List<ModuleScope> modules = List.of();
+  private final Map<ModuleScope, ModuleQuery> moduleQueries = new ConcurrentHashMap<>();
+  // Answers most misses without touching byFqn; removed names stay until the next rebuild.
+  private final Object sourceNamesLock = new Object();
+  private volatile FqnBloomFilter sourceNames = new FqnBloomFilter(MIN_SOURCE_NAMES);
+  // member name -> FQNs of the source methods and fields with that name
+  private final ConcurrentSkipListMap<String, Set<String>> sourceMembersByName =
+      new ConcurrentSkipListMap<>();
+  // counts member changes; owners map to the count at their last change, see membersVersion
+  private final AtomicLong memberChanges = new AtomicLong();
+  private final Map<String, Long> membersChangedAt = new ConcurrentHashMap<>();
+  private volatile long externalMembersChangedAt;
 
   public void put(String fileUri, SymbolInfo sym) {
     byFqn.put(sym.getFqName(), sym);
+    addSourceName(sym.getFqName());
     fileToDecls.computeIfAbsent(fileUri, k -> ConcurrentHashMap.newKeySet()).add(sym.getFqName());
-    providerByOwnerCache.remove(sym.getContainerFqName());
+    if (isMember(sym)) {
+      sourceMembersByName
+          .computeIfAbsent(memberNameOf(sym), k -> ConcurrentHashMap.newKeySet())
+          .add(sym.getFqName());
+    }
+    evictOwner(sym.getContainerFqName());
   }
 
   public void registerProvider(SymbolProvider provider) {
     Objects.requireNonNull(provider, "provider");
     providers.add(provider);
-    providerByFqnCache.clear();
-    providerBySimpleNameCache.clear();
-    providerByPackageCache.clear();
-    providerByOwnerCache.clear();
-    providerByTypeHierarchyCache.clear();
+    provider.addChangeListener(this::externalTypesChanged);
+    external.clear();
+    moduleQueries.clear();
+    externalMembersChangedAt = memberChanges.incrementAndGet();
+  }
+
+  /**
+   * Registers the build modules of the workspace. Files under a module's source roots then resolve
+   * external symbols only against that module's classpath, see {@link #queryFor(String)}.
+   */
+  public void registerModules(List<ModuleScope> modules) {
+    this.modules = modules == null ? List.of() : List.copyOf(modules);
+    moduleQueries.clear();
+    externalMembersChangedAt = memberChanges.incrementAndGet();
+  }
+
+  /**
+   * Returns the query view for a file: a module-scoped view when the file lies under the source
+   * roots of a registered module, otherwise this index.
+   */
+  public CoreQuery queryFor(String fileUri) {
+    ModuleScope module = moduleOf(fileUri);
+    if (module == null) {
+      return this;
+    }
+    return moduleQueries.computeIfAbsent(module, ModuleQuery::new);
+  }
+
+  /** Drops cached provider results that may mention any of the given external types. */
+  public void externalTypesChanged(Set<String> typeFqns) {
+    external.invalidate(typeFqns);
+    moduleQueries.values().forEach(query -> query.external.invalidate(typeFqns));
+    // external members include inherited ones, so any owner may be affected
+    externalMembersChangedAt = memberChanges.incrementAndGet();
   }
 
   public void removeFile(String fileUri) {
@@ -43,27 +93,144 @@ public final class SymbolIndex implements CoreQuery {
         SymbolInfo removed = byFqn.remove(decl);
         if (removed != null) {
           affectedOwners.add(removed.getContainerFqName());
+          if (isMember(removed)) {
+            sourceMembersByName.computeIfPresent(
+                memberNameOf(removed),
+                (name, fqns) -> {
+                  fqns.remove(decl);
+                  return fqns.isEmpty() ? null : fqns;
+                });
+          }
         }
       }
-      affectedOwners.forEach(providerByOwnerCache::remove);
+      affectedOwners.forEach(this::evictOwner);
     }
   }
 
   @Override
   public Optional<SymbolInfo> findByFqn(String fqn) {
-    SymbolInfo local = byFqn.get(fqn);
-    if (local != null) {
-      return Optional.of(local);
-    }
-    return providerByFqnCache.computeIfAbsent(fqn, this::resolveExternalByFqn);
+    return findByFqn(fqn, external);
   }
 
   @Override
   public List<SymbolInfo> allInPackage(String pkg) {
+    return allInPackage(pkg, external);
+  }
+
+  @Override
+  public List<SymbolInfo> findBySimpleName(String simpleName) {
+    return findBySimpleName(simpleName, external);
+  }
+
+  @Override
+  public List<SymbolInfo> membersOf(String ownerFqn) {
+    return membersOf(ownerFqn, external);
+  }
+
+  @Override
+  public List<SymbolInfo> constructorsOf(String ownerFqn) {
+    return constructorsOf(membersOf(ownerFqn));
+  }
+
+  @Override
+  public long membersVersion(String ownerFqn) {
+    return Math.max(membersChangedAt.getOrDefault(ownerFqn, 0L), externalMembersChangedAt);
+  }
+
+  @Override
+  public long externalVersion() {
+    return external.indexesComplete() ? externalMembersChangedAt : -1;
+  }
+
+  @Override
+  public List<String> supertypesOf(String typeFqn) {
+    return supertypesOf(typeFqn, external);
+  }
+
+  @Override
+  public List<SymbolInfo> annotatedWith(String annotationFqn) {
+    return annotationFqn == null || annotationFqn.isBlank()
+        ? List.of()
+        : external.annotatedWith(annotationFqn);
+  }
+
+  @Override
+  public List<String> typesDeclaringMember(String memberName) {
+    return typesDeclaringMember(memberName, external);
+  }
+
+  @Override
+  public List<String> memberNamesStartingWith(String prefix, int limit) {
+    return memberNamesStartingWith(prefix, limit, external);
+  }
+
+  /**
+   * Declaration of an external symbol in its attached sources, when a provider can find them.
+   * Workspace symbols and symbols without sources yield empty.
+   */
+  public Optional<Location> sourceLocation(SymbolInfo symbol) {
+    return fromProviders(symbol, provider -> provider.sourceLocation(symbol));
+  }
+
+  /** Javadoc of an external symbol from its attached sources, see {@link #sourceLocation}. */
+  public Optional<String> documentation(SymbolInfo symbol) {
+    return fromProviders(symbol, provider -> provider.documentation(symbol));
+  }
+
+  private <T> Optional<T> fromProviders(
+      SymbolInfo symbol, Function<SymbolProvider, Optional<T>> lookup) {
+    if (symbol == null || byFqn.get(symbol.getFqName()) == symbol) {
+      return Optional.empty();
+    }
+    SymbolProvider[] snapshot;
+    synchronized (providers) {
+      snapshot = providers.toArray(SymbolProvider[]::new);
+    }
+    // outside the lock: a first lookup may read and parse a source file
+    for (SymbolProvider provider : snapshot) {
+      try {
+        Optional<T> hit = lookup.apply(provider);
+        if (hit.isPresent()) {
+          return hit;
+        }
+      } catch (RuntimeException e) {
+        LOG.log(
+            Level.WARNING, "Symbol provider failed to read sources of " + symbol.getFqName(), e);
+      }
+    }
+    return Optional.empty();
+  }
+
+  private Optional<SymbolInfo> findByFqn(String fqn, ExternalLookup lookup) {
+    if (sourceNames.mightContain(fqn)) {
+      SymbolInfo local = byFqn.get(fqn);
+      if (local != null) {
+        return Optional.of(local);
+      }
+    }
+    return lookup.byFqn(fqn);
+  }
+
+  private void addSourceName(String fqn) {
+    synchronized (sourceNamesLock) {
+      FqnBloomFilter current = sourceNames;
+      if (current.mightContain(fqn)) {
+        return;
+      }
+      if (!current.isSaturated()) {
+        current.add(fqn);
+        return;
+      }
+      FqnBloomFilter rebuilt = new FqnBloomFilter(Math.max(MIN_SOURCE_NAMES, byFqn.size() * 2));
+      byFqn.keySet().forEach(rebuilt::add);
+      sourceNames = rebuilt;
+    }
+  }
+
+  private List<SymbolInfo> allInPackage(String pkg, ExternalLookup lookup) {
     String prefix = pkg.endsWith(".") ? pkg : (pkg + ".");
     Map<String, SymbolInfo> out = new LinkedHashMap<>();
-    for (SymbolInfo external :
-        providerByPackageCache.computeIfAbsent(pkg, this::resolveExternalByPackage)) {
+    for (SymbolInfo external : lookup.byPackage(pkg)) {
       out.put(external.getFqName(), external);
     }
     byFqn.forEach(
@@ -75,14 +242,12 @@ public final class SymbolIndex implements CoreQuery {
     return List.copyOf(out.values());
   }
 
-  @Override
-  public List<SymbolInfo> findBySimpleName(String simpleName) {
+  private List<SymbolInfo> findBySimpleName(String simpleName, ExternalLookup lookup) {
     if (simpleName == null || simpleName.isEmpty()) {
       return List.of();
     }
     Map<String, SymbolInfo> results = new LinkedHashMap<>();
-    for (SymbolInfo external :
-        providerBySimpleNameCache.computeIfAbsent(simpleName, this::resolveExternalBySimpleName)) {
+    for (SymbolInfo external : lookup.bySimpleName(simpleName)) {
       results.put(external.getFqName(), external);
     }
     for (SymbolInfo sym : byFqn.values()) {
@@ -95,14 +260,12 @@ public final class SymbolIndex implements CoreQuery {
     return List.copyOf(results.values());
   }
 
-  @Override
-  public List<SymbolInfo> membersOf(String ownerFqn) {
+  private List<SymbolInfo> membersOf(String ownerFqn, ExternalLookup lookup) {
     if (ownerFqn == null || ownerFqn.isBlank()) {
       return List.of();
     }
     Map<String, SymbolInfo> results = new LinkedHashMap<>();
-    for (SymbolInfo external :
-        providerByOwnerCache.computeIfAbsent(ownerFqn, this::resolveExternalMembers)) {
+    for (SymbolInfo external : lookup.members(ownerFqn)) {
       results.put(external.getFqName(), external);
     }
     for (SymbolInfo symbol : byFqn.values()) {
@@ -113,104 +276,414 @@ public final class SymbolIndex implements CoreQuery {
     return List.copyOf(results.values());
   }
 
-  @Override
-  public List<SymbolInfo> constructorsOf(String ownerFqn) {
-    return membersOf(ownerFqn).stream()
+  private List<String> typesDeclaringMember(String memberName, ExternalLookup lookup) {
+    if (memberName == null || memberName.isBlank()) {
+      return List.of();
+    }
+    LinkedHashSet<String> types = new LinkedHashSet<>();
+    for (String fqn : sourceMembersByName.getOrDefault(memberName, Set.of())) {
+      SymbolInfo symbol = byFqn.get(fqn);
+      if (symbol != null) {
+        types.add(symbol.getContainerFqName());
+      }
+    }
+    types.addAll(lookup.typesDeclaringMember(memberName));
+    return List.copyOf(types);
+  }
+
+  private List<String> memberNamesStartingWith(String prefix, int limit, ExternalLookup lookup) {
+    if (prefix == null || limit <= 0) {
+      return List.of();
+    }
+    TreeSet<String> names = new TreeSet<>();
+    for (String name : sourceMembersByName.tailMap(prefix).keySet()) {
+      if (!name.startsWith(prefix) || names.size() == limit) {
+        break;
+      }
+      names.add(name);
+    }
+    names.addAll(lookup.memberNamesStartingWith(prefix, limit));
+    return names.stream().limit(limit).toList();
+  }
+
+  /** {@code a.B#name(p.Q)r.S} and {@code a.B.name} to {@code name}. */
+  private static String memberNameOf(SymbolInfo symbol) {
+    String fqn = symbol.getFqName();
+    int hash = fqn.indexOf('#');
+    if (hash < 0) {
+      return fqn.substring(fqn.lastIndexOf('.') + 1);
+    }
+    int open = fqn.indexOf('(', hash);
+    return fqn.substring(hash + 1, open < 0 ? fqn.length() : open);
+  }
+
+  private static boolean isMember(SymbolInfo symbol) {
+    return symbol.getKind() == SymbolInfo.Kind.METHOD || symbol.getKind() == SymbolInfo.Kind.FIELD;
+  }
+
+  private static List<SymbolInfo> constructorsOf(List<SymbolInfo> members) {
+    return members.stream()
         .filter(symbol -> symbol.getKind() == SymbolInfo.Kind.CONSTRUCTOR)
         .toList();
   }
 
-  @Override
-  public List<String> supertypesOf(String typeFqn) {
+  private List<String> supertypesOf(String typeFqn, ExternalLookup lookup) {
     if (typeFqn == null || typeFqn.isBlank()) {
       return List.of();
     }
-    return providerByTypeHierarchyCache.computeIfAbsent(typeFqn, this::resolveExternalSupertypes);
+    return lookup.supertypes(typeFqn);
   }
 
-  private Optional<SymbolInfo> resolveExternalByFqn(String fqn) {
-    synchronized (providers) {
-      for (SymbolProvider provider : providers) {
-        Optional<SymbolInfo> hit = provider.findByFqn(fqn);
-        if (hit.isPresent()) {
-          return hit;
+  private void evictOwner(String ownerFqn) {
+    membersChangedAt.put(ownerFqn, memberChanges.incrementAndGet());
+    external.evictOwner(ownerFqn);
+    moduleQueries.values().forEach(query -> query.external.evictOwner(ownerFqn));
+  }
+
+  private ModuleScope moduleOf(String fileUri) {
+    List<ModuleScope> current = modules;
+    if (current.isEmpty() || fileUri == null) {
+      return null;
+    }
+    Path file;
+    try {
+      file = Path.of(URI.create(fileUri)).toAbsolutePath().normalize();
+    } catch (RuntimeException e) {
+      return null;
+    }
+    ModuleScope best = null;
+    int bestDepth = -1;
+    for (ModuleScope module : current) {
+      for (Path root : module.sourceRoots()) {
+        Path normalized = root.toAbsolutePath().normalize();
+        if (file.startsWith(normalized) && normalized.getNameCount() > bestDepth) {
+          best = module;
+          bestDepth = normalized.getNameCount();
         }
       }
     }
-    return Optional.empty();
+    return best;
   }
 
-  private List<SymbolInfo> resolveExternalBySimpleName(String simpleName) {
-    Map<String, SymbolInfo> results = new LinkedHashMap<>();
-    synchronized (providers) {
-      for (SymbolProvider provider : providers) {
-        for (SymbolInfo symbol : provider.findBySimpleName(simpleName)) {
-          results.putIfAbsent(symbol.getFqName(), symbol);
+  private static String simpleNameOf(SymbolInfo symbol) {
+    String fqn = symbol.getFqName();
+    int lastDot = fqn.lastIndexOf('.');
+    int lastHash = fqn.lastIndexOf('#');
+    int lastSep = Math.max(lastDot, lastHash);
+    String name = fqn.substring(lastSep + 1);
+    int openParen = name.indexOf('(');
+    if (openParen > 0) {
+      name = name.substring(0, openParen);
+    }
+    if ("<init>".equals(name)) {
+      String container = symbol.getContainerFqName();
+      int containerLastDot = container.lastIndexOf('.');
+      return containerLastDot < 0 ? container : container.substring(containerLastDot + 1);
+    }
+    return name;
+  }
+
+  /** Source symbols of the whole index combined with the external symbols one module can see. */
+  private final class ModuleQuery implements CoreQuery {
+    private final ExternalLookup external;
+
+    private ModuleQuery(ModuleScope module) {
+      List<SymbolProvider> scoped = new ArrayList<>();
+      synchronized (providers) {
+        for (SymbolProvider provider : providers) {
+          scoped.add(provider.forModule(module));
         }
       }
+      this.external = new ExternalLookup(Collections.synchronizedList(scoped));
+    }
+
+    @Override
+    public Optional<SymbolInfo> findByFqn(String fqn) {
+      return SymbolIndex.this.findByFqn(fqn, external);
+    }
+
+    @Override
+    public List<SymbolInfo> findBySimpleName(String simpleName) {
+      return SymbolIndex.this.findBySimpleName(simpleName, external);
+    }
+
+    @Override
+    public List<SymbolInfo> allInPackage(String pkgFqn) {
+      return SymbolIndex.this.allInPackage(pkgFqn, external);
+    }
+
+    @Override
+    public List<SymbolInfo> membersOf(String ownerFqn) {
+      return SymbolIndex.this.membersOf(ownerFqn, external);
+    }
+
+    @Override
+    public List<SymbolInfo> constructorsOf(String ownerFqn) {
+      return SymbolIndex.constructorsOf(membersOf(ownerFqn));
+    }
+
+    @Override
+    public long membersVersion(String ownerFqn) {
+      return SymbolIndex.this.membersVersion(ownerFqn);
+    }
+
+    @Override
+    public long externalVersion() {
+      return external.indexesComplete() ? externalMembersChangedAt : -1;
+    }
+
+    @Override
+    public List<String> supertypesOf(String typeFqn) {
+      return SymbolIndex.this.supertypesOf(typeFqn, external);
+    }
+
+    @Override
+    public List<SymbolInfo> annotatedWith(String annotationFqn) {
+      return annotationFqn == null || annotationFqn.isBlank()
+          ? List.of()
+          : external.annotatedWith(annotationFqn);
+    }
+
+    @Override
+    public List<String> typesDeclaringMember(String memberName) {
+      return SymbolIndex.this.typesDeclaringMember(memberName, external);
+    }
+
+    @Override
+    public List<String> memberNamesStartingWith(String prefix, int limit) {
+      return SymbolIndex.this.memberNamesStartingWith(prefix, limit, external);
     }
-    return List.copyOf(results.values());
   }
 
-  private List<SymbolInfo> resolveExternalByPackage(String pkg) {
-    Map<String, SymbolInfo> results = new LinkedHashMap<>();
-    synchronized (providers) {
-      for (SymbolProvider provider : providers) {
-        for (SymbolInfo symbol : provider.allInPackage(pkg)) {
-          results.putIfAbsent(symbol.getFqName(), symbol);
+  /** Provider fan-out with cached results for one set of providers. */
+  private static final class ExternalLookup {
+    private final List<SymbolProvider> providers;
+    private volatile SymbolProvider[] providerSnapshot;
+    private final Map<String, Optional<SymbolInfo>> byFqnCache = new ConcurrentHashMap<>();
+    private final Map<String, List<SymbolInfo>> bySimpleNameCache = new ConcurrentHashMap<>();
+    private final Map<String, List<SymbolInfo>> byPackageCache = new ConcurrentHashMap<>();
+    private final Map<String, List<SymbolInfo>> byOwnerCache = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> byTypeHierarchyCache = new ConcurrentHashMap<>();
+    private final Map<String, List<SymbolInfo>> byAnnotationCache = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> byMemberNameCache = new ConcurrentHashMap<>();
+
+    private ExternalLookup(List<SymbolProvider> providers) {
+      this.providers = providers;
+      this.providerSnapshot = snapshot(providers);
+    }
+
+    Optional<SymbolInfo> byFqn(String fqn) {
+      Optional<SymbolInfo> cached = byFqnCache.get(fqn);
+      if (cached != null) {
+        return cached;
+      }
+      // Misses every provider rules out are not cached, so probing for names stays cheap.
+      if (!mightContain(fqn)) {
+        return Optional.empty();
+      }
+      return byFqnCache.computeIfAbsent(fqn, this::resolveByFqn);
+    }
+
+    private boolean indexesComplete() {
+      for (SymbolProvider provider : providerSnapshot) {
+        if (!provider.isIndexComplete()) {
+          return false;
         }
       }
+      return true;
     }
-    return List.copyOf(results.values());
-  }
 
-  private List<SymbolInfo> resolveExternalMembers(String ownerFqn) {
-    Map<String, SymbolInfo> results = new LinkedHashMap<>();
-    synchronized (providers) {
-      for (SymbolProvider provider : providers) {
+    private boolean mightContain(String fqn) {
+      for (SymbolProvider provider : providerSnapshot) {
+        if (provider.mightContain(fqn)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    List<SymbolInfo> bySimpleName(String simpleName) {
+      return bySimpleNameCache.computeIfAbsent(simpleName, this::resolveBySimpleName);
+    }
+
+    List<SymbolInfo> byPackage(String pkg) {
+      return byPackageCache.computeIfAbsent(pkg, this::resolveByPackage);
+    }
+
+    List<SymbolInfo> members(String ownerFqn) {
+      return byOwnerCache.computeIfAbsent(ownerFqn, this::resolveMembers);
+    }
+
+    List<String> supertypes(String typeFqn) {
+      return byTypeHierarchyCache.computeIfAbsent(typeFqn, this::resolveSupertypes);
+    }
+
+    List<SymbolInfo> annotatedWith(String annotationFqn) {
+      if (!indexesComplete()) {
+        return resolveAnnotatedWith(annotationFqn); // partial, so asked again later
+      }
+      return byAnnotationCache.computeIfAbsent(annotationFqn, this::resolveAnnotatedWith);
+    }
+
+    List<String> typesDeclaringMember(String memberName) {
+      if (!indexesComplete()) {
+        return resolveTypesDeclaringMember(memberName);
+      }
+      return byMemberNameCache.computeIfAbsent(memberName, this::resolveTypesDeclaringMember);
+    }
+
+    List<String> memberNamesStartingWith(String prefix, int limit) {
+      TreeSet<String> names = new TreeSet<>();
+      for (SymbolProvider provider : providerSnapshot) {
         try {
-          for (SymbolInfo symbol : provider.membersOf(ownerFqn)) {
-            results.putIfAbsent(symbol.getFqName(), symbol);
-          }
+          names.addAll(provider.memberNamesStartingWith(prefix, limit));
         } catch (RuntimeException e) {
           LOG.log(
-              Level.WARNING, "Symbol provider failed while resolving members for " + ownerFqn, e);
+              Level.WARNING, "Symbol provider failed while listing member names " + prefix, e);
         }
       }
+      return names.stream().limit(limit).toList();
     }
-    return List.copyOf(results.values());
-  }
 
-  private List<String> resolveExternalSupertypes(String typeFqn) {
-    LinkedHashSet<String> results = new LinkedHashSet<>();
-    synchronized (providers) {
-      for (SymbolProvider provider : providers) {
+    void clear() {
+      providerSnapshot = snapshot(providers);
+      byFqnCache.clear();
+      bySimpleNameCache.clear();
+      byPackageCache.clear();
+      byOwnerCache.clear();
+      byTypeHierarchyCache.clear();
+      byAnnotationCache.clear();
+      byMemberNameCache.clear();
+    }
+
+    void evictOwner(String ownerFqn) {
+      byOwnerCache.remove(ownerFqn);
+    }
+
+    private static SymbolProvider[] snapshot(List<SymbolProvider> providers) {
+      synchronized (providers) {
+        return providers.toArray(SymbolProvider[]::new);
+      }
+    }
+
+    void invalidate(Set<String> typeFqns) {
+      for (String fqn : typeFqns) {
+        byFqnCache.remove(fqn);
+        int lastDot = fqn.lastIndexOf('.');
+        byPackageCache.remove(lastDot < 0 ? "" : fqn.substring(0, lastDot));
+        String simpleName = fqn.substring(Math.max(lastDot, fqn.lastIndexOf('$')) + 1);
+        bySimpleNameCache.remove(simpleName);
+      }
+      // Members and supertypes are inherited and annotations are meta-annotated, so any entry may
+      // be affected.
+      byOwnerCache.clear();
+      byTypeHierarchyCache.clear();
+      byAnnotationCache.clear();
+      byMemberNameCache.clear();
+    }
+
+    private Optional<SymbolInfo> resolveByFqn(String fqn) {
+      synchronized (providers) {
+        for (SymbolProvider provider : providers) {
+          Optional<SymbolInfo> hit = provider.findByFqn(fqn);
+          if (hit.isPresent()) {
+            return hit;
+          }
+        }
+      }
+      return Optional.empty();
+    }
+
+    private List<SymbolInfo> resolveBySimpleName(String simpleName) {
+      Map<String, SymbolInfo> results = new LinkedHashMap<>();
+      synchronized (providers) {
+        for (SymbolProvider provider : providers) {
+          for (SymbolInfo symbol : provider.findBySimpleName(simpleName)) {
+            results.putIfAbsent(symbol.getFqName(), symbol);
+          }
+        }
+      }
+      return List.copyOf(results.values());
+    }
+
+    private List<SymbolInfo> resolveByPackage(String pkg) {
+      Map<String, SymbolInfo> results = new LinkedHashMap<>();
+      synchronized (providers) {
+        for (SymbolProvider provider : providers) {
+          for (SymbolInfo symbol : provider.allInPackage(pkg)) {
+            results.putIfAbsent(symbol.getFqName(), symbol);
+          }
+        }
+      }
+      return List.copyOf(results.values());
+    }
+
+    private List<SymbolInfo> resolveAnnotatedWith(String annotationFqn) {
+      Map<String, SymbolInfo> results = new LinkedHashMap<>();
+      synchronized (providers) {
+        for (SymbolProvider provider : providers) {
+          try {
+            for (SymbolInfo symbol : provider.annotatedWith(annotationFqn)) {
+              results.putIfAbsent(symbol.getFqName(), symbol);
+            }
+          } catch (RuntimeException e) {
+            LOG.log(
+                Level.WARNING,
+                "Symbol provider failed while resolving types annotated with " + annotationFqn,
+                e);
+          }
+        }
+      }
+      return List.copyOf(results.values());
+    }
+
+    private List<String> resolveTypesDeclaringMember(String memberName) {
+      LinkedHashSet<String> results = new LinkedHashSet<>();
+      for (SymbolProvider provider : providerSnapshot) {
         try {
-          results.addAll(provider.supertypesOf(typeFqn));
+          results.addAll(provider.typesDeclaringMember(memberName));
         } catch (RuntimeException e) {
           LOG.log(
-              Level.WARNING, "Symbol provider failed while resolving supertypes for " + typeFqn, e);
+              Level.WARNING,
+              "Symbol provider failed while resolving types declaring " + memberName,
+              e);
         }
       }
+      return List.copyOf(results);
     }
-    return List.copyOf(results);
-  }
 
-  private static String simpleNameOf(SymbolInfo symbol) {
-    String fqn = symbol.getFqName();
-    int lastDot = fqn.lastIndexOf('.');
-    int lastHash = fqn.lastIndexOf('#');
-    int lastSep = Math.max(lastDot, lastHash);
-    String name = fqn.substring(lastSep + 1);
-    int openParen = name.indexOf('(');
-    if (openParen > 0) {
-      name = name.substring(0, openParen);
+    private List<SymbolInfo> resolveMembers(String ownerFqn) {
+      Map<String, SymbolInfo> results = new LinkedHashMap<>();
+      synchronized (providers) {
+        for (SymbolProvider provider : providers) {
+          try {
+            for (SymbolInfo symbol : provider.membersOf(ownerFqn)) {
+              results.putIfAbsent(symbol.getFqName(), symbol);
+            }
+          } catch (RuntimeException e) {
+            LOG.log(
+                Level.WARNING, "Symbol provider failed while resolving members for " + ownerFqn, e);
+          }
+        }
+      }
+      return List.copyOf(results.values());
     }
-    if ("<init>".equals(name)) {
-      String container = symbol.getContainerFqName();
-      int containerLastDot = container.lastIndexOf('.');
-      return containerLastDot < 0 ? container : container.substring(containerLastDot + 1);
+
+    private List<String> resolveSupertypes(String typeFqn) {
+      LinkedHashSet<String> results = new LinkedHashSet<>();
+      synchronized (providers) {
+        for (SymbolProvider provider : providers) {
+          try {
+            results.addAll(provider.supertypesOf(typeFqn));
+          } catch (RuntimeException e) {
+            LOG.log(
+                Level.WARNING,
+                "Symbol provider failed while resolving supertypes for " + typeFqn,
+                e);
+          }
+        }
+      }
+      return List.copyOf(results);
     }
-    return name;
   }
 }
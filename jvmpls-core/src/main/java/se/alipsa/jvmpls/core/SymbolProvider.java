@@ -2,11 +2,14 @@ package se.alipsa.jvmpls.core;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import se.alipsa.jvmpls.core.model.Location;
 import se.alipsa.jvmpls.core.model.SymbolInfo;
 
 /** Lazy symbol source for external symbols such as dependency jars or the JDK. */
-public interface SymbolProvider {
+public interface SymbolProvider extends AutoCloseable {
   Optional<SymbolInfo> findByFqn(String fqn);
 
   List<SymbolInfo> findBySimpleName(String simpleName);
@@ -24,4 +27,67 @@ public interface SymbolProvider {
   default List<String> supertypesOf(String typeFqn) {
     return List.of();
   }
+
+  /** See {@link CoreQuery#annotatedWith(String)}. */
+  default List<SymbolInfo> annotatedWith(String annotationFqn) {
+    return List.of();
+  }
+
+  /**
+   * Whether the indexes behind {@link #annotatedWith(String)} and {@link
+   * #typesDeclaringMember(String)} are complete. Providers that build them in the background
+   * answer from the part built so far until then, and callers should not cache those answers.
+   */
+  default boolean isIndexComplete() {
+    return true;
+  }
+
+  /** See {@link CoreQuery#typesDeclaringMember(String)}. */
+  default List<String> typesDeclaringMember(String memberName) {
+    return List.of();
+  }
+
+  /** See {@link CoreQuery#memberNamesStartingWith(String, int)}. */
+  default List<String> memberNamesStartingWith(String prefix, int limit) {
+    return List.of();
+  }
+
+  /**
+   * Cheap pre-check for {@link #findByFqn(String)}: {@code false} means the provider definitely
+   * has no type named {@code fqn}. Providers without a name filter return {@code true}.
+   */
+  default boolean mightContain(String fqn) {
+    return true;
+  }
+
+  /**
+   * Location of {@code symbol}'s declaration in source, for symbols this provider created whose
+   * sources it can find. Empty otherwise, leaving the symbol's own location.
+   */
+  default Optional<Location> sourceLocation(SymbolInfo symbol) {
+    return Optional.empty();
+  }
+
+  /** Javadoc of {@code symbol} from its sources, see {@link #sourceLocation(SymbolInfo)}. */
+  default Optional<String> documentation(SymbolInfo symbol) {
+    return Optional.empty();
+  }
+
+  /**
+   * Returns a view that only serves symbols visible on {@code module}'s classpath. Providers that
+   * do not distinguish modules return themselves.
+   */
+  default SymbolProvider forModule(ModuleScope module) {
+    return this;
+  }
+
+  /**
+   * Registers a listener that receives the FQNs of types that were added, changed or removed after
+   * the provider was created, so callers can drop results they cached for them.
+   */
+  default void addChangeListener(Consumer<Set<String>> listener) {}
+
+  /** Releases background resources such as file watchers. */
+  @Override
+  default void close() {}
 }
@@ -3,10 +3,19 @@ package se.alipsa.jvmpls.core;
 import java.nio.file.Path;
 import java.util.List;
 
-/** Context passed to {@link SymbolProviderFactory} implementations. */
-public record SymbolProviderContext(List<String> classpathEntries, Path targetJdkHome) {
+/**
+ * Context passed to {@link SymbolProviderFactory} implementations. {@code classpathEntries} is the
+ * workspace-wide classpath; {@code modules} optionally narrows it per build module.
+ */
+public record SymbolProviderContext(
+    List<String> classpathEntries, Path targetJdkHome, List<ModuleScope> modules) {
 
   public SymbolProviderContext {
     classpathEntries = classpathEntries == null ? List.of() : List.copyOf(classpathEntries);
+    modules = modules == null ? List.of() : List.copyOf(modules);
+  }
+
+  public SymbolProviderContext(List<String> classpathEntries, Path targetJdkHome) {
+    this(classpathEntries, targetJdkHome, List.of());
   }
 }
@@ -24,6 +24,13 @@ public interface SymbolReporter {
 
   void reportAnnotation(String annotationFqn, Location loc);
 
+  /**
+   * Plugins call this between units of work of an index pass, such as classes. Throws {@link
+   * java.util.concurrent.CancellationException} once the pass has run out of time, so that a
+   * runaway analysis stops at the next unit; reporting a symbol checks the same.
+   */
+  default void checkpoint() {}
+
   default void reportMethod(
       String ownerClassFqn,
       String methodName,
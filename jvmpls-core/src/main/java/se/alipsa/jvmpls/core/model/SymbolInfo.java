@@ -3,6 +3,7 @@ package se.alipsa.jvmpls.core.model;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import se.alipsa.jvmpls.core.types.JvmType;
 import se.alipsa.jvmpls.core.types.MethodSignature;
@@ -20,13 +21,17 @@ public final class SymbolInfo {
   }
 
   private final String languageId; // plugin id(), e.g. "java"
-  private final Kind kind;
+  // null for a deferred type symbol until its details are loaded
+  private Kind kind;
   private final String fqName; // a.b.C#foo(int) or a.b.C.x
   private final String containerFqName;
   private final Location location;
-  private final String signature;
-  private final Set<String> modifiers;
-  private final List<String> typeParameters;
+  // kind, signature, modifiers and typeParameters are published by the volatile write of
+  // pendingDetails
+  private String signature;
+  private Set<String> modifiers;
+  private List<String> typeParameters;
+  private volatile Supplier<Details> pendingDetails;
   private final JvmType resolvedType;
   private final MethodSignature methodSignature;
   private final SyntheticOrigin syntheticOrigin;
@@ -110,14 +115,74 @@ public final class SymbolInfo {
         inferenceConfidence == null ? InferenceConfidence.DETERMINISTIC : inferenceConfidence;
   }
 
+  /**
+   * Creates a symbol whose signature, modifiers and type parameters are loaded on first access.
+   * Providers use this for external types where reading those details means reading a class file.
+   */
+  public static SymbolInfo deferred(
+      String languageId,
+      Kind kind,
+      String fqName,
+      String containerFqName,
+      Location location,
+      JvmType resolvedType,
+      Supplier<Details> details) {
+    SymbolInfo symbol =
+        new SymbolInfo(
+            languageId,
+            kind,
+            fqName,
+            containerFqName,
+            location,
+            null,
+            null,
+            null,
+            resolvedType,
+            null);
+    symbol.pendingDetails = Objects.requireNonNull(details, "details");
+    return symbol;
+  }
+
+  /**
+   * Creates a type symbol whose kind is loaded on first access together with its other details,
+   * for providers that list types without reading their class files. {@link #isType()} answers
+   * without loading.
+   */
+  public static SymbolInfo deferredType(
+      String languageId,
+      String fqName,
+      String containerFqName,
+      Location location,
+      JvmType resolvedType,
+      Supplier<Details> details) {
+    SymbolInfo symbol =
+        deferred(languageId, Kind.CLASS, fqName, containerFqName, location, resolvedType, details);
+    symbol.kind = null;
+    return symbol;
+  }
+
   public String getLanguageId() {
     return languageId;
   }
 
   public Kind getKind() {
+    if (kind == null) {
+      loadDetails();
+    }
     return kind;
   }
 
+  /** Whether this is a class, interface, enum or annotation type. */
+  public boolean isType() {
+    if (kind == null && pendingDetails != null) {
+      return true; // only types defer their kind
+    }
+    return switch (getKind()) {
+      case CLASS, INTERFACE, ENUM, ANNOTATION -> true;
+      default -> false;
+    };
+  }
+
   public String getFqName() {
     return fqName;
   }
@@ -131,14 +196,17 @@ public final class SymbolInfo {
   }
 
   public String getSignature() {
+    loadDetails();
     return signature;
   }
 
   public Set<String> getModifiers() {
+    loadDetails();
     return Set.copyOf(modifiers);
   }
 
   public List<String> getTypeParameters() {
+    loadDetails();
     return List.copyOf(typeParameters);
   }
 
@@ -157,4 +225,44 @@ public final class SymbolInfo {
   public InferenceConfidence getInferenceConfidence() {
     return inferenceConfidence;
   }
+
+  private void loadDetails() {
+    if (pendingDetails == null) {
+      return;
+    }
+    synchronized (this) {
+      Supplier<Details> pending = pendingDetails;
+      if (pending == null) {
+        return;
+      }
+      Details details = pending.get();
+      if (kind == null) {
+        kind = details == null || details.kind() == null ? Kind.CLASS : details.kind();
+      }
+      if (details == null) {
+        // the class file could not be read
+        signature = "";
+        modifiers = Set.of();
+        typeParameters = List.of();
+      } else {
+        signature = details.signature() == null ? "" : details.signature();
+        modifiers = details.modifiers() == null ? Set.of() : Set.copyOf(details.modifiers());
+        typeParameters =
+            details.typeParameters() == null ? List.of() : List.copyOf(details.typeParameters());
+      }
+      pendingDetails = null;
+    }
+  }
+
+  /**
+   * Lazily loaded part of a {@link #deferred} symbol. {@code kind} is only read for symbols from
+   * {@link #deferredType} and may be null otherwise.
+   */
+  public record Details(
+      String signature, Set<String> modifiers, List<String> typeParameters, Kind kind) {
+
+    public Details(String signature, Set<String> modifiers, List<String> typeParameters) {
+      this(signature, modifiers, typeParameters, null);
+    }
+  }
 }
@@ -10,5 +10,6 @@ public enum SyntheticOrigin {
   CATEGORY,
   MIXIN,
   METHOD_MISSING,
-  PROPERTY_MISSING
+  PROPERTY_MISSING,
+  EXTENSION
 }
@@ -1,13 +1,16 @@
 package se.alipsa.jvmpls.core.server;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.ServiceLoader;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
 
 import se.alipsa.jvmpls.core.*;
 import se.alipsa.jvmpls.core.model.*;
@@ -20,15 +23,21 @@ public final class CoreServer implements CoreFacade, AutoCloseable {
 
   private final CoreEngine engine;
   private final DiagnosticsPublisher publisher;
+  private final List<SymbolProvider> providers;
 
   // for lifecycle management if we created the executor
   private final Executor executor;
   private final boolean ownsExecutor;
 
   private CoreServer(
-      CoreEngine engine, DiagnosticsPublisher publisher, Executor executor, boolean ownsExecutor) {
+      CoreEngine engine,
+      DiagnosticsPublisher publisher,
+      List<SymbolProvider> providers,
+      Executor executor,
+      boolean ownsExecutor) {
     this.engine = Objects.requireNonNull(engine);
     this.publisher = Objects.requireNonNullElse(publisher, DiagnosticsPublisher.NO_OP);
+    this.providers = List.copyOf(providers);
     this.executor = executor;
     this.ownsExecutor = ownsExecutor;
   }
@@ -43,18 +52,43 @@ public final class CoreServer implements CoreFacade, AutoCloseable {
    */
   public static CoreServer createDefault(
       DiagnosticsPublisher publisher, List<String> classpath, Path targetJdkHome) {
+    return createDefault(publisher, classpath, targetJdkHome, List.of());
+  }
+
+  /**
+   * Build a CoreServer for a multi-module workspace. {@code classpath} is the union of all module
+   * classpaths; completions and definitions in a module's source files only see its own entries.
+   */
+  public static CoreServer createDefault(
+      DiagnosticsPublisher publisher,
+      List<String> classpath,
+      Path targetJdkHome,
+      List<ModuleScope> modules) {
+    return createDefault(publisher, classpath, targetJdkHome, modules, AnalysisBudget.DEFAULT);
+  }
+
+  /** Build a CoreServer for a multi-module workspace whose files are analyzed within budget. */
+  public static CoreServer createDefault(
+      DiagnosticsPublisher publisher,
+      List<String> classpath,
+      Path targetJdkHome,
+      List<ModuleScope> modules,
+      AnalysisBudget budget) {
     SymbolIndex index = new SymbolIndex();
     DocumentStore docs = new DocumentStore();
     DependencyGraph graph = new DependencyGraph();
     Executor executor = Executors.newVirtualThreadPerTaskExecutor();
     boolean owns = true;
 
-    registerExternalProviders(index, classpath, targetJdkHome);
+    List<SymbolProvider> providers =
+        registerExternalProviders(
+            index, new SymbolProviderContext(classpath, targetJdkHome, modules));
     PluginEnvironment env = new DefaultPluginEnvironment(index, executor, classpath);
     PluginRegistry registry = new PluginRegistry(env);
 
-    CoreEngine engine = new CoreEngine(registry, index, docs, graph, executor);
-    return new CoreServer(engine, publisher, executor, owns);
+    CoreEngine engine =
+        new CoreEngine(registry, index, docs, graph, executor, published(publisher), budget);
+    return new CoreServer(engine, publisher, providers, executor, owns);
   }
 
   /**
@@ -79,9 +113,11 @@ public final class CoreServer implements CoreFacade, AutoCloseable {
       List<String> classpath,
       Path targetJdkHome,
       DiagnosticsPublisher publisher) {
-    registerExternalProviders(index, classpath, targetJdkHome);
-    CoreEngine engine = new CoreEngine(registry, index, docs, graph, executor);
-    return new CoreServer(engine, publisher, executor, false);
+    List<SymbolProvider> providers =
+        registerExternalProviders(index, new SymbolProviderContext(classpath, targetJdkHome));
+    CoreEngine engine =
+        new CoreEngine(registry, index, docs, graph, executor, published(publisher));
+    return new CoreServer(engine, publisher, providers, executor, false);
   }
 
   // --- CoreFacade (delegates + publishes diagnostics) -------------------------------------------
@@ -93,6 +129,13 @@ public final class CoreServer implements CoreFacade, AutoCloseable {
     return diags;
   }
 
+  @Override
+  public Map<String, List<Diagnostic>> openFiles(Map<String, String> textsByUri) {
+    Map<String, List<Diagnostic>> diags = engine.openFiles(textsByUri);
+    diags.forEach(publisher::publish);
+    return diags;
+  }
+
   @Override
   public List<Diagnostic> changeFile(String uri, String text) {
     List<Diagnostic> diags = engine.changeFile(uri, text);
@@ -100,6 +143,13 @@ public final class CoreServer implements CoreFacade, AutoCloseable {
     return diags;
   }
 
+  @Override
+  public Optional<List<Diagnostic>> saveFile(String uri) {
+    Optional<List<Diagnostic>> diags = engine.saveFile(uri);
+    diags.ifPresent(saved -> publisher.publish(uri, saved));
+    return diags;
+  }
+
   @Override
   public void closeFile(String uri) {
     engine.closeFile(uri);
@@ -127,20 +177,30 @@ public final class CoreServer implements CoreFacade, AutoCloseable {
 
   @Override
   public void close() {
+    providers.forEach(SymbolProvider::close);
     if (ownsExecutor && executor instanceof ExecutorService es) {
       es.shutdown();
     }
   }
 
-  private static void registerExternalProviders(
-      SymbolIndex index, List<String> classpath, Path targetJdkHome) {
-    SymbolProviderContext context = new SymbolProviderContext(classpath, targetJdkHome);
+  private static List<SymbolProvider> registerExternalProviders(
+      SymbolIndex index, SymbolProviderContext context) {
+    if (!context.modules().isEmpty()) {
+      index.registerModules(context.modules());
+    }
     ServiceLoader<SymbolProviderFactory> loader = ServiceLoader.load(SymbolProviderFactory.class);
+    List<SymbolProvider> registered = new ArrayList<>();
     for (SymbolProviderFactory factory : loader) {
       for (SymbolProvider provider : factory.createProviders(context)) {
         index.registerProvider(provider);
+        registered.add(provider);
       }
     }
+    return registered;
+  }
+
+  private static BiConsumer<String, List<Diagnostic>> published(DiagnosticsPublisher publisher) {
+    return Objects.requireNonNullElse(publisher, DiagnosticsPublisher.NO_OP)::publish;
   }
 
   private static Path currentJdkHome() {
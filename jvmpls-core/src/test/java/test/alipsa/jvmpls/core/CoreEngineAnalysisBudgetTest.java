@@ -0,0 +1,240 @@
+package test.alipsa.jvmpls.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import se.alipsa.jvmpls.core.AnalysisBudget;
+import se.alipsa.jvmpls.core.CoreEngine;
+import se.alipsa.jvmpls.core.CoreQuery;
+import se.alipsa.jvmpls.core.DependencyGraph;
+import se.alipsa.jvmpls.core.DocumentStore;
+import se.alipsa.jvmpls.core.JvmLangPlugin;
+import se.alipsa.jvmpls.core.PluginEnvironment;
+import se.alipsa.jvmpls.core.PluginRegistry;
+import se.alipsa.jvmpls.core.SymbolIndex;
+import se.alipsa.jvmpls.core.SymbolReporter;
+import se.alipsa.jvmpls.core.model.Diagnostic;
+import se.alipsa.jvmpls.core.model.Location;
+import se.alipsa.jvmpls.core.model.Position;
+import se.alipsa.jvmpls.core.model.Range;
+
+class CoreEngineAnalysisBudgetTest {
+  private static final String URI = "file:///work/Generated.budget";
+
+  @Test
+  void large_files_are_indexed_by_declarations_and_only_again_on_save() {
+    BudgetPlugin plugin = new BudgetPlugin();
+    SymbolIndex index = new SymbolIndex();
+    CoreEngine engine = engine(plugin, index, new AnalysisBudget(10, 60_000));
+
+    List<Diagnostic> opened = engine.openFile(URI, "a".repeat(11));
+    assertEquals(List.of("declarations:11", "degraded"), codes(opened));
+    assertTrue(index.findByFqn("demo.Generated").isPresent());
+    assertEquals(List.of("declarations:11"), plugin.calls);
+
+    assertEquals(opened, engine.changeFile(URI, "small"));
+    assertEquals(List.of("declarations:11"), plugin.calls, "edits wait for a save");
+
+    assertEquals(
+        Optional.of(List.of("index:small", "semantic")), engine.saveFile(URI).map(this::codes));
+    assertEquals(Optional.empty(), engine.saveFile(URI), "files in budget are not reindexed");
+  }
+
+  @Test
+  void passes_running_out_of_time_are_stopped_and_redone_by_declarations() {
+    BudgetPlugin plugin = new BudgetPlugin();
+    plugin.runaway = true;
+    SymbolIndex index = new SymbolIndex();
+    CoreEngine engine = engine(plugin, index, new AnalysisBudget(1_000, 50));
+
+    List<String> opened = codes(engine.openFile(URI, "slow"));
+
+    assertEquals(List.of("declarations:4", "degraded"), opened);
+    assertTrue(plugin.stopped, "the runaway pass should be stopped at a checkpoint");
+    assertTrue(index.findByFqn("demo.Partial").isEmpty(), "symbols of a stopped pass are removed");
+    assertTrue(index.findByFqn("demo.Generated").isPresent());
+  }
+
+  @Test
+  void batch_passes_running_out_of_time_are_redone_by_declarations() {
+    BudgetPlugin plugin = new BudgetPlugin();
+    plugin.runaway = true;
+    SymbolIndex index = new SymbolIndex();
+    CoreEngine engine = engine(plugin, index, new AnalysisBudget(1_000, 50));
+
+    Map<String, List<Diagnostic>> opened = engine.openFiles(Map.of(URI, "slow"));
+
+    assertEquals(List.of("declarations:4", "degraded"), codes(opened.get(URI)));
+    assertTrue(index.findByFqn("demo.Partial").isEmpty(), "symbols of a stopped pass are removed");
+  }
+
+  @Test
+  void semantic_checks_running_out_of_time_degrade_the_file() {
+    BudgetPlugin plugin = new BudgetPlugin();
+    plugin.runawayChecks = true;
+    CoreEngine engine = engine(plugin, new SymbolIndex(), new AnalysisBudget(1_000, 50));
+
+    List<Diagnostic> opened = engine.openFile(URI, "slow");
+
+    assertEquals(List.of("index:slow", "degraded"), codes(opened));
+    assertTrue(plugin.stopped, "the runaway check should be stopped at a checkpoint");
+    assertEquals(opened, engine.changeFile(URI, "slower"));
+  }
+
+  @Test
+  void semantic_checks_overtaken_by_a_newer_pass_do_not_degrade_the_file() throws Exception {
+    BudgetPlugin plugin = new BudgetPlugin();
+    SymbolIndex index = new SymbolIndex();
+    BlockingQueue<Runnable> checks = new LinkedBlockingQueue<>();
+    List<List<String>> published = new CopyOnWriteArrayList<>();
+    PluginRegistry registry = new PluginRegistry(environment(index, checks::add));
+    registry.register(plugin);
+    CoreEngine engine =
+        new CoreEngine(
+            registry,
+            index,
+            new DocumentStore(),
+            new DependencyGraph(),
+            checks::add,
+            (uri, diagnostics) -> published.add(codes(diagnostics)),
+            new AnalysisBudget(1_000, 50));
+
+    engine.openFile(URI, "first");
+    engine.changeFile(URI, "second");
+    Runnable check = checks.poll(5, TimeUnit.SECONDS);
+    assertNotNull(check, "the change should schedule a settled check");
+    plugin.runawayChecks = true;
+    plugin.duringChecks = () -> engine.changeFile(URI, "third");
+    check.run();
+
+    assertTrue(plugin.stopped, "the runaway check should be stopped at a checkpoint");
+    assertEquals(List.of(), published, "an overtaken check is not published");
+    assertEquals(Optional.empty(), engine.saveFile(URI), "an overtaken check does not degrade");
+  }
+
+  private List<String> codes(List<Diagnostic> diagnostics) {
+    return diagnostics.stream().map(Diagnostic::getCode).toList();
+  }
+
+  private static CoreEngine engine(JvmLangPlugin plugin, SymbolIndex index, AnalysisBudget budget) {
+    Executor executor = Runnable::run;
+    PluginRegistry registry = new PluginRegistry(environment(index, executor));
+    registry.register(plugin);
+    return new CoreEngine(
+        registry, index, new DocumentStore(), new DependencyGraph(), executor, null, budget);
+  }
+
+  private static PluginEnvironment environment(CoreQuery core, Executor executor) {
+    return new PluginEnvironment() {
+      @Override
+      public CoreQuery core() {
+        return core;
+      }
+
+      @Override
+      public Executor executor() {
+        return executor;
+      }
+
+      @Override
+      public List<String> classpath() {
+        return List.of();
+      }
+
+      @Override
+      public void log(String level, String message, Throwable t) {}
+    };
+  }
+
+  /** Records how each file was indexed; a runaway index keeps reporting until stopped. */
+  private static final class BudgetPlugin implements JvmLangPlugin {
+    final List<String> calls = new ArrayList<>();
+    volatile boolean runaway;
+    volatile boolean runawayChecks;
+    volatile Runnable duringChecks;
+    volatile boolean stopped;
+
+    @Override
+    public String id() {
+      return "budget";
+    }
+
+    @Override
+    public Set<String> fileExtensions() {
+      return Set.of("budget");
+    }
+
+    @Override
+    public List<Diagnostic> index(String fileUri, String content, SymbolReporter reporter) {
+      calls.add("index:" + content);
+      if (runaway) {
+        reporter.reportClass("demo.Partial", location(fileUri), false, false, false);
+        try {
+          while (true) {
+            reporter.checkpoint();
+            Thread.onSpinWait();
+          }
+        } finally {
+          stopped = true;
+        }
+      }
+      return List.of(diagnostic("index:" + content));
+    }
+
+    @Override
+    public List<Diagnostic> indexDeclarations(
+        String fileUri, String content, SymbolReporter reporter) {
+      calls.add("declarations:" + content.length());
+      reporter.reportClass("demo.Generated", location(fileUri), false, false, false);
+      return List.of(diagnostic("declarations:" + content.length()));
+    }
+
+    @Override
+    public List<Diagnostic> checkSemantics(String fileUri) {
+      return List.of(diagnostic("semantic"));
+    }
+
+    @Override
+    public List<Diagnostic> checkSemantics(String fileUri, Runnable checkpoint) {
+      if (runawayChecks) {
+        if (duringChecks != null) {
+          duringChecks.run();
+        }
+        try {
+          while (true) {
+            checkpoint.run();
+            Thread.onSpinWait();
+          }
+        } finally {
+          stopped = true;
+        }
+      }
+      return checkSemantics(fileUri);
+    }
+
+    private static Location location(String fileUri) {
+      return new Location(fileUri, new Range(new Position(0, 0), new Position(0, 1)));
+    }
+
+    private static Diagnostic diagnostic(String code) {
+      return new Diagnostic(
+          new Range(new Position(0, 0), new Position(0, 1)),
+          code,
+          Diagnostic.Severity.INFORMATION,
+          "budget",
+          code);
+    }
+  }
+}
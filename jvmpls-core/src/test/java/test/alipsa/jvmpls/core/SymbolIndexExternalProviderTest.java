@@ -1,15 +1,25 @@
 package test.alipsa.jvmpls.core;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.Test;
 
+import se.alipsa.jvmpls.core.CoreQuery;
+import se.alipsa.jvmpls.core.FqnBloomFilter;
+import se.alipsa.jvmpls.core.ModuleScope;
 import se.alipsa.jvmpls.core.SymbolIndex;
 import se.alipsa.jvmpls.core.SymbolProvider;
 import se.alipsa.jvmpls.core.model.Location;
@@ -153,6 +163,315 @@ class SymbolIndexExternalProviderTest {
     assertEquals(1, memberLookups.get(), "provider member lookup should be cached");
   }
 
+  @Test
+  void dropsCachedProviderResultsWhenProviderReportsChangedTypes() {
+    SymbolIndex index = new SymbolIndex();
+    Set<String> available = new HashSet<>();
+    AtomicReference<Consumer<Set<String>>> listener = new AtomicReference<>();
+    index.registerProvider(
+        new SymbolProvider() {
+          @Override
+          public Optional<SymbolInfo> findByFqn(String fqn) {
+            return available.contains(fqn) ? Optional.of(symbol(fqn)) : Optional.empty();
+          }
+
+          @Override
+          public List<SymbolInfo> findBySimpleName(String simpleName) {
+            return available.stream()
+                .filter(fqn -> fqn.endsWith("." + simpleName))
+                .map(SymbolIndexExternalProviderTest::symbol)
+                .toList();
+          }
+
+          @Override
+          public List<SymbolInfo> allInPackage(String pkgFqn) {
+            return available.stream().map(SymbolIndexExternalProviderTest::symbol).toList();
+          }
+
+          @Override
+          public void addChangeListener(Consumer<Set<String>> changeListener) {
+            listener.set(changeListener);
+          }
+        });
+
+    assertTrue(index.findByFqn("demo.Added").isEmpty());
+    assertTrue(index.findBySimpleName("Added").isEmpty());
+    assertTrue(index.allInPackage("demo").isEmpty());
+
+    available.add("demo.Added");
+    listener.get().accept(Set.of("demo.Added"));
+
+    assertTrue(index.findByFqn("demo.Added").isPresent());
+    assertEquals(1, index.findBySimpleName("Added").size());
+    assertEquals(1, index.allInPackage("demo").size());
+  }
+
+  @Test
+  void membersVersionChangesWhenTheMembersOfTheOwnerMayHaveChanged() {
+    SymbolIndex index = new SymbolIndex();
+    index.put("file:///Repo.groovy", method("demo.Repo", "find"));
+    index.put("file:///Other.groovy", method("demo.Other", "run"));
+    long repo = index.membersVersion("demo.Repo");
+    long other = index.membersVersion("demo.Other");
+
+    index.put("file:///Repo.groovy", method("demo.Repo", "save"));
+    assertTrue(index.membersVersion("demo.Repo") > repo);
+    assertEquals(other, index.membersVersion("demo.Other"));
+
+    repo = index.membersVersion("demo.Repo");
+    index.removeFile("file:///Repo.groovy");
+    assertTrue(index.membersVersion("demo.Repo") > repo);
+    assertEquals(other, index.membersVersion("demo.Other"));
+
+    // provider members include inherited ones, so a provider change affects every owner
+    AtomicReference<Consumer<Set<String>>> listener = new AtomicReference<>();
+    index.registerProvider(
+        new SymbolProvider() {
+          @Override
+          public Optional<SymbolInfo> findByFqn(String fqn) {
+            return Optional.empty();
+          }
+
+          @Override
+          public List<SymbolInfo> findBySimpleName(String simpleName) {
+            return List.of();
+          }
+
+          @Override
+          public List<SymbolInfo> allInPackage(String pkgFqn) {
+            return List.of();
+          }
+
+          @Override
+          public void addChangeListener(Consumer<Set<String>> changeListener) {
+            listener.set(changeListener);
+          }
+        });
+    other = index.membersVersion("demo.Other");
+    listener.get().accept(Set.of("lib.Base"));
+    assertTrue(index.membersVersion("demo.Other") > other);
+  }
+
+  @Test
+  void filesUnderAModuleSourceRootQueryThatModulesProviderView() {
+    SymbolIndex index = new SymbolIndex();
+    ModuleScope app = new ModuleScope("app", List.of(Path.of("/ws/app/src")), List.of("app.jar"));
+    index.registerProvider(
+        new SymbolProvider() {
+          @Override
+          public Optional<SymbolInfo> findByFqn(String fqn) {
+            return Optional.of(symbol(fqn));
+          }
+
+          @Override
+          public List<SymbolInfo> findBySimpleName(String simpleName) {
+            return List.of();
+          }
+
+          @Override
+          public List<SymbolInfo> allInPackage(String pkgFqn) {
+            return List.of();
+          }
+
+          @Override
+          public SymbolProvider forModule(ModuleScope module) {
+            SymbolProvider workspace = this;
+            return new SymbolProvider() {
+              @Override
+              public Optional<SymbolInfo> findByFqn(String fqn) {
+                return fqn.startsWith("app.") ? workspace.findByFqn(fqn) : Optional.empty();
+              }
+
+              @Override
+              public List<SymbolInfo> findBySimpleName(String simpleName) {
+                return List.of();
+              }
+
+              @Override
+              public List<SymbolInfo> allInPackage(String pkgFqn) {
+                return List.of();
+              }
+            };
+          }
+        });
+    index.registerModules(List.of(app));
+
+    CoreQuery inApp = index.queryFor(Path.of("/ws/app/src/demo/Main.java").toUri().toString());
+    CoreQuery elsewhere = index.queryFor(Path.of("/ws/other/Main.java").toUri().toString());
+
+    assertTrue(inApp.findByFqn("app.Service").isPresent());
+    assertTrue(inApp.findByFqn("lib.Other").isEmpty());
+    assertSame(index, elsewhere);
+    assertTrue(elsewhere.findByFqn("lib.Other").isPresent());
+  }
+
+  @Test
+  void answersMissesRuledOutByProviderNameFilterWithoutLookup() {
+    SymbolIndex index = new SymbolIndex();
+    FqnBloomFilter names = new FqnBloomFilter(16);
+    names.add("java.util.List");
+    AtomicInteger fqnLookups = new AtomicInteger();
+    index.registerProvider(
+        new SymbolProvider() {
+          @Override
+          public boolean mightContain(String fqn) {
+            return names.mightContain(fqn);
+          }
+
+          @Override
+          public Optional<SymbolInfo> findByFqn(String fqn) {
+            fqnLookups.incrementAndGet();
+            return "java.util.List".equals(fqn) ? Optional.of(symbol(fqn)) : Optional.empty();
+          }
+
+          @Override
+          public List<SymbolInfo> findBySimpleName(String simpleName) {
+            return List.of();
+          }
+
+          @Override
+          public List<SymbolInfo> allInPackage(String pkgFqn) {
+            return List.of();
+          }
+        });
+    index.put("file:///Local.java", symbol("demo.Local"));
+
+    for (int i = 0; i < 100; i++) {
+      assertTrue(index.findByFqn("demo.Missing" + i).isEmpty());
+    }
+    assertTrue(index.findByFqn("demo.Local").isPresent());
+    assertTrue(index.findByFqn("java.util.List").isPresent());
+    assertTrue(fqnLookups.get() <= 2, "misses should not reach the provider: " + fqnLookups);
+  }
+
+  @Test
+  void findsEverySourceSymbolAfterTheNameFilterGrows() {
+    SymbolIndex index = new SymbolIndex();
+    for (int i = 0; i < 5000; i++) {
+      index.put("file:///Type" + i + ".java", symbol("demo.Type" + i));
+    }
+    index.removeFile("file:///Type7.java");
+
+    for (int i = 0; i < 5000; i++) {
+      assertEquals(i != 7, index.findByFqn("demo.Type" + i).isPresent(), "demo.Type" + i);
+    }
+  }
+
+  @Test
+  void listsTypesDeclaringAMemberFromSourcesAndProviders() {
+    SymbolIndex index = new SymbolIndex();
+    index.put("file:///Repo.groovy", method("demo.Repo", "withTransaction"));
+    index.put("file:///Repo.groovy", method("demo.Repo", "withTimeout"));
+    index.registerProvider(
+        new SymbolProvider() {
+          @Override
+          public Optional<SymbolInfo> findByFqn(String fqn) {
+            return Optional.empty();
+          }
+
+          @Override
+          public List<SymbolInfo> findBySimpleName(String simpleName) {
+            return List.of();
+          }
+
+          @Override
+          public List<SymbolInfo> allInPackage(String pkgFqn) {
+            return List.of();
+          }
+
+          @Override
+          public List<String> typesDeclaringMember(String memberName) {
+            return "withTransaction".equals(memberName) ? List.of("lib.Session") : List.of();
+          }
+
+          @Override
+          public List<String> memberNamesStartingWith(String prefix, int limit) {
+            return "withTransaction".startsWith(prefix) ? List.of("withTransaction") : List.of();
+          }
+        });
+
+    assertEquals(
+        List.of("demo.Repo", "lib.Session"), index.typesDeclaringMember("withTransaction"));
+    assertEquals(
+        List.of("withTimeout", "withTransaction"), index.memberNamesStartingWith("with", 5));
+    assertEquals(List.of("withTimeout"), index.memberNamesStartingWith("with", 1));
+
+    index.removeFile("file:///Repo.groovy");
+
+    assertEquals(List.of("lib.Session"), index.typesDeclaringMember("withTransaction"));
+    assertEquals(List.of("withTransaction"), index.memberNamesStartingWith("with", 5));
+  }
+
+  @Test
+  void keepsIndexLookupsOnlyOnceTheProviderIndexIsComplete() {
+    SymbolIndex index = new SymbolIndex();
+    AtomicBoolean complete = new AtomicBoolean();
+    AtomicInteger lookups = new AtomicInteger();
+    List<SymbolInfo> annotated = new ArrayList<>(List.of(symbol("lib.First")));
+    List<String> declaring = new ArrayList<>(List.of("lib.First"));
+    index.registerProvider(
+        new SymbolProvider() {
+          @Override
+          public Optional<SymbolInfo> findByFqn(String fqn) {
+            return Optional.empty();
+          }
+
+          @Override
+          public List<SymbolInfo> findBySimpleName(String simpleName) {
+            return List.of();
+          }
+
+          @Override
+          public List<SymbolInfo> allInPackage(String pkgFqn) {
+            return List.of();
+          }
+
+          @Override
+          public List<SymbolInfo> annotatedWith(String annotationFqn) {
+            lookups.incrementAndGet();
+            return List.copyOf(annotated);
+          }
+
+          @Override
+          public List<String> typesDeclaringMember(String memberName) {
+            lookups.incrementAndGet();
+            return List.copyOf(declaring);
+          }
+
+          @Override
+          public boolean isIndexComplete() {
+            return complete.get();
+          }
+        });
+
+    assertEquals(1, index.annotatedWith("lib.Marker").size());
+    assertEquals(List.of("lib.First"), index.typesDeclaringMember("run"));
+    annotated.add(symbol("lib.Second"));
+    declaring.add("lib.Second");
+    assertEquals(2, index.annotatedWith("lib.Marker").size());
+    assertEquals(List.of("lib.First", "lib.Second"), index.typesDeclaringMember("run"));
+
+    complete.set(true);
+    lookups.set(0);
+    index.annotatedWith("lib.Marker");
+    index.annotatedWith("lib.Marker");
+    index.typesDeclaringMember("run");
+    index.typesDeclaringMember("run");
+    assertEquals(2, lookups.get(), "complete answers should be cached");
+  }
+
+  private static SymbolInfo method(String ownerFqn, String name) {
+    return new SymbolInfo(
+        "groovy",
+        SymbolInfo.Kind.METHOD,
+        ownerFqn + "#" + name + "()",
+        ownerFqn,
+        new Location("file:///Repo.groovy", new Range(new Position(0, 0), new Position(0, 1))),
+        "()",
+        Set.of("public"),
+        List.of());
+  }
+
   private static SymbolInfo symbol(String fqn) {
     return new SymbolInfo(
         "binary",
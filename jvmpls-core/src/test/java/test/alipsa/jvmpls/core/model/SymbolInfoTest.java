@@ -0,0 +1,38 @@
+package test.alipsa.jvmpls.core.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import se.alipsa.jvmpls.core.model.SymbolInfo;
+
+class SymbolInfoTest {
+
+  @Test
+  void deferred_details_default_to_empty_when_they_cannot_be_loaded() {
+    AtomicInteger loads = new AtomicInteger();
+    SymbolInfo type =
+        SymbolInfo.deferredType(
+            "java",
+            "lib.Broken",
+            "lib",
+            null,
+            null,
+            () -> {
+              loads.incrementAndGet();
+              return null;
+            });
+
+    assertTrue(type.isType());
+    assertEquals(SymbolInfo.Kind.CLASS, type.getKind());
+    assertEquals("", type.getSignature());
+    assertEquals(Set.of(), type.getModifiers());
+    assertEquals(List.of(), type.getTypeParameters());
+    assertEquals(1, loads.get(), "details should be loaded once");
+  }
+}
@@ -0,0 +1,136 @@
+package test.alipsa.jvmpls.core.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import se.alipsa.jvmpls.core.CoreQuery;
+import se.alipsa.jvmpls.core.DependencyGraph;
+import se.alipsa.jvmpls.core.DocumentStore;
+import se.alipsa.jvmpls.core.JvmLangPlugin;
+import se.alipsa.jvmpls.core.PluginEnvironment;
+import se.alipsa.jvmpls.core.PluginRegistry;
+import se.alipsa.jvmpls.core.SymbolIndex;
+import se.alipsa.jvmpls.core.SymbolReporter;
+import se.alipsa.jvmpls.core.model.Diagnostic;
+import se.alipsa.jvmpls.core.model.Position;
+import se.alipsa.jvmpls.core.model.Range;
+import se.alipsa.jvmpls.core.server.CoreServer;
+
+class CoreServerSemanticTierTest {
+  private static final String URI = "file:///work/Notes.tier";
+
+  @Test
+  void changes_keep_the_last_semantic_diagnostics_until_the_settled_check_replaces_them()
+      throws Exception {
+    TieredPlugin plugin = new TieredPlugin();
+    Map<String, List<String>> published = new ConcurrentHashMap<>();
+    CountDownLatch settled = new CountDownLatch(1);
+    ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    SymbolIndex index = new SymbolIndex();
+    PluginRegistry registry = new PluginRegistry(environment(index, executor));
+    registry.register(plugin);
+
+    try (CoreServer server =
+        CoreServer.create(
+            registry,
+            index,
+            new DocumentStore(),
+            new DependencyGraph(),
+            executor,
+            (uri, diagnostics) -> {
+              List<String> codes = codes(diagnostics);
+              published.put(uri, codes);
+              if (codes.contains("semantic:third")) {
+                settled.countDown();
+              }
+            })) {
+      assertEquals(List.of("index:first", "semantic:first"), codes(server.openFile(URI, "first")));
+
+      assertEquals(
+          List.of("index:second", "semantic:first"), codes(server.changeFile(URI, "second")));
+      assertEquals(
+          List.of("index:third", "semantic:first"), codes(server.changeFile(URI, "third")));
+
+      assertTrue(settled.await(5, TimeUnit.SECONDS), "semantic checks should run once settled");
+      assertEquals(List.of("index:third", "semantic:third"), published.get(URI));
+      assertFalse(plugin.checked.contains("second"), "superseded text should not be checked");
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static List<String> codes(List<Diagnostic> diagnostics) {
+    return diagnostics.stream().map(Diagnostic::getCode).toList();
+  }
+
+  private static PluginEnvironment environment(CoreQuery core, Executor executor) {
+    return new PluginEnvironment() {
+      @Override
+      public CoreQuery core() {
+        return core;
+      }
+
+      @Override
+      public Executor executor() {
+        return executor;
+      }
+
+      @Override
+      public List<String> classpath() {
+        return List.of();
+      }
+
+      @Override
+      public void log(String level, String message, Throwable t) {}
+    };
+  }
+
+  /** Reports the indexed text in a diagnostic code of each tier. */
+  private static final class TieredPlugin implements JvmLangPlugin {
+    private final Map<String, String> textByUri = new ConcurrentHashMap<>();
+    final Set<String> checked = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public String id() {
+      return "tier";
+    }
+
+    @Override
+    public Set<String> fileExtensions() {
+      return Set.of("tier");
+    }
+
+    @Override
+    public List<Diagnostic> index(String fileUri, String content, SymbolReporter reporter) {
+      textByUri.put(fileUri, content);
+      return List.of(diagnostic("index:" + content));
+    }
+
+    @Override
+    public List<Diagnostic> checkSemantics(String fileUri) {
+      String text = textByUri.get(fileUri);
+      checked.add(text);
+      return List.of(diagnostic("semantic:" + text));
+    }
+
+    private static Diagnostic diagnostic(String code) {
+      return new Diagnostic(
+          new Range(new Position(0, 0), new Position(0, 1)),
+          code,
+          Diagnostic.Severity.INFORMATION,
+          "tier",
+          code);
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package test.alipsa.jvmpls.groovy;
+
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilePhase;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.ErrorCollector;
+import org.codehaus.groovy.control.SourceUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import se.alipsa.jvmpls.core.SymbolReporter;
+import se.alipsa.jvmpls.core.model.Location;
+import se.alipsa.jvmpls.groovy.GroovyPlugin;
+
+import groovy.lang.GroovyClassLoader;
+
+/**
+ * Per-call latency of parsing a 300-line Groovy file. Run with {@code -prof gc} for allocation.
+ *
+ * <p>{@code index} is the plugin's path. {@code parseWithCompilationUnit} is the previous per-call
+ * setup, which {@code AstBuilder.buildFromString} performs: a compilation unit with its own class
+ * loader, compiled to the conversion phase. {@code parseWithSourceUnit} parses through a source
+ * unit with a shared configuration and class loader, as the plugin now does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroovyParseBenchmark {
+  private static final String FILE_URI = "file:///bench/demo/Orders.groovy";
+
+  private GroovyPlugin plugin;
+  private CompilerConfiguration config;
+  private GroovyClassLoader sharedClassLoader;
+  private String source;
+
+  @Setup
+  public void setUp() {
+    plugin = new GroovyPlugin();
+    config = new CompilerConfiguration();
+    sharedClassLoader = new GroovyClassLoader(getClass().getClassLoader(), config);
+    source = sourceOfLines(300);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    sharedClassLoader.close();
+  }
+
+  @Benchmark
+  public void index(Blackhole blackhole) {
+    blackhole.consume(plugin.index(FILE_URI, source, new CountingReporter(blackhole)));
+  }
+
+  @Benchmark
+  public void parseWithCompilationUnit(Blackhole blackhole) throws Exception {
+    try (GroovyClassLoader loader = new GroovyClassLoader()) {
+      CompilationUnit unit = new CompilationUnit(CompilerConfiguration.DEFAULT, null, loader);
+      unit.addSource("Script" + System.nanoTime() + ".groovy", source);
+      unit.compile(CompilePhase.CONVERSION.getPhaseNumber());
+      unit.getAST().getModules().forEach(module -> blackhole.consume(module.getClasses()));
+    }
+  }
+
+  @Benchmark
+  public void parseWithSourceUnit(Blackhole blackhole) {
+    SourceUnit unit =
+        new SourceUnit(FILE_URI, source, config, sharedClassLoader, new ErrorCollector(config));
+    unit.parse();
+    unit.completePhase();
+    unit.convert();
+    ModuleNode module = unit.getAST();
+    blackhole.consume(module.getClasses());
+  }
+
+  /** A class with properties and small methods, padded to {@code lines} lines. */
+  static String sourceOfLines(int lines) {
+    StringBuilder out = new StringBuilder();
+    out.append("package demo\n\n")
+        .append("import groovy.transform.CompileStatic\n\n")
+        .append("@CompileStatic\n")
+        .append("class Orders {\n");
+    int written = 6;
+    for (int i = 0; written + 7 < lines; i++) {
+      out.append(
+          """
+            List<String> items%1$d = []
+
+            int total%1$d(Map<String, Integer> prices) {
+              int sum = 0
+              items%1$d.each { sum += prices[it] }
+              sum
+            }
+          """
+              .formatted(i));
+      written += 7;
+    }
+    while (written < lines - 1) {
+      out.append('\n');
+      written++;
+    }
+    return out.append("}\n").toString();
+  }
+
+  private record CountingReporter(Blackhole blackhole) implements SymbolReporter {
+    @Override
+    public void reportPackage(String packageFqn, Location loc) {
+      blackhole.consume(packageFqn);
+    }
+
+    @Override
+    public void reportClass(
+        String classFqn, Location loc, boolean isInterface, boolean isEnum, boolean isAnnotation) {
+      blackhole.consume(classFqn);
+    }
+
+    @Override
+    public void reportMethod(
+        String ownerClassFqn, String methodName, String signature, Location loc) {
+      blackhole.consume(signature);
+    }
+
+    @Override
+    public void reportField(String ownerClassFqn, String fieldName, String typeFqn, Location loc) {
+      blackhole.consume(typeFqn);
+    }
+
+    @Override
+    public void reportAnnotation(String annotationFqn, Location loc) {
+      blackhole.consume(annotationFqn);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package se.alipsa.jvmpls.groovy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.AnnotatedNode;
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.ConstructorNode;
+import org.codehaus.groovy.ast.FieldNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.PropertyNode;
+import org.codehaus.groovy.ast.expr.Expression;
+
+/**
+ * The declarations of a class that transform analysis reads: its name, modifiers, supertypes and
+ * annotations, and the signatures and annotations of its fields, properties, methods and
+ * constructors. Method bodies are left out, so an edit inside a body keeps the shape of the class.
+ *
+ * @param fingerprint equal for two classes of the same shape
+ * @param anchors the class, its members and their annotations, in the order the fingerprint lists
+ *     them, so that classes of the same shape have corresponding nodes at each index
+ */
+record ClassShape(String fingerprint, List<ASTNode> anchors) {
+
+  ClassShape {
+    anchors = List.copyOf(anchors);
+  }
+
+  static ClassShape of(ClassNode classNode) {
+    StringBuilder out = new StringBuilder();
+    List<ASTNode> anchors = new ArrayList<>();
+    out.append("class ")
+        .append(classNode.getName())
+        .append(' ')
+        .append(classNode.getModifiers())
+        .append(" extends ")
+        .append(typeText(classNode.getUnresolvedSuperClass(false)))
+        .append(" implements");
+    for (ClassNode interfaceNode : classNode.getInterfaces()) {
+      out.append(' ').append(typeText(interfaceNode));
+    }
+    declaration(classNode, out, anchors);
+    for (FieldNode field : classNode.getFields()) {
+      if (field.getDeclaringClass() == classNode) {
+        out.append("\nfield ").append(field.getModifiers()).append(' ');
+        out.append(typeText(field.getType())).append(' ').append(field.getName());
+        declaration(field, out, anchors);
+      }
+    }
+    for (PropertyNode property : classNode.getProperties()) {
+      out.append("\nproperty ").append(property.getModifiers()).append(' ');
+      out.append(typeText(property.getType())).append(' ').append(property.getName());
+      declaration(property, out, anchors);
+    }
+    for (MethodNode method : classNode.getMethods()) {
+      if (method.getDeclaringClass() == classNode) {
+        out.append("\nmethod ").append(method.getModifiers()).append(' ');
+        out.append(typeText(method.getReturnType())).append(' ').append(method.getName());
+        parameters(method.getParameters(), out);
+        declaration(method, out, anchors);
+      }
+    }
+    for (ConstructorNode constructor : classNode.getDeclaredConstructors()) {
+      if (constructor.getDeclaringClass() == classNode) {
+        out.append("\nconstructor ").append(constructor.getModifiers());
+        parameters(constructor.getParameters(), out);
+        declaration(constructor, out, anchors);
+      }
+    }
+    return new ClassShape(out.toString(), anchors);
+  }
+
+  private static void declaration(AnnotatedNode node, StringBuilder out, List<ASTNode> anchors) {
+    anchors.add(node);
+    for (AnnotationNode annotation : node.getAnnotations()) {
+      anchors.add(annotation);
+      out.append(" @").append(typeText(annotation.getClassNode())).append('(');
+      for (Map.Entry<String, Expression> member : annotation.getMembers().entrySet()) {
+        out.append(member.getKey()).append('=').append(member.getValue().getText()).append(',');
+      }
+      out.append(')');
+    }
+  }
+
+  private static void parameters(Parameter[] parameters, StringBuilder out) {
+    out.append('(');
+    for (Parameter parameter : parameters) {
+      out.append(typeText(parameter.getType())).append(' ').append(parameter.getName());
+      out.append(parameter.hasInitialExpression() ? "=," : ",");
+    }
+    out.append(')');
+  }
+
+  private static String typeText(ClassNode type) {
+    return type == null ? "" : type.toString(false);
+  }
+}
@@ -0,0 +1,159 @@
+package se.alipsa.jvmpls.groovy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import se.alipsa.jvmpls.core.model.Position;
+import se.alipsa.jvmpls.core.model.Range;
+import se.alipsa.jvmpls.groovy.dynamic.ScopedSyntheticMember;
+
+/**
+ * What indexing learned about one version of a Groovy file. Indexing builds a new analysis and
+ * publishes it in one step, so a request sees either the previous version of the file or the new
+ * one, never a mix of both.
+ *
+ * @param content the indexed text
+ * @param ctx package, imports and primary class of the file
+ * @param classScopes declared classes by their ranges
+ * @param scopedMembers members that a {@code use(Category)} block adds, by the block's range
+ * @param dynamicMethodTypes types that declare {@code methodMissing}
+ * @param dynamicPropertyTypes types that declare {@code propertyMissing}
+ * @param strictStaticScopes ranges under {@code @CompileStatic} or {@code @TypeChecked}
+ * @param dynamicRelaxedScopes ranges that opt out of static checking again
+ * @param directSupertypes direct supertypes of each type the file declares
+ */
+record GroovyFileAnalysis(
+    String content,
+    FileCtx ctx,
+    RangeIndex<ClassScope> classScopes,
+    RangeIndex<ScopedSyntheticMember> scopedMembers,
+    Set<String> dynamicMethodTypes,
+    Set<String> dynamicPropertyTypes,
+    RangeIndex<Range> strictStaticScopes,
+    RangeIndex<Range> dynamicRelaxedScopes,
+    Map<String, List<String>> directSupertypes) {
+
+  /**
+   * Package and imports of a file, used to resolve the simple type names it mentions.
+   *
+   * @param pkg declared package, empty for the default package
+   * @param singleImports single-type imports, e.g. {@code a.b.C}
+   * @param starImports packages of star imports, e.g. {@code a.b}
+   * @param aliasToFqn types imported under another name, by that name
+   * @param primaryClassFqn the first declared class, empty when the file did not parse
+   */
+  record FileCtx(
+      String pkg,
+      List<String> singleImports,
+      List<String> starImports,
+      Map<String, String> aliasToFqn,
+      String primaryClassFqn) {
+
+    static final FileCtx EMPTY = new FileCtx("", List.of(), List.of(), Map.of(), "");
+
+    FileCtx {
+      singleImports = List.copyOf(singleImports);
+      starImports = List.copyOf(starImports);
+      aliasToFqn = Map.copyOf(aliasToFqn);
+    }
+  }
+
+  record ClassScope(String ownerFqn, Range range) {}
+
+  GroovyFileAnalysis {
+    dynamicMethodTypes = Set.copyOf(dynamicMethodTypes);
+    dynamicPropertyTypes = Set.copyOf(dynamicPropertyTypes);
+    directSupertypes = Map.copyOf(directSupertypes);
+  }
+
+  /** The innermost class whose range contains position, else the primary class. */
+  String ownerAt(Position position) {
+    if (position == null) {
+      return ctx.primaryClassFqn();
+    }
+    ClassScope best = null;
+    for (ClassScope scope : classScopes.at(position)) {
+      if (best == null || span(scope.range()) <= span(best.range())) {
+        best = scope;
+      }
+    }
+    return best == null ? ctx.primaryClassFqn() : best.ownerFqn();
+  }
+
+  List<ScopedSyntheticMember> scopedMembersAt(Position position) {
+    return scopedMembers.at(position);
+  }
+
+  /** Whether position is statically checked and not relaxed again by an inner scope. */
+  boolean isStrictStaticAt(Position position) {
+    return strictStaticScopes.contains(position) && !dynamicRelaxedScopes.contains(position);
+  }
+
+  private static int span(Range range) {
+    return (range.end.line - range.start.line) * 10_000 + (range.end.column - range.start.column);
+  }
+
+  /** Collects the analysis of a file while it is indexed; nothing reads it until it is built. */
+  static final class Builder {
+    private final String content;
+    private final FileCtx ctx;
+    private final List<ClassScope> classScopes = new ArrayList<>();
+    private final List<ScopedSyntheticMember> scopedMembers = new ArrayList<>();
+    private final Set<String> dynamicMethodTypes = new LinkedHashSet<>();
+    private final Set<String> dynamicPropertyTypes = new LinkedHashSet<>();
+    private final List<Range> strictStaticScopes = new ArrayList<>();
+    private final List<Range> dynamicRelaxedScopes = new ArrayList<>();
+    private final Map<String, List<String>> directSupertypes = new LinkedHashMap<>();
+
+    Builder(String content, FileCtx ctx) {
+      this.content = content;
+      this.ctx = ctx;
+    }
+
+    FileCtx ctx() {
+      return ctx;
+    }
+
+    void addClass(String ownerFqn, Range range, List<String> supertypes) {
+      classScopes.add(new ClassScope(ownerFqn, range));
+      directSupertypes.put(ownerFqn, List.copyOf(new LinkedHashSet<>(supertypes)));
+    }
+
+    void addScopedMembers(List<ScopedSyntheticMember> members) {
+      scopedMembers.addAll(members);
+    }
+
+    void addDynamicMethodType(String typeFqn) {
+      dynamicMethodTypes.add(typeFqn);
+    }
+
+    void addDynamicPropertyType(String typeFqn) {
+      dynamicPropertyTypes.add(typeFqn);
+    }
+
+    void addStrictStaticScope(Range range) {
+      strictStaticScopes.add(range);
+    }
+
+    void addDynamicRelaxedScope(Range range) {
+      dynamicRelaxedScopes.add(range);
+    }
+
+    GroovyFileAnalysis build() {
+      return new GroovyFileAnalysis(
+          content,
+          ctx,
+          RangeIndex.of(classScopes, ClassScope::range),
+          RangeIndex.of(scopedMembers, ScopedSyntheticMember::scope),
+          dynamicMethodTypes,
+          dynamicPropertyTypes,
+          RangeIndex.of(strictStaticScopes, range -> range),
+          RangeIndex.of(dynamicRelaxedScopes, range -> range),
+          directSupertypes);
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package se.alipsa.jvmpls.groovy;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.ErrorCollector;
+import org.codehaus.groovy.control.MultipleCompilationErrorsException;
+import org.codehaus.groovy.control.SourceUnit;
+
+import groovy.lang.GroovyClassLoader;
+
+/**
+ * Parses Groovy sources to their module AST, up to the conversion phase.
+ *
+ * <p>One compiler configuration and class loader, set up for the workspace classpath, serve every
+ * parse. A parse only creates a {@link SourceUnit}: unlike compiling through a {@code
+ * CompilationUnit} it does not create a class loader, look up global AST transformations or run
+ * them. Statements are wrapped in a script class named after the file, as {@code groovyc} names
+ * it, so the script's symbols keep their names from one parse to the next; a script whose name a
+ * declared class already takes is named {@code <name>Script} instead.
+ */
+final class GroovyParser implements AutoCloseable {
+  private static final Logger LOG = Logger.getLogger(GroovyParser.class.getName());
+
+  private final CompilerConfiguration config;
+  private final GroovyClassLoader classLoader;
+
+  GroovyParser(List<String> classpath) {
+    config = new CompilerConfiguration();
+    config.setClasspathList(classpath == null ? List.of() : classpath);
+    classLoader = new GroovyClassLoader(GroovyParser.class.getClassLoader(), config);
+  }
+
+  /**
+   * Parses {@code content} as the source of {@code fileUri}.
+   *
+   * @throws MultipleCompilationErrorsException if the source has syntax errors
+   */
+  ModuleNode parse(String fileUri, String content) {
+    SourceUnit unit =
+        new SourceUnit(fileUri, content, config, classLoader, new ErrorCollector(config));
+    unit.parse();
+    unit.completePhase();
+    unit.convert();
+    ModuleNode module = unit.getAST();
+    renameClashingScript(module);
+    return module;
+  }
+
+  // groovyc rejects a file that declares a class named like the file and also holds statements;
+  // keep both and give the script another name
+  private static void renameClashingScript(ModuleNode module) {
+    List<ClassNode> classes = module.getClasses();
+    for (ClassNode script : classes) {
+      if (script.isScript()
+          && classes.stream()
+              .anyMatch(other -> other != script && other.getName().equals(script.getName()))) {
+        script.setName(script.getName() + "Script");
+        return;
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      classLoader.close();
+    } catch (IOException e) {
+      LOG.log(Level.FINE, "Failed to close the Groovy parser's class loader", e);
+    }
+  }
+}
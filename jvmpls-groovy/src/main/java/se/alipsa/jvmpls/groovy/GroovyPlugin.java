@@ -2,14 +2,17 @@ package se.alipsa.jvmpls.groovy;
 
 import java.lang.reflect.Modifier;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
 import org.codehaus.groovy.ast.*;
 import org.codehaus.groovy.ast.ClassCodeVisitorSupport;
-import org.codehaus.groovy.ast.builder.AstBuilder;
 import org.codehaus.groovy.ast.expr.ArgumentListExpression;
 import org.codehaus.groovy.ast.expr.BinaryExpression;
 import org.codehaus.groovy.ast.expr.ClassExpression;
@@ -24,7 +27,6 @@ import org.codehaus.groovy.ast.expr.MethodCallExpression;
 import org.codehaus.groovy.ast.expr.PropertyExpression;
 import org.codehaus.groovy.ast.expr.TupleExpression;
 import org.codehaus.groovy.ast.expr.VariableExpression;
-import org.codehaus.groovy.control.CompilePhase;
 import org.codehaus.groovy.control.MultipleCompilationErrorsException;
 import org.codehaus.groovy.control.SourceUnit;
 import org.codehaus.groovy.control.messages.Message;
@@ -45,6 +47,10 @@ import se.alipsa.jvmpls.core.types.MethodSignature;
 import se.alipsa.jvmpls.core.types.PrimitiveType;
 import se.alipsa.jvmpls.core.types.TypeResolver;
 import se.alipsa.jvmpls.core.types.VoidType;
+import se.alipsa.jvmpls.groovy.GroovyFileAnalysis.FileCtx;
+import se.alipsa.jvmpls.groovy.IndexedClasses.AnchoredSpec;
+import se.alipsa.jvmpls.groovy.IndexedClasses.IndexedClass;
+import se.alipsa.jvmpls.groovy.dynamic.GdkMethodTable;
 import se.alipsa.jvmpls.groovy.dynamic.GroovyMemberResolver;
 import se.alipsa.jvmpls.groovy.dynamic.ScopedSyntheticMember;
 import se.alipsa.jvmpls.groovy.transforms.TransformContext;
@@ -70,86 +76,108 @@ public final class GroovyPlugin implements JvmLangPlugin {
   private static final Set<String> DEFAULT_SINGLE_IMPORTS =
       Set.of("java.math.BigInteger", "java.math.BigDecimal");
 
-  // Keep per-file context for resolveSymbol (package & imports)
-  private static final class FileCtx {
-    String pkg = "";
-    final List<String> singleImports = new ArrayList<>(); // a.b.C
-    final List<String> starImports = new ArrayList<>(); // a.b (package)
-    final Map<String, String> aliasToFqn = new HashMap<>(); // alias -> FQN
-    String primaryClassFqn = "";
-  }
-
-  private record ClassScope(String ownerFqn, Range range) {}
-
-  // Per-file state is replaced/cleared atomically after each index/forget pass.
+  // One analysis per file, replaced by a single put after each index pass.
   // Core may index different files concurrently, but each file is analyzed on one thread at a time.
-  private final Map<String, FileCtx> ctxByUri = new ConcurrentHashMap<>();
-  private final Map<String, String> contentByUri = new ConcurrentHashMap<>();
+  private final Map<String, GroovyFileAnalysis> analysesByUri = new ConcurrentHashMap<>();
+  // derived from the published analyses, for supertype lookups across files
   private final Map<String, List<String>> directSupertypesByType = new ConcurrentHashMap<>();
-  private final Map<String, Set<String>> typesByUri = new ConcurrentHashMap<>();
-  private final Map<String, List<ClassScope>> classScopesByUri = new ConcurrentHashMap<>();
-  private final Map<String, List<ScopedSyntheticMember>> scopedMembersByUri =
-      new ConcurrentHashMap<>();
-  private final Map<String, Set<String>> dynamicMethodTypesByUri = new ConcurrentHashMap<>();
-  private final Map<String, Set<String>> dynamicPropertyTypesByUri = new ConcurrentHashMap<>();
-  private final Map<String, List<Range>> strictStaticScopesByUri = new ConcurrentHashMap<>();
-  private final Map<String, List<Range>> dynamicRelaxedScopesByUri = new ConcurrentHashMap<>();
+  // per-class results of each file's last index pass, read only by the next pass of that file
+  private final Map<String, IndexedClasses> indexedByUri = new ConcurrentHashMap<>();
+  // counts the changes to the shapes of the classes of all files; results computed at an older
+  // count may depend on a class of another file that has changed since
+  private final AtomicLong shapeVersion = new AtomicLong();
+  // the classes of each file's last index pass that checkSemantics has not checked yet
+  private final Map<String, PendingCheck> pendingChecks = new ConcurrentHashMap<>();
   private final Set<String> missingCoreWarnings = ConcurrentHashMap.newKeySet();
   private final TransformRegistry transformRegistry = new TransformRegistry();
   private volatile CoreQuery coreQuery;
   private volatile TypeResolver typeResolver;
+  private volatile GroovyParser parser = new GroovyParser(List.of());
+  private volatile CompletableFuture<GdkMethodTable> gdkMethods =
+      CompletableFuture.completedFuture(GdkMethodTable.empty());
 
   // Groovy default star imports (visibility without explicit imports)
   private static final List<String> DEFAULT_STAR_IMPORTS =
       List.of("java.lang", "java.util", "java.io", "java.net", "groovy.lang", "groovy.util");
+  // member names offered for one untyped receiver
+  private static final int DYNAMIC_MEMBER_LIMIT = 50;
 
   @Override
   public void configure(PluginEnvironment env) {
     coreQuery = env.core();
     typeResolver = new TypeResolver(env.core());
     missingCoreWarnings.clear();
+    GroovyParser previous = parser;
+    parser = new GroovyParser(env.classpath());
+    previous.close();
+    // built in the background so the first completion does not wait for the whole table
+    gdkMethods =
+        CompletableFuture.supplyAsync(
+            () -> GdkMethodTable.forClasspath(env.classpath(), env.core()), env.executor());
   }
 
   @Override
   public List<Diagnostic> index(String fileUri, String content, SymbolReporter reporter) {
-    contentByUri.put(fileUri, content);
-    clearHierarchy(fileUri);
-    classScopesByUri.remove(fileUri);
-    scopedMembersByUri.remove(fileUri);
-    dynamicMethodTypesByUri.remove(fileUri);
-    dynamicPropertyTypesByUri.remove(fileUri);
-    strictStaticScopesByUri.remove(fileUri);
-    dynamicRelaxedScopesByUri.remove(fileUri);
+    return index(fileUri, content, reporter, true);
+  }
+
+  /** Reports classes and their declared members, without transforms or dynamic analysis. */
+  @Override
+  public List<Diagnostic> indexDeclarations(
+      String fileUri, String content, SymbolReporter reporter) {
+    return index(fileUri, content, reporter, false);
+  }
+
+  private List<Diagnostic> index(
+      String fileUri, String content, SymbolReporter reporter, boolean analyze) {
     var diags = new ArrayList<Diagnostic>();
-    var fileCtx = new FileCtx();
-    hydrateCtxFromSource(fileCtx, content);
+    // without a parse, package and imports come from the source text
+    var analysis = new GroovyFileAnalysis.Builder(content, ctxFromSource(content));
+    IndexedClasses previous = indexedByUri.remove(fileUri);
+    long versionAtStart = shapeVersion.get();
+    // results also depend on classpath symbols and on the extension methods known at the time
+    long externalVersion = externalVersion();
+    long gdkGeneration = gdkGeneration();
+    List<ClassPass> passes = List.of();
 
     try {
-      // Parse to at least CONVERSION so ClassNode/MethodNode are populated.
-      List<ASTNode> nodes =
-          new AstBuilder().buildFromString(CompilePhase.CONVERSION, false, content);
+      // Parse to CONVERSION so ClassNode/MethodNode are populated.
+      ModuleNode module = parser.parse(fileUri, content);
       LinkedHashMap<String, ClassNode> classes = new LinkedHashMap<>();
-      ArrayList<ModuleNode> modules = new ArrayList<>();
-      for (ASTNode n : nodes) {
-        if (n instanceof ModuleNode mn) {
-          modules.add(mn);
-          hydrateCtxFromModule(fileCtx, mn, fileUri, reporter);
-          for (ClassNode cn : mn.getClasses()) {
-            classes.putIfAbsent(cn.getName(), cn);
-          }
-        } else if (n instanceof ClassNode cn) {
-          classes.putIfAbsent(cn.getName(), cn);
-        }
+      for (ClassNode cn : module.getClasses()) {
+        classes.putIfAbsent(cn.getName(), cn);
       }
-      for (ClassNode cn : classes.values()) {
-        visitClass(fileUri, cn, reporter, fileCtx);
+      FileCtx fileCtx = ctxFromModule(module, classes.values());
+      analysis = new GroovyFileAnalysis.Builder(content, fileCtx);
+      if (!fileCtx.pkg().isBlank()) {
+        Range packageRange = new Range(new Position(0, 0), new Position(0, 1));
+        reporter.reportPackage(fileCtx.pkg(), new Location(fileUri, packageRange));
       }
       for (ClassNode cn : classes.values()) {
-        applyTransforms(fileUri, cn, reporter, fileCtx);
+        reporter.checkpoint();
+        visitClass(fileUri, cn, reporter, analysis);
+      }
+      if (analyze) {
+        // an unchanged text is indexed again because something else changed: analyze it all
+        boolean reusable =
+            previous != null
+                && !previous.content().equals(content)
+                && previous.ctx().equals(fileCtx)
+                && previous.shapeVersion() == versionAtStart
+                && externalVersion >= 0
+                && previous.externalVersion() == externalVersion
+                && previous.gdkGeneration() == gdkGeneration;
+        passes = classPasses(content, classes.values(), reusable ? previous : null);
+        for (ClassPass pass : passes) {
+          reporter.checkpoint();
+          applyTransforms(fileUri, pass, reporter, fileCtx);
+        }
+        reporter.checkpoint();
+        analyzeDynamicFeatures(fileUri, classes.values(), reporter, analysis);
       }
-      analyzeDynamicFeatures(fileUri, classes.values(), modules, reporter, fileCtx);
-      runSemanticDiagnostics(fileUri, classes.values(), diags, fileCtx);
 
+    } catch (CancellationException e) {
+      throw e; // out of time; core discards the pass
     } catch (MultipleCompilationErrorsException mce) {
       // Convert Groovy compiler errors to our Diagnostic model
       for (Message msg : mce.getErrorCollector().getErrors()) {
@@ -182,11 +210,68 @@ public final class GroovyPlugin implements JvmLangPlugin {
               "parse"));
     }
 
-    // Save ctx after successful/attempted parse (best-effort for resolveSymbol/completions)
-    ctxByUri.put(fileUri, fileCtx);
+    GroovyFileAnalysis published = analysis.build();
+    publish(fileUri, published);
+    if (!analyze) {
+      // nothing to reuse or check; classes of other files may depend on these
+      pendingChecks.remove(fileUri);
+      shapeVersion.incrementAndGet();
+      return diags;
+    }
+    long version = recordShapes(previous, passes, versionAtStart);
+    reuseDiagnostics(passes);
+    IndexedClasses indexed =
+        new IndexedClasses(
+            content,
+            published.ctx(),
+            version,
+            externalVersion,
+            gdkGeneration,
+            indexedClasses(passes));
+    indexedByUri.put(fileUri, indexed);
+    pendingChecks.put(fileUri, new PendingCheck(indexed, passes, published));
     return diags;
   }
 
+  @Override
+  public List<Diagnostic> checkSemantics(String fileUri) {
+    return checkSemantics(fileUri, () -> {});
+  }
+
+  @Override
+  public List<Diagnostic> checkSemantics(String fileUri, Runnable checkpoint) {
+    PendingCheck check = pendingChecks.get(fileUri);
+    if (check == null) {
+      IndexedClasses indexed = indexedByUri.get(fileUri);
+      return indexed == null ? List.of() : diagnosticsOf(indexed.classes().values());
+    }
+    // a second caller waits for the first instead of checking the same classes again
+    synchronized (check) {
+      try {
+        // diagnostics resolve members through the published analysis
+        checkPending(fileUri, check.passes(), check.analysis(), checkpoint);
+      } catch (CancellationException e) {
+        throw e; // out of time; the classes checked so far keep their diagnostics
+      } catch (RuntimeException e) {
+        LOG.log(Level.WARNING, "Failed to check Groovy file " + fileUri, e);
+      }
+      Map<String, IndexedClass> checked = indexedClasses(check.passes());
+      IndexedClasses indexed = check.indexed();
+      indexedByUri.replace(
+          fileUri,
+          indexed,
+          new IndexedClasses(
+              indexed.content(),
+              indexed.ctx(),
+              indexed.shapeVersion(),
+              indexed.externalVersion(),
+              indexed.gdkGeneration(),
+              checked));
+      pendingChecks.remove(fileUri, check);
+      return diagnosticsOf(checked.values());
+    }
+  }
+
   @Override
   public SymbolInfo resolveSymbol(String fileUri, String symbolName, CoreQuery core) {
     return resolveSymbol(fileUri, symbolName, null, core);
@@ -206,9 +291,10 @@ public final class GroovyPlugin implements JvmLangPlugin {
       symbolName = symbolName.substring(0, dot);
     }
 
-    FileCtx ctx = ctxByUri.getOrDefault(fileUri, new FileCtx());
-    String content = contentByUri.get(fileUri);
-    String currentOwnerFqn = ownerAt(fileUri, position, ctx.primaryClassFqn);
+    GroovyFileAnalysis analysis = analysesByUri.get(fileUri);
+    FileCtx ctx = analysis == null ? FileCtx.EMPTY : analysis.ctx();
+    String content = analysis == null ? null : analysis.content();
+    String currentOwnerFqn = analysis == null ? null : analysis.ownerAt(position);
     GroovyMemberResolver resolver = memberResolver(core);
 
     if (content != null && position != null) {
@@ -226,31 +312,20 @@ public final class GroovyPlugin implements JvmLangPlugin {
     }
 
     // Alias first: import foo.Bar as B
-    String aliasHit = ctx.aliasToFqn.get(symbolName);
+    String aliasHit = ctx.aliasToFqn().get(symbolName);
     if (aliasHit != null) {
       return core.findByFqn(aliasHit).orElse(null);
     }
 
-    // Fallback: derive package from source text if we didn’t capture it during indexing
-    if (ctx.pkg == null || ctx.pkg.isBlank()) {
-      if (content != null) {
-        var m = PKG_DECL.matcher(content);
-        if (m.find()) {
-          ctx.pkg = m.group(1);
-          ctxByUri.put(fileUri, ctx); // cache for next time
-        }
-      }
-    }
-
     // 1) Same-package class
-    if (!ctx.pkg.isBlank()) {
-      String fqn = ctx.pkg + "." + symbolName;
+    if (!ctx.pkg().isBlank()) {
+      String fqn = ctx.pkg() + "." + symbolName;
       var hit = core.findByFqn(fqn);
       if (hit.isPresent()) return hit.get();
     }
 
     // 2) Single-type imports
-    for (String imp : ctx.singleImports) {
+    for (String imp : ctx.singleImports()) {
       if (imp.endsWith("." + symbolName)) {
         var hit = core.findByFqn(imp);
         if (hit.isPresent()) return hit.get();
@@ -258,7 +333,7 @@ public final class GroovyPlugin implements JvmLangPlugin {
     }
 
     // 3) Star imports (explicit + Groovy defaults)
-    for (String pkg : union(ctx.starImports, DEFAULT_STAR_IMPORTS)) {
+    for (String pkg : union(ctx.starImports(), DEFAULT_STAR_IMPORTS)) {
       for (var s : core.allInPackage(pkg)) {
         if (simpleName(s.getFqName()).equals(symbolName)
             && (s.getKind() == SymbolInfo.Kind.CLASS
@@ -270,7 +345,7 @@ public final class GroovyPlugin implements JvmLangPlugin {
       }
     }
     var candidates = new ArrayList<SymbolInfo>();
-    for (var s : core.allInPackage(ctx.pkg)) {
+    for (var s : core.allInPackage(ctx.pkg())) {
       if (simpleName(s.getFqName()).equals(symbolName)) {
         candidates.add(s);
       }
@@ -304,15 +379,14 @@ public final class GroovyPlugin implements JvmLangPlugin {
 
   @Override
   public List<CompletionItem> completions(String fileUri, Position position, CoreQuery core) {
-    String content = contentByUri.get(fileUri);
-    if (content == null) return List.of();
+    GroovyFileAnalysis analysis = analysesByUri.get(fileUri);
+    if (analysis == null) return List.of();
+    String content = analysis.content();
+    FileCtx ctx = analysis.ctx();
 
     String prefix = completionPrefix(content, position);
     var out = new java.util.LinkedHashMap<String, CompletionItem>(); // stable order, de-duped
 
-    // Build/repair per-file context (pkg/imports/aliases) if needed
-    FileCtx ctx = ensureCtx(fileUri, content);
-
     // ----- dotted prefix: e.g. "thing.Ba"
     int lastDot = prefix.lastIndexOf('.');
     if (lastDot >= 0) {
@@ -338,21 +412,21 @@ public final class GroovyPlugin implements JvmLangPlugin {
         return List.copyOf(out.values());
       }
 
+      String receiverOwnerFqn = analysis.ownerAt(position);
       collectMembersFromReceiver(
-          core,
-          fileUri,
-          position,
-          qualifierOf(prefix),
-          simplePrefix,
-          ownerAt(fileUri, position, ctx.primaryClassFqn),
-          out);
+          core, fileUri, position, qualifierOf(prefix), simplePrefix, receiverOwnerFqn, out);
+      if (out.isEmpty()
+          && isUntypedReceiver(
+              qualifierOf(prefix), receiverOwnerFqn, ctx, fileUri, position, core)) {
+        collectUntypedReceiverMembers(core, simplePrefix, ctx, out);
+      }
       if (!out.isEmpty()) {
         return List.copyOf(out.values());
       }
     }
 
     // ----- undotted prefix: e.g. "Ba" -----
-    String currentOwnerFqn = ownerAt(fileUri, position, ctx.primaryClassFqn);
+    String currentOwnerFqn = analysis.ownerAt(position);
     if (currentOwnerFqn != null && !currentOwnerFqn.isBlank()) {
       for (SymbolInfo member : memberResolver(core).membersAt(fileUri, position, currentOwnerFqn)) {
         String name = memberName(member);
@@ -364,8 +438,8 @@ public final class GroovyPlugin implements JvmLangPlugin {
     }
 
     // Same package (already visible -> no edits)
-    if (ctx.pkg != null && !ctx.pkg.isBlank()) {
-      for (var s : core.allInPackage(ctx.pkg)) {
+    if (ctx.pkg() != null && !ctx.pkg().isBlank()) {
+      for (var s : core.allInPackage(ctx.pkg())) {
         if (isType(s) && simpleName(s.getFqName()).startsWith(prefix)) {
           add(out, s); // no edits for visible symbols
         }
@@ -373,7 +447,7 @@ public final class GroovyPlugin implements JvmLangPlugin {
     }
 
     // Single-type imports (already visible -> no edits)
-    for (String imp : ctx.singleImports) {
+    for (String imp : ctx.singleImports()) {
       core.findByFqn(imp)
           .ifPresent(
               sym -> {
@@ -384,7 +458,7 @@ public final class GroovyPlugin implements JvmLangPlugin {
     }
 
     // Aliases (offer alias label, never edits)
-    for (var e : ctx.aliasToFqn.entrySet()) {
+    for (var e : ctx.aliasToFqn().entrySet()) {
       String alias = e.getKey();
       if (!alias.startsWith(prefix)) continue;
       String fqn = e.getValue();
@@ -398,7 +472,7 @@ public final class GroovyPlugin implements JvmLangPlugin {
     }
 
     // Star imports (explicit + Groovy defaults) — already visible -> no edits
-    for (String p : union(ctx.starImports, DEFAULT_STAR_IMPORTS)) {
+    for (String p : union(ctx.starImports(), DEFAULT_STAR_IMPORTS)) {
       for (var s : core.allInPackage(p)) {
         if (isType(s) && simpleName(s.getFqName()).startsWith(prefix)) {
           add(out, s); // no edits
@@ -410,54 +484,38 @@ public final class GroovyPlugin implements JvmLangPlugin {
 
   @Override
   public void forget(String fileUri) {
-    ctxByUri.remove(fileUri);
-    contentByUri.remove(fileUri);
-    clearHierarchy(fileUri);
-    classScopesByUri.remove(fileUri);
-    scopedMembersByUri.remove(fileUri);
-    dynamicMethodTypesByUri.remove(fileUri);
-    dynamicPropertyTypesByUri.remove(fileUri);
-    strictStaticScopesByUri.remove(fileUri);
-    dynamicRelaxedScopesByUri.remove(fileUri);
+    GroovyFileAnalysis previous = analysesByUri.remove(fileUri);
+    if (previous != null) {
+      previous.directSupertypes().keySet().forEach(directSupertypesByType::remove);
+    }
+    if (indexedByUri.remove(fileUri) != null) {
+      shapeVersion.incrementAndGet();
+    }
+    pendingChecks.remove(fileUri);
     missingCoreWarnings.remove(fileUri);
   }
 
   // ----- internals ------------------------------------------------------------------------------
 
-  private void visitClass(String fileUri, ClassNode cn, SymbolReporter reporter, FileCtx ctx) {
-    // Prefer ClassNode’s own package; fallback to ctx
-    String clsPkg = cn.getPackageName();
-    if ((ctx.pkg == null || ctx.pkg.isBlank()) && clsPkg != null && !clsPkg.isBlank()) {
-      ctx.pkg = clsPkg; // keep for resolveSymbol
-    }
-
-    // Compute FQN robustly
-    String name = cn.getName(); // may already be FQN
-    String fqn =
-        name.contains(".")
-            ? name
-            : (ctx.pkg == null || ctx.pkg.isBlank() ? name : ctx.pkg + "." + name);
+  private void visitClass(
+      String fileUri, ClassNode cn, SymbolReporter reporter, GroovyFileAnalysis.Builder analysis) {
+    FileCtx ctx = analysis.ctx();
+    String fqn = ownerFqn(cn, ctx);
 
     boolean isInterface = cn.isInterface();
     boolean isEnum = cn.isEnum();
     boolean isAnno = cn.isAnnotationDefinition();
 
     reporter.reportClass(fqn, new Location(fileUri, toRange(cn)), isInterface, isEnum, isAnno);
-    recordTypeHierarchy(fileUri, fqn, cn, ctx);
-    if (ctx.primaryClassFqn.isBlank()) {
-      ctx.primaryClassFqn = fqn;
-    }
-    classScopesByUri
-        .computeIfAbsent(fileUri, ignored -> new ArrayList<>())
-        .add(new ClassScope(fqn, toRange(cn)));
-    recordStrictStaticScopes(fileUri, cn);
-    recordDynamicRelaxedScopes(fileUri, cn);
+    analysis.addClass(fqn, toRange(cn), directSupertypes(cn, ctx));
+    recordStrictStaticScope(analysis, cn);
+    recordDynamicRelaxedScope(analysis, cn);
 
     // Methods
     for (MethodNode mn : cn.getMethods()) {
       if (mn.getDeclaringClass() != cn) continue;
-      recordStrictStaticScope(fileUri, mn);
-      recordDynamicRelaxedScope(fileUri, mn);
+      recordStrictStaticScope(analysis, mn);
+      recordDynamicRelaxedScope(analysis, mn);
       reporter.reportMethod(
           fqn,
           mn.getName(),
@@ -467,7 +525,7 @@ public final class GroovyPlugin implements JvmLangPlugin {
     }
     for (ConstructorNode constructor : cn.getDeclaredConstructors()) {
       if (constructor.getDeclaringClass() != cn) continue;
-      recordDynamicRelaxedScope(fileUri, constructor);
+      recordDynamicRelaxedScope(analysis, constructor);
       reporter.reportConstructor(
           fqn,
           constructorSig(constructor, ctx),
@@ -549,50 +607,202 @@ public final class GroovyPlugin implements JvmLangPlugin {
     return Math.max(x, 0);
   }
 
-  private void hydrateCtxFromModule(
-      FileCtx fileCtx, ModuleNode moduleNode, String fileUri, SymbolReporter reporter) {
-    if (moduleNode.getPackageName() != null) {
-      fileCtx.pkg = moduleNode.getPackageName();
-    }
+  private static FileCtx ctxFromModule(ModuleNode moduleNode, Collection<ClassNode> classes) {
+    String pkg = moduleNode.getPackageName() == null ? "" : trimDot(moduleNode.getPackageName());
+    List<String> singleImports = new ArrayList<>();
+    List<String> starImports = new ArrayList<>();
+    Map<String, String> aliasToFqn = new HashMap<>();
     for (ImportNode imp : moduleNode.getImports()) {
       String cls = imp.getClassName();
       if (cls != null && !cls.isBlank()) {
-        fileCtx.singleImports.add(cls);
+        singleImports.add(cls);
+        // Groovy names every single-type import; only a different name is an alias
         String alias = imp.getAlias();
-        if (alias != null && !alias.isBlank()) {
-          fileCtx.aliasToFqn.put(alias, cls);
+        if (alias != null && !alias.isBlank() && !alias.equals(simpleName(cls))) {
+          aliasToFqn.put(alias, cls);
         }
       }
     }
     for (ImportNode imp : moduleNode.getStarImports()) {
-      String pkg = imp.getPackageName();
-      if (pkg != null && !pkg.isBlank()) {
-        fileCtx.starImports.add(trimDot(pkg));
+      String starPkg = imp.getPackageName();
+      if (starPkg != null && !starPkg.isBlank()) {
+        starImports.add(trimDot(starPkg));
+      }
+    }
+    String primaryClassFqn = classes.isEmpty() ? "" : ownerFqn(classes.iterator().next(), pkg);
+    return new FileCtx(pkg, singleImports, starImports, aliasToFqn, primaryClassFqn);
+  }
+
+  /** One class of an index pass, with what the previous pass of its file left for it. */
+  private static final class ClassPass {
+    final ClassNode node;
+    final ClassShape shape;
+    final Range range;
+    final String text;
+    // results of the previous pass, null when a class of the file changed shape
+    final IndexedClass previous;
+    List<AnchoredSpec> transforms;
+    List<Diagnostic> diagnostics;
+
+    ClassPass(ClassNode node, ClassShape shape, Range range, String text, IndexedClass previous) {
+      this.node = node;
+      this.shape = shape;
+      this.range = range;
+      this.text = text;
+      this.previous = previous;
+    }
+  }
+
+  private static List<ClassPass> classPasses(
+      String content, Collection<ClassNode> classes, IndexedClasses previous) {
+    Map<String, ClassShape> shapes = new LinkedHashMap<>();
+    for (ClassNode cn : classes) {
+      shapes.put(cn.getName(), ClassShape.of(cn));
+    }
+    Set<String> changed = previous == null ? Set.of() : changedClasses(previous, shapes);
+    int[] lineStarts = lineStarts(content);
+    List<ClassPass> passes = new ArrayList<>();
+    for (ClassNode cn : classes) {
+      ClassShape shape = shapes.get(cn.getName());
+      Range range = toRange(cn);
+      String text = slice(content, lineStarts, range);
+      IndexedClass old = previous == null ? null : previous.classes().get(cn.getName());
+      // a class can use a changed class without naming it, e.g. through a property type
+      boolean reusable =
+          old != null && changed.isEmpty() && !cn.isScript() && cn.getLineNumber() > 0;
+      passes.add(new ClassPass(cn, shape, range, text, reusable ? old : null));
+    }
+    return passes;
+  }
+
+  private static Set<String> changedClasses(
+      IndexedClasses previous, Map<String, ClassShape> shapes) {
+    Set<String> changed = new HashSet<>();
+    for (var entry : previous.classes().entrySet()) {
+      ClassShape shape = shapes.get(entry.getKey());
+      if (shape == null || !shape.fingerprint().equals(entry.getValue().shape())) {
+        changed.add(entry.getKey());
+      }
+    }
+    for (String name : shapes.keySet()) {
+      if (!previous.classes().containsKey(name)) {
+        changed.add(name);
+      }
+    }
+    return changed;
+  }
+
+  private static int[] lineStarts(String content) {
+    List<Integer> starts = new ArrayList<>();
+    starts.add(0);
+    for (int i = 0; i < content.length(); i++) {
+      if (content.charAt(i) == '\n') {
+        starts.add(i + 1);
       }
     }
-    if (!fileCtx.pkg.isBlank()) {
-      reporter.reportPackage(
-          fileCtx.pkg, new Location(fileUri, new Range(new Position(0, 0), new Position(0, 1))));
+    return starts.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private static String slice(String content, int[] lineStarts, Range range) {
+    int start = offset(content, lineStarts, range.start);
+    int end = offset(content, lineStarts, range.end);
+    return start < end ? content.substring(start, end) : "";
+  }
+
+  private static int offset(String content, int[] lineStarts, Position position) {
+    if (position.line >= lineStarts.length) {
+      return content.length();
     }
+    return Math.min(lineStarts[position.line] + position.column, content.length());
+  }
+
+  // the new fingerprints get a new shape version; returns the version the results are valid for
+  private long recordShapes(IndexedClasses previous, List<ClassPass> passes, long versionAtStart) {
+    Map<String, String> fingerprints = new HashMap<>();
+    for (ClassPass pass : passes) {
+      fingerprints.put(pass.node.getName(), pass.shape.fingerprint());
+    }
+    Map<String, String> before = new HashMap<>();
+    if (previous != null) {
+      previous.classes().forEach((name, indexed) -> before.put(name, indexed.shape()));
+    }
+    if (fingerprints.equals(before)) {
+      return versionAtStart;
+    }
+    long version = shapeVersion.incrementAndGet();
+    // another file changed shape during this pass: its results may be stale already
+    return version == versionAtStart + 1 ? version : versionAtStart;
+  }
+
+  /** Classes of an index pass whose semantic diagnostics are still to be computed. */
+  private record PendingCheck(
+      IndexedClasses indexed, List<ClassPass> passes, GroovyFileAnalysis analysis) {}
+
+  private static Map<String, IndexedClass> indexedClasses(List<ClassPass> passes) {
+    Map<String, IndexedClass> classes = new LinkedHashMap<>();
+    for (ClassPass pass : passes) {
+      classes.put(
+          pass.node.getName(),
+          new IndexedClass(
+              pass.shape.fingerprint(), pass.range, pass.text, pass.transforms, pass.diagnostics));
+    }
+    return classes;
   }
 
   private void applyTransforms(
-      String fileUri, ClassNode classNode, SymbolReporter reporter, FileCtx ctx) {
+      String fileUri, ClassPass pass, SymbolReporter reporter, FileCtx ctx) {
     if (coreQuery == null) {
       warnMissingCore(fileUri, "transform analysis");
       return;
     }
-    String ownerFqn = ownerFqn(classNode, ctx);
+    if (pass.previous != null && pass.previous.transforms() != null) {
+      // same shape: the same members, located at the corresponding declarations of this version
+      for (AnchoredSpec anchored : pass.previous.transforms()) {
+        Range range = toRange(pass.shape.anchors().get(anchored.anchor()));
+        anchored.spec().withLocation(new Location(fileUri, range)).report(reporter);
+      }
+      pass.transforms = pass.previous.transforms();
+      return;
+    }
+    ClassNode classNode = pass.node;
+    Map<Location, ASTNode> locatedAt = new IdentityHashMap<>();
     TransformContext transformContext =
         new TransformContext(
             fileUri,
-            ownerFqn,
+            ownerFqn(classNode, ctx),
             coreQuery,
             type -> typeOf(type, ctx),
-            node -> new Location(fileUri, toRange(node)));
+            node -> {
+              Location location = new Location(fileUri, toRange(node));
+              locatedAt.put(location, node);
+              return location;
+            });
+    Map<ASTNode, Integer> anchorIndex = new IdentityHashMap<>();
+    List<ASTNode> anchors = pass.shape.anchors();
+    for (int i = 0; i < anchors.size(); i++) {
+      anchorIndex.putIfAbsent(anchors.get(i), i);
+    }
+    List<AnchoredSpec> anchored = new ArrayList<>();
+    boolean reusable = !classNode.isScript() && !delegatesToOtherTypes(pass.shape);
     for (SyntheticMemberSpec spec : transformRegistry.analyzeClass(classNode, transformContext)) {
       spec.report(reporter);
+      Integer anchor = anchorIndex.get(locatedAt.get(spec.location()));
+      if (anchor == null) {
+        reusable = false;
+      } else {
+        anchored.add(new AnchoredSpec(spec, anchor));
+      }
     }
+    pass.transforms = reusable ? anchored : null;
+  }
+
+  // @Delegate copies the members of another type, which can change while this class does not
+  private static boolean delegatesToOtherTypes(ClassShape shape) {
+    return shape.anchors().stream()
+        .anyMatch(
+            node ->
+                node instanceof AnnotationNode annotation
+                    && matchesAnnotation(annotation, GroovyAnnotations.DELEGATE));
   }
 
   private GroovyMemberResolver memberResolver(CoreQuery core) {
@@ -601,31 +811,62 @@ public final class GroovyPlugin implements JvmLangPlugin {
         this::scopedMembersAt,
         typeFqn -> directSupertypesOf(typeFqn, core),
         this::isDynamicMethodType,
-        this::isDynamicPropertyType);
+        this::isDynamicPropertyType,
+        this::extensionMethodsOf);
+  }
+
+  private long externalVersion() {
+    CoreQuery core = coreQuery;
+    return core == null ? -1 : core.externalVersion();
+  }
+
+  // negative while the extension method table is being built
+  private long gdkGeneration() {
+    GdkMethodTable table = gdkMethods();
+    return table == null ? -1 : table.generation();
+  }
+
+  private List<SymbolInfo> extensionMethodsOf(String typeFqn) {
+    GdkMethodTable table = gdkMethods();
+    // answered without extension methods until the table has been built
+    return table == null ? List.of() : table.methodsOf(typeFqn);
+  }
+
+  private GdkMethodTable gdkMethods() {
+    try {
+      return gdkMethods.getNow(null);
+    } catch (CompletionException e) {
+      LOG.log(Level.WARNING, "Failed to load Groovy extension methods", e);
+      gdkMethods = CompletableFuture.completedFuture(GdkMethodTable.empty());
+      return GdkMethodTable.empty();
+    }
   }
 
   private List<ScopedSyntheticMember> scopedMembersAt(String fileUri, Position position) {
     if (fileUri == null || position == null) {
       return List.of();
     }
-    return scopedMembersByUri.getOrDefault(fileUri, List.of()).stream()
-        .filter(member -> member.isVisibleAt(position))
-        .toList();
+    GroovyFileAnalysis analysis = analysesByUri.get(fileUri);
+    return analysis == null ? List.of() : analysis.scopedMembersAt(position);
   }
 
   private boolean isDynamicMethodType(String receiverTypeFqn) {
-    return dynamicMethodTypesByUri.values().stream()
-        .anyMatch(types -> types.contains(receiverTypeFqn));
+    return analysesByUri.values().stream()
+        .anyMatch(analysis -> analysis.dynamicMethodTypes().contains(receiverTypeFqn));
   }
 
   private boolean isDynamicPropertyType(String receiverTypeFqn) {
-    return dynamicPropertyTypesByUri.values().stream()
-        .anyMatch(types -> types.contains(receiverTypeFqn));
+    return analysesByUri.values().stream()
+        .anyMatch(analysis -> analysis.dynamicPropertyTypes().contains(receiverTypeFqn));
   }
 
   private static String ownerFqn(ClassNode classNode, FileCtx ctx) {
+    return ownerFqn(classNode, ctx.pkg());
+  }
+
+  private static String ownerFqn(ClassNode classNode, String filePkg) {
     String clsPkg = classNode.getPackageName();
-    String pkg = (clsPkg == null || clsPkg.isBlank()) ? ctx.pkg : clsPkg;
+    String pkg = (clsPkg == null || clsPkg.isBlank()) ? filePkg : clsPkg;
     String name = classNode.getName();
     return name.contains(".") ? name : (pkg == null || pkg.isBlank() ? name : pkg + "." + name);
   }
@@ -655,18 +896,18 @@ public final class GroovyPlugin implements JvmLangPlugin {
   private void analyzeDynamicFeatures(
       String fileUri,
       Collection<ClassNode> classes,
-      Collection<ModuleNode> modules,
       SymbolReporter reporter,
-      FileCtx ctx) {
+      GroovyFileAnalysis.Builder analysis) {
     CoreQuery core = coreQuery;
     if (core == null) {
       warnMissingCore(fileUri, "dynamic feature analysis");
       return;
     }
+    FileCtx ctx = analysis.ctx();
     ArrayList<ScopedSyntheticMember> scoped = new ArrayList<>();
     for (ClassNode classNode : classes) {
       String ownerFqn = ownerFqn(classNode, ctx);
-      detectDynamicFlags(fileUri, classNode, ownerFqn);
+      detectDynamicFlags(analysis, classNode, ownerFqn);
       reportMixinAnnotations(fileUri, classNode, ownerFqn, reporter, ctx, core);
       new ClassCodeVisitorSupport() {
         @Override
@@ -688,32 +929,7 @@ public final class GroovyPlugin implements JvmLangPlugin {
         }
       }.visitClass(classNode);
     }
-    for (ModuleNode module : modules) {
-      if (module.getStatementBlock() != null) {
-        new ClassCodeVisitorSupport() {
-          @Override
-          protected SourceUnit getSourceUnit() {
-            return null;
-          }
-
-          @Override
-          public void visitBinaryExpression(BinaryExpression expression) {
-            analyzeMetaClassAssignment(fileUri, expression, reporter, ctx);
-            super.visitBinaryExpression(expression);
-          }
-
-          @Override
-          public void visitMethodCallExpression(MethodCallExpression call) {
-            analyzeCategoryUse(fileUri, call, scoped, ctx, core);
-            analyzeMixinCall(fileUri, call, reporter, ctx, core);
-            super.visitMethodCallExpression(call);
-          }
-        }.visitBlockStatement(module.getStatementBlock());
-      }
-    }
-    if (!scoped.isEmpty()) {
-      scopedMembersByUri.put(fileUri, List.copyOf(scoped));
-    }
+    analysis.addScopedMembers(scoped);
   }
 
   private void analyzeMetaClassAssignment(
@@ -909,31 +1125,95 @@ public final class GroovyPlugin implements JvmLangPlugin {
     }
   }
 
-  private void detectDynamicFlags(String fileUri, ClassNode classNode, String ownerFqn) {
+  private void detectDynamicFlags(
+      GroovyFileAnalysis.Builder analysis, ClassNode classNode, String ownerFqn) {
     for (MethodNode method : classNode.getMethods()) {
       if ("methodMissing".equals(method.getName())) {
-        dynamicMethodTypesByUri
-            .computeIfAbsent(fileUri, ignored -> ConcurrentHashMap.newKeySet())
-            .add(ownerFqn);
+        analysis.addDynamicMethodType(ownerFqn);
       }
       if ("propertyMissing".equals(method.getName())) {
-        dynamicPropertyTypesByUri
-            .computeIfAbsent(fileUri, ignored -> ConcurrentHashMap.newKeySet())
-            .add(ownerFqn);
+        analysis.addDynamicPropertyType(ownerFqn);
       }
     }
   }
 
-  private void runSemanticDiagnostics(
-      String fileUri, Collection<ClassNode> classes, List<Diagnostic> diagnostics, FileCtx ctx) {
+  // same text at the same column: the same diagnostics, moved by the lines above the class
+  private static void reuseDiagnostics(List<ClassPass> passes) {
+    for (ClassPass pass : passes) {
+      IndexedClass previous = pass.previous;
+      if (previous != null
+          && previous.diagnostics() != null
+          && previous.text().equals(pass.text)
+          && previous.range().start.column == pass.range.start.column) {
+        int lineDelta = pass.range.start.line - previous.range().start.line;
+        pass.diagnostics = previous.diagnostics().stream().map(d -> moved(d, lineDelta)).toList();
+      }
+    }
+  }
+
+  private void checkPending(
+      String fileUri, List<ClassPass> passes, GroovyFileAnalysis analysis, Runnable checkpoint) {
+    List<ClassNode> pending = new ArrayList<>();
+    for (ClassPass pass : passes) {
+      if (pass.diagnostics == null) {
+        pending.add(pass.node);
+      }
+    }
+    Map<String, List<Diagnostic>> checked =
+        runSemanticDiagnostics(fileUri, pending, analysis, checkpoint);
+    for (ClassPass pass : passes) {
+      if (pass.diagnostics == null) {
+        pass.diagnostics = checked.get(pass.node.getName());
+      }
+    }
+  }
+
+  private static List<Diagnostic> diagnosticsOf(Collection<IndexedClass> classes) {
+    List<Diagnostic> diagnostics = new ArrayList<>();
+    for (IndexedClass indexed : classes) {
+      if (indexed.diagnostics() != null) {
+        diagnostics.addAll(indexed.diagnostics());
+      }
+    }
+    return diagnostics;
+  }
+
+  private static Diagnostic moved(Diagnostic diagnostic, int lineDelta) {
+    if (lineDelta == 0) {
+      return diagnostic;
+    }
+    Range range = diagnostic.getRange();
+    return new Diagnostic(
+        new Range(
+            new Position(range.start.line + lineDelta, range.start.column),
+            new Position(range.end.line + lineDelta, range.end.column)),
+        diagnostic.getMessage(),
+        diagnostic.getSeverity(),
+        diagnostic.getSource(),
+        diagnostic.getCode());
+  }
+
+  private Map<String, List<Diagnostic>> runSemanticDiagnostics(
+      String fileUri,
+      Collection<ClassNode> classes,
+      GroovyFileAnalysis analysis,
+      Runnable checkpoint) {
+    if (classes.isEmpty()) {
+      return Map.of();
+    }
     CoreQuery core = coreQuery;
     if (core == null) {
       warnMissingCore(fileUri, "semantic diagnostics");
-      return;
+      return Map.of();
     }
     GroovyMemberResolver resolver = memberResolver(core);
+    FileCtx ctx = analysis.ctx();
+    Map<String, List<Diagnostic>> byClass = new HashMap<>();
     for (ClassNode classNode : classes) {
+      checkpoint.run();
       String ownerFqn = ownerFqn(classNode, ctx);
+      List<Diagnostic> diagnostics = new ArrayList<>();
+      byClass.put(classNode.getName(), diagnostics);
       new ClassCodeVisitorSupport() {
         @Override
         protected SourceUnit getSourceUnit() {
@@ -942,7 +1222,7 @@ public final class GroovyPlugin implements JvmLangPlugin {
 
         @Override
         public void visitMethodCallExpression(MethodCallExpression call) {
-          if (isStrictStaticAt(fileUri, toRange(call).start)) {
+          if (analysis.isStrictStaticAt(toRange(call).start)) {
             String receiverType = receiverTypeFor(call, ownerFqn, ctx, resolver, fileUri);
             String methodName = call.getMethodAsString();
             if (methodName != null
@@ -970,7 +1250,7 @@ public final class GroovyPlugin implements JvmLangPlugin {
 
         @Override
         public void visitPropertyExpression(PropertyExpression expression) {
-          if (isStrictStaticAt(fileUri, toRange(expression).start)) {
+          if (analysis.isStrictStaticAt(toRange(expression).start)) {
             String receiverType = receiverTypeFor(expression, ownerFqn, ctx, resolver, fileUri);
             String propertyName = expression.getPropertyAsString();
             if (propertyName != null
@@ -994,6 +1274,7 @@ public final class GroovyPlugin implements JvmLangPlugin {
         }
       }.visitClass(classNode);
     }
+    return byClass;
   }
 
   private String receiverTypeFor(
@@ -1101,60 +1382,17 @@ public final class GroovyPlugin implements JvmLangPlugin {
     return resolved instanceof ClassType classType ? classType.fqName() : null;
   }
 
-  private void recordStrictStaticScopes(String fileUri, ClassNode classNode) {
-    recordStrictStaticScope(fileUri, classNode);
-  }
-
-  private void recordDynamicRelaxedScopes(String fileUri, ClassNode classNode) {
-    recordDynamicRelaxedScope(fileUri, classNode);
-  }
-
-  private void recordStrictStaticScope(String fileUri, ASTNode node) {
+  private void recordStrictStaticScope(GroovyFileAnalysis.Builder analysis, ASTNode node) {
     if (node instanceof AnnotatedNode annotatedNode && hasStrictStaticAnnotation(annotatedNode)) {
-      strictStaticScopesByUri
-          .computeIfAbsent(fileUri, ignored -> new ArrayList<>())
-          .add(toRange(node));
+      analysis.addStrictStaticScope(toRange(node));
     }
   }
 
-  private void recordDynamicRelaxedScope(String fileUri, ASTNode node) {
+  private void recordDynamicRelaxedScope(GroovyFileAnalysis.Builder analysis, ASTNode node) {
     if (node instanceof AnnotatedNode annotatedNode
         && hasDynamicRelaxationAnnotation(annotatedNode)) {
-      dynamicRelaxedScopesByUri
-          .computeIfAbsent(fileUri, ignored -> new ArrayList<>())
-          .add(toRange(node));
-    }
-  }
-
-  private boolean isStrictStaticAt(String fileUri, Position position) {
-    if (isDynamicRelaxedAt(fileUri, position)) {
-      return false;
-    }
-    for (Range range : strictStaticScopesByUri.getOrDefault(fileUri, List.of())) {
-      if (contains(range, position)) {
-        return true;
-      }
+      analysis.addDynamicRelaxedScope(toRange(node));
     }
-    return false;
-  }
-
-  private boolean isDynamicRelaxedAt(String fileUri, Position position) {
-    for (Range range : dynamicRelaxedScopesByUri.getOrDefault(fileUri, List.of())) {
-      if (contains(range, position)) {
-        return true;
-      }
-    }
-    return false;
-  }
-
-  private static boolean contains(Range range, Position position) {
-    if (position.line < range.start.line || position.line > range.end.line) {
-      return false;
-    }
-    if (position.line == range.start.line && position.column < range.start.column) {
-      return false;
-    }
-    return position.line != range.end.line || position.column <= range.end.column;
   }
 
   private static boolean hasStrictStaticAnnotation(AnnotatedNode annotatedNode) {
@@ -1439,20 +1677,20 @@ public final class GroovyPlugin implements JvmLangPlugin {
     if (name == null || name.isBlank() || name.contains(".")) {
       return name;
     }
-    String aliasTarget = ctx.aliasToFqn.get(name);
+    String aliasTarget = ctx.aliasToFqn().get(name);
     if (aliasTarget != null) {
       return aliasTarget;
     }
     TypeResolver resolver = typeResolver;
     List<String> visibleImports =
         new ArrayList<>(
-            ctx.singleImports.size()
-                + ctx.starImports.size()
+            ctx.singleImports().size()
+                + ctx.starImports().size()
                 + DEFAULT_SINGLE_IMPORTS.size()
                 + DEFAULT_STAR_IMPORTS.size());
-    visibleImports.addAll(ctx.singleImports);
+    visibleImports.addAll(ctx.singleImports());
     visibleImports.addAll(DEFAULT_SINGLE_IMPORTS);
-    for (String pkg : ctx.starImports) {
+    for (String pkg : ctx.starImports()) {
       visibleImports.add(normPkg(pkg) + ".*");
     }
     for (String pkg : DEFAULT_STAR_IMPORTS) {
@@ -1461,11 +1699,11 @@ public final class GroovyPlugin implements JvmLangPlugin {
     if (resolver == null) {
       return fallbackResolveTypeName(name, ctx, visibleImports);
     }
-    String resolved = resolver.resolveClassName(name, ctx.pkg, visibleImports);
+    String resolved = resolver.resolveClassName(name, ctx.pkg(), visibleImports);
     if (!Objects.equals(resolved, name)) {
       return resolved;
     }
-    return (ctx.pkg == null || ctx.pkg.isBlank()) ? name : ctx.pkg + "." + name;
+    return (ctx.pkg() == null || ctx.pkg().isBlank()) ? name : ctx.pkg() + "." + name;
   }
 
   private static String fallbackResolveTypeName(
@@ -1475,7 +1713,7 @@ public final class GroovyPlugin implements JvmLangPlugin {
         return imported;
       }
     }
-    String samePackage = (ctx.pkg == null || ctx.pkg.isBlank()) ? name : ctx.pkg + "." + name;
+    String samePackage = (ctx.pkg() == null || ctx.pkg().isBlank()) ? name : ctx.pkg() + "." + name;
     if (isKnownRuntimeType(samePackage)) {
       return samePackage;
     }
@@ -1516,10 +1754,7 @@ public final class GroovyPlugin implements JvmLangPlugin {
   }
 
   private static boolean isType(SymbolInfo s) {
-    return switch (s.getKind()) {
-      case CLASS, INTERFACE, ENUM, ANNOTATION -> true;
-      default -> false;
-    };
+    return s.isType(); // does not read the class file of a listed binary type
   }
 
   private static void add(java.util.Map<String, CompletionItem> out, SymbolInfo s, String content) {
@@ -1760,7 +1995,9 @@ public final class GroovyPlugin implements JvmLangPlugin {
         receiverTypeForQualifier(
             qualifier, currentOwnerFqn, ctx, resolver, fileUri, position, core);
     if (receiverType == null) {
-      return null;
+      return isUntypedReceiver(qualifier, currentOwnerFqn, ctx, fileUri, position, core)
+          ? untypedReceiverMember(symbolName, ctx, core)
+          : null;
     }
     List<SymbolInfo> matches =
         resolver.membersAt(fileUri, position, receiverType).stream()
@@ -1775,6 +2012,108 @@ public final class GroovyPlugin implements JvmLangPlugin {
     return matches.size() == 1 ? matches.getFirst() : null;
   }
 
+  /**
+   * True if {@code qualifier} is a variable whose type is unknown, such as a {@code def} local:
+   * neither a type, a package nor a member with a declared type.
+   */
+  private boolean isUntypedReceiver(
+      String qualifier,
+      String ownerFqn,
+      FileCtx ctx,
+      String fileUri,
+      Position position,
+      CoreQuery core) {
+    if (qualifier == null
+        || qualifier.isEmpty()
+        || !Character.isLowerCase(qualifier.charAt(0))
+        || qualifier.equals("this")
+        || qualifier.startsWith("this.")) {
+      return false;
+    }
+    return receiverTypeForQualifier(
+                qualifier, ownerFqn, ctx, memberResolver(core), fileUri, position, core)
+            == null
+        && core.allInPackage(qualifier).isEmpty();
+  }
+
+  /**
+   * Completes members of an untyped receiver from the member name index: each name starting with
+   * {@code memberPrefix} is offered with the members of its most likely declaring type.
+   */
+  private static void collectUntypedReceiverMembers(
+      CoreQuery core,
+      String memberPrefix,
+      FileCtx ctx,
+      java.util.Map<String, CompletionItem> out) {
+    record Candidate(String name, String typeFqn, int rank) {}
+    List<Candidate> candidates = new ArrayList<>();
+    for (String name : core.memberNamesStartingWith(memberPrefix, DYNAMIC_MEMBER_LIMIT)) {
+      List<String> types = rankedDeclaringTypes(name, ctx, core);
+      if (!types.isEmpty()) {
+        candidates.add(
+            new Candidate(name, types.getFirst(), declaringTypeRank(types.getFirst(), ctx)));
+      }
+    }
+    // stable: names stay alphabetical within a rank
+    candidates.sort(Comparator.comparingInt(Candidate::rank));
+    for (Candidate candidate : candidates) {
+      for (SymbolInfo member : core.membersOf(candidate.typeFqn())) {
+        if (member.getKind() != SymbolInfo.Kind.CONSTRUCTOR
+            && candidate.name().equals(memberName(member))) {
+          addMember(out, member, candidate.name());
+        }
+      }
+    }
+  }
+
+  /** The member named {@code memberName} of its most likely declaring type, or null. */
+  private static SymbolInfo untypedReceiverMember(
+      String memberName, FileCtx ctx, CoreQuery core) {
+    for (String typeFqn : rankedDeclaringTypes(memberName, ctx, core)) {
+      for (SymbolInfo member : core.membersOf(typeFqn)) {
+        if (member.getKind() != SymbolInfo.Kind.CONSTRUCTOR
+            && typeFqn.equals(member.getContainerFqName())
+            && memberName.equals(memberName(member))) {
+          return member;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static List<String> rankedDeclaringTypes(String memberName, FileCtx ctx, CoreQuery core) {
+    List<String> types = new ArrayList<>(core.typesDeclaringMember(memberName));
+    // stable: source types, which the index lists first, stay ahead within a rank
+    types.sort(Comparator.comparingInt(type -> declaringTypeRank(type, ctx)));
+    return types;
+  }
+
+  /**
+   * Lower is likelier: types the file imports or shares a package with, then library and
+   * workspace types, then types visible through Groovy's default imports, then other JDK types.
+   */
+  private static int declaringTypeRank(String typeFqn, FileCtx ctx) {
+    String pkg = normPkg(ownerOf(typeFqn));
+    if (pkg.equals(normPkg(ctx.pkg()))
+        || ctx.singleImports().contains(typeFqn)
+        || ctx.aliasToFqn().containsValue(typeFqn)
+        || ctx.starImports().stream().anyMatch(star -> normPkg(star).equals(pkg))) {
+      return 0;
+    }
+    if (DEFAULT_STAR_IMPORTS.contains(pkg)) {
+      return 2;
+    }
+    boolean platform =
+        pkg.startsWith("java.")
+            || pkg.startsWith("javax.")
+            || pkg.startsWith("jdk.")
+            || pkg.startsWith("sun.")
+            || pkg.startsWith("com.sun.")
+            || pkg.startsWith("groovy.")
+            || pkg.startsWith("org.codehaus.groovy.");
+    return platform ? 3 : 1;
+  }
+
   private SymbolInfo resolveImplicitMember(
       String fileUri,
       Position position,
@@ -2020,8 +2359,7 @@ public final class GroovyPlugin implements JvmLangPlugin {
     return core == null ? List.of() : core.supertypesOf(typeFqn);
   }
 
-  private void recordTypeHierarchy(
-      String fileUri, String typeFqn, ClassNode classNode, FileCtx ctx) {
+  private List<String> directSupertypes(ClassNode classNode, FileCtx ctx) {
     ArrayList<String> supertypes = new ArrayList<>();
     ClassNode superClass = classNode.getSuperClass();
     if (superClass != null && !"java.lang.Object".equals(superClass.getName())) {
@@ -2036,38 +2374,20 @@ public final class GroovyPlugin implements JvmLangPlugin {
         supertypes.add(classType.fqName());
       }
     }
-    directSupertypesByType.put(typeFqn, List.copyOf(new LinkedHashSet<>(supertypes)));
-    typesByUri.computeIfAbsent(fileUri, ignored -> ConcurrentHashMap.newKeySet()).add(typeFqn);
-  }
-
-  private void clearHierarchy(String fileUri) {
-    Set<String> types = typesByUri.remove(fileUri);
-    if (types == null) {
-      return;
-    }
-    for (String type : types) {
-      directSupertypesByType.remove(type);
-    }
+    return supertypes;
   }
 
-  private String ownerAt(String fileUri, Position position, String fallbackOwner) {
-    if (position == null) {
-      return fallbackOwner;
-    }
-    ClassScope best = null;
-    for (ClassScope scope : classScopesByUri.getOrDefault(fileUri, List.of())) {
-      if (!contains(scope.range(), position)) {
-        continue;
-      }
-      if (best == null || span(scope.range()) <= span(best.range())) {
-        best = scope;
+  // one put makes the new analysis visible; the supertype index follows it
+  private void publish(String fileUri, GroovyFileAnalysis analysis) {
+    GroovyFileAnalysis previous = analysesByUri.put(fileUri, analysis);
+    directSupertypesByType.putAll(analysis.directSupertypes());
+    if (previous != null) {
+      for (String type : previous.directSupertypes().keySet()) {
+        if (!analysis.directSupertypes().containsKey(type)) {
+          directSupertypesByType.remove(type);
+        }
       }
     }
-    return best == null ? fallbackOwner : best.ownerFqn();
-  }
-
-  private static int span(Range range) {
-    return (range.end.line - range.start.line) * 10_000 + (range.end.column - range.start.column);
   }
 
   private static String memberCompletionKey(SymbolInfo symbol, String label) {
@@ -2084,42 +2404,30 @@ public final class GroovyPlugin implements JvmLangPlugin {
     };
   }
 
-  /** Build/augment ctx if parse failed earlier */
-  private FileCtx ensureCtx(String fileUri, String content) {
-    FileCtx ctx = ctxByUri.get(fileUri);
-    if (ctx == null) ctx = new FileCtx();
-
-    hydrateCtxFromSource(ctx, content);
-
-    ctxByUri.put(fileUri, ctx);
-    return ctx;
-  }
-
-  private static void hydrateCtxFromSource(FileCtx ctx, String content) {
-    if (ctx.pkg == null || ctx.pkg.isBlank()) {
-      var pm = PKG_DECL.matcher(content);
-      if (pm.find()) ctx.pkg = pm.group(1);
-    }
+  private static FileCtx ctxFromSource(String content) {
+    var pm = PKG_DECL.matcher(content);
+    String pkg = pm.find() ? pm.group(1) : "";
 
-    if (ctx.singleImports.isEmpty() && ctx.starImports.isEmpty() && ctx.aliasToFqn.isEmpty()) {
-      var IMPORT_WITH_ALIAS =
-          java.util.regex.Pattern.compile(
-              "(?m)^\\s*import(?:\\s+(static))?\\s+([\\w.]+)(?:\\s+as\\s+(\\w+))?\\s*$");
-      var m = IMPORT_WITH_ALIAS.matcher(content);
-      while (m.find()) {
-        String isStatic = m.group(1);
-        String target = m.group(2);
-        String alias = m.group(3);
-        if (isStatic != null) continue; // static imports are members, not types
-        if (STAR_SUFFIX.matcher(target).find()) {
-          ctx.starImports.add(
-              normPkg(target.substring(0, target.length() - 2))); // "a.b.*" -> "a.b"
-        } else {
-          ctx.singleImports.add(target);
-          if (alias != null && !alias.isBlank()) ctx.aliasToFqn.put(alias, target);
-        }
+    List<String> singleImports = new ArrayList<>();
+    List<String> starImports = new ArrayList<>();
+    Map<String, String> aliasToFqn = new HashMap<>();
+    var IMPORT_WITH_ALIAS =
+        java.util.regex.Pattern.compile(
+            "(?m)^\\s*import(?:\\s+(static))?\\s+([\\w.]+)(?:\\s+as\\s+(\\w+))?\\s*$");
+    var m = IMPORT_WITH_ALIAS.matcher(content);
+    while (m.find()) {
+      String isStatic = m.group(1);
+      String target = m.group(2);
+      String alias = m.group(3);
+      if (isStatic != null) continue; // static imports are members, not types
+      if (STAR_SUFFIX.matcher(target).find()) {
+        starImports.add(normPkg(target.substring(0, target.length() - 2))); // "a.b.*" -> "a.b"
+      } else {
+        singleImports.add(target);
+        if (alias != null && !alias.isBlank()) aliasToFqn.put(alias, target);
       }
     }
+    return new FileCtx(pkg, singleImports, starImports, aliasToFqn, "");
   }
 
   /**
@@ -2128,10 +2436,10 @@ public final class GroovyPlugin implements JvmLangPlugin {
    */
   private static boolean isTypeVisibleInFile(String fqn, FileCtx ctx) {
     String owner = normPkg(ownerOf(fqn));
-    if (owner.equals(normPkg(ctx.pkg))) return true;
-    if (ctx.singleImports.contains(fqn)) return true;
-    if (ctx.aliasToFqn.containsValue(fqn)) return true;
-    for (String p : ctx.starImports) {
+    if (owner.equals(normPkg(ctx.pkg()))) return true;
+    if (ctx.singleImports().contains(fqn)) return true;
+    if (ctx.aliasToFqn().containsValue(fqn)) return true;
+    for (String p : ctx.starImports()) {
       if (normPkg(p).equals(owner)) return true;
     }
     for (String p : DEFAULT_STAR_IMPORTS) {
@@ -0,0 +1,55 @@
+package se.alipsa.jvmpls.groovy;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import se.alipsa.jvmpls.core.model.Diagnostic;
+import se.alipsa.jvmpls.core.model.Range;
+import se.alipsa.jvmpls.groovy.GroovyFileAnalysis.FileCtx;
+
+/**
+ * What the last index pass of a file computed per class, for the next pass of the same file to
+ * reuse for the classes an edit did not touch.
+ *
+ * @param content the indexed text
+ * @param ctx package and imports the classes were analyzed with
+ * @param shapeVersion the plugin's shape version the results are valid for
+ * @param externalVersion the core's {@link se.alipsa.jvmpls.core.CoreQuery#externalVersion()} the
+ *     results were computed at, negative when they cannot be reused
+ * @param gdkGeneration the {@link se.alipsa.jvmpls.groovy.dynamic.GdkMethodTable#generation()} of
+ *     the extension methods the results saw, negative while the table was being built
+ * @param classes results by class name, in source order
+ */
+record IndexedClasses(
+    String content,
+    FileCtx ctx,
+    long shapeVersion,
+    long externalVersion,
+    long gdkGeneration,
+    Map<String, IndexedClass> classes) {
+
+  IndexedClasses {
+    classes = Collections.unmodifiableMap(new LinkedHashMap<>(classes));
+  }
+
+  /**
+   * Results for one class.
+   *
+   * @param shape fingerprint of the class's {@link ClassShape}
+   * @param range where the class was
+   * @param text source text of the class
+   * @param transforms synthetic members its transforms add, null when they cannot be reused
+   * @param diagnostics semantic diagnostics inside it, null when they cannot be reused
+   */
+  record IndexedClass(
+      String shape,
+      Range range,
+      String text,
+      List<AnchoredSpec> transforms,
+      List<Diagnostic> diagnostics) {}
+
+  /** A synthetic member located at the anchor with index {@code anchor} of its class's shape. */
+  record AnchoredSpec(SyntheticMemberSpec spec, int anchor) {}
+}
@@ -0,0 +1,130 @@
+package se.alipsa.jvmpls.groovy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import se.alipsa.jvmpls.core.model.Position;
+import se.alipsa.jvmpls.core.model.Range;
+
+/**
+ * Values keyed by source ranges, answering which ranges contain a position.
+ *
+ * <p>The ranges are sorted by start and read as a balanced search tree over that array, in which
+ * every subtree knows the furthest end it reaches. A query skips subtrees that end before the
+ * position or start after it, so it visits O(log n + k) entries for k hits, where scanning the
+ * list visits all n. Both ends of a range contain the position.
+ */
+final class RangeIndex<T> {
+  private static final RangeIndex<?> EMPTY = new RangeIndex<>(List.of(), ignored -> null);
+
+  private final List<T> values;
+  private final int[] order;
+  private final long[] starts;
+  private final long[] ends;
+  private final long[] maxEnds;
+
+  private RangeIndex(List<T> values, Function<T, Range> rangeOf) {
+    this.values = List.copyOf(values);
+    int size = values.size();
+    long[] valueStarts = new long[size];
+    long[] valueEnds = new long[size];
+    for (int i = 0; i < size; i++) {
+      Range range = rangeOf.apply(values.get(i));
+      valueStarts[i] = key(range.start);
+      valueEnds[i] = key(range.end);
+    }
+    // order[i] is the value at position i of the ranges sorted by start
+    order =
+        IntStream.range(0, size)
+            .boxed()
+            .sorted(Comparator.comparingLong(i -> valueStarts[i]))
+            .mapToInt(Integer::intValue)
+            .toArray();
+    starts = new long[size];
+    ends = new long[size];
+    for (int i = 0; i < size; i++) {
+      starts[i] = valueStarts[order[i]];
+      ends[i] = valueEnds[order[i]];
+    }
+    maxEnds = new long[size];
+    fillMaxEnds(0, size);
+  }
+
+  static <T> RangeIndex<T> of(List<T> values, Function<T, Range> rangeOf) {
+    return values.isEmpty() ? empty() : new RangeIndex<>(values, rangeOf);
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> RangeIndex<T> empty() {
+    return (RangeIndex<T>) EMPTY;
+  }
+
+  /** Values whose range contains position, in the order they were given. */
+  List<T> at(Position position) {
+    if (position == null || values.isEmpty()) {
+      return List.of();
+    }
+    List<Integer> hits = new ArrayList<>();
+    collect(0, starts.length, key(position), hits, false);
+    if (hits.isEmpty()) {
+      return List.of();
+    }
+    int[] indexes = hits.stream().mapToInt(i -> order[i]).toArray();
+    Arrays.sort(indexes);
+    List<T> out = new ArrayList<>(indexes.length);
+    for (int index : indexes) {
+      out.add(values.get(index));
+    }
+    return out;
+  }
+
+  /** Whether any range contains position. */
+  boolean contains(Position position) {
+    return position != null
+        && !values.isEmpty()
+        && collect(0, starts.length, key(position), null, true);
+  }
+
+  private long fillMaxEnds(int from, int to) {
+    if (from >= to) {
+      return Long.MIN_VALUE;
+    }
+    int mid = (from + to) >>> 1;
+    long max = Math.max(ends[mid], Math.max(fillMaxEnds(from, mid), fillMaxEnds(mid + 1, to)));
+    maxEnds[mid] = max;
+    return max;
+  }
+
+  private boolean collect(int from, int to, long key, List<Integer> hits, boolean firstOnly) {
+    if (from >= to) {
+      return false;
+    }
+    int mid = (from + to) >>> 1;
+    if (maxEnds[mid] < key) {
+      return false;
+    }
+    boolean found = collect(from, mid, key, hits, firstOnly);
+    if (found && firstOnly) {
+      return true;
+    }
+    if (starts[mid] > key) {
+      return found;
+    }
+    if (ends[mid] >= key) {
+      if (firstOnly) {
+        return true;
+      }
+      hits.add(mid);
+      found = true;
+    }
+    return collect(mid + 1, to, key, hits, firstOnly) || found;
+  }
+
+  private static long key(Position position) {
+    return ((long) position.line << 32) | (position.column & 0xFFFFFFFFL);
+  }
+}
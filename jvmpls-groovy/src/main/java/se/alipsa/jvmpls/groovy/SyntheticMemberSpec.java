@@ -122,6 +122,23 @@ public record SyntheticMemberSpec(
         false);
   }
 
+  /** The same member declared at another location, such as after an edit moved it. */
+  public SyntheticMemberSpec withLocation(Location newLocation) {
+    return new SyntheticMemberSpec(
+        kind,
+        ownerFqn,
+        memberName,
+        newLocation,
+        modifiers,
+        resolvedType,
+        methodSignature,
+        origin,
+        confidence,
+        interfaceType,
+        enumType,
+        annotationType);
+  }
+
   public void report(SymbolReporter reporter) {
     switch (kind) {
       case CLASS ->
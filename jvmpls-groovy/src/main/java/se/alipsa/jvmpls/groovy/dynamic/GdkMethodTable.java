@@ -0,0 +1,548 @@
+package se.alipsa.jvmpls.groovy.dynamic;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.codehaus.groovy.runtime.DefaultGroovyMethods;
+import org.codehaus.groovy.runtime.DefaultGroovyStaticMethods;
+
+import se.alipsa.jvmpls.core.CoreQuery;
+import se.alipsa.jvmpls.core.model.InferenceConfidence;
+import se.alipsa.jvmpls.core.model.Location;
+import se.alipsa.jvmpls.core.model.Position;
+import se.alipsa.jvmpls.core.model.Range;
+import se.alipsa.jvmpls.core.model.SymbolInfo;
+import se.alipsa.jvmpls.core.model.SyntheticOrigin;
+import se.alipsa.jvmpls.core.types.ArrayType;
+import se.alipsa.jvmpls.core.types.ClassType;
+import se.alipsa.jvmpls.core.types.JvmType;
+import se.alipsa.jvmpls.core.types.JvmTypes;
+import se.alipsa.jvmpls.core.types.MethodSignature;
+import se.alipsa.jvmpls.core.types.PrimitiveType;
+import se.alipsa.jvmpls.core.types.TypeVariable;
+
+import groovy.lang.GroovySystem;
+
+/**
+ * Groovy extension methods by the receiver type they apply to: the GDK classes of the Groovy
+ * runtime ({@code DefaultGroovyMethods}, {@code StringGroovyMethods}, ...) and the extension
+ * modules declared by the runtime and the workspace classpath.
+ *
+ * <p>Each static extension method is projected onto its first parameter's erased type. The
+ * runtime's methods are written to a cache file keyed by the Groovy version and its extension
+ * classes, so later sessions read them back instead of loading the extension classes. Workspace
+ * extension methods come from the index, which changes with the workspace: each table reads them
+ * again when the members of a workspace extension class change, and never writes them to the
+ * cache.
+ */
+public final class GdkMethodTable {
+  private static final Logger LOG = Logger.getLogger(GdkMethodTable.class.getName());
+  private static final String MODULE_DESCRIPTOR =
+      "META-INF/groovy/org.codehaus.groovy.runtime.ExtensionModule";
+  private static final String LEGACY_MODULE_DESCRIPTOR =
+      "META-INF/services/org.codehaus.groovy.runtime.ExtensionModule";
+  private static final String CACHE_HEADER = "gdk-methods 3";
+  private static final int MAX_CACHE_FILES = 16;
+  private static final Range ZERO_RANGE = new Range(new Position(0, 0), new Position(0, 0));
+  // numbers the contents of all tables, see generation()
+  private static final AtomicLong GENERATIONS = new AtomicLong();
+  private static final GdkMethodTable EMPTY = new GdkMethodTable(Map.of(), List.of(), null);
+
+  private static Map<String, List<SymbolInfo>> runtime;
+  private static Set<String> runtimeClasses;
+
+  /** One projected extension method, as stored in the cache file. */
+  private record Extension(
+      String receiver, String name, String signature, boolean isStatic, String classUri) {}
+
+  /** An extension class named by a module descriptor. */
+  private record ExtensionClass(String name, boolean isStatic) {}
+
+  /** The methods of a table as of the members versions of its workspace extension classes. */
+  private record Contents(
+      long[] membersVersions, Map<String, List<SymbolInfo>> methodsByReceiver, long generation) {}
+
+  private final Map<String, List<SymbolInfo>> runtimeMethods;
+  private final List<ExtensionClass> workspaceClasses;
+  private final CoreQuery core;
+  private volatile Contents contents;
+
+  private GdkMethodTable(
+      Map<String, List<SymbolInfo>> runtimeMethods,
+      List<ExtensionClass> workspaceClasses,
+      CoreQuery core) {
+    this.runtimeMethods = runtimeMethods;
+    this.workspaceClasses = workspaceClasses;
+    this.core = core;
+    this.contents = workspaceClasses.isEmpty() ? withRuntimeOnly() : readWorkspace();
+  }
+
+  public static GdkMethodTable empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Returns the table for {@code classpath}: the runtime's extension methods, read once per
+   * process, and those of the workspace extension classes as {@code core} knows them, read again
+   * when their members change.
+   */
+  public static GdkMethodTable forClasspath(List<String> classpath, CoreQuery core) {
+    Map<String, List<SymbolInfo>> runtimeMethods;
+    Set<String> runtimeClassNames;
+    synchronized (GdkMethodTable.class) {
+      if (runtime == null) {
+        runtimeClasses = runtimeClassNames();
+        runtime = loadRuntime(runtimeKey(runtimeClasses), defaultCacheRoot());
+      }
+      runtimeMethods = runtime;
+      runtimeClassNames = runtimeClasses;
+    }
+    return new GdkMethodTable(
+        runtimeMethods, workspaceExtensionClasses(classpath, runtimeClassNames), core);
+  }
+
+  /** Extension methods whose receiver is exactly {@code receiverFqn}, not its supertypes. */
+  public List<SymbolInfo> methodsOf(String receiverFqn) {
+    return receiverFqn == null
+        ? List.of()
+        : current().methodsByReceiver().getOrDefault(receiverFqn, List.of());
+  }
+
+  /**
+   * A number that changes whenever {@link #methodsOf} may answer differently, also across tables,
+   * so that callers can tell whether what they derived from the table is still valid.
+   */
+  public long generation() {
+    return current().generation();
+  }
+
+  private Contents current() {
+    Contents current = contents;
+    if (!changed(current)) {
+      return current;
+    }
+    synchronized (this) {
+      if (changed(contents)) {
+        contents = readWorkspace();
+      }
+      return contents;
+    }
+  }
+
+  private boolean changed(Contents current) {
+    for (int i = 0; i < workspaceClasses.size(); i++) {
+      if (core.membersVersion(workspaceClasses.get(i).name()) != current.membersVersions()[i]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Contents withRuntimeOnly() {
+    return new Contents(new long[0], runtimeMethods, GENERATIONS.incrementAndGet());
+  }
+
+  private Contents readWorkspace() {
+    long[] membersVersions = new long[workspaceClasses.size()];
+    List<Extension> extensions = new ArrayList<>();
+    for (int i = 0; i < workspaceClasses.size(); i++) {
+      ExtensionClass extensionClass = workspaceClasses.get(i);
+      // read before the members, so a change while reading is seen by the next lookup
+      membersVersions[i] = core.membersVersion(extensionClass.name());
+      fromIndex(core, extensionClass.name(), extensionClass.isStatic(), extensions);
+    }
+    Map<String, List<SymbolInfo>> byReceiver = new HashMap<>(runtimeMethods);
+    group(extensions, byReceiver);
+    return new Contents(
+        membersVersions, Collections.unmodifiableMap(byReceiver), GENERATIONS.incrementAndGet());
+  }
+
+  private static Path defaultCacheRoot() {
+    return Path.of(System.getProperty("user.home"), ".cache", "jvmpls", "gdk");
+  }
+
+  private static Map<String, List<SymbolInfo>> loadRuntime(String key, Path cacheRoot) {
+    Path cacheFile = cacheRoot.resolve(Integer.toHexString(key.hashCode()) + ".tsv");
+    List<Extension> extensions = readCache(cacheFile, key);
+    if (extensions == null) {
+      extensions = scanRuntime();
+      writeCache(cacheFile, key, extensions);
+    }
+    Map<String, List<SymbolInfo>> byReceiver = new HashMap<>();
+    group(extensions, byReceiver);
+    return Collections.unmodifiableMap(byReceiver);
+  }
+
+  /** Adds {@code extensions} to the lists of {@code byReceiver}, which stay unmodifiable. */
+  private static void group(
+      List<Extension> extensions, Map<String, List<SymbolInfo>> byReceiver) {
+    Map<String, List<SymbolInfo>> added = new HashMap<>();
+    for (Extension extension : extensions) {
+      added
+          .computeIfAbsent(extension.receiver(), receiver -> new ArrayList<>())
+          .add(toSymbol(extension));
+    }
+    added.forEach(
+        (receiver, symbols) ->
+            byReceiver.merge(
+                receiver,
+                List.copyOf(symbols),
+                (existing, more) -> Stream.concat(existing.stream(), more.stream()).toList()));
+  }
+
+  private static SymbolInfo toSymbol(Extension extension) {
+    Set<String> modifiers = extension.isStatic() ? Set.of("public", "static") : Set.of("public");
+    MethodSignature signature =
+        JvmTypes.fromLegacyMethodSignature(extension.signature(), modifiers);
+    return new SymbolInfo(
+        "groovy",
+        SymbolInfo.Kind.METHOD,
+        extension.receiver() + "#" + extension.name() + extension.signature(),
+        extension.receiver(),
+        extension.classUri().isEmpty() ? null : new Location(extension.classUri(), ZERO_RANGE),
+        extension.signature(),
+        modifiers,
+        List.of(),
+        null,
+        signature,
+        SyntheticOrigin.EXTENSION,
+        InferenceConfidence.DETERMINISTIC);
+  }
+
+  private static List<Extension> scanRuntime() {
+    List<Extension> extensions = new ArrayList<>();
+    Set<String> scanned = new LinkedHashSet<>();
+    for (Class<?> type : DefaultGroovyMethods.DGM_LIKE_CLASSES) {
+      scanned.add(type.getName());
+      reflect(type, false, extensions);
+    }
+    scanned.add(DefaultGroovyStaticMethods.class.getName());
+    reflect(DefaultGroovyStaticMethods.class, true, extensions);
+
+    // Modules bundled with the runtime the plugin runs on can be reflected directly.
+    ClassLoader loader = GdkMethodTable.class.getClassLoader();
+    for (Properties module : runtimeModules(loader)) {
+      for (String name : extensionClasses(module, "extensionClasses")) {
+        if (scanned.add(name)) {
+          reflect(loader, name, false, extensions);
+        }
+      }
+      for (String name : extensionClasses(module, "staticExtensionClasses")) {
+        if (scanned.add(name)) {
+          reflect(loader, name, true, extensions);
+        }
+      }
+    }
+    return extensions;
+  }
+
+  /** Names of the runtime's extension classes, read from its module descriptors. */
+  private static Set<String> runtimeClassNames() {
+    Set<String> names = new LinkedHashSet<>();
+    for (Class<?> type : DefaultGroovyMethods.DGM_LIKE_CLASSES) {
+      names.add(type.getName());
+    }
+    names.add(DefaultGroovyStaticMethods.class.getName());
+    for (Properties module : runtimeModules(GdkMethodTable.class.getClassLoader())) {
+      names.addAll(extensionClasses(module, "extensionClasses"));
+      names.addAll(extensionClasses(module, "staticExtensionClasses"));
+    }
+    return names;
+  }
+
+  /**
+   * Extension classes the workspace modules on {@code classpath} declare, other than the runtime's.
+   * Their methods are read from the index, without loading the classes.
+   */
+  private static List<ExtensionClass> workspaceExtensionClasses(
+      List<String> classpath, Set<String> runtimeClassNames) {
+    Set<String> seen = new LinkedHashSet<>(runtimeClassNames);
+    List<ExtensionClass> classes = new ArrayList<>();
+    for (String entry : classpath) {
+      for (Properties module : workspaceModules(entry)) {
+        for (String name : extensionClasses(module, "extensionClasses")) {
+          if (seen.add(name)) {
+            classes.add(new ExtensionClass(name, false));
+          }
+        }
+        for (String name : extensionClasses(module, "staticExtensionClasses")) {
+          if (seen.add(name)) {
+            classes.add(new ExtensionClass(name, true));
+          }
+        }
+      }
+    }
+    return List.copyOf(classes);
+  }
+
+  private static void reflect(
+      ClassLoader loader, String className, boolean isStatic, List<Extension> out) {
+    try {
+      reflect(Class.forName(className, false, loader), isStatic, out);
+    } catch (ClassNotFoundException | LinkageError e) {
+      LOG.log(Level.FINE, "Skipping unloadable extension class " + className, e);
+    }
+  }
+
+  private static void reflect(Class<?> type, boolean isStatic, List<Extension> out) {
+    URL resource = type.getResource("/" + type.getName().replace('.', '/') + ".class");
+    String classUri = resource == null ? "" : resource.toString();
+    Method[] methods;
+    try {
+      // declared only: inherited statics, such as those of DefaultGroovyMethodsSupport, are not
+      // extension methods
+      methods = type.getDeclaredMethods();
+    } catch (LinkageError e) {
+      LOG.log(Level.FINE, "Skipping extension class " + type.getName(), e);
+      return;
+    }
+    for (Method method : methods) {
+      if (!Modifier.isStatic(method.getModifiers())
+          || !Modifier.isPublic(method.getModifiers())
+          || method.getParameterCount() == 0
+          || method.isSynthetic()
+          || method.isAnnotationPresent(Deprecated.class)) {
+        continue;
+      }
+      Class<?>[] parameters = method.getParameterTypes();
+      String signature =
+          Arrays.stream(parameters, 1, parameters.length)
+              .map(Class::getTypeName)
+              .collect(Collectors.joining(",", "(", ")"))
+              + method.getReturnType().getTypeName();
+      out.add(
+          new Extension(
+              parameters[0].getTypeName(), method.getName(), signature, isStatic, classUri));
+    }
+  }
+
+  private static void fromIndex(
+      CoreQuery core, String className, boolean isStatic, List<Extension> out) {
+    for (SymbolInfo symbol : core.membersOf(className)) {
+      MethodSignature signature = symbol.getMethodSignature();
+      if (symbol.getKind() != SymbolInfo.Kind.METHOD
+          || signature == null
+          || signature.parameterTypes().isEmpty()
+          || !symbol.getModifiers().contains("static")
+          || !symbol.getModifiers().contains("public")) {
+        continue;
+      }
+      List<JvmType> parameters = signature.parameterTypes();
+      String projected =
+          parameters.subList(1, parameters.size()).stream()
+                  .map(GdkMethodTable::erasure)
+                  .collect(Collectors.joining(",", "(", ")"))
+              + erasure(signature.returnType());
+      String classUri = symbol.getLocation() == null ? "" : symbol.getLocation().getUri();
+      out.add(
+          new Extension(
+              erasure(parameters.getFirst()), methodName(symbol), projected, isStatic, classUri));
+    }
+  }
+
+  private static String erasure(JvmType type) {
+    return switch (type) {
+      case ClassType classType -> classType.fqName();
+      case ArrayType arrayType -> erasure(arrayType.componentType()) + "[]";
+      case PrimitiveType primitive -> primitive.name();
+      case TypeVariable variable ->
+          variable.upperBounds().isEmpty()
+              ? "java.lang.Object"
+              : erasure(variable.upperBounds().getFirst());
+      default -> type.displayName();
+    };
+  }
+
+  private static String methodName(SymbolInfo symbol) {
+    String fqn = symbol.getFqName();
+    int hash = fqn.lastIndexOf('#');
+    int open = fqn.indexOf('(', hash + 1);
+    return open < 0 ? fqn.substring(hash + 1) : fqn.substring(hash + 1, open);
+  }
+
+  private static List<Properties> runtimeModules(ClassLoader loader) {
+    List<Properties> modules = new ArrayList<>();
+    for (String descriptor : List.of(MODULE_DESCRIPTOR, LEGACY_MODULE_DESCRIPTOR)) {
+      try {
+        for (URL url : Collections.list(loader.getResources(descriptor))) {
+          try (InputStream in = url.openStream()) {
+            modules.add(properties(in));
+          }
+        }
+      } catch (IOException e) {
+        LOG.log(Level.FINE, "Failed to list extension modules " + descriptor, e);
+      }
+    }
+    return modules;
+  }
+
+  private static List<Properties> workspaceModules(String entry) {
+    Path path = Path.of(entry);
+    List<Properties> modules = new ArrayList<>();
+    try {
+      if (Files.isDirectory(path)) {
+        for (String descriptor : List.of(MODULE_DESCRIPTOR, LEGACY_MODULE_DESCRIPTOR)) {
+          Path file = path.resolve(descriptor);
+          if (Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+              modules.add(properties(in));
+            }
+          }
+        }
+      } else if (Files.isRegularFile(path)) {
+        try (ZipFile zipFile = new ZipFile(path.toFile())) {
+          for (String descriptor : List.of(MODULE_DESCRIPTOR, LEGACY_MODULE_DESCRIPTOR)) {
+            ZipEntry zipEntry = zipFile.getEntry(descriptor);
+            if (zipEntry != null) {
+              try (InputStream in = zipFile.getInputStream(zipEntry)) {
+                modules.add(properties(in));
+              }
+            }
+          }
+        }
+      }
+    } catch (IOException e) {
+      LOG.log(Level.FINE, "Failed to read extension modules from " + entry, e);
+    }
+    return modules;
+  }
+
+  private static Properties properties(InputStream in) throws IOException {
+    Properties properties = new Properties();
+    properties.load(in);
+    return properties;
+  }
+
+  private static List<String> extensionClasses(Properties module, String property) {
+    return Arrays.stream(module.getProperty(property, "").split(","))
+        .map(String::trim)
+        .filter(name -> !name.isEmpty())
+        .toList();
+  }
+
+  /** Identifies the inputs of the cached table: the Groovy version and its extension classes. */
+  private static String runtimeKey(Set<String> runtimeClassNames) {
+    return CACHE_HEADER
+        + '|'
+        + GroovySystem.getVersion()
+        + '|'
+        + Integer.toHexString(String.join(",", runtimeClassNames).hashCode());
+  }
+
+  private static List<Extension> readCache(Path cacheFile, String key) {
+    if (!Files.isRegularFile(cacheFile)) {
+      return null;
+    }
+    try {
+      List<String> lines = Files.readAllLines(cacheFile, StandardCharsets.UTF_8);
+      if (lines.isEmpty() || !lines.getFirst().equals(key)) {
+        return null;
+      }
+      List<Extension> extensions = new ArrayList<>(lines.size());
+      String classUri = "";
+      for (String line : lines.subList(1, lines.size())) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length == 2 && fields[0].equals("C")) {
+          classUri = fields[1];
+        } else if (fields.length == 5 && fields[0].equals("M")) {
+          extensions.add(
+              new Extension(fields[1], fields[2], fields[3], fields[4].equals("s"), classUri));
+        }
+      }
+      // the modification time orders tables for pruning
+      Files.setLastModifiedTime(cacheFile, FileTime.fromMillis(System.currentTimeMillis()));
+      return extensions;
+    } catch (IOException e) {
+      LOG.log(Level.FINE, "Ignoring unreadable extension method cache " + cacheFile, e);
+      return null;
+    }
+  }
+
+  private static void writeCache(Path cacheFile, String key, List<Extension> extensions) {
+    try {
+      Files.createDirectories(cacheFile.getParent());
+      Path temp = Files.createTempFile(cacheFile.getParent(), "gdk", ".tmp");
+      try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+        writer.write(key);
+        writer.newLine();
+        String classUri = null;
+        for (Extension extension : extensions) {
+          // extensions arrive grouped by class, so each location is written once
+          if (!extension.classUri().equals(classUri)) {
+            classUri = extension.classUri();
+            writer.write("C\t" + classUri);
+            writer.newLine();
+          }
+          writer.write(
+              String.join(
+                  "\t",
+                  "M",
+                  extension.receiver(),
+                  extension.name(),
+                  extension.signature(),
+                  extension.isStatic() ? "s" : "i"));
+          writer.newLine();
+        }
+      }
+      try {
+        Files.move(
+            temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+      }
+      prune(cacheFile.getParent());
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Failed to cache extension methods in " + cacheFile, e);
+    }
+  }
+
+  /** Keeps the tables of the most recently used classpaths. */
+  private static void prune(Path cacheRoot) throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.list(cacheRoot)) {
+      files =
+          paths
+              .filter(path -> path.getFileName().toString().endsWith(".tsv"))
+              .sorted(Comparator.comparing(GdkMethodTable::lastModified).reversed())
+              .toList();
+    }
+    for (Path stale : files.subList(Math.min(files.size(), MAX_CACHE_FILES), files.size())) {
+      Files.deleteIfExists(stale);
+    }
+  }
+
+  private static FileTime lastModified(Path path) {
+    try {
+      return Files.getLastModifiedTime(path);
+    } catch (IOException e) {
+      return FileTime.fromMillis(0);
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package se.alipsa.jvmpls.groovy.dynamic;
 
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -19,16 +20,33 @@ import se.alipsa.jvmpls.core.types.JvmTypes;
 /**
  * Resolves visible members for a Groovy receiver at a specific file position.
  *
- * <p>The resolver merges indexed members, scoped synthetic members, and supertypes while keeping
- * synthetic provenance/confidence ordering stable for completion, definition, and diagnostics.
+ * <p>The resolver merges indexed members, scoped synthetic members, extension methods, and
+ * supertypes while keeping synthetic provenance/confidence ordering stable for completion,
+ * definition, and diagnostics.
+ *
+ * <p>A resolver remembers what it resolved: the members of each receiver type for each set of
+ * scoped members visible at the position, and the members and supertypes of every type it
+ * expanded, which all receivers sharing that supertype reuse. Create one per request or analysis
+ * pass, so that it does not outlive the index it read, and use it from one thread.
  */
 public final class GroovyMemberResolver {
+  private static final String OBJECT = "java.lang.Object";
+  private static final Set<String> PRIMITIVES =
+      Set.of("boolean", "byte", "char", "short", "int", "long", "float", "double", "void");
 
   private final CoreQuery core;
   private final BiFunction<String, Position, List<ScopedSyntheticMember>> scopedMembers;
   private final java.util.function.Function<String, List<String>> supertypes;
   private final Predicate<String> dynamicMethodType;
   private final Predicate<String> dynamicPropertyType;
+  private final java.util.function.Function<String, List<SymbolInfo>> extensionMethods;
+  private final Map<Receiver, List<SymbolInfo>> membersByReceiver = new HashMap<>();
+  private final Map<String, List<String>> hierarchies = new HashMap<>();
+  private final Map<String, Map<String, SymbolInfo>> declaredMembers = new HashMap<>();
+  private final Map<String, Map<String, SymbolInfo>> extensionMembers = new HashMap<>();
+
+  /** A receiver type together with the scoped members visible where it is resolved. */
+  private record Receiver(String typeFqn, List<ScopedSyntheticMember> scoped) {}
 
   public GroovyMemberResolver(
       CoreQuery core,
@@ -36,19 +54,42 @@ public final class GroovyMemberResolver {
       java.util.function.Function<String, List<String>> supertypes,
       Predicate<String> dynamicMethodType,
       Predicate<String> dynamicPropertyType) {
+    this(
+        core,
+        scopedMembers,
+        supertypes,
+        dynamicMethodType,
+        dynamicPropertyType,
+        typeFqn -> List.of());
+  }
+
+  public GroovyMemberResolver(
+      CoreQuery core,
+      BiFunction<String, Position, List<ScopedSyntheticMember>> scopedMembers,
+      java.util.function.Function<String, List<String>> supertypes,
+      Predicate<String> dynamicMethodType,
+      Predicate<String> dynamicPropertyType,
+      java.util.function.Function<String, List<SymbolInfo>> extensionMethods) {
     this.core = Objects.requireNonNull(core, "core");
     this.scopedMembers = Objects.requireNonNull(scopedMembers, "scopedMembers");
     this.supertypes = Objects.requireNonNull(supertypes, "supertypes");
     this.dynamicMethodType = Objects.requireNonNull(dynamicMethodType, "dynamicMethodType");
     this.dynamicPropertyType = Objects.requireNonNull(dynamicPropertyType, "dynamicPropertyType");
+    this.extensionMethods = Objects.requireNonNull(extensionMethods, "extensionMethods");
   }
 
   public List<SymbolInfo> membersAt(String fileUri, Position position, String receiverTypeFqn) {
-    LinkedHashMap<String, SymbolInfo> results = new LinkedHashMap<>();
-    collect(receiverTypeFqn, fileUri, position, results, new LinkedHashSet<>());
-    return results.values().stream()
-        .sorted(Comparator.comparingInt(GroovyMemberResolver::priority))
-        .toList();
+    List<ScopedSyntheticMember> scoped =
+        scopedMembers.apply(fileUri, position).stream()
+            .filter(member -> member.isVisibleAt(position))
+            .toList();
+    Receiver receiver = new Receiver(receiverTypeFqn, scoped);
+    List<SymbolInfo> members = membersByReceiver.get(receiver);
+    if (members == null) {
+      members = resolve(receiverTypeFqn, scoped);
+      membersByReceiver.put(receiver, members);
+    }
+    return members;
   }
 
   public boolean isDynamicMethodType(String receiverTypeFqn) {
@@ -59,25 +100,68 @@ public final class GroovyMemberResolver {
     return receiverTypeFqn != null && dynamicPropertyType.test(receiverTypeFqn);
   }
 
-  private void collect(
-      String typeFqn,
-      String fileUri,
-      Position position,
-      Map<String, SymbolInfo> results,
-      Set<String> visited) {
+  private List<SymbolInfo> resolve(String receiverTypeFqn, List<ScopedSyntheticMember> scoped) {
+    LinkedHashMap<String, SymbolInfo> results = new LinkedHashMap<>();
+    for (String typeFqn : hierarchy(receiverTypeFqn)) {
+      putAbsent(results, declaredMembers(typeFqn));
+      for (ScopedSyntheticMember member : scoped) {
+        if (typeFqn.equals(member.targetTypeFqn())) {
+          results.putIfAbsent(identity(member.symbol()), member.symbol());
+        }
+      }
+      putAbsent(results, extensionMembers(typeFqn));
+    }
+    return results.values().stream()
+        .sorted(Comparator.comparingInt(GroovyMemberResolver::priority))
+        .toList();
+  }
+
+  /** The receiver and its supertypes, depth first, then Object for reference types. */
+  private List<String> hierarchy(String receiverTypeFqn) {
+    List<String> types = hierarchies.get(receiverTypeFqn);
+    if (types == null) {
+      Set<String> visited = new LinkedHashSet<>();
+      addWithSupertypes(receiverTypeFqn, visited);
+      if (receiverTypeFqn != null && !PRIMITIVES.contains(receiverTypeFqn)) {
+        // every reference type receives the extension methods declared on Object
+        addWithSupertypes(OBJECT, visited);
+      }
+      types = List.copyOf(visited);
+      hierarchies.put(receiverTypeFqn, types);
+    }
+    return types;
+  }
+
+  private void addWithSupertypes(String typeFqn, Set<String> visited) {
     if (typeFqn == null || typeFqn.isBlank() || !visited.add(typeFqn)) {
       return;
     }
-    for (SymbolInfo symbol : core.membersOf(typeFqn)) {
-      results.putIfAbsent(identity(symbol), symbol);
+    for (String supertype : supertypes.apply(typeFqn)) {
+      addWithSupertypes(supertype, visited);
     }
-    for (ScopedSyntheticMember scoped : scopedMembers.apply(fileUri, position)) {
-      if (typeFqn.equals(scoped.targetTypeFqn()) && scoped.isVisibleAt(position)) {
-        results.putIfAbsent(identity(scoped.symbol()), scoped.symbol());
-      }
+  }
+
+  private Map<String, SymbolInfo> declaredMembers(String typeFqn) {
+    return declaredMembers.computeIfAbsent(typeFqn, type -> byIdentity(core.membersOf(type)));
+  }
+
+  private Map<String, SymbolInfo> extensionMembers(String typeFqn) {
+    return extensionMembers.computeIfAbsent(
+        typeFqn, type -> byIdentity(extensionMethods.apply(type)));
+  }
+
+  private static Map<String, SymbolInfo> byIdentity(List<SymbolInfo> symbols) {
+    LinkedHashMap<String, SymbolInfo> out = new LinkedHashMap<>();
+    for (SymbolInfo symbol : symbols) {
+      out.putIfAbsent(identity(symbol), symbol);
     }
-    for (String supertype : supertypes.apply(typeFqn)) {
-      collect(supertype, fileUri, position, results, visited);
+    return out;
+  }
+
+  private static void putAbsent(
+      Map<String, SymbolInfo> results, Map<String, SymbolInfo> members) {
+    for (Map.Entry<String, SymbolInfo> entry : members.entrySet()) {
+      results.putIfAbsent(entry.getKey(), entry.getValue());
     }
   }
 
@@ -2,7 +2,9 @@ package se.alipsa.jvmpls.groovy.transforms;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.codehaus.groovy.ast.FieldNode;
 
@@ -15,12 +17,17 @@ import se.alipsa.jvmpls.groovy.SyntheticMemberSpec;
 
 final class DelegateTransformAnalyzer {
 
+  // members that can be delegated to, by delegate type, kept while the type's members are unchanged
+  private final Map<String, DelegableMembers> membersByType = new ConcurrentHashMap<>();
+
+  private record DelegableMembers(CoreQuery core, long version, List<SymbolInfo> members) {}
+
   List<SyntheticMemberSpec> analyze(FieldNode delegateField, TransformContext context) {
     if (!(context.typeOf().apply(delegateField.getType()) instanceof ClassType delegateType)) {
       return List.of();
     }
     ArrayList<SyntheticMemberSpec> specs = new ArrayList<>();
-    for (SymbolInfo symbol : context.core().membersOf(delegateType.fqName())) {
+    for (SymbolInfo symbol : delegableMembers(delegateType.fqName(), context.core())) {
       if (!isVisible(symbol, context.ownerFqn(), delegateType.fqName(), context.core())) {
         continue;
       }
@@ -49,6 +56,32 @@ final class DelegateTransformAnalyzer {
     return specs;
   }
 
+  /**
+   * The instance members of a type that delegation can forward to. Which of them the owner sees
+   * depends on the owner, so visibility is checked on each use.
+   */
+  private List<SymbolInfo> delegableMembers(String typeFqn, CoreQuery core) {
+    long version = core.membersVersion(typeFqn);
+    DelegableMembers cached = membersByType.get(typeFqn);
+    if (cached != null && cached.core() == core && version >= 0 && cached.version() == version) {
+      return cached.members();
+    }
+    ArrayList<SymbolInfo> members = new ArrayList<>();
+    for (SymbolInfo symbol : core.membersOf(typeFqn)) {
+      Set<String> modifiers = symbol.getModifiers() == null ? Set.of() : symbol.getModifiers();
+      boolean delegable =
+          (symbol.getKind() == SymbolInfo.Kind.METHOD && symbol.getMethodSignature() != null)
+              || (symbol.getKind() == SymbolInfo.Kind.FIELD && symbol.getResolvedType() != null);
+      if (delegable && !modifiers.contains("static") && !modifiers.contains("private")) {
+        members.add(symbol);
+      }
+    }
+    if (version >= 0) {
+      membersByType.put(typeFqn, new DelegableMembers(core, version, List.copyOf(members)));
+    }
+    return members;
+  }
+
   private static String memberName(SymbolInfo symbol) {
     String fqn = symbol.getFqName();
     int hash = fqn.lastIndexOf('#');
@@ -17,6 +17,7 @@ import org.junit.jupiter.api.Test;
 import se.alipsa.jvmpls.core.model.CompletionItem;
 import se.alipsa.jvmpls.core.model.Diagnostic;
 import se.alipsa.jvmpls.core.model.Position;
+import se.alipsa.jvmpls.core.model.SyntheticOrigin;
 import se.alipsa.jvmpls.core.server.CoreServer;
 import se.alipsa.jvmpls.core.types.ClassType;
 import se.alipsa.jvmpls.core.types.JvmType;
@@ -70,6 +71,92 @@ class GroovyPluginCompletionsTest {
     }
   }
 
+  @Test
+  void unparseable_edit_completes_from_the_imports_of_its_own_text() throws Exception {
+    Path dir = Files.createTempDirectory("jvmpls-groovy-complete-edit");
+
+    String bananaUri = dir.resolve("Banana.groovy").toUri().toString();
+    String bananaCode = "package thing\nclass Banana {}";
+    String bandanaUri = dir.resolve("Bandana.groovy").toUri().toString();
+    String bandanaCode = "package other\nclass Bandana {}";
+
+    String mainUri = dir.resolve("Main.groovy").toUri().toString();
+    String parsed =
+        """
+        package demo
+        import thing.Banana
+        class Main {
+          static void run() {
+            Ba
+          }
+        }
+        """;
+    // the edit swaps the import and leaves the method open
+    String unparseable =
+        """
+        package demo
+        import other.Bandana
+        class Main {
+          static void run() {
+            Ba/*caret*/
+        """;
+
+    try (CoreServer server = CoreServer.createDefault((u, d) -> {})) {
+      server.openFile(bananaUri, bananaCode);
+      server.openFile(bandanaUri, bandanaCode);
+      server.openFile(mainUri, parsed);
+      List<Diagnostic> diagnostics = server.changeFile(mainUri, unparseable);
+      assertFalse(diagnostics.isEmpty(), "Expected the edit not to parse");
+
+      List<CompletionItem> items =
+          server.completions(mainUri, positionAtMarker(unparseable, "/*caret*/"));
+
+      CompletionItem bandana = byLabel(items, "Bandana");
+      assertNotNull(bandana, "Expected 'Bandana' from the edited import");
+      assertTrue(bandana.getAdditionalTextEdits().isEmpty(), "Bandana is already imported");
+      CompletionItem banana = byLabel(items, "Banana");
+      assertTrue(
+          banana == null || !banana.getAdditionalTextEdits().isEmpty(),
+          "Banana is no longer imported");
+    }
+  }
+
+  @Test
+  void completes_members_of_the_innermost_enclosing_class() throws Exception {
+    Path dir = Files.createTempDirectory("jvmpls-groovy-complete-nested");
+
+    Path main = dir.resolve("Outer.groovy");
+    String mainCode =
+        """
+        package demo
+        class Outer {
+          String outerName
+          static class Inner {
+            String innerName
+            void run() {
+              inn/*inner*/
+            }
+          }
+          void run() {
+            ou/*outer*/
+          }
+        }
+        """;
+    String mainUri = main.toUri().toString();
+
+    try (CoreServer server = CoreServer.createDefault((u, d) -> {})) {
+      server.openFile(mainUri, mainCode);
+
+      List<CompletionItem> inner =
+          server.completions(mainUri, positionAtMarker(mainCode, "/*inner*/"));
+      List<CompletionItem> outer =
+          server.completions(mainUri, positionAtMarker(mainCode, "/*outer*/"));
+
+      assertTrue(containsLabel(inner, "innerName"), "Expected Inner's property inside Inner");
+      assertTrue(containsLabel(outer, "outerName"), "Expected Outer's property after Inner");
+    }
+  }
+
   @Test
   void completes_from_star_import_and_dotted_prefix() throws Exception {
     Path dir = Files.createTempDirectory("jvmpls-groovy-complete2");
@@ -631,6 +718,98 @@ class GroovyPluginCompletionsTest {
     }
   }
 
+  @Test
+  void completes_members_of_untyped_receivers_from_declaring_types() throws Exception {
+    Path dir = Files.createTempDirectory("jvmpls-groovy-untyped");
+
+    Path store = dir.resolve("Store.groovy");
+    String storeCode =
+        """
+        package data
+        class Store {
+          def withTransaction(Closure work) { work() }
+          def withTimeout(int millis) { this }
+        }
+        """;
+    Files.writeString(store, storeCode, StandardCharsets.UTF_8);
+    String storeUri = store.toUri().toString();
+
+    Path main = dir.resolve("Main.groovy");
+    String mainCode =
+        """
+        package demo
+        class Main {
+          def locate() { null }
+          void run() {
+            def repo = locate()
+            repo.withT/*caret*/
+          }
+        }
+        """;
+    Files.writeString(main, mainCode, StandardCharsets.UTF_8);
+    String mainUri = main.toUri().toString();
+
+    try (CoreServer server = CoreServer.createDefault((u, d) -> {})) {
+      server.openFile(storeUri, storeCode);
+      server.openFile(mainUri, mainCode);
+
+      List<CompletionItem> items =
+          server.completions(mainUri, positionAtMarker(mainCode, "/*caret*/"));
+
+      CompletionItem withTransaction = byLabel(items, "withTransaction");
+      assertNotNull(withTransaction, "member of a type declaring it should be offered");
+      assertTrue(withTransaction.getDetail().startsWith("data.Store"));
+      assertTrue(containsLabel(items, "withTimeout"));
+      assertEquals("withTimeout", items.getFirst().getLabel(), "source members rank first");
+    }
+  }
+
+  @Test
+  void completes_gdk_extension_methods_on_receivers() throws Exception {
+    Path dir = Files.createTempDirectory("jvmpls-groovy-gdk");
+
+    Path main = dir.resolve("Main.groovy");
+    String mainCode =
+        """
+        package demo
+        class Main {
+          List<String> names = []
+          String title = ''
+          void run() {
+            names./*list*/
+            title.capi/*string*/
+          }
+        }
+        """;
+    Files.writeString(main, mainCode, StandardCharsets.UTF_8);
+    String mainUri = main.toUri().toString();
+
+    try (CoreServer server = CoreServer.createDefault((u, d) -> {})) {
+      server.openFile(mainUri, mainCode);
+
+      // the extension method table is built in the background
+      Position listPosition = positionAtMarker(mainCode, "/*list*/");
+      long deadline = System.nanoTime() + 10_000_000_000L;
+      List<CompletionItem> items = server.completions(mainUri, listPosition);
+      while (!containsLabel(items, "collect") && System.nanoTime() < deadline) {
+        Thread.sleep(20);
+        items = server.completions(mainUri, listPosition);
+      }
+      for (String gdk : List.of("collect", "each", "findAll", "inspect")) {
+        CompletionItem item = byLabel(items, gdk);
+        assertNotNull(item, "Expected GDK method '" + gdk + "' on List receiver");
+        assertEquals(SyntheticOrigin.EXTENSION, item.getSyntheticOrigin());
+      }
+      assertEquals(
+          SyntheticOrigin.NONE,
+          byLabel(items, "add").getSyntheticOrigin(),
+          "declared members keep their own entry");
+
+      items = server.completions(mainUri, positionAtMarker(mainCode, "/*string*/"));
+      assertTrue(containsLabel(items, "capitalize"), "Expected StringGroovyMethods on String");
+    }
+  }
+
   // ---------- helpers ----------
 
   private static boolean containsLabel(List<CompletionItem> items, String label) {
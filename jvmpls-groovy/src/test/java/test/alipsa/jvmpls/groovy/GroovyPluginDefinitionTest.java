@@ -140,6 +140,48 @@ class GroovyPluginDefinitionTest {
     }
   }
 
+  @Test
+  void definition_resolves_members_of_untyped_receivers() throws Exception {
+    Path dir = Files.createTempDirectory("jvmpls-groovy-untyped-def");
+
+    Path store = dir.resolve("Store.groovy");
+    String storeCode =
+        """
+        package data
+        class Store {
+          def withTransaction(Closure work) { work() }
+        }
+        """;
+    Files.writeString(store, storeCode, StandardCharsets.UTF_8);
+    String storeUri = store.toUri().toString();
+
+    Path main = dir.resolve("Main.groovy");
+    String mainCode =
+        """
+        package demo
+        class Main {
+          def locate() { null }
+          void run() {
+            def repo = locate()
+            repo.withTransaction { println 'done' }
+          }
+        }
+        """;
+    Files.writeString(main, mainCode, StandardCharsets.UTF_8);
+    String mainUri = main.toUri().toString();
+
+    try (CoreServer server = CoreServer.createDefault((u, d) -> {})) {
+      server.openFile(storeUri, storeCode);
+      server.openFile(mainUri, mainCode);
+
+      Optional<Location> def =
+          server.definition(mainUri, firstOccurrencePosition(mainCode, "withTransaction"));
+
+      assertTrue(def.isPresent(), "untyped receiver member should resolve");
+      assertEquals(storeUri, def.get().getUri());
+    }
+  }
+
   @Test
   void definition_resolves_transform_generated_members() throws Exception {
     Path dir = Files.createTempDirectory("jvmpls-groovy-transform-def");
@@ -0,0 +1,278 @@
+package test.alipsa.jvmpls.groovy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.Test;
+
+import se.alipsa.jvmpls.core.CoreQuery;
+import se.alipsa.jvmpls.core.PluginEnvironment;
+import se.alipsa.jvmpls.core.SymbolReporter;
+import se.alipsa.jvmpls.core.model.Diagnostic;
+import se.alipsa.jvmpls.core.model.InferenceConfidence;
+import se.alipsa.jvmpls.core.model.Location;
+import se.alipsa.jvmpls.core.model.Range;
+import se.alipsa.jvmpls.core.model.SymbolInfo;
+import se.alipsa.jvmpls.core.model.SyntheticOrigin;
+import se.alipsa.jvmpls.core.types.JvmType;
+import se.alipsa.jvmpls.core.types.MethodSignature;
+import se.alipsa.jvmpls.groovy.GroovyPlugin;
+
+class GroovyPluginIncrementalIndexTest {
+  private static final String URI = "file:///work/demo/Shapes.groovy";
+  private static final String ORIGINAL =
+      """
+      package demo
+      import groovy.transform.CompileStatic
+      import groovy.transform.ToString
+      import groovy.transform.TupleConstructor
+      import groovy.transform.builder.Builder
+
+      @TupleConstructor
+      @ToString
+      class Point {
+        int x
+        int y
+      }
+
+      @Builder
+      class Person {
+        String name
+        Point home
+      }
+
+      @CompileStatic
+      class Ops {
+        String label = "x"
+        int total(int n) {
+          label.missing()
+          return n
+        }
+      }
+
+      @CompileStatic
+      class Other {
+        void run() {
+          "s".unknown()
+        }
+      }
+      """;
+
+  @Test
+  void edits_report_the_same_symbols_and_diagnostics_as_a_full_pass() {
+    GroovyPlugin plugin = configured();
+    indexAndCheck(plugin, ORIGINAL, new Recorder());
+
+    String[] edits = {
+      // body edit moves the classes below it
+      ORIGINAL.replace("return n", "n++\n    return n"),
+      // body edit in the last class only
+      ORIGINAL.replace("\"s\".unknown()", "\"s\".unknown()\n    \"t\".other()"),
+      // shape change in a class another class mentions
+      ORIGINAL.replace("int y", "int z"),
+      // new class above all others
+      ORIGINAL.replace("@TupleConstructor", "class First {}\n\n@TupleConstructor"),
+      // incomplete code
+      ORIGINAL.replace("return n", "return n."),
+      ORIGINAL
+    };
+    for (String edited : edits) {
+      Recorder incremental = new Recorder();
+      List<String> incrementalDiagnostics = indexAndCheck(plugin, edited, incremental);
+
+      Recorder full = new Recorder();
+      List<String> fullDiagnostics = indexAndCheck(configured(), edited, full);
+
+      assertEquals(full.reports, incremental.reports, edited);
+      assertEquals(fullDiagnostics, incrementalDiagnostics, edited);
+    }
+  }
+
+  @Test
+  void edit_above_all_classes_moves_their_synthetic_members_and_diagnostics() {
+    GroovyPlugin plugin = configured();
+    indexAndCheck(plugin, ORIGINAL, new Recorder());
+
+    Recorder recorder = new Recorder();
+    String edited = ORIGINAL.replace("package demo", "package demo\n//");
+    List<String> diagnostics = indexAndCheck(plugin, edited, recorder);
+
+    assertTrue(
+        recorder.reports.contains("method demo.PersonBuilder#build 14:0-14:8"),
+        recorder.reports.toString());
+    assertEquals(List.of("undefined-method 32:4-32:17"), diagnostics);
+  }
+
+  @Test
+  void index_leaves_undefined_member_checks_to_the_semantic_tier() {
+    GroovyPlugin plugin = configured();
+
+    assertEquals(List.of(), describe(plugin.index(URI, ORIGINAL, new Recorder())));
+    assertEquals(List.of("undefined-method 31:4-31:17"), describe(plugin.checkSemantics(URI)));
+    // checked once; asking again answers from the results
+    assertEquals(List.of("undefined-method 31:4-31:17"), describe(plugin.checkSemantics(URI)));
+  }
+
+  @Test
+  void declarations_only_index_skips_transforms_and_semantic_checks() {
+    GroovyPlugin plugin = configured();
+    Recorder recorder = new Recorder();
+
+    assertEquals(List.of(), describe(plugin.indexDeclarations(URI, ORIGINAL, recorder)));
+
+    assertTrue(
+        recorder.reports.contains("field demo.Ops.label 21:2-21:20"), recorder.reports.toString());
+    assertTrue(
+        recorder.reports.stream().noneMatch(report -> report.contains("PersonBuilder")),
+        recorder.reports.toString());
+    assertEquals(List.of(), plugin.checkSemantics(URI));
+  }
+
+  private static GroovyPlugin configured() {
+    GroovyPlugin plugin = new GroovyPlugin();
+    plugin.configure(
+        new PluginEnvironment() {
+          @Override
+          public CoreQuery core() {
+            return new CoreQuery() {
+              @Override
+              public Optional<SymbolInfo> findByFqn(String fqn) {
+                return Optional.empty();
+              }
+
+              @Override
+              public List<SymbolInfo> findBySimpleName(String simpleName) {
+                return List.of();
+              }
+
+              @Override
+              public List<SymbolInfo> allInPackage(String pkgFqn) {
+                return List.of();
+              }
+
+              @Override
+              public long externalVersion() {
+                return 0; // nothing outside the sources changes
+              }
+            };
+          }
+
+          @Override
+          public Executor executor() {
+            return Runnable::run;
+          }
+
+          @Override
+          public List<String> classpath() {
+            return List.of();
+          }
+
+          @Override
+          public void log(String level, String message, Throwable t) {}
+        });
+    return plugin;
+  }
+
+  private static List<String> indexAndCheck(GroovyPlugin plugin, String text, Recorder recorder) {
+    List<Diagnostic> diagnostics = new ArrayList<>(plugin.index(URI, text, recorder));
+    diagnostics.addAll(plugin.checkSemantics(URI));
+    return describe(diagnostics);
+  }
+
+  private static List<String> describe(List<Diagnostic> diagnostics) {
+    return diagnostics.stream().map(d -> d.getCode() + " " + range(d.getRange())).toList();
+  }
+
+  private static String range(Range range) {
+    return range.start.line
+        + ":"
+        + range.start.column
+        + "-"
+        + range.end.line
+        + ":"
+        + range.end.column;
+  }
+
+  /** Records each report, in order, as {@code kind name line:column-line:column}. */
+  private static final class Recorder implements SymbolReporter {
+    final List<String> reports = new ArrayList<>();
+
+    private void record(String kind, String name, Location loc) {
+      reports.add(kind + " " + name + " " + range(loc.getRange()));
+    }
+
+    @Override
+    public void reportPackage(String packageFqn, Location loc) {
+      record("package", packageFqn, loc);
+    }
+
+    @Override
+    public void reportClass(
+        String classFqn, Location loc, boolean isInterface, boolean isEnum, boolean isAnnotation) {
+      record("class", classFqn, loc);
+    }
+
+    @Override
+    public void reportClass(
+        String classFqn,
+        Location loc,
+        boolean isInterface,
+        boolean isEnum,
+        boolean isAnnotation,
+        SyntheticOrigin origin,
+        InferenceConfidence confidence) {
+      record("class", classFqn + " " + origin, loc);
+    }
+
+    @Override
+    public void reportMethod(
+        String ownerClassFqn, String methodName, String signature, Location loc) {
+      record("method", ownerClassFqn + "#" + methodName, loc);
+    }
+
+    @Override
+    public void reportMethod(
+        String ownerClassFqn,
+        String methodName,
+        MethodSignature signature,
+        Location loc,
+        Set<String> modifiers,
+        SyntheticOrigin origin,
+        InferenceConfidence confidence) {
+      record("method", ownerClassFqn + "#" + methodName, loc);
+    }
+
+    @Override
+    public void reportField(String ownerClassFqn, String fieldName, String typeFqn, Location loc) {
+      record("field", ownerClassFqn + "." + fieldName, loc);
+    }
+
+    @Override
+    public void reportField(
+        String ownerClassFqn,
+        String fieldName,
+        JvmType type,
+        Location loc,
+        Set<String> modifiers,
+        SyntheticOrigin origin,
+        InferenceConfidence confidence) {
+      record("field", ownerClassFqn + "." + fieldName, loc);
+    }
+
+    @Override
+    public void reportConstructor(
+        String ownerClassFqn, MethodSignature signature, Location loc, Set<String> modifiers) {
+      record("constructor", ownerClassFqn + signature.parameterTypes(), loc);
+    }
+
+    @Override
+    public void reportAnnotation(String annotationFqn, Location loc) {
+      record("annotation", annotationFqn, loc);
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package test.alipsa.jvmpls.groovy.dynamic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import se.alipsa.jvmpls.core.CoreQuery;
+import se.alipsa.jvmpls.core.model.SymbolInfo;
+import se.alipsa.jvmpls.core.types.JvmTypes;
+import se.alipsa.jvmpls.groovy.dynamic.GdkMethodTable;
+
+class GdkMethodTableTest {
+
+  @Test
+  void projects_only_the_methods_extension_classes_declare() {
+    GdkMethodTable table = GdkMethodTable.forClasspath(List.of(), new WorkspaceCore());
+
+    assertTrue(names(table, "java.lang.CharSequence").contains("capitalize"));
+    // public statics DefaultGroovyMethods inherits from DefaultGroovyMethodsSupport
+    assertTrue(
+        names(table, "java.io.Closeable").stream()
+            .noneMatch(name -> name.equals("closeQuietly") || name.equals("closeWithWarning")),
+        names(table, "java.io.Closeable").toString());
+  }
+
+  @Test
+  void reads_workspace_extension_methods_again_when_their_members_change() throws Exception {
+    Path classes = Files.createTempDirectory("jvmpls-gdk-workspace");
+    Path descriptor =
+        classes.resolve("META-INF/groovy/org.codehaus.groovy.runtime.ExtensionModule");
+    Files.createDirectories(descriptor.getParent());
+    Files.writeString(
+        descriptor,
+        "moduleName=demo\nmoduleVersion=1.0\nextensionClasses=demo.StringExtras\n",
+        StandardCharsets.UTF_8);
+    WorkspaceCore core = new WorkspaceCore();
+    core.extras.set(List.of(extension("shout")));
+
+    GdkMethodTable table = GdkMethodTable.forClasspath(List.of(classes.toString()), core);
+    long generation = table.generation();
+
+    assertTrue(names(table, "java.lang.String").contains("shout"));
+    assertEquals(generation, table.generation(), "unchanged members keep the table");
+
+    core.extras.set(List.of(extension("whisper")));
+    core.version.incrementAndGet();
+
+    assertTrue(names(table, "java.lang.String").contains("whisper"));
+    assertFalse(names(table, "java.lang.String").contains("shout"));
+    assertNotEquals(generation, table.generation());
+  }
+
+  private static List<String> names(GdkMethodTable table, String receiverFqn) {
+    return table.methodsOf(receiverFqn).stream()
+        .map(SymbolInfo::getFqName)
+        .map(fqn -> fqn.substring(fqn.indexOf('#') + 1, fqn.indexOf('(')))
+        .toList();
+  }
+
+  private static SymbolInfo extension(String name) {
+    Set<String> modifiers = Set.of("public", "static");
+    String signature = "(java.lang.String)java.lang.String";
+    return new SymbolInfo(
+        "java",
+        SymbolInfo.Kind.METHOD,
+        "demo.StringExtras#" + name + signature,
+        "demo.StringExtras",
+        null,
+        signature,
+        modifiers,
+        List.of(),
+        null,
+        JvmTypes.fromLegacyMethodSignature(signature, modifiers),
+        null,
+        null);
+  }
+
+  /** Answers the members of {@code demo.StringExtras}, versioned by {@link #version}. */
+  private static final class WorkspaceCore implements CoreQuery {
+    final AtomicReference<List<SymbolInfo>> extras = new AtomicReference<>(List.of());
+    final AtomicLong version = new AtomicLong(1);
+
+    @Override
+    public Optional<SymbolInfo> findByFqn(String fqn) {
+      return Optional.empty();
+    }
+
+    @Override
+    public List<SymbolInfo> findBySimpleName(String simpleName) {
+      return List.of();
+    }
+
+    @Override
+    public List<SymbolInfo> allInPackage(String pkgFqn) {
+      return List.of();
+    }
+
+    @Override
+    public List<SymbolInfo> membersOf(String ownerFqn) {
+      return "demo.StringExtras".equals(ownerFqn) ? extras.get() : List.of();
+    }
+
+    @Override
+    public long membersVersion(String ownerFqn) {
+      return version.get();
+    }
+  }
+}
@@ -2,7 +2,9 @@ package test.alipsa.jvmpls.groovy.dynamic;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -111,6 +113,89 @@ class GroovyMemberResolverTest {
             + " cycles");
   }
 
+  @Test
+  void expands_each_type_once_and_keeps_results_per_visible_scope() {
+    MethodSignature emptySig =
+        new MethodSignature(
+            List.of(), VoidType.INSTANCE, List.of(), List.of(), List.of(), Set.of("public"));
+    SymbolInfo own =
+        method("demo.Owner", "own", emptySig, SyntheticOrigin.NONE, InferenceConfidence.HIGH);
+    SymbolInfo inherited =
+        method("demo.Base", "inherited", emptySig, SyntheticOrigin.NONE, InferenceConfidence.HIGH);
+    SymbolInfo categoryMember =
+        method(
+            "demo.Owner",
+            "fromCategory",
+            emptySig,
+            SyntheticOrigin.CATEGORY,
+            InferenceConfidence.HIGH);
+    Map<String, Integer> expansions = new HashMap<>();
+
+    CoreQuery core =
+        new CoreQuery() {
+          @Override
+          public Optional<SymbolInfo> findByFqn(String fqn) {
+            return Optional.empty();
+          }
+
+          @Override
+          public List<SymbolInfo> findBySimpleName(String simpleName) {
+            return List.of();
+          }
+
+          @Override
+          public List<SymbolInfo> allInPackage(String pkgFqn) {
+            return List.of();
+          }
+
+          @Override
+          public List<SymbolInfo> membersOf(String ownerFqn) {
+            expansions.merge(ownerFqn, 1, Integer::sum);
+            return switch (ownerFqn) {
+              case "demo.Owner" -> List.of(own);
+              case "demo.Base" -> List.of(inherited);
+              default -> List.of();
+            };
+          }
+
+          @Override
+          public List<String> supertypesOf(String typeFqn) {
+            return switch (typeFqn) {
+              case "demo.Owner", "demo.Other" -> List.of("demo.Base");
+              default -> List.of();
+            };
+          }
+        };
+    ScopedSyntheticMember scoped =
+        new ScopedSyntheticMember(
+            "demo.Owner", new Range(new Position(2, 0), new Position(4, 0)), categoryMember);
+
+    GroovyMemberResolver resolver =
+        new GroovyMemberResolver(
+            core,
+            (fileUri, position) -> List.of(scoped),
+            core::supertypesOf,
+            ignored -> false,
+            ignored -> false);
+
+    List<SymbolInfo> inScope = List.of(own, inherited, categoryMember);
+    List<SymbolInfo> outOfScope = List.of(own, inherited);
+    for (int line = 0; line < 6; line++) {
+      boolean visible = line >= 2 && line <= 4;
+      assertEquals(
+          visible ? inScope : outOfScope,
+          resolver.membersAt("file:///Main.groovy", new Position(line, 0), "demo.Owner"));
+    }
+    assertEquals(
+        List.of(inherited),
+        resolver.membersAt("file:///Main.groovy", new Position(0, 0), "demo.Other"));
+
+    assertEquals(
+        Map.of("demo.Owner", 1, "demo.Base", 1, "demo.Other", 1, "java.lang.Object", 1),
+        expansions,
+        "Each type should be expanded once, also when receivers share a supertype");
+  }
+
   private static SymbolInfo method(
       String ownerFqn,
       String methodName,
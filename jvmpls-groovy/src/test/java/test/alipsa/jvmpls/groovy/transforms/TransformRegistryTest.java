@@ -8,6 +8,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.codehaus.groovy.ast.ASTNode;
 import org.codehaus.groovy.ast.ClassNode;
@@ -264,6 +266,62 @@ class TransformRegistryTest {
                 spec -> spec.kind() == SymbolInfo.Kind.FIELD && "log".equals(spec.memberName())));
   }
 
+  @Test
+  void delegate_looks_up_the_members_of_a_type_again_only_after_they_change() {
+    TransformRegistry registry = new TransformRegistry();
+    ClassNode owner =
+        parsePrimaryClass(
+            """
+            package client
+            class Owner {
+              @groovy.lang.Delegate lib.Api api
+            }
+            """);
+    AtomicInteger lookups = new AtomicInteger();
+    AtomicLong version = new AtomicLong();
+    List<SymbolInfo> members = new ArrayList<>();
+    members.add(method("lib.Api", "first", Set.of("public")));
+    CoreQuery core =
+        new CoreQuery() {
+          @Override
+          public Optional<SymbolInfo> findByFqn(String fqn) {
+            return Optional.empty();
+          }
+
+          @Override
+          public List<SymbolInfo> findBySimpleName(String simpleName) {
+            return List.of();
+          }
+
+          @Override
+          public List<SymbolInfo> allInPackage(String pkgFqn) {
+            return List.of();
+          }
+
+          @Override
+          public List<SymbolInfo> membersOf(String ownerFqn) {
+            lookups.incrementAndGet();
+            return "lib.Api".equals(ownerFqn) ? List.copyOf(members) : List.of();
+          }
+
+          @Override
+          public long membersVersion(String ownerFqn) {
+            return version.get();
+          }
+        };
+    TransformContext context = contextFor("file:///Owner.groovy", "client.Owner", core);
+
+    assertEquals(List.of("first"), memberNames(registry.analyzeClass(owner, context)));
+    assertEquals(List.of("first"), memberNames(registry.analyzeClass(owner, context)));
+    assertEquals(1, lookups.get());
+
+    members.add(method("lib.Api", "second", Set.of("public")));
+    version.incrementAndGet();
+
+    assertEquals(List.of("first", "second"), memberNames(registry.analyzeClass(owner, context)));
+    assertEquals(2, lookups.get());
+  }
+
   private static TransformContext contextFor(String fileUri, String ownerFqn, CoreQuery core) {
     return new TransformContext(
         fileUri,
@@ -0,0 +1,218 @@
+package test.alipsa.jvmpls.java;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.JavacTask;
+
+import se.alipsa.jvmpls.core.JvmLangPlugin;
+import se.alipsa.jvmpls.core.SymbolReporter;
+import se.alipsa.jvmpls.core.model.Location;
+import se.alipsa.jvmpls.java.JavaPlugin;
+
+/**
+ * Per-call latency of indexing a 300-line Java file. Run with {@code -prof gc} for allocation.
+ *
+ * <p>The {@code indexFiles} pair indexes 64 such files, one compiler task per file or one task for
+ * the whole batch, and reports the time per file.
+ *
+ * <p>{@code reindexAfterBodyEdit} alternates between two versions of the file that differ inside
+ * one method body, which the plugin reanalyses without parsing the whole file. The other cases
+ * index files the plugin has forgotten, since it skips text that is unchanged.
+ *
+ * <p>{@code index} is the plugin's path; {@code parseWithFreshFileManager} is the previous
+ * per-call setup, creating a file manager and a buffering diagnostic sink for each file, and
+ * {@code parseWithSharedFileManager} isolates what remains of javac's own per-task setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JavaIndexBenchmark {
+  private static final String FILE_URI = "file:///bench/demo/Orders.java";
+  private static final List<String> OPTIONS = List.of("-proc:none", "-source", "21");
+  private static final int BATCH_FILES = 64;
+
+  private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+  private JavaPlugin plugin;
+  private JavaPlugin editedPlugin;
+  private StandardJavaFileManager sharedFileManager;
+  private String source;
+  private String[] bodyEdits;
+  private int edit;
+  private List<JvmLangPlugin.Source> batch;
+
+  @Setup
+  public void setUp() {
+    plugin = new JavaPlugin();
+    editedPlugin = new JavaPlugin();
+    sharedFileManager = compiler.getStandardFileManager(null, null, null);
+    source = sourceOfLines(300);
+    bodyEdits = new String[] {source, source.replaceFirst("prices\\.get\\(item\\)", "1")};
+    batch = new ArrayList<>();
+    for (int i = 0; i < BATCH_FILES; i++) {
+      batch.add(
+          new JvmLangPlugin.Source(
+              "file:///bench/demo/Orders" + i + ".java",
+              source.replace("class Orders ", "class Orders" + i + " ")));
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void forgetFiles() {
+    plugin.forget(FILE_URI);
+    for (JvmLangPlugin.Source file : batch) {
+      plugin.forget(file.uri());
+    }
+  }
+
+  @Benchmark
+  public void index(Blackhole blackhole) {
+    blackhole.consume(plugin.index(FILE_URI, source, new CountingReporter(blackhole)));
+  }
+
+  @Benchmark
+  public void reindexAfterBodyEdit(Blackhole blackhole) {
+    edit = 1 - edit;
+    blackhole.consume(
+        editedPlugin.index(FILE_URI, bodyEdits[edit], new CountingReporter(blackhole)));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_FILES)
+  public void indexFilesOneByOne(Blackhole blackhole) {
+    for (JvmLangPlugin.Source file : batch) {
+      blackhole.consume(plugin.index(file.uri(), file.content(), new CountingReporter(blackhole)));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_FILES)
+  public void indexFilesInOneBatch(Blackhole blackhole) {
+    blackhole.consume(plugin.indexAll(batch, uri -> new CountingReporter(blackhole)));
+  }
+
+  @Benchmark
+  public void parseWithFreshFileManager(Blackhole blackhole) throws Exception {
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+      var collector = new DiagnosticCollector<JavaFileObject>();
+      var output = new PrintWriter(new StringWriter());
+      parse(fileManager, output, collector, blackhole);
+    }
+  }
+
+  @Benchmark
+  public void parseWithSharedFileManager(Blackhole blackhole) throws Exception {
+    parse(sharedFileManager, Writer.nullWriter(), diagnostic -> {}, blackhole);
+  }
+
+  private void parse(
+      StandardJavaFileManager fileManager,
+      Writer output,
+      DiagnosticListener<JavaFileObject> diagnostics,
+      Blackhole blackhole)
+      throws Exception {
+    JavaFileObject file =
+        new SimpleJavaFileObject(URI.create(FILE_URI), JavaFileObject.Kind.SOURCE) {
+          @Override
+          public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+          }
+        };
+    JavacTask task =
+        (JavacTask)
+            compiler.getTask(output, fileManager, diagnostics, OPTIONS, null, List.of(file));
+    for (CompilationUnitTree unit : task.parse()) {
+      blackhole.consume(unit);
+    }
+  }
+
+  /** A class with fields and small methods, padded to {@code lines} lines. */
+  static String sourceOfLines(int lines) {
+    StringBuilder out = new StringBuilder();
+    out.append("package demo;\n\n")
+        .append("import java.util.ArrayList;\n")
+        .append("import java.util.List;\n")
+        .append("import java.util.Map;\n\n")
+        .append("public class Orders {\n");
+    int written = 7;
+    for (int i = 0; written + 7 < lines; i++) {
+      out.append(
+          """
+            private final List<String> items%1$d = new ArrayList<>();
+
+            public int total%1$d(Map<String, Integer> prices) {
+              int sum = 0;
+              for (String item : items%1$d) sum += prices.get(item);
+              return sum;
+            }
+          """
+              .formatted(i));
+      written += 7;
+    }
+    while (written < lines - 1) {
+      out.append('\n');
+      written++;
+    }
+    return out.append("}\n").toString();
+  }
+
+  private record CountingReporter(Blackhole blackhole) implements SymbolReporter {
+    @Override
+    public void reportPackage(String packageFqn, Location loc) {
+      blackhole.consume(packageFqn);
+    }
+
+    @Override
+    public void reportClass(
+        String classFqn, Location loc, boolean isInterface, boolean isEnum, boolean isAnnotation) {
+      blackhole.consume(classFqn);
+    }
+
+    @Override
+    public void reportMethod(
+        String ownerClassFqn, String methodName, String signature, Location loc) {
+      blackhole.consume(signature);
+    }
+
+    @Override
+    public void reportField(String ownerClassFqn, String fieldName, String typeFqn, Location loc) {
+      blackhole.consume(typeFqn);
+    }
+
+    @Override
+    public void reportAnnotation(String annotationFqn, Location loc) {
+      blackhole.consume(annotationFqn);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package se.alipsa.jvmpls.java;
+
+import java.util.List;
+
+import se.alipsa.jvmpls.core.SymbolReporter;
+import se.alipsa.jvmpls.core.model.Location;
+import se.alipsa.jvmpls.core.model.Position;
+import se.alipsa.jvmpls.core.model.Range;
+
+/**
+ * What indexing learned about one version of a Java file, so that definition and completion
+ * requests read the parsed structure instead of scanning the text again. Each index replaces the
+ * model of the file.
+ *
+ * @param content the indexed text
+ * @param packageName declared package, empty for the default package
+ * @param imports imported names in source order, e.g. {@code a.b.C} or {@code a.b.*}, including
+ *     static imports
+ * @param declarations reported declarations in source order, outer types before their members
+ * @param importPosition where a new import goes: after the last import, else after the package
+ *     declaration, else at the start of the file
+ * @param importNeedsNewline whether text inserted at {@code importPosition} must start on a new
+ *     line
+ */
+record JavaFileModel(
+    String content,
+    String packageName,
+    List<String> imports,
+    List<Declaration> declarations,
+    Position importPosition,
+    boolean importNeedsNewline) {
+
+  /**
+   * A declaration reported for the file, with its span as offsets into {@link #content()} and as a
+   * range. Methods whose body declares no types carry the offsets of that body, braces included,
+   * so an edit inside it can be reparsed on its own; other declarations have {@code -1} there.
+   *
+   * @param typeFqn the declared type, null for members
+   * @param report reports the declaration again at another location
+   */
+  record Declaration(
+      String typeFqn, int start, int end, Range range, int bodyStart, int bodyEnd, Report report) {
+
+    boolean hasReparseableBody() {
+      return bodyStart >= 0;
+    }
+  }
+
+  /** Reports one declaration at a location. */
+  @FunctionalInterface
+  interface Report {
+    void to(SymbolReporter reporter, Location location);
+  }
+
+  JavaFileModel {
+    imports = List.copyOf(imports);
+    declarations = List.copyOf(declarations);
+  }
+
+  /** Model of content that could not be parsed: no package, imports or declarations. */
+  static JavaFileModel unparsed(String content) {
+    return new JavaFileModel(content, "", List.of(), List.of(), new Position(0, 0), false);
+  }
+
+  /** The innermost type whose declaration contains position, else the first declared type. */
+  String typeAt(Position position) {
+    String first = null;
+    String enclosing = null;
+    for (Declaration declaration : declarations) {
+      if (declaration.typeFqn() == null) {
+        continue;
+      }
+      if (first == null) {
+        first = declaration.typeFqn();
+      }
+      if (contains(declaration.range(), position)) {
+        enclosing = declaration.typeFqn();
+      }
+    }
+    return enclosing != null ? enclosing : first;
+  }
+
+  private static boolean contains(Range range, Position position) {
+    return compare(range.start, position) <= 0 && compare(position, range.end) <= 0;
+  }
+
+  private static int compare(Position a, Position b) {
+    return a.line != b.line ? Integer.compare(a.line, b.line) : Integer.compare(a.column, b.column);
+  }
+}
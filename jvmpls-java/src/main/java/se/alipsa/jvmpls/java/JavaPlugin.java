@@ -3,8 +3,11 @@ package se.alipsa.jvmpls.java;
 import java.io.IOException;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Pattern;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.lang.model.element.Modifier;
 import javax.tools.*;
@@ -25,22 +28,19 @@ import se.alipsa.jvmpls.core.types.MethodSignature;
 import se.alipsa.jvmpls.core.types.TypeResolver;
 
 public final class JavaPlugin implements JvmLangPlugin {
+  private static final Logger LOG = Logger.getLogger(JavaPlugin.class.getName());
 
   private static final JavaCompiler COMPILER = ToolProvider.getSystemJavaCompiler();
-  private final Map<String, String> contentByUri = new ConcurrentHashMap<>();
+  private final JavacParser parser = new JavacParser(COMPILER);
+  private final MemberReparser memberReparser = new MemberReparser(parser);
+  private final Map<String, JavaFileModel> modelsByUri = new ConcurrentHashMap<>();
   private final Map<String, List<String>> directSupertypesByType = new ConcurrentHashMap<>();
   private final Map<String, Set<String>> typesByUri = new ConcurrentHashMap<>();
   private volatile TypeResolver typeResolver;
 
-  private static final java.util.regex.Pattern PKG =
-      Pattern.compile("(?m)^\\s*package\\s+([\\w.]+)\\s*;");
-  private static final java.util.regex.Pattern CLASS_DECL =
-      Pattern.compile("\\b(?:class|interface|enum|record)\\s+(\\w+)\\b");
-  private static final java.util.regex.Pattern IMPORT =
-      // Capture both single-type and on-demand imports:
-      // group(1) examples: "a.b.C", "a.b.*"
-      Pattern.compile("(?m)^\\s*import(?:\\s+static)?\\s+([\\w.]+(?:\\.\\*)?)\\s*;");
   private static final List<String> JAVA_DEFAULT_STAR_IMPORTS = List.of("java.lang");
+  // files parsed per compiler task when indexing in bulk; bounds the trees held at once
+  private static final int BATCH_SIZE = 64;
 
   @Override
   public String id() {
@@ -59,108 +59,32 @@ public final class JavaPlugin implements JvmLangPlugin {
 
   @Override
   public List<Diagnostic> index(String fileUri, String content, SymbolReporter reporter) {
-    contentByUri.put(fileUri, content);
-    clearHierarchy(fileUri);
     var out = new ArrayList<Diagnostic>();
-
-    try (var fm = COMPILER.getStandardFileManager(null, null, null)) {
-      JavaFileObject mem =
-          new SimpleJavaFileObject(URI.create(fileUri), JavaFileObject.Kind.SOURCE) {
-            @Override
-            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
-              return content;
-            }
-          };
-
-      var options = List.of("-proc:none", "-source", "21");
-      var sink = new java.io.StringWriter(); // swallow compiler output
-      var pw = new java.io.PrintWriter(sink);
-      var collector = new javax.tools.DiagnosticCollector<JavaFileObject>();
-
-      JavacTask task = (JavacTask) COMPILER.getTask(pw, fm, collector, options, null, List.of(mem));
-      Trees trees = Trees.instance(task);
-
-      for (CompilationUnitTree cu : task.parse()) {
-        String pkg = cu.getPackageName() == null ? "" : cu.getPackageName().toString();
-        List<String> visibleImports = visibleImports(cu);
-        if (!pkg.isEmpty()) {
-          reporter.reportPackage(
-              pkg, new Location(fileUri, new Range(new Position(0, 0), new Position(0, 1))));
+    try {
+      JavaFileModel previous = modelsByUri.get(fileUri);
+      MemberReparser.Reparse reparse =
+          previous == null ? null : memberReparser.reparse(fileUri, previous, content);
+      if (reparse != null) {
+        // the other declarations are indexed as they are
+        modelsByUri.put(fileUri, reparse.model());
+        for (JavaFileModel.Declaration declaration : reparse.changed()) {
+          declaration.report().to(reporter, new Location(fileUri, declaration.range()));
         }
-
-        cu.accept(
-            new TreeScanner<Void, Void>() {
-              String owner; // current enclosing FQN
-              int methodDepth;
-
-              @Override
-              public Void visitClass(ClassTree node, Void p) {
-                String simple = node.getSimpleName().toString();
-                if (!simple.isEmpty()) {
-                  String fqn = (pkg.isEmpty() ? "" : pkg + ".") + simple;
-                  boolean isInterface = node.getKind() == Tree.Kind.INTERFACE;
-                  boolean isEnum = node.getKind() == Tree.Kind.ENUM;
-                  boolean isAnno = node.getKind() == Tree.Kind.ANNOTATION_TYPE;
-
-                  reporter.reportClass(
-                      fqn,
-                      new Location(fileUri, toRange(cu, node, trees)),
-                      isInterface,
-                      isEnum,
-                      isAnno);
-                  recordTypeHierarchy(fileUri, fqn, node, pkg, visibleImports);
-
-                  // descend with this owner and restore afterwards (handles nested types)
-                  String prev = owner;
-                  owner = fqn;
-                  try {
-                    return super.visitClass(node, p);
-                  } finally {
-                    owner = prev;
-                  }
-                }
-                return super.visitClass(node, p);
-              }
-
-              @Override
-              public Void visitMethod(MethodTree node, Void p) {
-                methodDepth++;
-                if (owner != null) {
-                  reporter.reportMethod(
-                      owner,
-                      node.getName().toString(),
-                      methodSig(node, pkg, visibleImports),
-                      new Location(fileUri, toRange(cu, node, trees)),
-                      modifiers(node.getModifiers().getFlags()));
-                }
-                try {
-                  return super.visitMethod(node, p);
-                } finally {
-                  methodDepth--;
-                }
-              }
-
-              @Override
-              public Void visitVariable(VariableTree node, Void p) {
-                if (owner != null && methodDepth == 0 && node.getName() != null) {
-                  JvmType type =
-                      resolveType(
-                          node.getType() == null ? "java.lang.Object" : node.getType().toString(),
-                          pkg,
-                          visibleImports);
-                  reporter.reportField(
-                      owner,
-                      node.getName().toString(),
-                      type,
-                      new Location(fileUri, toRange(cu, node, trees)),
-                      modifiers(node.getModifiers().getFlags()));
-                }
-                return super.visitVariable(node, p);
-              }
-            },
-            null);
+        return out;
       }
+    } catch (CancellationException e) {
+      throw e; // out of time; core discards the pass
+    } catch (IOException | RuntimeException e) {
+      LOG.log(Level.FINE, "Member reparse failed for " + fileUri + ", parsing the whole file", e);
+    }
 
+    modelsByUri.put(fileUri, JavaFileModel.unparsed(content));
+    clearHierarchy(fileUri);
+    try {
+      parser.parse(
+          fileUri, content, (cu, trees) -> indexUnit(fileUri, content, cu, trees, reporter));
+    } catch (CancellationException e) {
+      throw e;
     } catch (IOException e) {
       out.add(
           new Diagnostic(
@@ -181,6 +105,177 @@ public final class JavaPlugin implements JvmLangPlugin {
     return out;
   }
 
+  @Override
+  public Map<String, List<Diagnostic>> indexAll(
+      List<Source> sources, Function<String, SymbolReporter> reporters) {
+    Map<String, Source> sourcesByUri = new LinkedHashMap<>();
+    for (Source source : sources) {
+      sourcesByUri.put(source.uri(), source);
+    }
+    List<Source> unique = new ArrayList<>(sourcesByUri.values());
+    Map<String, List<Diagnostic>> diagnostics = new LinkedHashMap<>();
+    for (int start = 0; start < unique.size(); start += BATCH_SIZE) {
+      List<Source> batch = unique.subList(start, Math.min(unique.size(), start + BATCH_SIZE));
+      for (Source source : batch) {
+        modelsByUri.put(source.uri(), JavaFileModel.unparsed(source.content()));
+        clearHierarchy(source.uri());
+        diagnostics.put(source.uri(), List.of());
+      }
+      try {
+        parser.parseAll(
+            batch,
+            (cu, trees) -> {
+              String uri = cu.getSourceFile().toUri().toString();
+              indexUnit(uri, sourcesByUri.get(uri).content(), cu, trees, reporters.apply(uri));
+            });
+      } catch (CancellationException e) {
+        throw e;
+      } catch (IOException | RuntimeException e) {
+        // one file can fail the shared task; index the batch file by file to isolate it
+        for (Source source : batch) {
+          diagnostics.put(
+              source.uri(),
+              index(source.uri(), source.content(), reporters.apply(source.uri())));
+        }
+      }
+    }
+    return diagnostics;
+  }
+
+  private void indexUnit(
+      String fileUri,
+      String content,
+      CompilationUnitTree cu,
+      Trees trees,
+      SymbolReporter reporter) {
+    String pkg = cu.getPackageName() == null ? "" : cu.getPackageName().toString();
+    List<String> visibleImports = visibleImports(cu);
+    List<JavaFileModel.Declaration> declarations = new ArrayList<>();
+    if (!pkg.isEmpty()) {
+      reporter.reportPackage(
+          pkg, new Location(fileUri, new Range(new Position(0, 0), new Position(0, 1))));
+    }
+
+    SourcePositions positions = trees.getSourcePositions();
+    cu.accept(
+        new TreeScanner<Void, Void>() {
+          String owner; // current enclosing FQN
+          int methodDepth;
+
+          // reports a declaration and keeps it in the file model
+          void declare(String typeFqn, Tree node, BlockTree body, JavaFileModel.Report report) {
+            boolean reparseable = body != null && !MemberReparser.declaresTypes(body);
+            var declaration =
+                new JavaFileModel.Declaration(
+                    typeFqn,
+                    (int) positions.getStartPosition(cu, node),
+                    (int) positions.getEndPosition(cu, node),
+                    toRange(cu, node, trees),
+                    reparseable ? (int) positions.getStartPosition(cu, body) : -1,
+                    reparseable ? (int) positions.getEndPosition(cu, body) : -1,
+                    report);
+            declarations.add(declaration);
+            report.to(reporter, new Location(fileUri, declaration.range()));
+          }
+
+          @Override
+          public Void visitClass(ClassTree node, Void p) {
+            String simple = node.getSimpleName().toString();
+            if (!simple.isEmpty()) {
+              String fqn = (pkg.isEmpty() ? "" : pkg + ".") + simple;
+              boolean isInterface = node.getKind() == Tree.Kind.INTERFACE;
+              boolean isEnum = node.getKind() == Tree.Kind.ENUM;
+              boolean isAnno = node.getKind() == Tree.Kind.ANNOTATION_TYPE;
+
+              declare(
+                  fqn,
+                  node,
+                  null,
+                  (r, loc) -> r.reportClass(fqn, loc, isInterface, isEnum, isAnno));
+              recordTypeHierarchy(fileUri, fqn, node, pkg, visibleImports);
+
+              // descend with this owner and restore afterwards (handles nested types)
+              String prev = owner;
+              owner = fqn;
+              try {
+                return super.visitClass(node, p);
+              } finally {
+                owner = prev;
+              }
+            }
+            return super.visitClass(node, p);
+          }
+
+          @Override
+          public Void visitMethod(MethodTree node, Void p) {
+            methodDepth++;
+            if (owner != null) {
+              String methodOwner = owner;
+              String name = node.getName().toString();
+              MethodSignature signature = methodSig(node, pkg, visibleImports);
+              Set<String> modifiers = modifiers(node.getModifiers().getFlags());
+              declare(
+                  null,
+                  node,
+                  node.getBody(),
+                  (r, loc) -> r.reportMethod(methodOwner, name, signature, loc, modifiers));
+            }
+            try {
+              return super.visitMethod(node, p);
+            } finally {
+              methodDepth--;
+            }
+          }
+
+          @Override
+          public Void visitVariable(VariableTree node, Void p) {
+            if (owner != null && methodDepth == 0 && node.getName() != null) {
+              JvmType type =
+                  resolveType(
+                      node.getType() == null ? "java.lang.Object" : node.getType().toString(),
+                      pkg,
+                      visibleImports);
+              String fieldOwner = owner;
+              String name = node.getName().toString();
+              Set<String> modifiers = modifiers(node.getModifiers().getFlags());
+              declare(
+                  null,
+                  node,
+                  null,
+                  (r, loc) -> r.reportField(fieldOwner, name, type, loc, modifiers));
+            }
+            return super.visitVariable(node, p);
+          }
+        },
+        null);
+    modelsByUri.put(fileUri, fileModel(content, pkg, cu, trees, declarations));
+  }
+
+  private static JavaFileModel fileModel(
+      String content,
+      String pkg,
+      CompilationUnitTree cu,
+      Trees trees,
+      List<JavaFileModel.Declaration> declarations) {
+    List<String> imports = new ArrayList<>();
+    for (ImportTree importTree : cu.getImports()) {
+      imports.add(importTree.getQualifiedIdentifier().toString());
+    }
+    // insert after last import or after package decl
+    Tree anchor = cu.getImports().isEmpty() ? cu.getPackage() : cu.getImports().getLast();
+    long insertAt = anchor == null ? 0 : trees.getSourcePositions().getEndPosition(cu, anchor);
+    if (insertAt < 0 || insertAt > content.length()) {
+      insertAt = 0;
+    }
+    LineMap lm = cu.getLineMap();
+    Position importPosition = new Position(0, 0);
+    if (insertAt > 0) {
+      importPosition = toPosition(lm, insertAt);
+    }
+    boolean needsNewline = insertAt > 0 && content.charAt((int) insertAt - 1) != '\n';
+    return new JavaFileModel(content, pkg, imports, declarations, importPosition, needsNewline);
+  }
+
   @Override
   public SymbolInfo resolveSymbol(String fileUri, String symbolName, CoreQuery core) {
     if (symbolName == null || symbolName.isBlank()) return null;
@@ -193,30 +288,26 @@ public final class JavaPlugin implements JvmLangPlugin {
       symbolName = symbolName.substring(0, dot); // use leftmost identifier
     }
 
-    // Use cached source to infer package/imports.
-    String content = contentByUri.get(fileUri);
-    if (content != null) {
+    // Use the indexed file model to infer package/imports.
+    JavaFileModel model = modelsByUri.get(fileUri);
+    if (model != null) {
       // 1) Same-package resolution
-      String pkg = find(PKG, content);
-      if (pkg != null && !pkg.isBlank()) {
+      String pkg = model.packageName();
+      if (!pkg.isBlank()) {
         String fqn = pkg + "." + symbolName;
         var hit = core.findByFqn(fqn);
         if (hit.isPresent()) return hit.get();
       }
 
       // 2) Explicit single-type imports (import a.b.C;)
-      var im = IMPORT.matcher(content);
-      while (im.find()) {
-        String imp = im.group(1);
+      for (String imp : model.imports()) {
         if (imp.endsWith("." + symbolName)) {
           return core.findByFqn(imp).orElse(null);
         }
       }
 
       // 3) On-demand imports (import a.b.*;) — best-effort
-      im.reset();
-      while (im.find()) {
-        String imp = im.group(1);
+      for (String imp : model.imports()) {
         if (imp.endsWith(".*")) {
           String p = imp.substring(0, imp.length() - 2);
           for (var s : core.allInPackage(p)) {
@@ -238,16 +329,16 @@ public final class JavaPlugin implements JvmLangPlugin {
 
   @Override
   public void forget(String fileUri) {
-    contentByUri.remove(fileUri);
+    modelsByUri.remove(fileUri);
     clearHierarchy(fileUri);
   }
 
   @Override
   public List<CompletionItem> completions(String fileUri, Position position, CoreQuery core) {
-    String content = contentByUri.get(fileUri);
-    if (content == null) return List.of();
+    JavaFileModel model = modelsByUri.get(fileUri);
+    if (model == null) return List.of();
 
-    String prefix = completionPrefix(content, position); // may include dots
+    String prefix = completionPrefix(model.content(), position); // may include dots
     var out = new java.util.LinkedHashMap<String, CompletionItem>(); // fqName -> item
 
     // 1) Dotted prefix => collect by explicit package
@@ -256,9 +347,10 @@ public final class JavaPlugin implements JvmLangPlugin {
       String qualifier = prefix.substring(0, lastDot);
       String simplePrefix = prefix.substring(lastDot + 1);
       int before = out.size();
-      collectTypesFromPackage(core, qualifier, simplePrefix, content, out);
+      collectTypesFromPackage(core, qualifier, simplePrefix, model, out);
       if (out.size() == before) {
-        collectMembersFromReceiver(core, qualifier, simplePrefix, content, out);
+        collectMembersFromReceiver(
+            core, qualifier, simplePrefix, model.typeAt(position), out);
       }
       if (!out.isEmpty()) {
         return List.copyOf(out.values());
@@ -268,23 +360,21 @@ public final class JavaPlugin implements JvmLangPlugin {
     // 2) Undotted OR fallback: visible types (same pkg + imports + defaults)
     String simplePrefix = (lastDot >= 0) ? prefix.substring(lastDot + 1) : prefix;
 
-    String pkg = find(PKG, content); // your existing pattern for `package ...;`
-    if (pkg != null && !pkg.isBlank()) {
-      collectTypesFromPackage(core, pkg, simplePrefix, content, out);
+    String pkg = model.packageName();
+    if (!pkg.isBlank()) {
+      collectTypesFromPackage(core, pkg, simplePrefix, model, out);
     }
 
-    var m = IMPORT.matcher(content); // your existing `import ...;` pattern
-    while (m.find()) {
-      String imp = m.group(1);
+    for (String imp : model.imports()) {
       if (imp.endsWith(".*")) {
         collectTypesFromPackage(
-            core, imp.substring(0, imp.length() - 2), simplePrefix, content, out);
+            core, imp.substring(0, imp.length() - 2), simplePrefix, model, out);
       } else {
         core.findByFqn(imp)
             .ifPresent(
                 sym -> {
                   if (isType(sym) && simpleName(sym.getFqName()).startsWith(simplePrefix)) {
-                    add(out, sym, content);
+                    add(out, sym, model);
                   }
                 });
       }
@@ -292,7 +382,7 @@ public final class JavaPlugin implements JvmLangPlugin {
 
     // Defaults (java.lang)
     for (String p : JAVA_DEFAULT_STAR_IMPORTS) {
-      collectTypesFromPackage(core, p, simplePrefix, content, out);
+      collectTypesFromPackage(core, p, simplePrefix, model, out);
     }
 
     return List.copyOf(out.values());
@@ -302,9 +392,13 @@ public final class JavaPlugin implements JvmLangPlugin {
     LineMap lm = cu.getLineMap();
     SourcePositions sp = trees.getSourcePositions();
     long s = sp.getStartPosition(cu, node), e = sp.getEndPosition(cu, node);
-    int sl = (int) (lm.getLineNumber(s) - 1), sc = (int) (lm.getColumnNumber(s) - 1);
-    int el = (int) (lm.getLineNumber(e) - 1), ec = (int) (lm.getColumnNumber(e) - 1);
-    return new Range(new Position(sl, sc), new Position(el, ec));
+    return new Range(toPosition(lm, s), toPosition(lm, e));
+  }
+
+  /** Columns count characters, as editors do; getColumnNumber expands tabs. */
+  private static Position toPosition(LineMap lm, long offset) {
+    long line = lm.getLineNumber(offset);
+    return new Position((int) line - 1, (int) (offset - lm.getStartPosition(line)));
   }
 
   private MethodSignature methodSig(MethodTree mt, String pkg, List<String> visibleImports) {
@@ -328,11 +422,6 @@ public final class JavaPlugin implements JvmLangPlugin {
   }
 
   // tiny helpers
-  private static String find(java.util.regex.Pattern p, String s) {
-    var m = p.matcher(s);
-    return m.find() ? m.group(1) : null;
-  }
-
   private static String simpleName(String fqn) {
     int i = fqn.lastIndexOf('.');
     return i < 0 ? fqn : fqn.substring(i + 1);
@@ -350,19 +439,15 @@ public final class JavaPlugin implements JvmLangPlugin {
   }
 
   private static boolean isType(SymbolInfo s) {
-    return switch (s.getKind()) {
-      case CLASS, INTERFACE, ENUM, ANNOTATION -> true;
-      default -> false;
-    };
+    return s.isType(); // does not read the class file of a listed binary type
   }
 
   private void collectMembersFromReceiver(
       CoreQuery core,
       String receiver,
       String memberPrefix,
-      String content,
+      String ownerClass,
       java.util.Map<String, CompletionItem> out) {
-    String ownerClass = primaryClassFqn(content);
     if (ownerClass == null) {
       return;
     }
@@ -415,25 +500,26 @@ public final class JavaPlugin implements JvmLangPlugin {
       CoreQuery core,
       String pkg,
       String simplePrefix,
-      String content,
+      JavaFileModel model,
       java.util.Map<String, CompletionItem> out) {
     if (pkg == null || pkg.isBlank()) return;
     for (var s : core.allInPackage(pkg)) {
       if (isType(s) && simpleName(s.getFqName()).startsWith(simplePrefix)) {
-        add(out, s, content);
+        add(out, s, model);
       }
     }
   }
 
   // Overloads for add(...) — keep both
-  private static void add(java.util.Map<String, CompletionItem> out, SymbolInfo s, String content) {
+  private static void add(
+      java.util.Map<String, CompletionItem> out, SymbolInfo s, JavaFileModel model) {
     String fqn = s.getFqName();
     if (out.containsKey(fqn)) return;
     String simple = simpleName(fqn);
     var edits =
-        (content == null)
+        (model == null)
             ? java.util.List.<se.alipsa.jvmpls.core.model.TextEdit>of()
-            : maybeImportEdit(content, fqn); // your auto-import builder
+            : maybeImportEdit(model, fqn); // your auto-import builder
     out.put(fqn, new CompletionItem(simple, fqn, simple, s.getLocation(), edits));
   }
 
@@ -472,8 +558,8 @@ public final class JavaPlugin implements JvmLangPlugin {
     return content.substring(s, i);
   }
 
-  private static java.util.List<TextEdit> maybeImportEdit(String content, String fqn) {
-    String pkg = find(PKG, content); // your existing PKG pattern
+  private static java.util.List<TextEdit> maybeImportEdit(JavaFileModel model, String fqn) {
+    String pkg = model.packageName();
     String simple = simpleName(fqn);
     String owner = fqn.substring(0, fqn.length() - simple.length() - 1);
 
@@ -481,37 +567,13 @@ public final class JavaPlugin implements JvmLangPlugin {
     if (owner.equals(pkg)) return java.util.List.of();
 
     // already imported?
-    var m = IMPORT.matcher(content);
-    while (m.find()) {
-      String imp = m.group(1);
+    for (String imp : model.imports()) {
       if (imp.equals(fqn) || imp.equals(owner + ".*")) return java.util.List.of();
     }
 
-    // insert after last import or after package decl
-    int insertAt = -1;
-    int lastImportEnd = -1;
-    m.reset();
-    while (m.find()) lastImportEnd = m.end();
-    if (lastImportEnd >= 0) insertAt = lastImportEnd;
-    else {
-      var pm = PKG.matcher(content);
-      if (pm.find()) insertAt = pm.end();
-      else insertAt = 0;
-    }
-
-    // Build edit at (line/col) for `insertAt`
-    int line = 0, col = 0;
-    for (int i = 0; i < insertAt; i++) {
-      char c = content.charAt(i);
-      if (c == '\n') {
-        line++;
-        col = 0;
-      } else {
-        col++;
-      }
-    }
-    Range r = new Range(new Position(line, col), new Position(line, col));
-    String sep = (insertAt == 0) ? "" : (content.charAt(insertAt - 1) == '\n' ? "" : "\n");
+    Position at = model.importPosition();
+    Range r = new Range(at, at);
+    String sep = model.importNeedsNewline() ? "\n" : "";
     String text = sep + "import " + fqn + ";\n";
     return java.util.List.of(new TextEdit(r, text));
   }
@@ -596,16 +658,6 @@ public final class JavaPlugin implements JvmLangPlugin {
     return Set.copyOf(modifiers);
   }
 
-  private static String primaryClassFqn(String content) {
-    String pkg = find(PKG, content);
-    var matcher = CLASS_DECL.matcher(content);
-    if (!matcher.find()) {
-      return null;
-    }
-    String simple = matcher.group(1);
-    return (pkg == null || pkg.isBlank()) ? simple : pkg + "." + simple;
-  }
-
   private boolean isVisible(
       SymbolInfo member, String currentOwner, String receiverType, CoreQuery core) {
     Set<String> modifiers = member.getModifiers();
@@ -0,0 +1,106 @@
+package se.alipsa.jvmpls.java;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.Trees;
+
+import se.alipsa.jvmpls.core.JvmLangPlugin;
+
+/**
+ * Parse-only front end to javac that reuses what can be reused between files.
+ *
+ * <p>Standard file managers are pooled instead of created per call. A file manager is not thread
+ * safe, so each parse borrows one and returns it afterwards; the pool holds at most one per
+ * processor, which bounds the archives they keep open. Compiler output and diagnostics are
+ * discarded without buffering.
+ */
+final class JavacParser {
+  private static final Logger LOG = Logger.getLogger(JavacParser.class.getName());
+  private static final List<String> OPTIONS = List.of("-proc:none", "-source", "21");
+  private static final DiagnosticListener<JavaFileObject> IGNORE_DIAGNOSTICS = diagnostic -> {};
+
+  /** Receives each parsed compilation unit while its task is still open. */
+  @FunctionalInterface
+  interface UnitVisitor {
+    void visit(CompilationUnitTree unit, Trees trees);
+  }
+
+  private final JavaCompiler compiler;
+  private final BlockingQueue<StandardJavaFileManager> idle;
+
+  JavacParser(JavaCompiler compiler) {
+    this(compiler, Runtime.getRuntime().availableProcessors());
+  }
+
+  JavacParser(JavaCompiler compiler, int maxIdleFileManagers) {
+    this.compiler = compiler;
+    this.idle = new ArrayBlockingQueue<>(Math.max(1, maxIdleFileManagers));
+  }
+
+  /** Parses {@code content} as the source of {@code fileUri} and passes its units to visitor. */
+  void parse(String fileUri, String content, UnitVisitor visitor) throws IOException {
+    parseAll(List.of(new JvmLangPlugin.Source(fileUri, content)), visitor);
+  }
+
+  /**
+   * Parses all {@code sources} in one compiler task, which pays javac's per-task setup once for
+   * the batch. Units can be told apart by {@code unit.getSourceFile().toUri()}, which is the
+   * source's URI.
+   */
+  void parseAll(List<JvmLangPlugin.Source> sources, UnitVisitor visitor) throws IOException {
+    StandardJavaFileManager fileManager = borrow();
+    try {
+      List<JavaFileObject> files = new ArrayList<>(sources.size());
+      for (JvmLangPlugin.Source source : sources) {
+        files.add(
+            new SimpleJavaFileObject(URI.create(source.uri()), JavaFileObject.Kind.SOURCE) {
+              @Override
+              public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source.content();
+              }
+            });
+      }
+      JavacTask task =
+          (JavacTask)
+              compiler.getTask(
+                  Writer.nullWriter(), fileManager, IGNORE_DIAGNOSTICS, OPTIONS, null, files);
+      Trees trees = Trees.instance(task);
+      for (CompilationUnitTree unit : task.parse()) {
+        visitor.visit(unit, trees);
+      }
+    } finally {
+      release(fileManager);
+    }
+  }
+
+  private StandardJavaFileManager borrow() {
+    StandardJavaFileManager fileManager = idle.poll();
+    return fileManager != null ? fileManager : compiler.getStandardFileManager(null, null, null);
+  }
+
+  private void release(StandardJavaFileManager fileManager) {
+    if (!idle.offer(fileManager)) {
+      try {
+        fileManager.close();
+      } catch (IOException e) {
+        LOG.log(Level.FINE, "Failed to close javac file manager", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,197 @@
+package se.alipsa.jvmpls.java;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreeScanner;
+
+import se.alipsa.jvmpls.core.model.Position;
+import se.alipsa.jvmpls.core.model.Range;
+
+/**
+ * Re-analyses an edit that stays inside one method body by parsing only that body.
+ *
+ * <p>The edited region is the span between the longest common prefix and suffix of the previous
+ * and the new text. When it lies strictly inside the braces of a method body that declares no
+ * types, the new body is parsed on its own; if it still parses as one body that ends where the
+ * old closing brace now is and still declares no types, no declaration of the file changed and
+ * only the ranges after the edit move. Anything else needs a full parse.
+ */
+final class MemberReparser {
+  /**
+   * The model of the new text, and the declarations to report again: the reparsed method and those
+   * whose range moved.
+   */
+  record Reparse(JavaFileModel model, List<JavaFileModel.Declaration> changed) {}
+
+  private static final String SNIPPET_HEAD = "class M { void m() ";
+  private static final String SNIPPET_TAIL = " }";
+
+  private final JavacParser parser;
+
+  MemberReparser(JavacParser parser) {
+    this.parser = parser;
+  }
+
+  /**
+   * Returns the model of {@code content} derived from {@code previous}, or null when the edit is
+   * not confined to one reparseable method body.
+   */
+  Reparse reparse(String fileUri, JavaFileModel previous, String content) throws IOException {
+    String old = previous.content();
+    if (old.equals(content)) {
+      return new Reparse(previous, List.of());
+    }
+    int prefix = commonPrefix(old, content);
+    int suffix = commonSuffix(old, content, prefix);
+    int oldEnd = old.length() - suffix;
+    int delta = content.length() - old.length();
+
+    JavaFileModel.Declaration method = null;
+    for (JavaFileModel.Declaration declaration : previous.declarations()) {
+      if (declaration.hasReparseableBody()
+          && declaration.bodyStart() < prefix
+          && oldEnd < declaration.bodyEnd()) {
+        method = declaration;
+        break;
+      }
+    }
+    if (method == null) {
+      return null;
+    }
+    String body = content.substring(method.bodyStart(), method.bodyEnd() + delta);
+    if (!bodyStillParses(fileUri, body)) {
+      return null;
+    }
+
+    Position oldEndAt = advance(method.range().start, old, method.start(), oldEnd);
+    Position newEndAt = advance(method.range().start, content, method.start(), oldEnd + delta);
+    List<JavaFileModel.Declaration> declarations = new ArrayList<>();
+    List<JavaFileModel.Declaration> changed = new ArrayList<>();
+    for (JavaFileModel.Declaration declaration : previous.declarations()) {
+      boolean startMoves = declaration.start() >= oldEnd;
+      boolean endMoves = declaration.end() >= oldEnd;
+      boolean bodyMoves = declaration.hasReparseableBody() && declaration.bodyEnd() >= oldEnd;
+      Range range = declaration.range();
+      Position start = startMoves ? shift(range.start, oldEndAt, newEndAt) : range.start;
+      Position end = endMoves ? shift(range.end, oldEndAt, newEndAt) : range.end;
+      JavaFileModel.Declaration moved =
+          new JavaFileModel.Declaration(
+              declaration.typeFqn(),
+              declaration.start() + (startMoves ? delta : 0),
+              declaration.end() + (endMoves ? delta : 0),
+              new Range(start, end),
+              declaration.bodyStart() + (declaration.bodyStart() >= oldEnd ? delta : 0),
+              declaration.bodyEnd() + (bodyMoves ? delta : 0),
+              declaration.report());
+      declarations.add(moved);
+      if (declaration == method || !same(start, range.start) || !same(end, range.end)) {
+        changed.add(moved);
+      }
+    }
+    return new Reparse(
+        new JavaFileModel(
+            content,
+            previous.packageName(),
+            previous.imports(),
+            declarations,
+            previous.importPosition(),
+            previous.importNeedsNewline()),
+        changed);
+  }
+
+  private boolean bodyStillParses(String fileUri, String body) throws IOException {
+    String snippet = SNIPPET_HEAD + body + SNIPPET_TAIL;
+    boolean[] parses = {false};
+    parser.parse(
+        fileUri,
+        snippet,
+        (cu, trees) -> {
+          if (cu.getTypeDecls().size() != 1
+              || !(cu.getTypeDecls().getFirst() instanceof ClassTree type)
+              || type.getMembers().size() != 1
+              || !(type.getMembers().getFirst() instanceof MethodTree member)
+              || member.getBody() == null) {
+            return;
+          }
+          SourcePositions positions = trees.getSourcePositions();
+          BlockTree parsed = member.getBody();
+          parses[0] =
+              positions.getStartPosition(cu, parsed) == SNIPPET_HEAD.length()
+                  && positions.getEndPosition(cu, parsed) == SNIPPET_HEAD.length() + body.length()
+                  && positions.getEndPosition(cu, type) == snippet.length()
+                  && !declaresTypes(parsed);
+        });
+    return parses[0];
+  }
+
+  /** Whether a method body declares local or anonymous classes, which are reported as well. */
+  static boolean declaresTypes(Tree body) {
+    Boolean found =
+        body.accept(
+            new TreeScanner<Boolean, Void>() {
+              @Override
+              public Boolean visitClass(ClassTree node, Void p) {
+                return true;
+              }
+
+              @Override
+              public Boolean reduce(Boolean r1, Boolean r2) {
+                return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
+              }
+            },
+            null);
+    return Boolean.TRUE.equals(found);
+  }
+
+  private static int commonPrefix(String a, String b) {
+    int max = Math.min(a.length(), b.length());
+    int i = 0;
+    while (i < max && a.charAt(i) == b.charAt(i)) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int commonSuffix(String a, String b, int prefix) {
+    int max = Math.min(a.length(), b.length()) - prefix;
+    int i = 0;
+    while (i < max && a.charAt(a.length() - 1 - i) == b.charAt(b.length() - 1 - i)) {
+      i++;
+    }
+    return i;
+  }
+
+  /** The position of offset {@code to} in text, given that offset {@code from} is at {@code at}. */
+  private static Position advance(Position at, String text, int from, int to) {
+    int line = at.line;
+    int column = at.column;
+    for (int i = from; i < to; i++) {
+      if (text.charAt(i) == '\n') {
+        line++;
+        column = 0;
+      } else {
+        column++;
+      }
+    }
+    return new Position(line, column);
+  }
+
+  private static boolean same(Position a, Position b) {
+    return a.line == b.line && a.column == b.column;
+  }
+
+  /** Moves a position at or after the old end of the edit to where that text now is. */
+  private static Position shift(Position position, Position oldEnd, Position newEnd) {
+    if (position.line == oldEnd.line) {
+      return new Position(newEnd.line, position.column - oldEnd.column + newEnd.column);
+    }
+    return new Position(position.line + newEnd.line - oldEnd.line, position.column);
+  }
+}
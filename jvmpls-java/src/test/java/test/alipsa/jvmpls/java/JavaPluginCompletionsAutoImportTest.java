@@ -105,6 +105,85 @@ class JavaPluginCompletionsAutoImportTest {
     }
   }
 
+  @Test
+  void import_edit_follows_last_parsed_import_and_ignores_comments() throws Exception {
+    Path dir = Files.createTempDirectory("jvmpls-java-autoimport3");
+
+    Path banana = dir.resolve("Banana.java");
+    String bananaCode = "package thing; public class Banana {}";
+    Files.writeString(banana, bananaCode, StandardCharsets.UTF_8);
+    String bananaUri = banana.toUri().toString();
+
+    // The commented-out import is not an import
+    Path main = dir.resolve("Main.java");
+    String mainCode =
+        """
+        package demo;
+        /*
+        import thing.Banana;
+        */
+        import java.util.List;
+        class Main {
+          void m() {
+            thing.Ba/*caret*/
+          }
+        }
+        """;
+    Files.writeString(main, mainCode, StandardCharsets.UTF_8);
+    String mainUri = main.toUri().toString();
+
+    try (CoreServer server = CoreServer.createDefault((u, d) -> {})) {
+      server.openFile(bananaUri, bananaCode);
+      server.openFile(mainUri, mainCode);
+
+      Position pos = positionAtMarker(mainCode, "/*caret*/");
+      CompletionItem bananaItem = byLabel(server.completions(mainUri, pos), "Banana");
+      assertNotNull(bananaItem, "Expected 'Banana' completion for dotted prefix 'thing.Ba'");
+
+      List<TextEdit> edits = bananaItem.getAdditionalTextEdits();
+      assertEquals(1, edits.size());
+      TextEdit edit = edits.getFirst();
+      assertEquals("\nimport thing.Banana;\n", edit.getNewText());
+      assertEquals(4, edit.getRange().start.line);
+      assertEquals("import java.util.List;".length(), edit.getRange().start.column);
+    }
+  }
+
+  @Test
+  void import_edit_column_counts_a_tab_as_one_character() throws Exception {
+    Path dir = Files.createTempDirectory("jvmpls-java-autoimport4");
+
+    Path banana = dir.resolve("Banana.java");
+    String bananaCode = "package thing; public class Banana {}";
+    Files.writeString(banana, bananaCode, StandardCharsets.UTF_8);
+    String bananaUri = banana.toUri().toString();
+
+    Path main = dir.resolve("Main.java");
+    String mainCode =
+        "package demo;\n"
+            + "\timport java.util.List;\n"
+            + "class Main {\n"
+            + "  void m() {\n"
+            + "    thing.Ba/*caret*/\n"
+            + "  }\n"
+            + "}\n";
+    Files.writeString(main, mainCode, StandardCharsets.UTF_8);
+    String mainUri = main.toUri().toString();
+
+    try (CoreServer server = CoreServer.createDefault((u, d) -> {})) {
+      server.openFile(bananaUri, bananaCode);
+      server.openFile(mainUri, mainCode);
+
+      Position pos = positionAtMarker(mainCode, "/*caret*/");
+      CompletionItem bananaItem = byLabel(server.completions(mainUri, pos), "Banana");
+      assertNotNull(bananaItem, "Expected 'Banana' completion for dotted prefix 'thing.Ba'");
+
+      TextEdit edit = bananaItem.getAdditionalTextEdits().getFirst();
+      assertEquals(1, edit.getRange().start.line);
+      assertEquals("\timport java.util.List;".length(), edit.getRange().start.column);
+    }
+  }
+
   // ---------- helpers ----------
 
   private static CompletionItem byLabel(List<CompletionItem> items, String label) {
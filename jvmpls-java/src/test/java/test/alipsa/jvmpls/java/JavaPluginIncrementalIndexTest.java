@@ -0,0 +1,158 @@
+package test.alipsa.jvmpls.java;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+import se.alipsa.jvmpls.core.SymbolReporter;
+import se.alipsa.jvmpls.core.model.Location;
+import se.alipsa.jvmpls.core.types.JvmType;
+import se.alipsa.jvmpls.core.types.MethodSignature;
+import se.alipsa.jvmpls.java.JavaPlugin;
+
+class JavaPluginIncrementalIndexTest {
+  private static final String URI = "file:///work/demo/Orders.java";
+  private static final String ORIGINAL =
+      """
+      package demo;
+
+      public class Orders {
+        private int count;
+
+        int total(int price) {
+          int sum = price;
+          return sum;
+        }
+
+        void clear() { count = 0; }
+
+        static class Line {
+          String sku;
+        }
+      }
+      """;
+
+  @Test
+  void body_edits_index_the_same_declarations_as_a_full_parse() {
+    String tabbed = ORIGINAL.replace("  ", "\t").replace("count = 0; }", "count = 0;\t}");
+    String[][] edits = {
+      // new lines inside a body move everything after it
+      {ORIGINAL, ORIGINAL.replace("return sum;", "sum += 1;\n    sum *= 2;\n    return sum;")},
+      // incomplete code inside a body
+      {ORIGINAL, ORIGINAL.replace("return sum;", "return sum.;")},
+      // same-line edit before a declaration on the line of the edit
+      {ORIGINAL, ORIGINAL.replace("count = 0;", "count = 0; count--;")},
+      // unbalanced brace changes the structure
+      {
+        ORIGINAL, ORIGINAL.replace("int sum = price;", "int sum = price; }\n  void extra() {")
+      },
+      // local class declares a type inside a body
+      {ORIGINAL, ORIGINAL.replace("return sum;", "class Local { void m() {} }\n    return sum;")},
+      {ORIGINAL, ORIGINAL},
+      // columns count a tab as one character
+      {tabbed, tabbed.replace("return sum;", "sum += 1;\n\t\treturn sum;")},
+      {tabbed, tabbed.replace("count = 0;", "count = 0; count--;")}
+    };
+    for (String[] edit : edits) {
+      // like the symbol index, the recorder keeps what the first pass reported
+      JavaPlugin plugin = new JavaPlugin();
+      Recorder incremental = new Recorder();
+      plugin.index(URI, edit[0], incremental);
+      plugin.index(URI, edit[1], incremental);
+
+      Recorder full = new Recorder();
+      new JavaPlugin().index(URI, edit[1], full);
+
+      assertEquals(full.declarations, incremental.declarations, edit[1]);
+    }
+  }
+
+  @Test
+  void body_edit_moves_later_declarations() {
+    JavaPlugin plugin = new JavaPlugin();
+    Recorder recorder = new Recorder();
+    plugin.index(URI, ORIGINAL, recorder);
+
+    plugin.index(URI, ORIGINAL.replace("return sum;", "sum++;\n    return sum;"), recorder);
+
+    assertEquals("11:2-11:29", recorder.declarations.get("demo.Orders#clear"));
+    assertEquals("5:2-9:3", recorder.declarations.get("demo.Orders#total"));
+    assertEquals("3:2-3:20", recorder.declarations.get("demo.Orders.count"));
+  }
+
+  @Test
+  void body_edit_within_a_line_reports_only_the_edited_method() {
+    JavaPlugin plugin = new JavaPlugin();
+    plugin.index(URI, ORIGINAL, new Recorder());
+
+    Recorder recorder = new Recorder();
+    plugin.index(URI, ORIGINAL.replace("return sum;", "return sum + 1;"), recorder);
+
+    assertEquals(Set.of("demo.Orders#total"), recorder.declarations.keySet());
+  }
+
+  /** Records each reported declaration's range as {@code line:column-line:column}. */
+  private static final class Recorder implements SymbolReporter {
+    final Map<String, String> declarations = new TreeMap<>();
+
+    private void record(String key, Location loc) {
+      var range = loc.getRange();
+      declarations.put(
+          key,
+          range.start.line
+              + ":"
+              + range.start.column
+              + "-"
+              + range.end.line
+              + ":"
+              + range.end.column);
+    }
+
+    @Override
+    public void reportPackage(String packageFqn, Location loc) {
+      record(packageFqn, loc);
+    }
+
+    @Override
+    public void reportClass(
+        String classFqn, Location loc, boolean isInterface, boolean isEnum, boolean isAnnotation) {
+      record(classFqn, loc);
+    }
+
+    @Override
+    public void reportMethod(
+        String ownerClassFqn, String methodName, String signature, Location loc) {
+      record(ownerClassFqn + "#" + methodName, loc);
+    }
+
+    @Override
+    public void reportMethod(
+        String ownerClassFqn,
+        String methodName,
+        MethodSignature signature,
+        Location loc,
+        Set<String> modifiers) {
+      record(ownerClassFqn + "#" + methodName, loc);
+    }
+
+    @Override
+    public void reportField(String ownerClassFqn, String fieldName, String typeFqn, Location loc) {
+      record(ownerClassFqn + "." + fieldName, loc);
+    }
+
+    @Override
+    public void reportField(
+        String ownerClassFqn, String fieldName, JvmType type, Location loc, Set<String> modifiers) {
+      record(ownerClassFqn + "." + fieldName, loc);
+    }
+
+    @Override
+    public void reportAnnotation(String annotationFqn, Location loc) {
+      record(annotationFqn, loc);
+    }
+  }
+}
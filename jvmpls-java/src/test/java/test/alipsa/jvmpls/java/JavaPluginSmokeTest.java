@@ -5,11 +5,16 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import org.junit.jupiter.api.Test;
 
 import se.alipsa.jvmpls.core.model.Diagnostic;
+import se.alipsa.jvmpls.core.model.Location;
+import se.alipsa.jvmpls.core.model.Position;
 import se.alipsa.jvmpls.core.server.CoreServer;
 
 class JavaPluginSmokeTest {
@@ -34,4 +39,44 @@ class JavaPluginSmokeTest {
       assertTrue(diags.isEmpty(), "Expected no diagnostics from java plugin");
     }
   }
+
+  @Test
+  void openFiles_indexesABatchTogether() throws Exception {
+    Path dir = Files.createTempDirectory("jvmpls-java-batch");
+    String helperCode =
+        """
+        package demo;
+        public class Helper {
+          public static int twice(int x) { return x * 2; }
+        }
+        """;
+    String mainCode =
+        """
+        package demo;
+        public class Main {
+          int run() { return Helper.twice(2); }
+        }
+        """;
+    String mainUri = dir.resolve("Main.java").toUri().toString();
+    String helperUri = dir.resolve("Helper.java").toUri().toString();
+    String notesUri = dir.resolve("notes.txt").toUri().toString();
+    Map<String, String> texts = new LinkedHashMap<>();
+    texts.put(mainUri, mainCode);
+    texts.put(helperUri, helperCode);
+    texts.put(notesUri, "not source");
+
+    try (CoreServer server = CoreServer.createDefault((ignoredUri, diags) -> {})) {
+      Map<String, List<Diagnostic>> diags = server.openFiles(texts);
+
+      assertEquals(List.of(mainUri, helperUri, notesUri), List.copyOf(diags.keySet()));
+      assertTrue(diags.get(mainUri).isEmpty());
+      assertTrue(diags.get(helperUri).isEmpty());
+      assertEquals("no-plugin", diags.get(notesUri).getFirst().getCode());
+
+      int column = mainCode.lines().toList().get(2).indexOf("Helper");
+      Optional<Location> def = server.definition(mainUri, new Position(2, column));
+      assertTrue(def.isPresent(), "symbols of every file in the batch should be indexed");
+      assertEquals(helperUri, def.get().getUri());
+    }
+  }
 }
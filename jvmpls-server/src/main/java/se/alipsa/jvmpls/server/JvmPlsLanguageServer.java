@@ -2,6 +2,7 @@ package se.alipsa.jvmpls.server;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.IntConsumer;
@@ -86,6 +87,7 @@ public final class JvmPlsLanguageServer implements LanguageServer, LanguageClien
     this.textDocumentService =
         new JvmPlsTextDocumentService(
             coreFacade, openDocuments, this::acceptingRequests, coreFacade::isReady);
+    textDocumentService.exportRequestStatistics();
     this.workspaceService =
         new JvmPlsWorkspaceService(
             this::acceptingRequests,
@@ -109,6 +111,8 @@ public final class JvmPlsLanguageServer implements LanguageServer, LanguageClien
     TextDocumentSyncOptions syncOptions = new TextDocumentSyncOptions();
     syncOptions.setOpenClose(true);
     syncOptions.setChange(TextDocumentSyncKind.Full);
+    // files analyzed in degraded mode are indexed on save
+    syncOptions.setSave(new SaveOptions(false));
     capabilities.setTextDocumentSync(syncOptions);
 
     CompletionOptions completionOptions = new CompletionOptions();
@@ -136,11 +140,13 @@ public final class JvmPlsLanguageServer implements LanguageServer, LanguageClien
     } catch (Exception e) {
       LOG.log(Level.SEVERE, "Failed to close core server during shutdown", e);
     }
+    textDocumentService.closeRequestExecutors();
     return CompletableFuture.completedFuture(null);
   }
 
   @Override
   public void exit() {
+    textDocumentService.closeRequestExecutors(); // when the client exits without a shutdown
     exitCode = shutdownRequested ? 0 : 1;
     processExit.accept(exitCode);
   }
@@ -174,6 +180,13 @@ public final class JvmPlsLanguageServer implements LanguageServer, LanguageClien
         return diagnostics;
       }
 
+      @Override
+      public Map<String, List<Diagnostic>> openFiles(Map<String, String> textsByUri) {
+        Map<String, List<Diagnostic>> diagnostics = delegate.openFiles(textsByUri);
+        diagnostics.forEach(diagnosticsPublisher::publish);
+        return diagnostics;
+      }
+
       @Override
       public List<Diagnostic> changeFile(String uri, String text) {
         List<Diagnostic> diagnostics = delegate.changeFile(uri, text);
@@ -181,6 +194,13 @@ public final class JvmPlsLanguageServer implements LanguageServer, LanguageClien
         return diagnostics;
       }
 
+      @Override
+      public java.util.Optional<List<Diagnostic>> saveFile(String uri) {
+        java.util.Optional<List<Diagnostic>> diagnostics = delegate.saveFile(uri);
+        diagnostics.ifPresent(saved -> diagnosticsPublisher.publish(uri, saved));
+        return diagnostics;
+      }
+
       @Override
       public void closeFile(String uri) {
         delegate.closeFile(uri);
@@ -1,5 +1,6 @@
 package se.alipsa.jvmpls.server;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -29,6 +30,11 @@ public class JvmPlsTextDocumentService implements TextDocumentService {
   private final OpenDocuments openDocuments;
   private final BooleanSupplier acceptingRequests;
   private final BooleanSupplier coreReady;
+  // dedicated and bounded, so slow requests answer empty instead of queueing in the common pool
+  private final RequestExecutor completionRequests =
+      RequestExecutor.forRequests("completion", Duration.ofSeconds(2));
+  private final RequestExecutor definitionRequests =
+      RequestExecutor.forRequests("definition", Duration.ofSeconds(5));
 
   public JvmPlsTextDocumentService(CoreFacade core) {
     this(core, new OpenDocuments(), () -> true, () -> true);
@@ -45,6 +51,18 @@ public class JvmPlsTextDocumentService implements TextDocumentService {
     this.coreReady = coreReady;
   }
 
+  /** Exports the load of the request executors over JMX. */
+  void exportRequestStatistics() {
+    completionRequests.export();
+    definitionRequests.export();
+  }
+
+  /** Stops the request executors and removes their statistics from JMX. */
+  void closeRequestExecutors() {
+    completionRequests.close();
+    definitionRequests.close();
+  }
+
   // -------------------------------------------------------------------------
   // Notification handlers
   // -------------------------------------------------------------------------
@@ -102,7 +120,16 @@ public class JvmPlsTextDocumentService implements TextDocumentService {
 
   @Override
   public void didSave(DidSaveTextDocumentParams params) {
-    // no-op
+    if (!acceptingRequests.getAsBoolean()) {
+      LOG.warning("Ignoring textDocument/didSave after shutdown");
+      return;
+    }
+    if (!coreReady.getAsBoolean()) {
+      LOG.warning("Ignoring textDocument/didSave before initialization");
+      return;
+    }
+    // files analyzed in degraded mode are only indexed on save
+    core.saveFile(params.getTextDocument().getUri());
   }
 
   // -------------------------------------------------------------------------
@@ -120,7 +147,7 @@ public class JvmPlsTextDocumentService implements TextDocumentService {
       LOG.warning("Rejecting textDocument/completion before initialization");
       return rejectedUnavailable("textDocument/completion");
     }
-    return CompletableFuture.supplyAsync(
+    return completionRequests.submit(
         () -> {
           try {
             String uri = params.getTextDocument().getUri();
@@ -134,7 +161,9 @@ public class JvmPlsTextDocumentService implements TextDocumentService {
             LOG.log(Level.SEVERE, "Completion request failed", e);
             return Either.<List<CompletionItem>, CompletionList>forLeft(Collections.emptyList());
           }
-        });
+        },
+        // incomplete, so that the client asks again as the user types
+        Either.forRight(new CompletionList(true, List.of())));
   }
 
   @Override
@@ -148,7 +177,7 @@ public class JvmPlsTextDocumentService implements TextDocumentService {
       LOG.warning("Rejecting textDocument/definition before initialization");
       return rejectedUnavailable("textDocument/definition");
     }
-    return CompletableFuture.supplyAsync(
+    return definitionRequests.submit(
         () -> {
           try {
             String uri = params.getTextDocument().getUri();
@@ -167,7 +196,8 @@ public class JvmPlsTextDocumentService implements TextDocumentService {
             return Either.<List<? extends Location>, List<? extends LocationLink>>forLeft(
                 Collections.emptyList());
           }
-        });
+        },
+        Either.forLeft(Collections.emptyList()));
   }
 
   private static <T> CompletableFuture<T> rejectedAfterShutdown(String method) {
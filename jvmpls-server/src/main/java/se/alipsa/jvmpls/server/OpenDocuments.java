@@ -1,7 +1,9 @@
 package se.alipsa.jvmpls.server;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -32,7 +34,18 @@ final class OpenDocuments {
   }
 
   void replayInto(CoreFacade core) {
-    for (DocumentState document : snapshot()) {
+    List<DocumentState> documents = snapshot();
+    Map<String, String> textsByUri = new LinkedHashMap<>();
+    for (DocumentState document : documents) {
+      textsByUri.put(document.uri(), document.text());
+    }
+    try {
+      core.openFiles(textsByUri);
+      return;
+    } catch (RuntimeException e) {
+      LOG.log(Level.WARNING, "Failed to replay open documents together, replaying one by one", e);
+    }
+    for (DocumentState document : documents) {
       try {
         core.openFile(document.uri(), document.text());
       } catch (RuntimeException e) {
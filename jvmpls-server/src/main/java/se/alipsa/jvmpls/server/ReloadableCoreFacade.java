@@ -1,6 +1,7 @@
 package se.alipsa.jvmpls.server;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
@@ -70,11 +71,21 @@ final class ReloadableCoreFacade implements CoreFacade, AutoCloseable {
     return requireDelegate().openFile(uri, text);
   }
 
+  @Override
+  public Map<String, List<Diagnostic>> openFiles(Map<String, String> textsByUri) {
+    return requireDelegate().openFiles(textsByUri);
+  }
+
   @Override
   public List<Diagnostic> changeFile(String uri, String text) {
     return requireDelegate().changeFile(uri, text);
   }
 
+  @Override
+  public Optional<List<Diagnostic>> saveFile(String uri) {
+    return requireDelegate().saveFile(uri);
+  }
+
   @Override
   public void closeFile(String uri) {
     requireDelegate().closeFile(uri);
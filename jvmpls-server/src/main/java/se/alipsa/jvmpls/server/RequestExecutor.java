@@ -0,0 +1,196 @@
+package se.alipsa.jvmpls.server;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Runs one type of LSP request on virtual threads of its own, so that requests blocking on class
+ * file I/O neither starve nor are starved by other work in the JVM. At most {@code maxRunning}
+ * requests run at a time and {@code maxQueued} wait. A request arriving at a full queue, or not
+ * done by its deadline, is answered with the fallback at once. A request missing its deadline is
+ * cancelled: it leaves the queue, or its thread is interrupted, so that it frees its place.
+ */
+public final class RequestExecutor implements RequestExecutorMXBean, AutoCloseable {
+
+  private static final Logger LOG = Logger.getLogger(RequestExecutor.class.getName());
+  // the executors registered by export(), guarding their registration
+  private static final Map<ObjectName, RequestExecutor> EXPORTED = new HashMap<>();
+
+  private final String name;
+  private final Duration deadline;
+  private final ThreadPoolExecutor pool;
+  private final LongAdder started = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder timedOut = new LongAdder();
+  private final LongAdder totalWaitNanos = new LongAdder();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+
+  public RequestExecutor(String name, int maxRunning, int maxQueued, Duration deadline) {
+    if (maxRunning <= 0 || maxQueued <= 0 || deadline.isNegative() || deadline.isZero()) {
+      throw new IllegalArgumentException(
+          "Invalid limits for " + name + ": " + maxRunning + ", " + maxQueued + ", " + deadline);
+    }
+    this.name = name;
+    this.deadline = deadline;
+    this.pool =
+        new ThreadPoolExecutor(
+            maxRunning,
+            maxRunning,
+            30,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(maxQueued),
+            Thread.ofVirtual().name("jvmpls-" + name + "-", 0).factory());
+    pool.allowCoreThreadTimeOut(true);
+  }
+
+  /** An executor for interactive requests, with as many running at once as there are cores. */
+  static RequestExecutor forRequests(String name, Duration deadline) {
+    int cores = Runtime.getRuntime().availableProcessors();
+    return new RequestExecutor(name, Math.max(2, cores), 4 * Math.max(2, cores), deadline);
+  }
+
+  /**
+   * Runs {@code request}, completing with {@code fallback} when it is rejected or misses its
+   * deadline. Exceptions of the request complete the result exceptionally.
+   */
+  public <T> CompletableFuture<T> submit(Supplier<T> request, T fallback) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    long queuedAt = System.nanoTime();
+    FutureTask<Void> task = new FutureTask<>(() -> run(request, result, queuedAt), null);
+    try {
+      pool.execute(task);
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      LOG.fine(() -> "Rejected " + name + " request, " + getQueueDepth() + " already queued");
+      return CompletableFuture.completedFuture(fallback);
+    }
+    // completing the fallback is cheap, so it runs on the timer thread
+    CompletableFuture.delayedExecutor(deadline.toNanos(), TimeUnit.NANOSECONDS, Runnable::run)
+        .execute(
+            () -> {
+              if (result.complete(fallback)) {
+                timedOut.increment();
+                task.cancel(true);
+                pool.remove(task);
+                LOG.fine(() -> name + " request missed its deadline of " + deadline);
+              }
+            });
+    return result;
+  }
+
+  private <T> void run(Supplier<T> request, CompletableFuture<T> result, long queuedAt) {
+    long waited = System.nanoTime() - queuedAt;
+    started.increment();
+    totalWaitNanos.add(waited);
+    maxWaitNanos.accumulateAndGet(waited, Math::max);
+    if (result.isDone()) {
+      return; // answered while queued
+    }
+    try {
+      result.complete(request.get());
+    } catch (Throwable e) {
+      // errors too, the caller would otherwise wait for the deadline
+      result.completeExceptionally(e);
+    } finally {
+      completed.increment();
+    }
+  }
+
+  /**
+   * Registers this executor as an MBean named after its request type, replacing an executor
+   * registered earlier under the same name.
+   */
+  void export() {
+    synchronized (EXPORTED) {
+      try {
+        ObjectName objectName = objectName();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+          server.unregisterMBean(objectName);
+        }
+        server.registerMBean(this, objectName);
+        EXPORTED.put(objectName, this);
+      } catch (JMException | RuntimeException e) {
+        LOG.log(Level.WARNING, "Failed to export statistics of " + name + " requests", e);
+      }
+    }
+  }
+
+  /**
+   * Stops the running requests and unregisters the MBean of {@link #export()}, unless a later
+   * executor has replaced it.
+   */
+  @Override
+  public void close() {
+    pool.shutdownNow();
+    synchronized (EXPORTED) {
+      try {
+        ObjectName objectName = objectName();
+        if (EXPORTED.remove(objectName, this)) {
+          ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        }
+      } catch (JMException | RuntimeException e) {
+        LOG.log(Level.WARNING, "Failed to unregister statistics of " + name + " requests", e);
+      }
+    }
+  }
+
+  private ObjectName objectName() throws MalformedObjectNameException {
+    return new ObjectName("se.alipsa.jvmpls:type=RequestExecutor,name=" + ObjectName.quote(name));
+  }
+
+  @Override
+  public int getRunningCount() {
+    return pool.getActiveCount();
+  }
+
+  @Override
+  public int getQueueDepth() {
+    return pool.getQueue().size();
+  }
+
+  @Override
+  public long getCompletedCount() {
+    return completed.sum();
+  }
+
+  @Override
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  @Override
+  public long getTimedOutCount() {
+    return timedOut.sum();
+  }
+
+  @Override
+  public double getAverageWaitMillis() {
+    long count = started.sum();
+    return count == 0 ? 0 : totalWaitNanos.sum() / (count * 1_000_000.0);
+  }
+
+  @Override
+  public double getMaxWaitMillis() {
+    return maxWaitNanos.get() / 1_000_000.0;
+  }
+}
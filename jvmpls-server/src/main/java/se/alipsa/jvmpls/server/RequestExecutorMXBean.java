@@ -0,0 +1,24 @@
+package se.alipsa.jvmpls.server;
+
+/** Load of the executor of one type of LSP request, exported over JMX. */
+public interface RequestExecutorMXBean {
+
+  /** Requests running now. */
+  int getRunningCount();
+
+  /** Requests waiting for a thread. */
+  int getQueueDepth();
+
+  long getCompletedCount();
+
+  /** Requests answered with an empty result because the queue was full. */
+  long getRejectedCount();
+
+  /** Requests answered with an empty result because they missed their deadline. */
+  long getTimedOutCount();
+
+  /** Average time requests waited in the queue before they started. */
+  double getAverageWaitMillis();
+
+  double getMaxWaitMillis();
+}
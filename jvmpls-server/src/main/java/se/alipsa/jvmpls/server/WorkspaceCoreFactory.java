@@ -3,7 +3,9 @@ package se.alipsa.jvmpls.server;
 import java.nio.file.Path;
 import java.util.List;
 
+import se.alipsa.jvmpls.core.AnalysisBudget;
 import se.alipsa.jvmpls.core.CoreFacade;
+import se.alipsa.jvmpls.core.ModuleScope;
 import se.alipsa.jvmpls.core.server.CoreServer;
 import se.alipsa.jvmpls.core.server.DiagnosticsPublisher;
 
@@ -12,9 +14,12 @@ final class WorkspaceCoreFactory {
   CoreInstance create(
       List<String> classpathEntries,
       Path targetJdkHome,
+      List<ModuleScope> modules,
+      AnalysisBudget analysisBudget,
       DiagnosticsPublisher diagnosticsPublisher) {
     CoreServer coreServer =
-        CoreServer.createDefault(diagnosticsPublisher, classpathEntries, targetJdkHome);
+        CoreServer.createDefault(
+            diagnosticsPublisher, classpathEntries, targetJdkHome, modules, analysisBudget);
     return new CoreInstance(coreServer, coreServer);
   }
 
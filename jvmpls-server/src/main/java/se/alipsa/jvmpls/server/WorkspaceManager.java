@@ -2,6 +2,7 @@ package se.alipsa.jvmpls.server;
 
 import java.net.URI;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
@@ -17,9 +18,11 @@ import org.eclipse.lsp4j.InitializeParams;
 import org.eclipse.lsp4j.WorkspaceFolder;
 
 import se.alipsa.jvmpls.build.BuildModel;
+import se.alipsa.jvmpls.build.BuildModule;
 import se.alipsa.jvmpls.build.BuildResolutionException;
 import se.alipsa.jvmpls.build.BuildToolPlugin;
 import se.alipsa.jvmpls.build.BuildToolRegistry;
+import se.alipsa.jvmpls.core.ModuleScope;
 import se.alipsa.jvmpls.core.server.DiagnosticsPublisher;
 
 final class WorkspaceManager {
@@ -156,7 +159,11 @@ final class WorkspaceManager {
   private void installBuildModel(BuildModel buildModel, String reason) {
     WorkspaceCoreFactory.CoreInstance nextCore =
         coreFactory.create(
-            buildModel.classpathEntries(), buildModel.targetJdkHome(), diagnosticsPublisher);
+            buildModel.classpathEntries(),
+            buildModel.targetJdkHome(),
+            moduleScopes(buildModel),
+            workspaceSettings.analysisBudget(),
+            diagnosticsPublisher);
     boolean installed = false;
     try {
       openDocuments.replayInto(nextCore.core());
@@ -188,6 +195,25 @@ final class WorkspaceManager {
     }
   }
 
+  /**
+   * One scope per build module. A module sees its own classpath entries and output directories;
+   * single-module builds get no scopes and keep the flat workspace classpath.
+   */
+  private static List<ModuleScope> moduleScopes(BuildModel buildModel) {
+    if (buildModel.modules().size() < 2) {
+      return List.of();
+    }
+    List<ModuleScope> scopes = new ArrayList<>();
+    for (BuildModule module : buildModel.modules()) {
+      List<Path> roots = new ArrayList<>(module.sourceRoots());
+      roots.addAll(module.testSourceRoots());
+      LinkedHashSet<String> classpath = new LinkedHashSet<>(module.classpathEntries());
+      module.outputDirectories().forEach(output -> classpath.add(output.toString()));
+      scopes.add(new ModuleScope(module.name(), roots, List.copyOf(classpath)));
+    }
+    return List.copyOf(scopes);
+  }
+
   private BuildModel resolveBuildModel() throws BuildResolutionException {
     if (workspaceSettings.hasManualClasspath()) {
       return new BuildModel(
@@ -7,16 +7,23 @@ import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
-record WorkspaceSettings(String buildToolId, List<String> classpathEntries, Path targetJdkHome) {
+import se.alipsa.jvmpls.core.AnalysisBudget;
+
+record WorkspaceSettings(
+    String buildToolId,
+    List<String> classpathEntries,
+    Path targetJdkHome,
+    AnalysisBudget analysisBudget) {
 
   private static final Logger LOG = Logger.getLogger(WorkspaceSettings.class.getName());
 
   WorkspaceSettings {
     classpathEntries = classpathEntries == null ? List.of() : List.copyOf(classpathEntries);
+    analysisBudget = analysisBudget == null ? AnalysisBudget.DEFAULT : analysisBudget;
   }
 
   static WorkspaceSettings empty() {
-    return new WorkspaceSettings(null, List.of(), currentJdkHome());
+    return new WorkspaceSettings(null, List.of(), currentJdkHome(), AnalysisBudget.DEFAULT);
   }
 
   static WorkspaceSettings from(Object rawSettings) {
@@ -57,7 +64,37 @@ record WorkspaceSettings(String buildToolId, List<String> classpathEntries, Path
     return new WorkspaceSettings(
         buildToolId,
         List.copyOf(classpathEntries),
-        targetJdk == null || targetJdk.isBlank() ? currentJdkHome() : Path.of(targetJdk));
+        targetJdk == null || targetJdk.isBlank() ? currentJdkHome() : Path.of(targetJdk),
+        analysisBudget(settings));
+  }
+
+  private static AnalysisBudget analysisBudget(Map<?, ?> settings) {
+    Long maxChars = positiveLong(settings.get("maxFileChars"));
+    Long maxMillis = positiveLong(settings.get("maxAnalysisMillis"));
+    return new AnalysisBudget(
+        maxChars == null
+            ? AnalysisBudget.DEFAULT.maxChars()
+            : (int) Math.min(maxChars, Integer.MAX_VALUE),
+        maxMillis == null ? AnalysisBudget.DEFAULT.maxMillis() : maxMillis);
+  }
+
+  private static Long positiveLong(Object value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      long parsed =
+          value instanceof Number number
+              ? number.longValue()
+              : (long) Double.parseDouble(String.valueOf(value));
+      if (parsed > 0) {
+        return parsed;
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    LOG.warning("Ignoring analysis budget setting that is not a positive number: " + value);
+    return null;
   }
 
   boolean hasManualClasspath() {
@@ -115,7 +115,7 @@ class JvmPlsLanguageServerTest {
 
     assertNotNull(result.getCapabilities(), "capabilities should not be null");
 
-    // Text document sync should advertise open/close and full change sync
+    // Text document sync should advertise open/close, full change sync and save
     Either<TextDocumentSyncKind, TextDocumentSyncOptions> syncCapability =
         result.getCapabilities().getTextDocumentSync();
     assertNotNull(syncCapability, "textDocumentSync should not be null");
@@ -123,6 +123,7 @@ class JvmPlsLanguageServerTest {
     TextDocumentSyncOptions syncOptions = syncCapability.getRight();
     assertTrue(syncOptions.getOpenClose(), "openClose should be true");
     assertEquals(TextDocumentSyncKind.Full, syncOptions.getChange());
+    assertNotNull(syncOptions.getSave(), "save should be advertised");
 
     CompletionOptions completionProvider = result.getCapabilities().getCompletionProvider();
     assertNotNull(completionProvider, "completionProvider should not be null");
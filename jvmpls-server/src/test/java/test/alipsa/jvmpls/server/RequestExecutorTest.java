@@ -0,0 +1,155 @@
+package test.alipsa.jvmpls.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import se.alipsa.jvmpls.server.RequestExecutor;
+
+class RequestExecutorTest {
+
+  @Test
+  void requests_beyond_the_queue_are_answered_with_the_fallback_at_once() throws Exception {
+    RequestExecutor executor = new RequestExecutor("test", 1, 1, Duration.ofSeconds(30));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    CompletableFuture<String> running =
+        executor.submit(
+            () -> {
+              started.countDown();
+              await(release);
+              return "first";
+            },
+            "empty");
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    CompletableFuture<String> queued = executor.submit(() -> "second", "empty");
+    CompletableFuture<String> rejected = executor.submit(() -> "third", "empty");
+
+    assertEquals("empty", rejected.getNow(null));
+    assertEquals(1, executor.getRejectedCount());
+    assertEquals(1, executor.getQueueDepth());
+    assertEquals(1, executor.getRunningCount());
+
+    release.countDown();
+    assertEquals("first", running.get(5, TimeUnit.SECONDS));
+    assertEquals("second", queued.get(5, TimeUnit.SECONDS));
+    assertTrue(executor.getMaxWaitMillis() > 0, "the queued request waited");
+  }
+
+  @Test
+  void requests_missing_their_deadline_are_answered_with_the_fallback_and_cancelled()
+      throws Exception {
+    RequestExecutor executor = new RequestExecutor("test", 1, 1, Duration.ofMillis(50));
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch queuedAnswered = new CountDownLatch(1);
+    AtomicBoolean interrupted = new AtomicBoolean();
+    AtomicBoolean queuedRan = new AtomicBoolean();
+
+    CompletableFuture<String> running =
+        executor.submit(
+            () -> {
+              interrupted.set(!await(release));
+              // keeps the thread until the queued request missed its deadline as well
+              Thread.interrupted();
+              await(queuedAnswered);
+              return "late";
+            },
+            "empty");
+    CompletableFuture<String> queued =
+        executor.submit(
+            () -> {
+              queuedRan.set(true);
+              return "late";
+            },
+            "empty");
+
+    assertEquals("empty", running.get(5, TimeUnit.SECONDS));
+    assertEquals("empty", queued.get(5, TimeUnit.SECONDS));
+    queuedAnswered.countDown();
+    // counted just after the fallback completes the result
+    assertTrue(eventually(() -> executor.getTimedOutCount() == 2));
+
+    assertTrue(eventually(interrupted::get), "the running request should be interrupted");
+    assertTrue(eventually(() -> executor.getCompletedCount() == 1));
+    assertTrue(eventually(() -> executor.getRunningCount() == 0));
+    assertEquals(0, executor.getQueueDepth(), "the queued request should leave the queue");
+    assertFalse(queuedRan.get(), "a request answered while queued should not start");
+    release.countDown();
+  }
+
+  @Test
+  void closing_stops_running_requests_and_answers_later_ones_with_the_fallback()
+      throws Exception {
+    RequestExecutor executor = new RequestExecutor("test", 1, 1, Duration.ofSeconds(30));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicBoolean interrupted = new AtomicBoolean();
+
+    executor.submit(
+        () -> {
+          started.countDown();
+          interrupted.set(!await(release));
+          return "first";
+        },
+        "empty");
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    executor.close();
+
+    assertTrue(eventually(interrupted::get), "the running request should be interrupted");
+    assertEquals("empty", executor.submit(() -> "second", "empty").getNow(null));
+    release.countDown();
+  }
+
+  @Test
+  void failing_requests_complete_exceptionally_at_once() throws Exception {
+    RequestExecutor executor = new RequestExecutor("test", 1, 1, Duration.ofSeconds(30));
+
+    CompletableFuture<String> failed =
+        executor.submit(
+            () -> {
+              throw new StackOverflowError("deep");
+            },
+            "empty");
+
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+    assertInstanceOf(StackOverflowError.class, e.getCause());
+    assertTrue(eventually(() -> executor.getCompletedCount() == 1));
+    assertEquals(0, executor.getTimedOutCount());
+  }
+
+  private static boolean eventually(BooleanSupplier condition) throws InterruptedException {
+    long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > until) {
+        return false;
+      }
+      Thread.sleep(10);
+    }
+    return true;
+  }
+
+  /** Waits for the latch; false when interrupted. */
+  private static boolean await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}